@@ -22,12 +22,14 @@ import android.widget.Toast;
 
 import com.ruesga.rview.databinding.ContentBinding;
 import com.ruesga.rview.fragments.ChangeDetailsFragment;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.model.ChangeInfo;
 import com.ruesga.rview.gerrit.model.ChangeOptions;
 import com.ruesga.rview.misc.ActivityHelper;
 import com.ruesga.rview.misc.CacheHelper;
+import com.ruesga.rview.misc.DiffCacheHelper;
 import com.ruesga.rview.misc.ModelHelper;
 import com.ruesga.rview.misc.NotificationsHelper;
 import com.ruesga.rview.misc.StringHelper;
@@ -83,10 +85,12 @@ public class ChangeDetailsActivity extends BaseActivity {
         @Override
         public void onNext(ChangeDetailsResponse result) {
             if (result != null) {
-                // Clear the cache
+                final ChangeInfo change = result.mChange;
+
+                // Clear the cache. An offline copy of the change lives outside of it
                 CacheHelper.removeAccountDiffCacheDir(ChangeDetailsActivity.this);
+                DiffCacheHelper.activateOfflineBundle(ChangeDetailsActivity.this, change);
 
-                final ChangeInfo change = result.mChange;
                 final int legacyChangeId = change.legacyChangeId;
                 final String changeId = change.changeId;
 
@@ -306,8 +310,8 @@ public class ChangeDetailsActivity extends BaseActivity {
     private Observable<ChangeDetailsResponse> fetchChangeId(ChangeDetailsRequest request) {
         final GerritApi api = ModelHelper.getGerritApi(this);
         return SafeObservable.fromNullCallable(() -> {
-                List<ChangeInfo> changes = api.getChanges(
-                        request.mFilter, 1, 0, OPTIONS).blockingFirst();
+                List<ChangeInfo> changes = BlockingCalls.first(api.getChanges(
+                        request.mFilter, 1, 0, OPTIONS));
                 if (changes != null && !changes.isEmpty()) {
                     ChangeDetailsResponse result = new ChangeDetailsResponse();
                     result.mChange = changes.get(0);
@@ -83,6 +83,7 @@ import com.ruesga.rview.services.AccountStatusFetcherService;
 import com.ruesga.rview.wizards.AuthorizationAccountSetupActivity;
 import com.ruesga.rview.wizards.SetupAccountActivity;
 
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -419,7 +420,7 @@ public class MainActivity extends ChangeListBaseActivity implements Reloadable {
     private void loadAccounts() {
         mAccount = Preferences.getAccount(this);
         setAnalyticsAccount(mAccount);
-        mAccounts = Preferences.getAccounts(this);
+        mAccounts = new ArrayList<>(Preferences.getAccounts(this));
         if (mAccount != null) {
             Formatter.refreshCachedPreferences(this);
         }
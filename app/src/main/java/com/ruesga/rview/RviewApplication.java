@@ -20,6 +20,7 @@ import android.os.StrictMode;
 
 import com.ruesga.rview.analytics.AnalyticsFlavor;
 import com.ruesga.rview.attachments.AttachmentsProviderFactory;
+import com.ruesga.rview.attachments.misc.OkHttpHelper;
 import com.ruesga.rview.misc.Formatter;
 import com.ruesga.rview.misc.ModelHelper;
 import com.ruesga.rview.misc.NotificationsHelper;
@@ -53,6 +54,7 @@ public class RviewApplication extends Application {
 
         // Initialize application resources
         Formatter.refreshCachedPreferences(getApplicationContext());
+        OkHttpHelper.setRootClient(com.ruesga.rview.gerrit.OkHttpHelper.getRootClient());
         AttachmentsProviderFactory.initialize(getApplicationContext());
 
         // Recreate notifications
@@ -40,6 +40,7 @@ import com.arlib.floatingsearchview.suggestions.model.SearchSuggestion;
 import com.google.gson.annotations.Since;
 import com.ruesga.rview.adapters.SimpleDropDownAdapter;
 import com.ruesga.rview.databinding.SearchActivityBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.annotations.Until;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
@@ -635,8 +636,8 @@ public class SearchActivity extends AppCompatDelegateActivity {
                     result.mFilter = filter;
                     result.mPartial = partial;
                     result.mAccounts =
-                            api.getAccountsSuggestions(
-                                    filter, MAX_SUGGESTIONS, Option.INSTANCE).blockingFirst();
+                            BlockingCalls.first(api.getAccountsSuggestions(
+                                    filter, MAX_SUGGESTIONS, Option.INSTANCE));
                     return result;
                 })
                 .subscribeOn(Schedulers.io())
@@ -656,9 +657,8 @@ public class SearchActivity extends AppCompatDelegateActivity {
                     result.mFilter = filter;
                     result.mPartial = partial;
                     result.mProjects = new ArrayList<>(
-                            api.getProjects(MAX_SUGGESTIONS, null, null, null, filter,
-                                null, null, null, ProjectType.ALL, null, null)
-                                    .blockingFirst().keySet());
+                            BlockingCalls.first(api.getProjects(MAX_SUGGESTIONS, null, null, null,
+                                filter, null, null, null, ProjectType.ALL, null, null)).keySet());
                     return result;
                 })
                 .subscribeOn(Schedulers.io())
@@ -676,7 +676,7 @@ public class SearchActivity extends AppCompatDelegateActivity {
         return SafeObservable.fromNullCallable(() -> {
                     DocInfoResult result = new DocInfoResult();
                     result.mFilter = filter;
-                    result.mDocs = api.findDocumentation(filter).blockingFirst();
+                    result.mDocs = BlockingCalls.first(api.findDocumentation(filter));
                     if (result.mDocs.size() > MAX_SUGGESTIONS) {
                         result.mDocs = result.mDocs.subList(0, MAX_SUGGESTIONS);
                     }
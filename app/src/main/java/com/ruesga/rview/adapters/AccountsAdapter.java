@@ -28,6 +28,7 @@ import android.widget.Filterable;
 
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.ReviewerDropdownItemBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.Option;
 import com.ruesga.rview.gerrit.model.AccountInfo;
@@ -172,8 +173,8 @@ public class AccountsAdapter extends BaseAdapter implements Filterable {
 
         @SuppressWarnings("ConstantConditions")
         private List<AccountInfo> fetchAccounts(String query) {
-            return mGerritApi.getAccountsSuggestions(query, MAX_RESULTS, Option.INSTANCE)
-                    .blockingFirst();
+            return BlockingCalls.first(
+                    mGerritApi.getAccountsSuggestions(query, MAX_RESULTS, Option.INSTANCE));
         }
     }
 
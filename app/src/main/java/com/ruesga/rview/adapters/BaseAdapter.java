@@ -17,6 +17,7 @@ package com.ruesga.rview.adapters;
 
 import android.content.Context;
 
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.filter.IsType;
@@ -48,7 +49,7 @@ public class BaseAdapter extends FilterableAdapter {
                 .and(new ChangeQuery().branch(mBranch))
                 .and(new ChangeQuery().is(IsType.OPEN))
                 .negate(new ChangeQuery().age(TimeUnit.DAYS, 90));
-        List<ChangeInfo> changes = api.getChanges(query, 1000, 0, null).blockingFirst();
+        List<ChangeInfo> changes = BlockingCalls.first(api.getChanges(query, 1000, 0, null));
         List<CharSequence> results = new ArrayList<>(changes.size());
         for (ChangeInfo change : changes) {
             // Exclude current base
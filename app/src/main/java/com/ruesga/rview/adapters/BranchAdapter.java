@@ -18,6 +18,7 @@ package com.ruesga.rview.adapters;
 import android.content.Context;
 import android.text.TextUtils;
 
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.model.BranchInfo;
 import com.ruesga.rview.misc.ModelHelper;
@@ -57,8 +58,8 @@ public class BranchAdapter extends FilterableAdapter {
         }
 
         final GerritApi api = ModelHelper.getGerritApi(getContext());
-        List<BranchInfo> branches = api.getProjectBranches(
-                mProjectId, null, null, null, null).blockingFirst();
+        List<BranchInfo> branches = BlockingCalls.first(api.getProjectBranches(
+                mProjectId, null, null, null, null));
         List<CharSequence> results = new ArrayList<>(branches.size());
         for (BranchInfo branch : branches) {
             if (branch.ref.startsWith(Constants.REF_HEADS)) {
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.adapters;
+
+import com.ruesga.rview.gerrit.model.AccountInfo;
+import com.ruesga.rview.gerrit.model.ApprovalInfo;
+import com.ruesga.rview.gerrit.model.ChangeInfo;
+import com.ruesga.rview.gerrit.model.LabelInfo;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.core.util.ObjectsCompat;
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * Compares changes of a change list by id, and their contents only by the fields that are
+ * rendered in the list.
+ */
+public class ChangeInfoDiffCallback extends DiffUtil.ItemCallback<ChangeInfo> {
+    @Override
+    public boolean areItemsTheSame(@NonNull ChangeInfo oldItem, @NonNull ChangeInfo newItem) {
+        // The fetching more item doesn't have an id
+        return oldItem.id == null ? newItem.id == null : oldItem.id.equals(newItem.id);
+    }
+
+    @Override
+    public boolean areContentsTheSame(
+            @NonNull ChangeInfo oldItem, @NonNull ChangeInfo newItem) {
+        return ObjectsCompat.equals(oldItem.updated, newItem.updated)
+                && oldItem.reviewed == newItem.reviewed
+                && ObjectsCompat.equals(oldItem.mergeable, newItem.mergeable)
+                && oldItem.trendingScore == newItem.trendingScore
+                && Arrays.equals(oldItem.stars, newItem.stars)
+                && hasSameLabels(oldItem.labels, newItem.labels);
+    }
+
+    private boolean hasSameLabels(Map<String, LabelInfo> o, Map<String, LabelInfo> n) {
+        if (o == null || n == null) {
+            return o == n;
+        }
+        if (!o.keySet().equals(n.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, LabelInfo> entry : o.entrySet()) {
+            LabelInfo ol = entry.getValue();
+            LabelInfo nl = n.get(entry.getKey());
+            if (ol == null || nl == null) {
+                if (ol != nl) {
+                    return false;
+                }
+                continue;
+            }
+            if (ol.value != nl.value || ol.blocking != nl.blocking
+                    || !hasSameAccount(ol.approved, nl.approved)
+                    || !hasSameAccount(ol.rejected, nl.rejected)
+                    || !hasSameAccount(ol.recommended, nl.recommended)
+                    || !hasSameAccount(ol.disliked, nl.disliked)
+                    || !hasSameApprovals(ol.all, nl.all)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasSameApprovals(ApprovalInfo[] o, ApprovalInfo[] n) {
+        if (o == null || n == null) {
+            return o == n;
+        }
+        if (o.length != n.length) {
+            return false;
+        }
+        for (int i = 0; i < o.length; i++) {
+            if (!ObjectsCompat.equals(o[i].value, n[i].value)
+                    || !hasSameAccount(o[i].owner, n[i].owner)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasSameAccount(AccountInfo o, AccountInfo n) {
+        if (o == null || n == null) {
+            return o == n;
+        }
+        return o.accountId == n.accountId;
+    }
+}
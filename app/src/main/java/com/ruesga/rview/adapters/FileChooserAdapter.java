@@ -17,6 +17,7 @@ package com.ruesga.rview.adapters;
 
 import android.content.Context;
 
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.misc.ModelHelper;
 import com.ruesga.rview.preferences.Constants;
@@ -40,8 +41,8 @@ public class FileChooserAdapter extends FilterableAdapter {
     public List<CharSequence> getResults(CharSequence constraint) {
         final GerritApi api = ModelHelper.getGerritApi(getContext());
         List<String> files =
-                api.getChangeRevisionFilesSuggestion(mLegacyChangeId, mRevisionId, null, null,
-                        constraint.toString()).blockingFirst();
+                BlockingCalls.first(api.getChangeRevisionFilesSuggestion(
+                        mLegacyChangeId, mRevisionId, null, null, constraint.toString()));
         List<CharSequence> results = new ArrayList<>();
         for (String file : files) {
             if (file.equals(Constants.COMMIT_MESSAGE)) {
@@ -17,6 +17,7 @@ package com.ruesga.rview.adapters;
 
 import android.content.Context;
 
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.model.ProjectType;
 import com.ruesga.rview.misc.ModelHelper;
@@ -45,8 +46,8 @@ public class ProjectAdapter extends FilterableAdapter {
     public List<CharSequence> getResults(CharSequence constraint) {
         String filter = constraint.toString();
         final GerritApi api = ModelHelper.getGerritApi(getContext());
-        Set<String> projects = api.getProjects(MAX_SUGGESTIONS, null, null, null, filter,
-                null, null, null, ProjectType.ALL, null, null).blockingFirst().keySet();
+        Set<String> projects = BlockingCalls.first(api.getProjects(MAX_SUGGESTIONS, null, null,
+                null, filter, null, null, null, ProjectType.ALL, null, null)).keySet();
         List<CharSequence> results = new ArrayList<>(projects.size());
         for (String project : projects) {
             if (mProjectId == null || !mProjectId.equals(project)) {
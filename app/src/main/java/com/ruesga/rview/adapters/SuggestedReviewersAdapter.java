@@ -28,6 +28,7 @@ import android.widget.Filterable;
 
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.ReviewerDropdownItemBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.model.SuggestedReviewerInfo;
 import com.ruesga.rview.misc.ModelHelper;
@@ -183,8 +184,8 @@ public class SuggestedReviewersAdapter extends BaseAdapter implements Filterable
 
         @SuppressWarnings("ConstantConditions")
         private List<SuggestedReviewerInfo> fetchSuggestedReviewers(String query) {
-            return mGerritApi.getChangeSuggestedReviewers(
-                    mLegacyChangeId, query, MAX_RESULTS, null, null).blockingFirst();
+            return BlockingCalls.first(mGerritApi.getChangeSuggestedReviewers(
+                    mLegacyChangeId, query, MAX_RESULTS, null, null));
         }
 
         private void removeSelfFromReviewers(List<SuggestedReviewerInfo> reviewers) {
@@ -53,7 +53,6 @@ import me.tatarka.rxloader2.RxLoader;
 import me.tatarka.rxloader2.RxLoaderManager;
 import me.tatarka.rxloader2.RxLoaderManagerCompat;
 import me.tatarka.rxloader2.RxLoaderObserver;
-import me.tatarka.rxloader2.safe.SafeObservable;
 
 import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_ATTACHMENTS_CATEGORY;
 import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_CI_CATEGORY;
@@ -83,6 +82,7 @@ public class AccountSettingsFragment extends PreferenceFragmentCompat
         @Override
         public void onNext(CloudNotificationsConfigInfo config) {
             if (config != null) {
+                mAccount = mAccount.copy();
                 mAccount.mNotificationsSenderId = config.senderId;
                 Preferences.addOrUpdateAccount(getContext(), mAccount);
                 Preferences.setAccount(getContext(), mAccount);
@@ -341,8 +341,7 @@ public class AccountSettingsFragment extends PreferenceFragmentCompat
     @SuppressWarnings("ConstantConditions")
     private Observable<CloudNotificationsConfigInfo> checkNotificationsSupport() {
         final GerritApi api = ModelHelper.getGerritApi(getContext());
-        return SafeObservable.fromNullCallable(() ->
-                    api.getCloudNotificationsConfig().blockingFirst())
+        return api.getCloudNotificationsConfig()
             .subscribeOn(Schedulers.io())
             .observeOn(AndroidSchedulers.mainThread());
     }
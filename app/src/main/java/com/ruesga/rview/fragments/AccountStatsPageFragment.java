@@ -23,6 +23,7 @@ import android.view.ViewGroup;
 
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.AccountDetailsViewBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.filter.TimeUnit;
@@ -109,8 +110,8 @@ public class AccountStatsPageFragment extends StatsPageFragment<AccountDetailInf
                 // If something went wrong just fallback to the cached information.
                 if (api.supportsFeature(Features.ACCOUNT_DETAILS)) {
                     try {
-                        mCachedAccount = api.getAccountDetails(
-                                String.valueOf(mAccountId)).blockingFirst();
+                        mCachedAccount = BlockingCalls.first(api.getAccountDetails(
+                                String.valueOf(mAccountId)));
                     } catch (Exception ex) {
                         // Ignore
                     }
@@ -121,8 +122,8 @@ public class AccountStatsPageFragment extends StatsPageFragment<AccountDetailInf
                 if (mCachedAccount.accountId == account.mAccount.accountId &&
                         mCachedAccount.secondaryEmails == null) {
                     try {
-                        List<EmailInfo> emails = api.getAccountEmails(GerritApi.SELF_ACCOUNT)
-                                .blockingFirst();
+                        List<EmailInfo> emails = BlockingCalls.first(
+                                api.getAccountEmails(GerritApi.SELF_ACCOUNT));
                         if (emails != null) {
                             List<String> secondaryEmails = new ArrayList<>();
                             for (EmailInfo email : emails) {
@@ -33,12 +33,14 @@ import android.os.Handler;
 import android.provider.MediaStore;
 import android.provider.OpenableColumns;
 import android.text.TextUtils;
+import android.text.format.Formatter;
 import android.util.Log;
 import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import com.google.gson.reflect.TypeToken;
 import com.ruesga.rview.BaseActivity;
@@ -60,6 +62,7 @@ import com.ruesga.rview.databinding.MessageItemBinding;
 import com.ruesga.rview.databinding.MoreFilesBinding;
 import com.ruesga.rview.databinding.TotalAddedDeletedBinding;
 import com.ruesga.rview.exceptions.OperationFailedException;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.model.AbandonInput;
@@ -111,6 +114,7 @@ import com.ruesga.rview.misc.AndroidHelper;
 import com.ruesga.rview.misc.BitmapUtils;
 import com.ruesga.rview.misc.CacheHelper;
 import com.ruesga.rview.misc.ContinuousIntegrationHelper;
+import com.ruesga.rview.misc.DiffCacheHelper;
 import com.ruesga.rview.misc.ExceptionHelper;
 import com.ruesga.rview.misc.ModelHelper;
 import com.ruesga.rview.misc.RviewImageHelper;
@@ -123,6 +127,7 @@ import com.ruesga.rview.model.Repository;
 import com.ruesga.rview.model.UnresolvedComment;
 import com.ruesga.rview.preferences.Constants;
 import com.ruesga.rview.preferences.Preferences;
+import com.ruesga.rview.services.OfflineBundleService;
 import com.ruesga.rview.widget.AccountChipView;
 import com.ruesga.rview.widget.AccountChipView.OnAccountChipClickedListener;
 import com.ruesga.rview.widget.AccountChipView.OnAccountChipRemovedListener;
@@ -143,6 +148,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -359,6 +365,10 @@ public class ChangeDetailsFragment extends Fragment implements
             mFragment.performOpenDownloadDialog();
         }
 
+        public void onOfflineBundlePressed(View v) {
+            mFragment.performDownloadOfflineBundle();
+        }
+
         public void onViewPatchSetPressed(View v) {
             mFragment.performViewPatchSet();
         }
@@ -692,13 +702,13 @@ public class ChangeDetailsFragment extends Fragment implements
             mRepository = repo;
         }
 
-        void update(ListModel listModel, ChangeInfo change,
+        void update(ListModel listModel, ChangeMessageInfo[] messages,
                 Map<String, LinkedHashMap<String, List<CommentInfo>>> messagesWithComments,
                 ReviewerUpdateInfo[] reviewerUpdates) {
-            change.messages = joinWithReviewerUpdates(change.messages, reviewerUpdates);
             mMessagesWithComments = messagesWithComments;
 
-            mMessages = filterTaggedMessages(filterCiAccountsMessages(change.messages));
+            mMessages = filterTaggedMessages(filterCiAccountsMessages(
+                    joinWithReviewerUpdates(messages, reviewerUpdates)));
 
             int count = mMessages.length;
             boolean[] old = mFolded;
@@ -813,7 +823,7 @@ public class ChangeDetailsFragment extends Fragment implements
             for (ReviewerUpdateInfo ru : reviewerUpdate) {
                 int i = 0;
                 boolean found = false;
-                Iterator<ChangeMessageInfo> it = msgs.iterator();
+                ListIterator<ChangeMessageInfo> it = msgs.listIterator();
                 while (it.hasNext()) {
                     ChangeMessageInfo msg = it.next();
                     if (msg.date.compareTo(ru.updated) == 0) {
@@ -831,9 +841,12 @@ public class ChangeDetailsFragment extends Fragment implements
                             it.remove();
                             continue;
                         }
-                        msg._reviewer_updates.add(
+                        // The message belongs to the change, so update a copy of it
+                        ChangeMessageInfo copy = ModelHelper.copyChangeMessageInfo(msg);
+                        copy._reviewer_updates.add(
                                 resolvedExtendedReviewerUpdateState(reviewerUpdate, ru));
-                        msg.tag = ModelHelper.AUTOGENERATED_TAG_REVIEWER_UPDATE;
+                        copy.tag = ModelHelper.AUTOGENERATED_TAG_REVIEWER_UPDATE;
+                        it.set(copy);
                         found = true;
 
                     } else if (msg.date.compareTo(ru.updated) > 0) {
@@ -860,6 +873,9 @@ public class ChangeDetailsFragment extends Fragment implements
 
     private static class DataResponse {
         ChangeInfo mChange;
+        // The messages of the change with the drafts merged in. The change may be shared
+        // with other requesters, so it's never modified
+        ChangeMessageInfo[] mMessages;
         MergeableInfo mMergeableInfo;
         SubmitType mSubmitType;
         Map<String, FileInfo> mFiles;
@@ -932,12 +948,14 @@ public class ChangeDetailsFragment extends Fragment implements
                             ? R.string.change_details_action_show_ci_messages
                             : R.string.change_details_action_hide_ci_messages));
                 }
-                mMessageAdapter.update(mModel.msgListModel, change,
+                mMessageAdapter.update(mModel.msgListModel, result.mMessages,
                         result.mMessagesWithComments, change.reviewerUpdates);
             }
 
-            // Invalidate the diff cache. we have new data
+            // Invalidate the diff cache. we have new data. An offline copy of the change
+            // lives outside of it
             CacheHelper.removeAccountDiffCacheDir(getContext());
+            DiffCacheHelper.activateOfflineBundle(getContext(), change);
 
             mBinding.setModel(mModel);
             mBinding.setHandlers(mEventHandlers);
@@ -1050,9 +1068,10 @@ public class ChangeDetailsFragment extends Fragment implements
 
             // Update the messages (since it was update at server side, we can temporary
             // update the message list until a full refresh happens)
-            ModelHelper.updateChangeMessageInfo(mAccount, mResponse.mChange, review.first);
-            mMessageAdapter.update(mModel.msgListModel, mResponse.mChange,
-                    mResponse.mMessagesWithComments, null);
+            mResponse.mMessages = ModelHelper.updateChangeMessageInfo(
+                    mAccount, mResponse.mMessages, review.first);
+            mMessageAdapter.update(mModel.msgListModel, mResponse.mMessages,
+                    mResponse.mMessagesWithComments, mResponse.mChange.reviewerUpdates);
 
             // Fetch the whole change
             forceRefresh();
@@ -1158,10 +1177,10 @@ public class ChangeDetailsFragment extends Fragment implements
             // and the possibility that we are out-of-sync is low, compared to
             // the effort of fetching messages and comments (a user refresh
             // will fix the out-of-sync problem).
-            mResponse.mChange.messages = change.messages;
+            mResponse.mMessages = change.messages;
             mResponse.mChange.reviewerUpdates = change.reviewerUpdates;
             mModel.msgListModel.visible = change.messages != null && change.messages.length > 0;
-            mMessageAdapter.update(mModel.msgListModel, change,
+            mMessageAdapter.update(mModel.msgListModel, mResponse.mMessages,
                     mResponse.mMessagesWithComments, mResponse.mChange.reviewerUpdates);
             mBinding.setModel(mModel);
 
@@ -1194,8 +1213,8 @@ public class ChangeDetailsFragment extends Fragment implements
             mModel.filesListModel.visible = mResponse.mFiles != null && !mResponse.mFiles.isEmpty();
             mFileAdapter.update(mModel.filesListModel, mResponse.mFiles,
                     mResponse.mInlineComments, mResponse.mDraftComments);
-            mMessageAdapter.update(mModel.msgListModel, mResponse.mChange,
-                    mResponse.mMessagesWithComments, null);
+            mMessageAdapter.update(mModel.msgListModel, mResponse.mMessages,
+                    mResponse.mMessagesWithComments, mResponse.mChange.reviewerUpdates);
             mBinding.setModel(mModel);
 
             mDraftsRefreshLoader.clear();
@@ -1477,6 +1496,42 @@ public class ChangeDetailsFragment extends Fragment implements
         }
     };
 
+    private BroadcastReceiver mOfflineBundleReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (intent.getIntExtra(OfflineBundleService.EXTRA_LEGACY_CHANGE_ID, -1)
+                    != mLegacyChangeId) {
+                return;
+            }
+
+            final long bytes = intent.getLongExtra(OfflineBundleService.EXTRA_BYTES, 0);
+            final String size = Formatter.formatShortFileSize(context, bytes);
+            switch (intent.getIntExtra(OfflineBundleService.EXTRA_STATUS, -1)) {
+                case OfflineBundleService.STATUS_RUNNING:
+                    mBinding.patchSetInfo.setOfflineProgress(getString(
+                            R.string.change_details_offline_bundle_progress,
+                            intent.getIntExtra(OfflineBundleService.EXTRA_PROGRESS, 0),
+                            intent.getIntExtra(OfflineBundleService.EXTRA_TOTAL, 0),
+                            size));
+                    break;
+                case OfflineBundleService.STATUS_COMPLETED:
+                    final int failed = intent.getIntExtra(OfflineBundleService.EXTRA_FAILED, 0);
+                    mBinding.patchSetInfo.setOfflineProgress(null);
+                    Toast.makeText(context, failed > 0
+                            ? getString(R.string.change_details_offline_bundle_incomplete,
+                                    size, failed)
+                            : getString(R.string.change_details_offline_bundle_completed, size),
+                            Toast.LENGTH_SHORT).show();
+                    break;
+                case OfflineBundleService.STATUS_FAILED:
+                    mBinding.patchSetInfo.setOfflineProgress(null);
+                    Toast.makeText(context, R.string.change_details_offline_bundle_failed,
+                            Toast.LENGTH_SHORT).show();
+                    break;
+            }
+        }
+    };
+
     private OnAttachmentsDroppedListener mOnAttachmentDroppedListener = attachments -> {
         for (Attachment attachment : attachments) {
             addPendingAttachments(attachment);
@@ -1689,8 +1744,8 @@ public class ChangeDetailsFragment extends Fragment implements
                 }
             }
         } else if (requestCode == EDIT_REQUEST_CODE) {
-            // Remove the cache, in case the user request to enter again in edit mode
-            CacheHelper.removeAccountDiffCacheDir(getContext());
+            // Remove the edit state, in case the user request to enter again in edit mode
+            CacheHelper.removeAccountEditCacheDir(getContext(), mAccount, mLegacyChangeId);
 
             // If the user publish the edit, then reload the whole change
             if (resultCode == Activity.RESULT_OK) {
@@ -1744,6 +1799,9 @@ public class ChangeDetailsFragment extends Fragment implements
             //noinspection ConstantConditions
             LocalBroadcastManager.getInstance(getContext()).registerReceiver(
                     mAttachmentProviderChanged, filter);
+            LocalBroadcastManager.getInstance(getContext()).registerReceiver(
+                    mOfflineBundleReceiver,
+                    new IntentFilter(OfflineBundleService.OFFLINE_BUNDLE_ACTION));
 
             mAccount = Preferences.getAccount(getContext());
             if (mAccount != null) {
@@ -1919,6 +1977,8 @@ public class ChangeDetailsFragment extends Fragment implements
         //noinspection ConstantConditions
         LocalBroadcastManager.getInstance(getContext()).unregisterReceiver(
                 mAttachmentProviderChanged);
+        LocalBroadcastManager.getInstance(getContext()).unregisterReceiver(
+                mOfflineBundleReceiver);
     }
 
     private void updatePatchSetInfo(DataResponse response) {
@@ -2037,83 +2097,101 @@ public class ChangeDetailsFragment extends Fragment implements
     private Observable<DataResponse> fetchChange(String changeId) {
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
-        return SafeObservable.fromNullCallable(() -> {
-                DataResponse dataResponse = new DataResponse();
-                dataResponse.mChange = api.getChange(
-                        changeId, OPTIONS).blockingFirst();
-
-                // Obtain the project configuration
-                if (dataResponse.mChange != null) {
-                    // Request mergeable info
-                    ChangeStatus status = dataResponse.mChange.status;
-                    if (!ChangeStatus.MERGED.equals(status) && !ChangeStatus.ABANDONED.equals(status)) {
-                        dataResponse.mMergeableInfo = api.getChangeRevisionMergeableStatus(
-                                changeId, dataResponse.mChange.currentRevision, null).blockingFirst();
-                    }
-
-                    // Request project config
-                    dataResponse.mProjectConfig = api.getProjectConfig(
-                            dataResponse.mChange.project).blockingFirst();
 
+        // Everything else depends on the change (current revision, status and project), so
+        // fetch it first and then fan out all the remaining requests at the same time.
+        return api.getChange(changeId, OPTIONS)
+            .flatMap(change -> {
+                    final DataResponse dataResponse = new DataResponse();
+                    dataResponse.mChange = change;
+                    dataResponse.mMessages = change.messages;
+
+                    final ChangeStatus status = change.status;
+                    final boolean isOpen = !ChangeStatus.MERGED.equals(status)
+                            && !ChangeStatus.ABANDONED.equals(status);
                     final String revId = !TextUtils.isEmpty(mCurrentRevision) ? mCurrentRevision
-                            : ModelHelper.extractBestRevisionId(dataResponse.mChange);
-
-                    // Only request actions when we don't know which actions
-                    // the change could have for the user. In other case, we
-                    // have some logic to deal with basic actions.
-                    // Request actions could be a heavy operation in old and complex
-                    // changes, so just try to omit it.
-                    if (mAccount.hasAuthenticatedAccessMode()
-                            && !ChangeStatus.MERGED.equals(status)
-                            && !ChangeStatus.ABANDONED.equals(status)) {
-                        dataResponse.mActions = api.getChangeRevisionActions(
-                                changeId, revId).blockingFirst();
-                    } else {
-                        // At least a cherry-pick action should be present if user
-                        // is authenticated
-                        dataResponse.mActions = new HashMap<>();
-                        if (mAccount.hasAuthenticatedAccessMode()) {
-                            dataResponse.mActions.put(
-                                    ModelHelper.ACTION_CHERRY_PICK, new ActionInfo());
-                        }
-                    }
-                }
+                            : ModelHelper.extractBestRevisionId(change);
+
+                    // Api calls are composed without blocking, so disposing the request
+                    // cancels them
+                    Observable<DataResponse> changeData = Observable.zip(
+                        // Request mergeable info
+                        isOpen
+                            ? api.getChangeRevisionMergeableStatus(
+                                    changeId, change.currentRevision, null)
+                                    .map(mergeableInfo -> {
+                                        dataResponse.mMergeableInfo = mergeableInfo;
+                                        return dataResponse;
+                                    })
+                                    .subscribeOn(Schedulers.io())
+                            : Observable.just(dataResponse),
+                        // Request project config
+                        api.getProjectConfig(change.project)
+                            .map(projectConfig -> {
+                                dataResponse.mProjectConfig = projectConfig;
+                                return dataResponse;
+                            })
+                            .subscribeOn(Schedulers.io()),
+                        // Only request actions when we don't know which actions
+                        // the change could have for the user. In other case, we
+                        // have some logic to deal with basic actions.
+                        // Request actions could be a heavy operation in old and complex
+                        // changes, so just try to omit it.
+                        mAccount.hasAuthenticatedAccessMode() && isOpen
+                            ? api.getChangeRevisionActions(changeId, revId)
+                                    .map(actions -> {
+                                        dataResponse.mActions = actions;
+                                        return dataResponse;
+                                    })
+                                    .subscribeOn(Schedulers.io())
+                            : Observable.fromCallable(() -> {
+                                // At least a cherry-pick action should be present if user
+                                // is authenticated
+                                dataResponse.mActions = new HashMap<>();
+                                if (mAccount.hasAuthenticatedAccessMode()) {
+                                    dataResponse.mActions.put(
+                                            ModelHelper.ACTION_CHERRY_PICK, new ActionInfo());
+                                }
+                                return dataResponse;
+                            }),
+                        SafeObservable.fromNullCallable(() -> {
+                            // Fetch revision comments
+                            fetchNeededRevisionComments(dataResponse);
+                            return dataResponse;
+                        }).subscribeOn(Schedulers.io()),
+                        (r1, r2, r3, r4) -> dataResponse
+                    );
+
+                    final boolean canFetchDrafts = mAccount.hasAuthenticatedAccessMode();
+                    Observable<Map<String, List<CommentInfo>>> baseRevisionComments =
+                            mDiffAgainstRevision != null
+                                ? fetchAndMergeAllChangeRevisionComments(
+                                        api, changeId, mDiffAgainstRevision)
+                                        .subscribeOn(Schedulers.io())
+                                : Observable.just(new HashMap<>());
+                    // Do no fetch drafts if the account is not authenticated
+                    Observable<Map<String, List<CommentInfo>>> revisionDrafts = canFetchDrafts
+                            ? api.getChangeRevisionDrafts(changeId, revId)
+                                    .subscribeOn(Schedulers.io())
+                            : Observable.just(new HashMap<>());
+                    Observable<Map<String, List<CommentInfo>>> baseRevisionDrafts =
+                            canFetchDrafts && mDiffAgainstRevision != null
+                                ? api.getChangeRevisionDrafts(changeId, mDiffAgainstRevision)
+                                        .subscribeOn(Schedulers.io())
+                                : Observable.just(new HashMap<>());
 
-                return dataResponse;
-            })
-            .flatMap(dataResponse -> {
-                    final String revId = !TextUtils.isEmpty(mCurrentRevision) ? mCurrentRevision
-                            : ModelHelper.extractBestRevisionId(dataResponse.mChange);
                     return Observable.zip(
-                        SafeObservable.fromNullCallable(() -> dataResponse),
+                        changeData,
                         api.getChangeRevisionFiles(
-                                changeId, revId, mDiffAgainstRevision, null),
-                        api.getChangeRevisionSubmitType(changeId, revId),
-                        fetchAndMergeAllChangeRevisionComments(api, changeId, revId),
-                        SafeObservable.fromNullCallable(() -> {
-                            if (mDiffAgainstRevision != null) {
-                                return fetchAndMergeAllChangeRevisionComments(
-                                        api, changeId, mDiffAgainstRevision).blockingFirst();
-                            }
-                            return new HashMap<>();
-                        }),
-                        SafeObservable.fromNullCallable(() -> {
-                            // Do no fetch drafts if the account is not authenticated
-                            if (mAccount.hasAuthenticatedAccessMode()) {
-                                return api.getChangeRevisionDrafts(
-                                        changeId, revId).blockingFirst();
-                            }
-                            return new HashMap<>();
-                        }),
-                        SafeObservable.fromNullCallable(() -> {
-                            // Do no fetch drafts if the account is not authenticated
-                            if (mDiffAgainstRevision != null &&
-                                    mAccount.hasAuthenticatedAccessMode()) {
-                                return api.getChangeRevisionDrafts(
-                                        changeId, mDiffAgainstRevision).blockingFirst();
-                            }
-                            return new HashMap<>();
-                        }),
+                                changeId, revId, mDiffAgainstRevision, null)
+                                .subscribeOn(Schedulers.io()),
+                        api.getChangeRevisionSubmitType(changeId, revId)
+                                .subscribeOn(Schedulers.io()),
+                        fetchAndMergeAllChangeRevisionComments(api, changeId, revId)
+                                .subscribeOn(Schedulers.io()),
+                        baseRevisionComments,
+                        revisionDrafts,
+                        baseRevisionDrafts,
                         SafeObservable.fromNullCallable(() -> {
                             // Fetch external CI servers to obtain job statuses
                             Repository repository =
@@ -2124,21 +2202,83 @@ public class ChangeDetailsFragment extends Fragment implements
                                 return new ArrayList<>();
                             }
 
-                            if (!dataResponse.mChange.revisions.containsKey(revId)) {
+                            if (!change.revisions.containsKey(revId)) {
                                 return new ArrayList<>();
                             }
-                            int revNumber = dataResponse.mChange.revisions.get(revId).number;
+                            int revNumber = change.revisions.get(revId).number;
                             return ContinuousIntegrationHelper.getContinuousIntegrationStatus(
                                     repository, changeId, revNumber);
-                        }),
+                        }).subscribeOn(Schedulers.io()),
                         this::combineResponse
                     );
                 }
             )
+            .onErrorResumeNext((Throwable error) -> {
+                // Without connectivity, serve the offline bundle of the change if there is one
+                DataResponse response = ctx != null && !ExceptionHelper.hasConnectivity(error)
+                        ? fetchOfflineChange(ctx) : null;
+                return response != null ? Observable.just(response) : Observable.error(error);
+            })
             .subscribeOn(Schedulers.io())
             .observeOn(AndroidSchedulers.mainThread());
     }
 
+    @SuppressWarnings("ConstantConditions")
+    private DataResponse fetchOfflineChange(Context ctx) {
+        final ChangeInfo change = DiffCacheHelper.readOfflineBundleEntry(ctx, mAccount,
+                mLegacyChangeId, CacheHelper.CACHE_CHANGE_JSON, ChangeInfo.class);
+        if (change == null) {
+            return null;
+        }
+        final String revId = !TextUtils.isEmpty(mCurrentRevision) ? mCurrentRevision
+                : ModelHelper.extractBestRevisionId(change);
+        final RevisionInfo revision = change.revisions.get(revId);
+        final RevisionInfo baseRevision = mDiffAgainstRevision != null
+                ? change.revisions.get(mDiffAgainstRevision) : null;
+        if (revision == null || (mDiffAgainstRevision != null && baseRevision == null)) {
+            return null;
+        }
+
+        // The bundle holds the files and comments of the revision and base it was downloaded for
+        final String rev = String.valueOf(revision.number);
+        final String base = baseRevision != null ? String.valueOf(baseRevision.number) : "0";
+        Map<String, FileInfo> files = DiffCacheHelper.readOfflineBundleEntry(ctx, mAccount,
+                mLegacyChangeId, base + "_" + rev + "_" + CacheHelper.CACHE_FILES_INFO_JSON,
+                new TypeToken<Map<String, FileInfo>>(){}.getType());
+        if (files == null) {
+            if (baseRevision != null) {
+                return null;
+            }
+            files = revision.files;
+        }
+        final Type commentType = new TypeToken<Map<String, List<CommentInfo>>>(){}.getType();
+        final Map<String, List<CommentInfo>> comments = DiffCacheHelper.readOfflineBundleEntry(
+                ctx, mAccount, mLegacyChangeId, rev + "_" + CacheHelper.CACHE_COMMENTS_JSON,
+                commentType);
+        final Map<String, List<CommentInfo>> drafts = DiffCacheHelper.readOfflineBundleEntry(
+                ctx, mAccount, mLegacyChangeId, rev + "_" + CacheHelper.CACHE_DRAFT_JSON,
+                commentType);
+        Map<String, List<CommentInfo>> baseComments = null;
+        Map<String, List<CommentInfo>> baseDrafts = null;
+        if (baseRevision != null) {
+            baseComments = DiffCacheHelper.readOfflineBundleEntry(ctx, mAccount,
+                    mLegacyChangeId, base + "_" + CacheHelper.CACHE_COMMENTS_JSON, commentType);
+            baseDrafts = DiffCacheHelper.readOfflineBundleEntry(ctx, mAccount,
+                    mLegacyChangeId, base + "_" + CacheHelper.CACHE_DRAFT_JSON, commentType);
+        }
+
+        // The revision actions need the server. Only the change ones are known
+        if (change.actions == null) {
+            change.actions = new HashMap<>();
+        }
+        DataResponse response = new DataResponse();
+        response.mChange = change;
+        response.mMessages = change.messages;
+        response.mActions = new HashMap<>();
+        return combineResponse(response, files, null, comments, baseComments,
+                drafts, baseDrafts, new ArrayList<>());
+    }
+
     @SuppressWarnings("ConstantConditions")
     private Observable<Boolean> starChange(final Boolean starred) {
         final Context ctx = getActivity();
@@ -2152,7 +2292,7 @@ public class ChangeDetailsFragment extends Fragment implements
                         call = api.deleteDefaultStarFromChange(
                                 GerritApi.SELF_ACCOUNT, String.valueOf(mLegacyChangeId));
                     }
-                    call.blockingFirst();
+                    BlockingCalls.first(call);
                     return starred;
                 })
                 .subscribeOn(Schedulers.io())
@@ -2164,8 +2304,9 @@ public class ChangeDetailsFragment extends Fragment implements
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
         return SafeObservable.fromNullCallable(() -> {
-                    api.setChangeEditMessage(String.valueOf(mLegacyChangeId), input).blockingFirst();
-                    api.publishChangeEdit(String.valueOf(mLegacyChangeId)).blockingFirst();
+                    BlockingCalls.first(
+                            api.setChangeEditMessage(String.valueOf(mLegacyChangeId), input));
+                    BlockingCalls.first(api.publishChangeEdit(String.valueOf(mLegacyChangeId)));
                     return true;
                 })
                 .subscribeOn(Schedulers.io())
@@ -2177,9 +2318,8 @@ public class ChangeDetailsFragment extends Fragment implements
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
         return SafeObservable.fromNullCallable(() -> {
-                    api.setChangeRevisionDescription(
-                            String.valueOf(mLegacyChangeId), mCurrentRevision, input)
-                                .blockingFirst();
+                    BlockingCalls.first(api.setChangeRevisionDescription(
+                            String.valueOf(mLegacyChangeId), mCurrentRevision, input));
                     return true;
                 })
                 .subscribeOn(Schedulers.io())
@@ -2197,9 +2337,8 @@ public class ChangeDetailsFragment extends Fragment implements
                         }
 
                         // Create the review
-                        ReviewInfo response = api.setChangeRevisionReview(
-                                String.valueOf(mLegacyChangeId), mCurrentRevision, input)
-                                .blockingFirst();
+                        ReviewInfo response = BlockingCalls.first(api.setChangeRevisionReview(
+                                String.valueOf(mLegacyChangeId), mCurrentRevision, input));
                         return new Pair<>(input, response);
                     }
                 )
@@ -2217,9 +2356,10 @@ public class ChangeDetailsFragment extends Fragment implements
                     if (!TextUtils.isEmpty(newTopic)) {
                         TopicInput input = new TopicInput();
                         input.topic = newTopic;
-                        api.setChangeTopic(String.valueOf(mLegacyChangeId), input).blockingFirst();
+                        BlockingCalls.first(
+                                api.setChangeTopic(String.valueOf(mLegacyChangeId), input));
                     } else {
-                        api.deleteChangeTopic(String.valueOf(mLegacyChangeId)).blockingFirst();
+                        BlockingCalls.first(api.deleteChangeTopic(String.valueOf(mLegacyChangeId)));
                     }
                     return newTopic;
                 })
@@ -2235,8 +2375,8 @@ public class ChangeDetailsFragment extends Fragment implements
                     HashtagsInput input = new HashtagsInput();
                     input.add = Arrays.asList(add);
                     input.remove = Arrays.asList(remove);
-                    return api.setChangeHashtags(
-                            String.valueOf(mLegacyChangeId), input).blockingFirst();
+                    return BlockingCalls.first(api.setChangeHashtags(
+                            String.valueOf(mLegacyChangeId), input));
                 })
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
@@ -2251,8 +2391,8 @@ public class ChangeDetailsFragment extends Fragment implements
                     ReviewerInput input = new ReviewerInput();
                     input.reviewerId = reviewer;
                     input.state = state;
-                    return api.addChangeReviewer(String.valueOf(mLegacyChangeId), input)
-                            .blockingFirst();
+                    return BlockingCalls.first(
+                            api.addChangeReviewer(String.valueOf(mLegacyChangeId), input));
                 })
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
@@ -2268,14 +2408,14 @@ public class ChangeDetailsFragment extends Fragment implements
                     info.old = mResponse.mChange.assignee;
                     if (TextUtils.isEmpty(assignee)) {
                         // Remove assignee
-                        api.deleteChangeAssignee(String.valueOf(mLegacyChangeId))
-                                .blockingFirst();
+                        BlockingCalls.first(
+                                api.deleteChangeAssignee(String.valueOf(mLegacyChangeId)));
                     } else {
                         // Set assignee
                         AssigneeInput input = new AssigneeInput();
                         input.assignee = assignee;
-                        info._new = api.setChangeAssignee(
-                                String.valueOf(mLegacyChangeId), input).blockingFirst();
+                        info._new = BlockingCalls.first(api.setChangeAssignee(
+                                String.valueOf(mLegacyChangeId), input));
                     }
                     return info;
                 })
@@ -2288,9 +2428,9 @@ public class ChangeDetailsFragment extends Fragment implements
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
         return SafeObservable.fromNullCallable(() -> {
-                    api.deleteChangeReviewer(
+                    BlockingCalls.first(api.deleteChangeReviewer(
                             String.valueOf(mLegacyChangeId),
-                            ModelHelper.toAccountId(account)).blockingFirst();
+                            ModelHelper.toAccountId(account)));
                     return account;
                 })
                 .subscribeOn(Schedulers.io())
@@ -2307,11 +2447,11 @@ public class ChangeDetailsFragment extends Fragment implements
         return SafeObservable.fromNullCallable(() -> {
                     DeleteVoteInput input = new DeleteVoteInput();
 
-                    api.deleteChangeReviewerVote(
+                    BlockingCalls.first(api.deleteChangeReviewerVote(
                             String.valueOf(mLegacyChangeId),
                             String.valueOf(vote.second.accountId),
                             String.valueOf(vote.first),
-                            input).blockingFirst();
+                            input));
                     return vote;
                 })
                 .subscribeOn(Schedulers.io())
@@ -2323,8 +2463,8 @@ public class ChangeDetailsFragment extends Fragment implements
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
         return SafeObservable.fromNullCallable(() ->
-                    api.getChange(
-                        String.valueOf(mLegacyChangeId), MESSAGES_OPTIONS).blockingFirst())
+                    BlockingCalls.first(api.getChange(
+                        String.valueOf(mLegacyChangeId), MESSAGES_OPTIONS)))
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
     }
@@ -2337,16 +2477,21 @@ public class ChangeDetailsFragment extends Fragment implements
                     // Do no fetch drafts if the account is not authenticated
                     if (mAccount.hasAuthenticatedAccessMode()) {
                         Map<String, List<CommentInfo>> drafts =
-                                api.getChangeRevisionDrafts(String.valueOf(mLegacyChangeId),
-                                        mCurrentRevision).blockingFirst();
+                                BlockingCalls.first(api.getChangeRevisionDrafts(
+                                        String.valueOf(mLegacyChangeId), mCurrentRevision));
                         int number = mResponse.mChange.revisions.get(mCurrentRevision).number;
-                        for (List<CommentInfo> comments : drafts.values()) {
-                            for (CommentInfo c : comments) {
+                        Map<String, List<CommentInfo>> result = new HashMap<>(drafts.size());
+                        for (Map.Entry<String, List<CommentInfo>> entry : drafts.entrySet()) {
+                            List<CommentInfo> comments = new ArrayList<>(entry.getValue().size());
+                            for (CommentInfo draft : entry.getValue()) {
+                                CommentInfo c = draft.copy();
                                 c.patchSet = number;
                                 c.author = mAccount.mAccount;
+                                comments.add(c);
                             }
+                            result.put(entry.getKey(), comments);
                         }
-                        return drafts;
+                        return result;
                     }
                     return new HashMap<String, List<CommentInfo>>();
                 })
@@ -2404,7 +2549,8 @@ public class ChangeDetailsFragment extends Fragment implements
         return SafeObservable.fromNullCallable(() -> {
                     MoveInput input = new MoveInput();
                     input.destinationBranch = newBranch;
-                    return api.moveChange(String.valueOf(mLegacyChangeId), input).blockingFirst();
+                    return BlockingCalls.first(
+                            api.moveChange(String.valueOf(mLegacyChangeId), input));
                 })
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
@@ -2489,9 +2635,6 @@ public class ChangeDetailsFragment extends Fragment implements
             }
         }
 
-        // Fetch revision comments
-        fetchNeededRevisionComments(response);
-
         // Join the actions
         response.mFiles = files;
         if (response.mActions == null) {
@@ -2514,7 +2657,7 @@ public class ChangeDetailsFragment extends Fragment implements
                 if (response.mChange.revisions.containsKey(revisionId)) {
                     response.mCI = ContinuousIntegrationHelper.extractContinuousIntegrationInfo(
                             response.mChange.revisions.get(revisionId).number,
-                            response.mChange.messages, repository);
+                            response.mMessages, repository);
                 }
             }
         }
@@ -2633,6 +2776,8 @@ public class ChangeDetailsFragment extends Fragment implements
 
     private void showEditChangeActivity() {
         if (!isLocked()) {
+            // Drop any edit state left behind by an editor that never came back
+            CacheHelper.removeAccountEditCacheDir(getContext(), mAccount, mLegacyChangeId);
             ActivityHelper.editChange(this,
                     mResponse.mChange.legacyChangeId, mResponse.mChange.changeId, mCurrentRevision,
                     EDIT_REQUEST_CODE);
@@ -2649,8 +2794,8 @@ public class ChangeDetailsFragment extends Fragment implements
                         : R.string.change_details_action_hide_tagged_messages));
 
                 mMessageAdapter.updateHideTaggedMessages(mHideTaggedMessages);
-                mMessageAdapter.update(mModel.msgListModel, mResponse.mChange,
-                        mResponse.mMessagesWithComments, null);
+                mMessageAdapter.update(mModel.msgListModel, mResponse.mMessages,
+                        mResponse.mMessagesWithComments, mResponse.mChange.reviewerUpdates);
                 mBinding.setModel(mModel);
             }
             mModel.isLocked = false;
@@ -2671,8 +2816,8 @@ public class ChangeDetailsFragment extends Fragment implements
                     repo = ModelHelper.findRepositoryForAccount(getContext(), mAccount);
                 }
                 mMessageAdapter.updateHideCIMessages(repo);
-                mMessageAdapter.update(mModel.msgListModel, mResponse.mChange,
-                        mResponse.mMessagesWithComments, null);
+                mMessageAdapter.update(mModel.msgListModel, mResponse.mMessages,
+                        mResponse.mMessagesWithComments, mResponse.mChange.reviewerUpdates);
                 updateChangeInfo(mResponse);
                 mBinding.setModel(mModel);
             }
@@ -2845,6 +2990,30 @@ public class ChangeDetailsFragment extends Fragment implements
         fragment.show(getChildFragmentManager(), DownloadDialogFragment.TAG);
     }
 
+    private void performDownloadOfflineBundle() {
+        // Download the files against the selected base, like the diff viewer does
+        String base = null;
+        if (mDiffAgainstRevision != null) {
+            base = String.valueOf(mResponse.mChange.revisions.get(mDiffAgainstRevision).number);
+        }
+
+        try {
+            Intent intent = new Intent(getContext(), OfflineBundleService.class);
+            intent.setAction(OfflineBundleService.OFFLINE_BUNDLE_ACTION);
+            intent.putExtra(OfflineBundleService.EXTRA_ACCOUNT, mAccount.getAccountHash());
+            intent.putExtra(OfflineBundleService.EXTRA_LEGACY_CHANGE_ID, mLegacyChangeId);
+            intent.putExtra(OfflineBundleService.EXTRA_REVISION_ID, mCurrentRevision);
+            intent.putExtra(OfflineBundleService.EXTRA_BASE, base);
+            //noinspection ConstantConditions
+            getActivity().startService(intent);
+
+            mBinding.patchSetInfo.setOfflineProgress(
+                    getString(R.string.change_details_offline_bundle_started));
+        } catch (IllegalStateException ex) {
+            Log.w(TAG, "Can't start offline bundle service.", ex);
+        }
+    }
+
     @SuppressWarnings("ConstantConditions")
     private void performShare() {
         final Context ctx = getActivity();
@@ -3269,13 +3438,13 @@ public class ChangeDetailsFragment extends Fragment implements
     private void performSubmitChange(GerritApi api) {
         SubmitInput input = new SubmitInput();
         input.notify = NotifyType.ALL;
-        api.submitChange(String.valueOf(mLegacyChangeId), input).blockingFirst();
+        BlockingCalls.first(api.submitChange(String.valueOf(mLegacyChangeId), input));
     }
 
     private ChangeInfo performRebaseChange(GerritApi api, String base) {
         RebaseInput input = new RebaseInput();
         input.base = base;
-        return api.rebaseChange(String.valueOf(mLegacyChangeId), input).blockingFirst();
+        return BlockingCalls.first(api.rebaseChange(String.valueOf(mLegacyChangeId), input));
     }
 
     @SuppressLint("CheckResult")
@@ -3285,7 +3454,7 @@ public class ChangeDetailsFragment extends Fragment implements
         if (!TextUtils.isEmpty(msg)) {
             input.message = msg;
         }
-        api.abandonChange(String.valueOf(mLegacyChangeId), input).blockingFirst();
+        BlockingCalls.first(api.abandonChange(String.valueOf(mLegacyChangeId), input));
     }
 
     @SuppressLint("CheckResult")
@@ -3294,7 +3463,7 @@ public class ChangeDetailsFragment extends Fragment implements
         if (!TextUtils.isEmpty(msg)) {
             input.message = msg;
         }
-        api.restoreChange(String.valueOf(mLegacyChangeId), input).blockingFirst();
+        BlockingCalls.first(api.restoreChange(String.valueOf(mLegacyChangeId), input));
     }
 
     private ChangeInfo performRevertChange(GerritApi api, String msg) {
@@ -3303,20 +3472,20 @@ public class ChangeDetailsFragment extends Fragment implements
         if (!TextUtils.isEmpty(msg)) {
             input.message = msg;
         }
-        return api.revertChange(String.valueOf(mLegacyChangeId), input).blockingFirst();
+        return BlockingCalls.first(api.revertChange(String.valueOf(mLegacyChangeId), input));
     }
 
     @SuppressWarnings("deprecation")
     @SuppressLint("CheckResult")
     private boolean performPublishDraft(GerritApi api) {
-        api.publishChangeDraftRevision(String.valueOf(mLegacyChangeId), mCurrentRevision)
-                .blockingFirst();
+        BlockingCalls.first(api.publishChangeDraftRevision(
+                String.valueOf(mLegacyChangeId), mCurrentRevision));
         return true;
     }
 
     @SuppressLint("CheckResult")
     private void performDeleteChange(GerritApi api) {
-        api.deleteChange(String.valueOf(mLegacyChangeId)).blockingFirst();
+        BlockingCalls.first(api.deleteChange(String.valueOf(mLegacyChangeId)));
     }
 
     private ChangeInfo performFollowUp(GerritApi api, String subject) {
@@ -3329,7 +3498,7 @@ public class ChangeDetailsFragment extends Fragment implements
             change.topic = mResponse.mChange.topic;
         }
         change.subject = subject;
-        return api.createChange(change).blockingFirst();
+        return BlockingCalls.first(api.createChange(change));
     }
 
     private CherryPickChangeInfo performCherryPickChange(GerritApi api, String branch, String msg) {
@@ -3337,7 +3506,7 @@ public class ChangeDetailsFragment extends Fragment implements
         CherryPickInput input = new CherryPickInput();
         input.destination = branch;
         input.message = msg;
-        return api.cherryPickChangeRevision(changeId, mCurrentRevision, input).blockingFirst();
+        return BlockingCalls.first(api.cherryPickChangeRevision(changeId, mCurrentRevision, input));
     }
 
     @SuppressLint("CheckResult")
@@ -3349,9 +3518,9 @@ public class ChangeDetailsFragment extends Fragment implements
         }
 
         if (mResponse.mChange.isPrivate) {
-            api.unmarkChangeAsPrivate(changeId, input).blockingFirst();
+            BlockingCalls.first(api.unmarkChangeAsPrivate(changeId, input));
         } else {
-            api.markChangeAsPrivate(changeId, input).blockingFirst();
+            BlockingCalls.first(api.markChangeAsPrivate(changeId, input));
         }
         return true;
     }
@@ -3365,9 +3534,9 @@ public class ChangeDetailsFragment extends Fragment implements
         }
 
         if (mResponse.mChange.isWorkInProgress) {
-            api.setChangeReadyForReview(changeId, input).blockingFirst();
+            BlockingCalls.first(api.setChangeReadyForReview(changeId, input));
         } else {
-            api.setChangeWorkInProgress(changeId, input).blockingFirst();
+            BlockingCalls.first(api.setChangeWorkInProgress(changeId, input));
         }
         return true;
     }
@@ -3376,9 +3545,9 @@ public class ChangeDetailsFragment extends Fragment implements
     private boolean performMarkReviewed(GerritApi api) {
         String changeId = String.valueOf(mResponse.mChange.legacyChangeId);
         if (mResponse.mChange.reviewed) {
-            api.markChangeAsUnreviewed(changeId).blockingFirst();
+            BlockingCalls.first(api.markChangeAsUnreviewed(changeId));
         } else {
-            api.markChangeAsReviewed(changeId).blockingFirst();
+            BlockingCalls.first(api.markChangeAsReviewed(changeId));
         }
         return true;
     }
@@ -3389,9 +3558,9 @@ public class ChangeDetailsFragment extends Fragment implements
         boolean ignored = mResponse.mChange.stars != null
                 && Arrays.asList(mResponse.mChange.stars).contains(ModelHelper.ACTION_IGNORE);
         if (ignored) {
-            api.unignoreChange(changeId).blockingFirst();
+            BlockingCalls.first(api.unignoreChange(changeId));
         } else {
-            api.ignoreChange(changeId).blockingFirst();
+            BlockingCalls.first(api.ignoreChange(changeId));
         }
         return true;
     }
@@ -3413,8 +3582,8 @@ public class ChangeDetailsFragment extends Fragment implements
                 mAccount.mServerVersion.getVersion() <= 2.11d) {
             // Determine which patchset needs request comments for
             List<Integer> revisionsWithComments = new ArrayList<>();
-            if (response.mChange.messages != null) {
-                for (ChangeMessageInfo message : response.mChange.messages) {
+            if (response.mMessages != null) {
+                for (ChangeMessageInfo message : response.mMessages) {
                     if (message.message != null
                             && COMMENTS_PATTERN.matcher(message.message).find()) {
                         if (!revisionsWithComments.contains(message.revisionNumber)) {
@@ -3430,11 +3599,11 @@ public class ChangeDetailsFragment extends Fragment implements
             for (int rev : revisionsWithComments) {
                 try {
                     Map<String, List<CommentInfo>> messages =
-                            fetchAndMergeAllChangeRevisionComments(
+                            BlockingCalls.first(fetchAndMergeAllChangeRevisionComments(
                                 api,
                                 String.valueOf(response.mChange.legacyChangeId),
                                 String.valueOf(rev)
-                            ).blockingFirst();
+                            ));
                     updateRevisionComments(response, messages, false);
                 } catch (Exception ex) {
                     Log.e(TAG, "Can't match comments for messages.", ex);
@@ -3442,13 +3611,14 @@ public class ChangeDetailsFragment extends Fragment implements
             }
         } else {
             // Perform a single fetch of comments and drafts
-            Map<String, List<CommentInfo>> messages = fetchAndMergeAllChangeComments(api,
-                    String.valueOf(response.mChange.legacyChangeId)).blockingFirst();
+            Map<String, List<CommentInfo>> messages = BlockingCalls.first(
+                    fetchAndMergeAllChangeComments(api,
+                            String.valueOf(response.mChange.legacyChangeId)));
             updateRevisionComments(response, messages, false);
             if (mAccount.hasAuthenticatedAccessMode()) {
                 updateRevisionComments(response,
-                        api.getChangeDraftComments(
-                            String.valueOf(response.mChange.legacyChangeId)).blockingFirst(), true);
+                        BlockingCalls.first(api.getChangeDraftComments(
+                            String.valueOf(response.mChange.legacyChangeId))), true);
             }
         }
     }
@@ -3480,8 +3650,8 @@ public class ChangeDetailsFragment extends Fragment implements
                     for (CommentInfo comment : items) {
                         boolean found = false;
                         int last = 0;
-                        for (ChangeMessageInfo message : response.mChange.messages) {
-                            if (message.id.equals("draft_" + comment.patchSet)) {
+                        for (ChangeMessageInfo message : response.mMessages) {
+                            if (message.id.equals(ModelHelper.toDraftMessageId(comment.patchSet))) {
                                 found = true;
                                 break;
                             } else if (comment.updated.compareTo(message.date) <= 0) {
@@ -3492,18 +3662,23 @@ public class ChangeDetailsFragment extends Fragment implements
 
                         if (!found) {
                             final List<ChangeMessageInfo> messages = new ArrayList<>(
-                                    Arrays.asList(response.mChange.messages));
+                                    Arrays.asList(response.mMessages));
                             ChangeMessageInfo message = new ChangeMessageInfo();
-                            message.id = "draft_" + comment.patchSet;
+                            message.id = ModelHelper.toDraftMessageId(comment.patchSet);
                             message.date = comment.updated;
                             message.author = mAccount.mAccount;
                             message.realAuthor = mAccount.mAccount;
                             message.message = "Patch Set " + comment.patchSet + ":\n\n(draft)";
                             message.revisionNumber = comment.patchSet;
                             messages.add(last, message);
-                            response.mChange.messages = messages.toArray(new ChangeMessageInfo[0]);
+                            response.mMessages = messages.toArray(new ChangeMessageInfo[0]);
                         } else {
-                            response.mChange.messages[last].date = comment.updated;
+                            // Messages belong to the change, so replace them by updated copies
+                            ChangeMessageInfo message =
+                                    ModelHelper.copyChangeMessageInfo(response.mMessages[last]);
+                            message.date = comment.updated;
+                            response.mMessages = response.mMessages.clone();
+                            response.mMessages[last] = message;
                         }
                     }
                 }
@@ -3511,63 +3686,8 @@ public class ChangeDetailsFragment extends Fragment implements
         }
 
         // Match comments with messages
-        for (ChangeMessageInfo message : response.mChange.messages) {
-            if (message.message != null) {
-                for (String file : comments.keySet()) {
-                    List<CommentInfo> items = comments.get(file);
-                    if (items == null) {
-                        continue;
-                    }
-                    Collections.sort(items, (c1, c2) -> {
-                        if (c1.line == null && c2.line != null) {
-                            return -1;
-                        }
-                        if (c1.line != null && c2.line == null) {
-                            return 1;
-                        }
-                        if (c1.line == null) {
-                            return c1.updated.compareTo(c2.updated);
-                        }
-                        int ret = Integer.compare(c1.line, c2.line);
-                        if (ret == 0) {
-                            return c1.updated.compareTo(c2.updated);
-                        }
-                        return ret;
-                    });
-                    for (CommentInfo comment : items) {
-                        comment.draft = draft;
-                        comment.path = file;
-                        AccountInfo commentAuthor = comment.author != null
-                                ? comment.author : mAccount.mAccount;
-                        boolean sameComment = !draft &&
-                                comment.updated.compareTo(message.date) == 0 &&
-                                commentAuthor.accountId == message.author.accountId;
-                        boolean sameDraft = draft &&
-                                message.id.equals("draft_" + comment.patchSet);
-                        if (sameComment || sameDraft) {
-                            if (!mwc.containsKey(message.id)) {
-                                mwc.put(message.id, new LinkedHashMap<>());
-                            }
-
-                            final LinkedHashMap<String, List<CommentInfo>> filesAndComments
-                                    = mwc.get(message.id);
-                            if (!filesAndComments.containsKey(file)) {
-                                filesAndComments.put(file, new ArrayList<>());
-                            }
-
-                            List<CommentInfo> list = filesAndComments.get(file);
-                            if (!containsComment(list, comment)) {
-                                comment.messagePatchSet = message.revisionNumber;
-                                if (comment.patchSet == 0) {
-                                    comment.patchSet = message.revisionNumber;
-                                }
-                                list.add(comment);
-                            }
-                        }
-                    }
-                }
-            }
-        }
+        ModelHelper.matchCommentsWithMessages(
+                response.mMessages, comments, draft, mAccount.mAccount, mwc);
     }
 
     private void updateUnresolvedComments(
@@ -3910,26 +4030,17 @@ public class ChangeDetailsFragment extends Fragment implements
         }
     }
 
-    private boolean containsComment(List<CommentInfo> comments, CommentInfo comment) {
-        for (CommentInfo c : comments) {
-            if (c.id.equals(comment.id)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private Observable<Map<String, List<CommentInfo>>> fetchAndMergeAllChangeComments(
             GerritApi api, String changeId) {
         return SafeObservable.fromNullCallable(() -> {
             Map<String, List<CommentInfo>> comments =
-                    api.getChangeComments(changeId).blockingFirst();
+                    BlockingCalls.first(api.getChangeComments(changeId));
 
             // Fetch robot comments if the Gerrit server supports them (2.14 and up)
             if (mAccount.mServerVersion.getVersion() >= 2.14d) {
                 Map<String, List<RobotCommentInfo>> robotComments =
-                        api.getChangeRobotComments(changeId).blockingFirst();
-                mergeCommentsAndRobotComments(comments, robotComments);
+                        BlockingCalls.first(api.getChangeRobotComments(changeId));
+                comments = mergeCommentsAndRobotComments(comments, robotComments);
             }
             return comments;
         });
@@ -3938,17 +4049,19 @@ public class ChangeDetailsFragment extends Fragment implements
 
     private Observable<Map<String, List<CommentInfo>>> fetchAndMergeAllChangeRevisionComments(
             GerritApi api, String changeId, String revId) {
-        return SafeObservable.fromNullCallable(() -> {
-            Map<String, List<CommentInfo>> comments =
-                    api.getChangeRevisionComments(changeId, revId).blockingFirst();
-
+        return Observable.defer(() -> {
             // Fetch robot comments if the Gerrit server supports them (2.14 and up)
-            if (mAccount.mServerVersion.getVersion() >= 2.14d) {
-                Map<String, List<RobotCommentInfo>> robotComments =
-                        api.getChangeRevisionRobotComments(changeId, revId).blockingFirst();
-                mergeCommentsAndRobotComments(comments, robotComments);
+            if (mAccount.mServerVersion.getVersion() < 2.14d) {
+                return api.getChangeRevisionComments(changeId, revId);
             }
-            return comments;
+
+            // Both are independent, so fetch them at the same time
+            return Observable.zip(
+                    api.getChangeRevisionComments(changeId, revId)
+                            .subscribeOn(Schedulers.io()),
+                    api.getChangeRevisionRobotComments(changeId, revId)
+                            .subscribeOn(Schedulers.io()),
+                    ModelHelper::mergeCommentsAndRobotComments);
         });
     }
 }
@@ -23,6 +23,7 @@ import android.view.MenuItem;
 
 import com.ruesga.rview.BaseActivity;
 import com.ruesga.rview.R;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.model.ChangeInfo;
@@ -40,6 +41,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
 import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.schedulers.Schedulers;
@@ -53,7 +55,7 @@ public class ChangeListByFilterFragment extends ChangeListFragment
 
     private static final Pattern LIMIT_FILTER_PATTERN = Pattern.compile(".*( limit:(\\d+))");
 
-    private static final List<ChangeOptions> OPTIONS = new ArrayList<ChangeOptions>() {{
+    static final List<ChangeOptions> OPTIONS = new ArrayList<ChangeOptions>() {{
         add(ChangeOptions.DETAILED_ACCOUNTS);
         add(ChangeOptions.LABELS);
         add(ChangeOptions.REVIEWED);
@@ -156,6 +158,10 @@ public class ChangeListByFilterFragment extends ChangeListFragment
             .observeOn(AndroidSchedulers.mainThread());
     }
 
+    static boolean isBatchableFilter(String filter) {
+        return filter != null && !LIMIT_FILTER_PATTERN.matcher(filter).find();
+    }
+
     @SuppressWarnings("ConstantConditions")
     protected String getFilter() {
         return getArguments().getString(EXTRA_FILTER);
@@ -177,6 +183,13 @@ public class ChangeListByFilterFragment extends ChangeListFragment
             notifyNoMoreItems();
         }
 
+        // The first page of a dashboard section is fetched along with the other sections
+        List<ChangeInfo> batched = null;
+        Fragment parent = getParentFragment();
+        if (start <= 0 && limit == count && parent instanceof DashboardFragment) {
+            batched = ((DashboardFragment) parent).fetchSectionChanges(filter, count);
+        }
+
         final ChangeQuery query = ChangeQuery.parse(filter);
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
@@ -191,8 +204,13 @@ public class ChangeListByFilterFragment extends ChangeListFragment
             List<ChangeInfo> changes = new ArrayList<>();
             int s = 0;
             while (true) {
-                List<ChangeInfo> fetched = api.getChanges(
-                        query, limit, Math.max(0, s), OPTIONS).blockingFirst();
+                List<ChangeInfo> fetched;
+                if (s == 0 && batched != null) {
+                    fetched = batched;
+                } else {
+                    fetched = BlockingCalls.first(api.getChanges(
+                            query, limit, Math.max(0, s), OPTIONS));
+                }
                 changes.addAll(fetched);
                 if (fetched.size() < limit) {
                     break;
@@ -206,7 +224,10 @@ public class ChangeListByFilterFragment extends ChangeListFragment
         }
 
         // Normal fetch
-        return api.getChanges(query, limit, Math.max(0, start), OPTIONS).blockingFirst();
+        if (batched != null) {
+            return batched;
+        }
+        return BlockingCalls.first(api.getChanges(query, limit, Math.max(0, start), OPTIONS));
     }
 
     @Override
@@ -255,7 +276,7 @@ public class ChangeListByFilterFragment extends ChangeListFragment
     private Observable<ChangeInfo> performCreateNewChange(final ChangeInput input) {
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
-        return SafeObservable.fromNullCallable(() -> api.createChange(input).blockingFirst())
+        return SafeObservable.fromNullCallable(() -> BlockingCalls.first(api.createChange(input)))
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
     }
@@ -26,6 +26,7 @@ import android.view.ViewGroup;
 import com.ruesga.rview.BaseActivity;
 import com.ruesga.rview.OnChangeItemListener;
 import com.ruesga.rview.R;
+import com.ruesga.rview.adapters.ChangeInfoDiffCallback;
 import com.ruesga.rview.databinding.ChangesFragmentBinding;
 import com.ruesga.rview.databinding.ChangesItemBinding;
 import com.ruesga.rview.databinding.FetchingMoreItemBinding;
@@ -45,7 +46,9 @@ import com.ruesga.rview.widget.EndlessRecyclerViewScrollListener;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
@@ -53,6 +56,7 @@ import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.databinding.DataBindingUtil;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import io.reactivex.Observable;
@@ -113,10 +117,17 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
         private static final int FETCHING_MODE_ITEM_VIEW = 0;
         private static final int CHANGE_ITEM_VIEW = 1;
 
-        final List<ChangeInfo> mData = new ArrayList<>();
+        // Diffs are computed in a background thread, so only the changes which really
+        // differ are rebound
+        private final AsyncListDiffer<ChangeInfo> mDiffer =
+                new AsyncListDiffer<>(this, new ChangeInfoDiffCallback());
         private final ItemEventHandlers mHandlers;
         private final Context mContext;
 
+        // The differ only publishes a list once its diff was dispatched, so keep the last
+        // submitted list around for everything that is not binding views
+        private List<ChangeInfo> mLatestData = Collections.emptyList();
+
         private int mChangeId = NO_SELECTION;
 
         ChangesAdapter(ChangeListFragment fragment) {
@@ -125,16 +136,33 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
             mContext = fragment.getContext();
         }
 
-        private void clear() {
-            mData.clear();
+        private List<ChangeInfo> getData() {
+            return mDiffer.getCurrentList();
+        }
+
+        private List<ChangeInfo> getLatestData() {
+            return mLatestData;
         }
 
         private void add(ChangeInfo change) {
-            mData.add(change);
+            List<ChangeInfo> changes = new ArrayList<>(mLatestData);
+            changes.add(change);
+            submitList(changes);
         }
 
-        private void addAll(List<ChangeInfo> changes) {
-            mData.addAll(changes);
+        private void submitList(List<ChangeInfo> changes) {
+            mLatestData = changes;
+            mDiffer.submitList(changes);
+        }
+
+        private void notifyChangeChanged(int legacyChangeId) {
+            List<ChangeInfo> changes = getData();
+            int count = changes.size();
+            for (int i = 0; i < count; i++) {
+                if (changes.get(i).legacyChangeId == legacyChangeId) {
+                    notifyItemChanged(i);
+                }
+            }
         }
 
         @NonNull
@@ -155,7 +183,7 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
         @Override
         public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
             if (holder instanceof ItemViewHolder) {
-                ChangeInfo item = mData.get(position);
+                ChangeInfo item = getData().get(position);
                 ItemViewHolder itemViewHolder = (ItemViewHolder) holder;
                 itemViewHolder.itemView.setSelected(mChangeId == item.legacyChangeId);
                 itemViewHolder.mBinding.item.setTag(item);
@@ -169,20 +197,21 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
 
         @Override
         public long getItemId(int position) {
-            if (mData.get(position).id == null) {
+            ChangeInfo item = getData().get(position);
+            if (item.id == null) {
                 return -1;
             }
-            return mData.get(position).id.hashCode();
+            return item.id.hashCode();
         }
 
         @Override
         public int getItemCount() {
-            return mData.size();
+            return getData().size();
         }
 
         @Override
         public int getItemViewType(int position) {
-            return mData.get(position).id == null ? FETCHING_MODE_ITEM_VIEW : CHANGE_ITEM_VIEW;
+            return getData().get(position).id == null ? FETCHING_MODE_ITEM_VIEW : CHANGE_ITEM_VIEW;
         }
     }
 
@@ -196,9 +225,7 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
                     ((OnChangeItemListener) getActivity()).onChangeItemSelected(NO_SELECTION);
                 }
             } else {
-                mAdapter.clear();
-                mAdapter.addAll(result);
-                mAdapter.notifyDataSetChanged();
+                mAdapter.submitList(result);
             }
             mEmptyState.state = result != null && !result.isEmpty()
                     ? EmptyState.NORMAL_STATE : getNotResultEmptyState();
@@ -292,7 +319,7 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
         if (forceRefresh) {
             return Collections.unmodifiableList(new ArrayList<>());
         }
-        return Collections.unmodifiableList(mAdapter.mData);
+        return Collections.unmodifiableList(mAdapter.getLatestData());
     }
 
     void notifyNoMoreItems() {
@@ -310,25 +337,21 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
             notifyNoMoreItems();
         }
 
-        List<ChangeInfo> combined = new ArrayList<>(oldChanges);
-        if (!oldChanges.isEmpty() && oldChanges.get(oldChanges.size() - 1).id == null) {
-            combined.remove(oldChanges.size() - 1);
+        // Index the current changes by id (skipping the fetching more item) and
+        // append the new ones that aren't already present
+        Map<String, ChangeInfo> combined = new LinkedHashMap<>();
+        for (ChangeInfo change : oldChanges) {
+            if (change.id != null) {
+                combined.put(change.id, change);
+            }
         }
         for (ChangeInfo newChange : newChanges) {
-            boolean exists = false;
-            for (ChangeInfo change : combined) {
-                if (newChange.id.equals(change.id)) {
-                    exists = true;
-                    break;
-                }
-            }
-
-            if (!exists) {
-                combined.add(newChange);
+            if (!combined.containsKey(newChange.id)) {
+                combined.put(newChange.id, newChange);
             }
         }
 
-        return combined;
+        return new ArrayList<>(combined.values());
     }
 
     @Override
@@ -453,7 +476,7 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
                 activity.onRefreshStart(this);
             } else {
                 //noinspection ConstantConditions
-                activity.onRefreshEnd(this, Collections.unmodifiableList(mAdapter.mData));
+                activity.onRefreshEnd(this, Collections.unmodifiableList(mAdapter.getLatestData()));
             }
         } else if (!show) {
             mEndlessScroller.loadCompleted();
@@ -467,8 +490,10 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
 
     private void onItemClick(ChangeInfo item) {
         if (mIsTwoPanel && mAdapter.mChangeId != item.legacyChangeId) {
+            int oldChangeId = mAdapter.mChangeId;
             mAdapter.mChangeId = item.legacyChangeId;
-            mAdapter.notifyDataSetChanged();
+            mAdapter.notifyChangeChanged(oldChangeId);
+            mAdapter.notifyChangeChanged(item.legacyChangeId);
         }
         //noinspection ConstantConditions
         if (getActivity() instanceof OnChangeItemListener) {
@@ -496,12 +521,12 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
     public void onFragmentSelected() {
         if (getActivity() != null) {
             ((BaseActivity) getActivity()).setUseTwoPanel(true);
-            if (mAdapter == null || mAdapter.mData.isEmpty()) {
+            if (mAdapter == null || mAdapter.getLatestData().isEmpty()) {
                 if (getActivity() instanceof OnChangeItemListener) {
                     ((OnChangeItemListener) getActivity()).onChangeItemSelected(NO_SELECTION);
                 }
             } else {
-                int changeId = mAdapter.mData.get(0).legacyChangeId;
+                int changeId = mAdapter.getLatestData().get(0).legacyChangeId;
                 if (getActivity() instanceof OnChangeItemListener) {
                     ((OnChangeItemListener) getActivity()).onChangeItemSelected(changeId);
                 }
@@ -512,7 +537,6 @@ public abstract class ChangeListFragment extends Fragment implements SelectableF
     private void showMoreView() {
         // Add the fetching more waiting view
         mAdapter.add(new ChangeInfo());
-        mAdapter.notifyItemInserted(mAdapter.mData.size() - 1);
     }
 
     void resetScroll() {
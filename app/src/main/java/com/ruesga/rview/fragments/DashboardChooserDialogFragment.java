@@ -22,6 +22,7 @@ import android.view.ViewGroup;
 
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.DashboardChooserItemBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.Option;
 import com.ruesga.rview.gerrit.model.DashboardInfo;
@@ -218,8 +219,8 @@ public class DashboardChooserDialogFragment
 
             // Fetch projects
             final GerritApi api = ModelHelper.getGerritApi(getContext());
-            Map<String, ProjectInfo> projects = api.getProjects(null, null, null, null, null,
-                    Option.INSTANCE, null, null, ProjectType.ALL, null, null).blockingFirst();
+            Map<String, ProjectInfo> projects = BlockingCalls.first(api.getProjects(null, null,
+                    null, null, null, Option.INSTANCE, null, null, ProjectType.ALL, null, null));
             for (Map.Entry<String, ProjectInfo> entries : projects.entrySet()) {
                 ProjectInfo project = entries.getValue();
                 project.id = entries.getKey();
@@ -255,8 +256,8 @@ public class DashboardChooserDialogFragment
             // project dashboards
             try {
                 final GerritApi api = ModelHelper.getGerritApi(getContext());
-                List<DashboardInfo> projectDashboards = api.getProjectDashboards(
-                        ((ProjectInfo) o.item).id).blockingFirst();
+                List<DashboardInfo> projectDashboards = BlockingCalls.first(
+                        api.getProjectDashboards(((ProjectInfo) o.item).id));
                 if (projectDashboards != null) {
                     dashboards.addAll(projectDashboards);
                 }
@@ -16,6 +16,8 @@
 package com.ruesga.rview.fragments;
 
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -23,6 +25,10 @@ import android.view.MenuItem;
 import com.ruesga.rview.BaseActivity;
 import com.ruesga.rview.R;
 import com.ruesga.rview.Reloadable;
+import com.ruesga.rview.gerrit.BlockingCalls;
+import com.ruesga.rview.gerrit.GerritApi;
+import com.ruesga.rview.gerrit.filter.ChangeQuery;
+import com.ruesga.rview.gerrit.model.ChangeInfo;
 import com.ruesga.rview.gerrit.model.DashboardInfo;
 import com.ruesga.rview.misc.ModelHelper;
 import com.ruesga.rview.misc.SerializationManager;
@@ -31,12 +37,21 @@ import com.ruesga.rview.preferences.Constants;
 import com.ruesga.rview.preferences.Preferences;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import io.reactivex.Observable;
 
 public class DashboardFragment extends PageableFragment {
 
+    private static final String TAG = "DashboardFragment";
+
+    // Sections loaded later than this use their own request, so they never show old results
+    private static final long MAX_BATCH_AGE = 30000L;
+
     private String[] mDefaultDashboardTabs;
     private String[] mDefaultDashboardFilters;
     private String[] mDefaultDashboardReverse;
@@ -44,6 +59,14 @@ public class DashboardFragment extends PageableFragment {
     private DashboardInfo mDashboard;
     private String[] mDashboardTabs;
 
+    // The first page of all the sections is fetched in a single request. Every section
+    // consumes its result once; later fetches are done by the section itself.
+    private final Object mBatchLock = new Object();
+    private final List<String> mBatchFilters = new ArrayList<>();
+    private final Set<String> mBatchPendingFilters = new HashSet<>();
+    private Observable<List<List<ChangeInfo>>> mBatch;
+    private long mBatchTimestamp;
+
     public static DashboardFragment newInstance() {
         return new DashboardFragment();
     }
@@ -149,6 +172,59 @@ public class DashboardFragment extends PageableFragment {
                 false, true, true);
     }
 
+    /**
+     * Returns the first page of the section changes from the dashboard batch request, or
+     * null if the section must fetch the changes by itself. Must be called from a
+     * background thread.
+     */
+    List<ChangeInfo> fetchSectionChanges(String filter, int count) {
+        Observable<List<List<ChangeInfo>>> batch;
+        int index;
+        synchronized (mBatchLock) {
+            if (!mBatchPendingFilters.remove(filter)) {
+                return null;
+            }
+            index = mBatchFilters.indexOf(filter);
+            if (mBatch == null) {
+                try {
+                    mBatch = createBatch(count);
+                    mBatchTimestamp = SystemClock.elapsedRealtime();
+                } catch (Exception ex) {
+                    Log.w(TAG, "Failed to create dashboard batch request", ex);
+                    mBatchPendingFilters.clear();
+                    return null;
+                }
+            } else if (SystemClock.elapsedRealtime() - mBatchTimestamp > MAX_BATCH_AGE) {
+                mBatch = null;
+                mBatchPendingFilters.clear();
+                return null;
+            }
+            batch = mBatch;
+
+            // Don't retain the results once all the sections have them
+            if (mBatchPendingFilters.isEmpty()) {
+                mBatch = null;
+            }
+        }
+
+        try {
+            return BlockingCalls.first(batch).get(index);
+        } catch (Exception ex) {
+            Log.w(TAG, "Failed to fetch dashboard sections. Fallback to section fetch.", ex);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    private Observable<List<List<ChangeInfo>>> createBatch(int count) {
+        List<ChangeQuery> queries = new ArrayList<>();
+        for (String filter : mBatchFilters) {
+            queries.add(ChangeQuery.parse(filter));
+        }
+        final GerritApi api = ModelHelper.getGerritApi(getActivity());
+        return api.getChanges(queries, count, 0, ChangeListByFilterFragment.OPTIONS).cache();
+    }
+
     @Override
     public boolean isSwipeable() {
         final boolean isTwoPane = getResources().getBoolean(R.bool.config_is_two_pane);
@@ -196,5 +272,26 @@ public class DashboardFragment extends PageableFragment {
             }
             mDashboardTabs = tabs;
         }
+
+        String[] filters = isDefaultDashboard() ? mDefaultDashboardFilters : null;
+        if (filters == null) {
+            int count = mDashboard.sections.length;
+            filters = new String[count];
+            for (int i = 0; i < count; i++) {
+                filters[i] = mDashboard.sections[i].query;
+            }
+        }
+        synchronized (mBatchLock) {
+            mBatch = null;
+            mBatchFilters.clear();
+            mBatchPendingFilters.clear();
+            for (String filter : filters) {
+                if (ChangeListByFilterFragment.isBatchableFilter(filter)
+                        && !mBatchFilters.contains(filter)) {
+                    mBatchFilters.add(filter);
+                    mBatchPendingFilters.add(filter);
+                }
+            }
+        }
     }
 }
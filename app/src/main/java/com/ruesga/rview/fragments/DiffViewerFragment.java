@@ -84,7 +84,6 @@ import me.tatarka.rxloader2.RxLoader2;
 import me.tatarka.rxloader2.RxLoaderManager;
 import me.tatarka.rxloader2.RxLoaderManagerCompat;
 import me.tatarka.rxloader2.RxLoaderObserver;
-import me.tatarka.rxloader2.safe.SafeObservable;
 
 public class DiffViewerFragment extends Fragment
         implements OnDiffCompleteListener,  EditDialogFragment.OnEditChanged {
@@ -367,6 +366,7 @@ public class DiffViewerFragment extends Fragment
 
     private WeakReference<FileDiffViewerFragment> mFragment;
     private Handler mHandler;
+    private FileDiffPrefetcher mPrefetcher;
 
     private ChangeInfo mChange;
     private final ArrayList<String> mFiles = new ArrayList<>();
@@ -580,6 +580,9 @@ public class DiffViewerFragment extends Fragment
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (mPrefetcher != null) {
+            mPrefetcher.cancel();
+        }
         if (mBinding != null) {
             mBinding.unbind();
         }
@@ -985,6 +988,7 @@ public class DiffViewerFragment extends Fragment
                 mScrollPosition = -1;
                 mSkipLinesHistory = null;
             }
+            prefetchNeighbourFiles();
         });
         activity.getContentBinding().pagerController.currentPage(mCurrentFile, refresh, false);
         if (refresh) {
@@ -992,6 +996,19 @@ public class DiffViewerFragment extends Fragment
         }
     }
 
+    private void prefetchNeighbourFiles() {
+        if (getContext() == null || mChange == null || mFiles.isEmpty()) {
+            return;
+        }
+        if (mPrefetcher == null) {
+            mPrefetcher = new FileDiffPrefetcher(getContext());
+        }
+
+        // Restarting drops any pending prefetch of the previous neighbours
+        mPrefetcher.prefetch(mChange, mRevisionId, mBase, new ArrayList<>(mFiles),
+                mCurrentFile, mMode, mHighlightIntralineDiffs);
+    }
+
     @SuppressWarnings("ConstantConditions")
     private Observable<Map<String, FileInfo>> loadFiles(
             final String revisionId, final String baseRevisionId) {
@@ -1003,9 +1020,8 @@ public class DiffViewerFragment extends Fragment
         String prefix = (mBase == null ? "0" : mBase) + "_" + current + "_";
 
         return withCached(
-                    SafeObservable.fromNullCallable(() ->
-                        api.getChangeRevisionFiles(String.valueOf(mChange.legacyChangeId),
-                            revisionId, baseRevisionId, null).blockingFirst()),
+                    api.getChangeRevisionFiles(String.valueOf(mChange.legacyChangeId),
+                            revisionId, baseRevisionId, null),
                     type,
                     prefix + CacheHelper.CACHE_FILES_INFO_JSON
                 )
@@ -44,6 +44,7 @@ import com.ruesga.rview.databinding.EditFileChooserHeaderBinding;
 import com.ruesga.rview.databinding.EditorFragmentBinding;
 import com.ruesga.rview.drawer.DrawerNavigationView.OnDrawerNavigationItemSelectedListener;
 import com.ruesga.rview.fragments.EditFileChooserDialogFragment.MODE;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.model.ChangeEditMessageInput;
 import com.ruesga.rview.gerrit.model.FileInfo;
@@ -313,8 +314,8 @@ public class EditorFragment extends Fragment
 
             if (!wasDeleted) {
                 try {
-                    CacheHelper.writeAccountDiffCacheFile(
-                            getContext(), getContentCachedFileName(mFile), data);
+                    CacheHelper.writeAccountEditCacheFile(getContext(), mAccount,
+                            mLegacyChangeId, getContentCachedFileName(mFile), data);
                 } catch (IOException ex) {
                     Log.w(TAG, "Failed to store content for " + mFile);
                 }
@@ -699,11 +700,8 @@ public class EditorFragment extends Fragment
     @SuppressWarnings("ConstantConditions")
     private Observable<Map<String, FileInfo>> fetchFiles() {
         final GerritApi api = ModelHelper.getGerritApi(getContext());
-        return SafeObservable.fromNullCallable(() ->
-                    api.getChangeRevisionFiles(
-                            String.valueOf(mLegacyChangeId), GerritApi.CURRENT_REVISION, null, null)
-                            .blockingFirst()
-                )
+        return api.getChangeRevisionFiles(
+                        String.valueOf(mLegacyChangeId), GerritApi.CURRENT_REVISION, null, null)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
     }
@@ -711,7 +709,7 @@ public class EditorFragment extends Fragment
     @SuppressWarnings("ConstantConditions")
     private Observable<byte[]> fetchContent() {
         final GerritApi api = ModelHelper.getGerritApi(getContext());
-        return SafeObservable.fromNullCallable(() ->
+        return Observable.defer(() ->
                     withCached(SafeObservable.fromNullCallable(() -> {
                             // Deleted files doesn't have content
                             FileInfo info = mFileInfo.get(mFile);
@@ -723,10 +721,12 @@ public class EditorFragment extends Fragment
                             String file = info.status.equals(FileStatus.R) &&
                                     mEditOps.containsKey(mFile) ? info.oldPath : mFile;
                             try {
-                                ResponseBody body = api.getChangeRevisionFileContent(
+                                // The content is streamed, so read it before the call
+                                // is released
+                                return BlockingCalls.first(api.getChangeRevisionFileContent(
                                         String.valueOf(mLegacyChangeId),
-                                        GerritApi.CURRENT_REVISION, file, null).blockingFirst();
-                                return body.bytes();
+                                        GerritApi.CURRENT_REVISION, file, null),
+                                        ResponseBody::bytes);
                             } catch (Exception ex) {
                                 // If is a new content edit, just initialize the edit
                                 if (ExceptionHelper.isResourceNotFoundException(ex)
@@ -736,7 +736,7 @@ public class EditorFragment extends Fragment
                                 }
                                 throw ex;
                             }
-                    })).blockingFirst())
+                    })))
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
     }
@@ -759,7 +759,7 @@ public class EditorFragment extends Fragment
     private Observable<Boolean> cancelEdit() {
         final GerritApi api = ModelHelper.getGerritApi(getContext());
         return SafeObservable.fromNullCallable(() -> {
-                    api.deleteChangeEdit(String.valueOf(mLegacyChangeId)).blockingFirst();
+                    BlockingCalls.first(api.deleteChangeEdit(String.valueOf(mLegacyChangeId)));
                     return true;
                 })
                 .subscribeOn(Schedulers.io())
@@ -815,8 +815,8 @@ public class EditorFragment extends Fragment
     }
 
     private void performShowFileDetails() {
-        File file = new File(CacheHelper.getAccountDiffCacheDir(
-                getActivity(), mAccount), getContentCachedFileName(mFile));
+        File file = new File(CacheHelper.getAccountEditCacheDir(
+                getActivity(), mAccount, mLegacyChangeId), getContentCachedFileName(mFile));
         FileDetailsDialogFragment fragment = FileDetailsDialogFragment.newInstance(
                 new File(mFile), file.length(), null);
         fragment.show(getChildFragmentManager(), FileDetailsDialogFragment.TAG);
@@ -862,9 +862,11 @@ public class EditorFragment extends Fragment
                             Log.i(TAG, new String(Base64.decode(content, Base64.NO_WRAP)));
                         }
                         try {
-                            CacheHelper.writeAccountDiffCacheFile(getActivity(), name, content);
-                            mContentFile = new File(CacheHelper.getAccountDiffCacheDir(
-                                    getActivity(), mAccount), name).getAbsolutePath();
+                            CacheHelper.writeAccountEditCacheFile(
+                                    getActivity(), mAccount, mLegacyChangeId, name, content);
+                            mContentFile = new File(CacheHelper.getAccountEditCacheDir(
+                                    getActivity(), mAccount, mLegacyChangeId), name)
+                                            .getAbsolutePath();
                         } catch (IOException ex) {
                             Log.w(TAG, "Failed to store edit for " + file);
                         }
@@ -890,16 +892,20 @@ public class EditorFragment extends Fragment
         final String contentName = getContentCachedFileName(mFile);
         try {
             // Has edit?
-            if (CacheHelper.hasAccountDiffCache(getContext(), editName)) {
-                byte[] o = CacheHelper.readAccountDiffCacheFile(getContext(), editName);
+            if (CacheHelper.hasAccountEditCache(
+                    getContext(), mAccount, mLegacyChangeId, editName)) {
+                byte[] o = CacheHelper.readAccountEditCacheFile(
+                        getContext(), mAccount, mLegacyChangeId, editName);
                 if (o != null) {
                     return Observable.just(o);
                 }
             }
 
             // Has content?
-            if (CacheHelper.hasAccountDiffCache(getContext(), contentName)) {
-                byte[] o = CacheHelper.readAccountDiffCacheFile(getContext(), contentName);
+            if (CacheHelper.hasAccountEditCache(
+                    getContext(), mAccount, mLegacyChangeId, contentName)) {
+                byte[] o = CacheHelper.readAccountEditCacheFile(
+                        getContext(), mAccount, mLegacyChangeId, contentName);
                 if (o != null) {
                     return Observable.just(o);
                 }
@@ -989,8 +995,9 @@ public class EditorFragment extends Fragment
     private void performDeleteCurrentEdit() {
         try {
             String file = getContentCachedFileName(mFile);
-            if (CacheHelper.hasAccountDiffCache(getContext(), file)) {
-                CacheHelper.writeAccountDiffCacheFile(getContext(), file, new byte[0]);
+            if (CacheHelper.hasAccountEditCache(getContext(), mAccount, mLegacyChangeId, file)) {
+                CacheHelper.writeAccountEditCacheFile(
+                        getContext(), mAccount, mLegacyChangeId, file, new byte[0]);
             }
         } catch (IOException e) {
             Log.e(TAG, "Failed to delete content of file: " + mFile);
@@ -1024,7 +1031,7 @@ public class EditorFragment extends Fragment
     @SuppressLint("CheckResult")
     private void publishEditChanges() throws IOException {
         final GerritApi api = ModelHelper.getGerritApi(getContext());
-        File dir = CacheHelper.getAccountDiffCacheDir(getContext());
+        File dir = CacheHelper.getAccountEditCacheDir(getContext(), mAccount, mLegacyChangeId);
         File[] edits = dir.listFiles((dir1, name) -> name.endsWith(".edit"));
 
         // Send every edit to the server
@@ -1035,7 +1042,8 @@ public class EditorFragment extends Fragment
             if (file.equals(Constants.COMMIT_MESSAGE)) {
                 ChangeEditMessageInput input = new ChangeEditMessageInput();
                 input.message = new String(readEditContent(file));
-                api.setChangeEditMessage(String.valueOf(mLegacyChangeId), input).blockingFirst();
+                BlockingCalls.first(
+                        api.setChangeEditMessage(String.valueOf(mLegacyChangeId), input));
             } else {
                 // Extract the mime/type of the file
                 MediaType mediaType = MediaType.parse(StringHelper.getMimeType(new File(file)));
@@ -1044,22 +1052,26 @@ public class EditorFragment extends Fragment
                 boolean wasRenamed = mFileInfo.get(file).status.equals(FileStatus.R);
 
                 if (wasDeleted) {
-                    api.deleteChangeEditFile(String.valueOf(mLegacyChangeId), file).blockingFirst();
+                    BlockingCalls.first(
+                            api.deleteChangeEditFile(String.valueOf(mLegacyChangeId), file));
                 } else if (wasRenamed) {
                     // Rename
                     RenameChangeEditInput input = new RenameChangeEditInput();
                     input.newPath = file;
                     input.oldPath = mEditOps.get(file).oldPath;
-                    api.renameChangeEditFile(String.valueOf(mLegacyChangeId), input).blockingFirst();
+                    BlockingCalls.first(
+                            api.renameChangeEditFile(String.valueOf(mLegacyChangeId), input));
 
                     // Upload file changes
                     RequestBody body = RequestBody.create(mediaType, readEditContent(file));
-                    api.setChangeEditFile(String.valueOf(mLegacyChangeId), file, body).blockingFirst();
+                    BlockingCalls.first(
+                            api.setChangeEditFile(String.valueOf(mLegacyChangeId), file, body));
 
                     renames.add(file);
                 } else {
                     RequestBody body = RequestBody.create(mediaType, readEditContent(file));
-                    api.setChangeEditFile(String.valueOf(mLegacyChangeId), file, body).blockingFirst();
+                    BlockingCalls.first(
+                            api.setChangeEditFile(String.valueOf(mLegacyChangeId), file, body));
                 }
             }
         }
@@ -1070,17 +1082,18 @@ public class EditorFragment extends Fragment
                 RenameChangeEditInput input = new RenameChangeEditInput();
                 input.newPath = entry.getKey();
                 input.oldPath = mEditOps.get(entry.getKey()).oldPath;
-                api.renameChangeEditFile(String.valueOf(mLegacyChangeId), input).blockingFirst();
+                BlockingCalls.first(
+                        api.renameChangeEditFile(String.valueOf(mLegacyChangeId), input));
             }
         }
 
         // And now publish the edit
-        api.publishChangeEdit(String.valueOf(mLegacyChangeId)).blockingFirst();
+        BlockingCalls.first(api.publishChangeEdit(String.valueOf(mLegacyChangeId)));
     }
 
     private byte[] readEditContent(String file) throws IOException {
-        byte[] o = CacheHelper.readAccountDiffCacheFile(
-                getContext(), getEditCachedFileName(file));
+        byte[] o = CacheHelper.readAccountEditCacheFile(
+                getContext(), mAccount, mLegacyChangeId, getEditCachedFileName(file));
         if (o == null || o.length == 0) {
             return new byte[0];
         }
@@ -1089,7 +1102,8 @@ public class EditorFragment extends Fragment
 
     private void readFileOps() {
         try {
-            byte[] data = CacheHelper.readAccountDiffCacheFile(getContext(), "edit.ops");
+            byte[] data = CacheHelper.readAccountEditCacheFile(
+                    getContext(), mAccount, mLegacyChangeId, "edit.ops");
             Type type = new TypeToken<Map<String, Op>>(){}.getType();
             mEditOps = SerializationManager.getInstance().fromJson(new String(data), type);
         } catch (FileNotFoundException ex) {
@@ -1103,7 +1117,8 @@ public class EditorFragment extends Fragment
     private void writeFileOps() {
         try {
             byte[] data = SerializationManager.getInstance().toJson(mEditOps).getBytes();
-            CacheHelper.writeAccountDiffCacheFile(getContext(), "edit.ops", data);
+            CacheHelper.writeAccountEditCacheFile(
+                    getContext(), mAccount, mLegacyChangeId, "edit.ops", data);
         } catch (IOException ex) {
             //noinspection ConstantConditions
             ((BaseActivity) getActivity()).handleException(TAG, ex, null);
@@ -1195,17 +1210,18 @@ public class EditorFragment extends Fragment
     private void createEmptyEdit(String file) {
         String name = getEditCachedFileName(file);
         try {
-            CacheHelper.writeAccountDiffCacheFile(getActivity(), name, new byte[]{});
+            CacheHelper.writeAccountEditCacheFile(
+                    getActivity(), mAccount, mLegacyChangeId, name, new byte[]{});
         } catch (IOException ex) {
             Log.w(TAG, "Failed to store edit for " + file);
         }
     }
 
     private void restoreFile() {
-        CacheHelper.removeAccountDiffCacheFile(
-                getContext(), getEditCachedFileName(mFile));
-        CacheHelper.removeAccountDiffCacheFile(
-                getContext(), getContentCachedFileName(mFile));
+        CacheHelper.removeAccountEditCacheFile(
+                getContext(), mAccount, mLegacyChangeId, getEditCachedFileName(mFile));
+        CacheHelper.removeAccountEditCacheFile(
+                getContext(), mAccount, mLegacyChangeId, getContentCachedFileName(mFile));
         mIsDirty = hasPendingEdits();
 
         boolean isOp = mEditOps.containsKey(mFile);
@@ -1235,7 +1251,7 @@ public class EditorFragment extends Fragment
     }
 
     private boolean hasPendingEdits() {
-        File dir = CacheHelper.getAccountDiffCacheDir(getContext());
+        File dir = CacheHelper.getAccountEditCacheDir(getContext(), mAccount, mLegacyChangeId);
         File[] edits = dir.listFiles((dir1, name) -> name.endsWith(".edit"));
         return edits.length > 0 || mEditOps.size() > 0;
     }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.fragments;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.util.Log;
+
+import com.ruesga.rview.gerrit.GerritApi;
+import com.ruesga.rview.gerrit.model.ChangeInfo;
+import com.ruesga.rview.misc.AndroidHelper;
+import com.ruesga.rview.misc.CacheHelper;
+import com.ruesga.rview.misc.DiffCacheHelper;
+import com.ruesga.rview.misc.ModelHelper;
+import com.ruesga.rview.preferences.Preferences;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import androidx.core.net.ConnectivityManagerCompat;
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Fetches and processes the diffs of the files around the one being viewed into the
+ * diff cache, so moving to the next or previous file doesn't hit the network.
+ */
+class FileDiffPrefetcher {
+
+    private static final String TAG = "FileDiffPrefetcher";
+
+    // Files prefetched at each side of the current one
+    private static final int PREFETCH_FILES = 2;
+    // Only the next file is prefetched on metered networks
+    private static final int PREFETCH_FILES_METERED = 1;
+    private static final int MAX_CONCURRENT_FETCHES = 2;
+    // Don't start fetching while the user is still moving through the files
+    private static final long PREFETCH_DELAY = 750L;
+
+    private final Context mContext;
+    private Disposable mDisposable;
+
+    FileDiffPrefetcher(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    void prefetch(ChangeInfo change, String revisionId, String base,
+            List<String> files, int position, int mode, boolean highlightIntralineDiffs) {
+        cancel();
+
+        ConnectivityManager cm =
+                (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo ni = cm == null ? null : cm.getActiveNetworkInfo();
+        if (ni == null || !ni.isConnected() || AndroidHelper.isRoaming(cm)) {
+            return;
+        }
+        final boolean metered = ConnectivityManagerCompat.isActiveNetworkMetered(cm);
+
+        // The offline bundle of the change already holds every file
+        if (CacheHelper.getAccountOfflineBundles(
+                mContext, Preferences.getAccount(mContext)).hasActiveBundle()) {
+            return;
+        }
+
+        // Nearest files first, the next one before the previous one
+        final int count = metered ? PREFETCH_FILES_METERED : PREFETCH_FILES;
+        final List<String> neighbours = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            if (position + i < files.size()) {
+                neighbours.add(files.get(position + i));
+            }
+            if (!metered && position - i >= 0) {
+                neighbours.add(files.get(position - i));
+            }
+        }
+        if (neighbours.isEmpty()) {
+            return;
+        }
+
+        final Context ctx = mContext;
+        final GerritApi api = ModelHelper.getGerritApi(ctx);
+        mDisposable = Observable.fromIterable(neighbours)
+                .delaySubscription(PREFETCH_DELAY, TimeUnit.MILLISECONDS)
+                .flatMap(file -> Observable.fromCallable(() -> prefetchFile(
+                                ctx, api, change, revisionId, base, file,
+                                mode, highlightIntralineDiffs))
+                        .subscribeOn(Schedulers.io()), MAX_CONCURRENT_FETCHES)
+                .subscribe(
+                        prefetched -> {},
+                        error -> Log.w(TAG, "Diff prefetch failed", error));
+    }
+
+    void cancel() {
+        if (mDisposable != null) {
+            mDisposable.dispose();
+            mDisposable = null;
+        }
+    }
+
+    private static boolean prefetchFile(Context ctx, GerritApi api, ChangeInfo change,
+            String revisionId, String base, String file, int mode,
+            boolean highlightIntralineDiffs) {
+        try {
+            DiffCacheHelper.cacheFileDiff(ctx, api, change, revisionId, base, file,
+                    mode, highlightIntralineDiffs);
+            return true;
+        } catch (Exception ex) {
+            // Cancelling interrupts the running fetches, so this is expected
+            Log.d(TAG, "Can't prefetch diff of " + file, ex);
+        }
+        return false;
+    }
+}
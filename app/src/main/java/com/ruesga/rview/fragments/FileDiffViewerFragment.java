@@ -21,7 +21,6 @@ import android.content.Context;
 import android.os.Bundle;
 import android.os.Handler;
 import android.text.TextUtils;
-import android.util.Base64;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -33,24 +32,20 @@ import com.google.gson.reflect.TypeToken;
 import com.ruesga.rview.BaseActivity;
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.FileDiffViewerFragmentBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
-import com.ruesga.rview.gerrit.filter.Option;
-import com.ruesga.rview.gerrit.model.BlameBaseType;
 import com.ruesga.rview.gerrit.model.BlameInfo;
 import com.ruesga.rview.gerrit.model.ChangeInfo;
 import com.ruesga.rview.gerrit.model.CommentInfo;
 import com.ruesga.rview.gerrit.model.CommentInput;
-import com.ruesga.rview.gerrit.model.ContextType;
-import com.ruesga.rview.gerrit.model.DiffContentInfo;
 import com.ruesga.rview.gerrit.model.DiffInfo;
 import com.ruesga.rview.gerrit.model.Features;
 import com.ruesga.rview.gerrit.model.FileStatus;
-import com.ruesga.rview.gerrit.model.RobotCommentInfo;
 import com.ruesga.rview.gerrit.model.SideType;
-import com.ruesga.rview.gerrit.model.WhitespaceType;
 import com.ruesga.rview.misc.CacheHelper;
-import com.ruesga.rview.misc.FowlerNollVo;
+import com.ruesga.rview.misc.DiffCacheHelper;
+import com.ruesga.rview.misc.ExceptionHelper;
 import com.ruesga.rview.misc.ModelHelper;
 import com.ruesga.rview.misc.SerializationManager;
 import com.ruesga.rview.misc.StringHelper;
@@ -60,11 +55,8 @@ import com.ruesga.rview.preferences.Preferences;
 import com.ruesga.rview.tasks.AsyncImageDiffProcessor;
 import com.ruesga.rview.widget.DiffView;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -86,7 +78,6 @@ import me.tatarka.rxloader2.RxLoaderManager;
 import me.tatarka.rxloader2.RxLoaderManagerCompat;
 import me.tatarka.rxloader2.RxLoaderObserver;
 import me.tatarka.rxloader2.safe.SafeObservable;
-import okhttp3.ResponseBody;
 
 public class FileDiffViewerFragment extends Fragment implements EditDialogFragment.OnEditChanged {
 
@@ -379,6 +370,8 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
                     .highlightTabs(mHighlightTabs)
                     .highlightTrailingWhitespaces(mHighlightTrailingWhitespaces)
                     .highlightIntralineDiffs(mHighlightIntralineDiffs)
+                    .withModelCache(getDiffModelCacheName())
+                    .withDiffLoader(this::loadDiff)
                     .withSkipLinesHistory(mSkipLinesHistory);
                 if (mComment != null) {
                     v.scrollToComment(mComment);
@@ -399,7 +392,7 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
 
         mRevisionId = getArguments().getString(Constants.EXTRA_REVISION_ID);
         mFile = getArguments().getString(Constants.EXTRA_FILE);
-        mFileHash = FowlerNollVo.fnv1a_64(mFile.getBytes()).toString();
+        mFileHash = DiffCacheHelper.getFileHash(mFile);
         mComment = getArguments().getString(Constants.EXTRA_COMMENT);
         int base = getArguments().getInt(Constants.EXTRA_BASE);
         mBase = base == 0 ? null : String.valueOf(base);
@@ -504,104 +497,89 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
     private Observable<FileDiffResponse> fetchDiffs() {
         // Generate ids
         final String baseRevision = mBase == null ? "0" : mBase;
-        final String diffCacheId = baseRevision + "_" + mRevision + "_" + mFileHash + "_";
-        final Integer base = mBase == null ? null : Integer.valueOf(mBase);
         final Type commentType = new TypeToken<Map<String, List<CommentInfo>>>(){}.getType();
         final boolean isBinary = !mFile.equals(Constants.COMMIT_MESSAGE)
                 && mChange.revisions.get(mRevisionId).files.get(mFile) != null
                 && mChange.revisions.get(mRevisionId).files.get(mFile).binary;
-        final boolean isSameBase =
-                (base != null && base == mChange.revisions.get(mRevisionId).number);
+
+        // If the processed diff is cached, the diff itself doesn't need to be parsed. The diff
+        // view loads it anyway if the cached model can't be read back
+        final boolean hasDiffModel = !isBinary && mMode != DiffView.IMAGE_MODE
+                && hasCachedDiffModel(getDiffModelCacheName());
 
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
+        final String changeId = String.valueOf(mChange.legacyChangeId);
+        final boolean canFetchDrafts = !isBinary && mAccount.hasAuthenticatedAccessMode();
+        Observable<Map<String, List<CommentInfo>>> baseComments = !isBinary && mBase != null
+                ? fetchAndMergeAllChangeRevisionComments(api, changeId, baseRevision)
+                : Observable.just(new HashMap<>());
+        Observable<Map<String, List<CommentInfo>>> revisionComments = !isBinary
+                ? fetchAndMergeAllChangeRevisionComments(api, changeId, mRevisionId)
+                : Observable.just(new HashMap<>());
+        // Do no fetch drafts if the account is not authenticated
+        Observable<Map<String, List<CommentInfo>>> baseDrafts = canFetchDrafts && mBase != null
+                ? api.getChangeRevisionDrafts(changeId, baseRevision)
+                : Observable.just(new HashMap<>());
+        Observable<Map<String, List<CommentInfo>>> revisionDrafts = canFetchDrafts
+                ? api.getChangeRevisionDrafts(changeId, mRevisionId)
+                : Observable.just(new HashMap<>());
+
         return Observable.zip(
-                withCached(
-                        SafeObservable.fromNullCallable(() -> {
-                            if (!isBinary) {
-                                boolean rectify = (isSameBase
-                                        && mFile.equals(Constants.COMMIT_MESSAGE));
-
-                                final Integer b = rectify ? null : base;
-                                DiffInfo diff =
-                                        api.getChangeRevisionFileDiff(
-                                            String.valueOf(mChange.legacyChangeId),
-                                            mRevisionId,
-                                            mFile,
-                                            b,
-                                            Option.INSTANCE,
-                                            null,
-                                            WhitespaceType.IGNORE_NONE,
-                                            ContextType.ALL)
-                                            .blockingFirst();
-                                if (rectify) {
-                                    // Server doesn't return any content diff, so just ensure
-                                    // the return structure has the proper data
-                                    diff.content[0].ab = diff.content[0].b;
-                                    diff.content[0].b = null;
-                                }
-                                return diff;
-                            }
-
-                            DiffInfo diff = new DiffInfo();
-                            diff.binary = true;
-                            return diff;
-                        }),
-                        DiffInfo.class,
-                        diffCacheId + CacheHelper.CACHE_DIFF_JSON
-                ),
-                withCached(
-                        SafeObservable.fromNullCallable(() -> {
-                            if (!isBinary && mBase != null) {
-                                return fetchAndMergeAllChangeRevisionComments(
-                                        api, String.valueOf(mChange.legacyChangeId), baseRevision)
-                                        .blockingFirst();
-                            }
-                            return new HashMap<>();
-                        }),
-                        commentType,
+                hasDiffModel ? Observable.just(new DiffInfo()) : fetchDiff(api, isBinary),
+                withCachedComments(baseComments, commentType,
                         baseRevision + "_" + CacheHelper.CACHE_COMMENTS_JSON),
-                withCached(
-                        SafeObservable.fromNullCallable(() -> {
-                            if (!isBinary) {
-                                return fetchAndMergeAllChangeRevisionComments(
-                                        api, String.valueOf(mChange.legacyChangeId), mRevisionId)
-                                        .blockingFirst();
-                            }
-                            return new HashMap<>();
-                        }),
-                        commentType,
+                withCachedComments(revisionComments, commentType,
                         mRevision + "_" + CacheHelper.CACHE_COMMENTS_JSON),
-                withCached(
-                        SafeObservable.fromNullCallable(() -> {
-                            // Do no fetch drafts if the account is not authenticated
-                            if (!isBinary && mBase != null && mAccount.hasAuthenticatedAccessMode()) {
-                                return api.getChangeRevisionDrafts(
-                                        String.valueOf(mChange.legacyChangeId), baseRevision)
-                                        .blockingFirst();
-                            }
-                            return new HashMap<>();
-                        }),
-                        commentType,
+                withCachedComments(baseDrafts, commentType,
                         baseRevision + "_" + CacheHelper.CACHE_DRAFT_JSON),
-                withCached(
-                        SafeObservable.fromNullCallable(() -> {
-                            // Do no fetch drafts if the account is not authenticated
-                            if (!isBinary && mAccount.hasAuthenticatedAccessMode()) {
-                                return api.getChangeRevisionDrafts(
-                                        String.valueOf(mChange.legacyChangeId), mRevisionId)
-                                        .blockingFirst();
-                            }
-                            return new HashMap<>();
-                        }),
-                        commentType,
+                withCachedComments(revisionDrafts, commentType,
                         mRevision + "_" + CacheHelper.CACHE_DRAFT_JSON),
-                this::combine
+                (diff, commentsA, commentsB, draftsA, draftsB) -> combine(
+                        diff, !hasDiffModel, commentsA, commentsB, draftsA, draftsB)
             )
             .subscribeOn(Schedulers.io())
             .observeOn(AndroidSchedulers.mainThread());
     }
 
+    private Observable<DiffInfo> fetchDiff(GerritApi api, boolean isBinary) {
+        final String baseRevision = mBase == null ? "0" : mBase;
+        final String diffCacheId = baseRevision + "_" + mRevision + "_" + mFileHash + "_";
+        final Integer base = mBase == null ? null : Integer.valueOf(mBase);
+        return withCached(
+                SafeObservable.fromNullCallable(() -> {
+                    if (!isBinary) {
+                        return DiffCacheHelper.fetchDiff(
+                                api, mChange, mRevisionId, mFile, base);
+                    }
+
+                    DiffInfo diff = new DiffInfo();
+                    diff.binary = true;
+                    return diff;
+                }),
+                DiffInfo.class,
+                diffCacheId + CacheHelper.CACHE_DIFF_JSON);
+    }
+
+    // Called by the diff view when the cached diff model couldn't be read
+    private DiffInfo loadDiff() throws IOException {
+        final Context ctx = getContext();
+        if (ctx == null) {
+            return null;
+        }
+
+        final String baseRevision = mBase == null ? "0" : mBase;
+        final String name = baseRevision + "_" + mRevision + "_" + mFileHash + "_"
+                + CacheHelper.CACHE_DIFF_JSON;
+        final boolean cached = CacheHelper.hasAccountDiffCache(ctx, name);
+        DiffInfo diff = fetchDiff(ModelHelper.getGerritApi(ctx), false).blockingFirst();
+        if (!cached) {
+            CacheHelper.writeAccountDiffCacheFile(ctx, name,
+                    SerializationManager.getInstance().toJson(diff).getBytes());
+        }
+        return diff;
+    }
+
     @SuppressWarnings("ConstantConditions")
     private Observable<FileDiffResponse> fetchDrafts() {
         // Generate ids
@@ -612,25 +590,19 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
 
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
+        final String changeId = String.valueOf(mChange.legacyChangeId);
+        final boolean canFetchDrafts = !isBinary && mAccount.hasAuthenticatedAccessMode();
+        // Do no fetch drafts if the account is not authenticated
+        Observable<Map<String, List<CommentInfo>>> baseDrafts = canFetchDrafts && mBase != null
+                ? api.getChangeRevisionDrafts(changeId, baseRevision)
+                : Observable.just(new HashMap<>());
+        Observable<Map<String, List<CommentInfo>>> revisionDrafts = canFetchDrafts
+                ? api.getChangeRevisionDrafts(changeId, mRevisionId)
+                : Observable.just(new HashMap<>());
+
         return Observable.zip(
-                    SafeObservable.fromNullCallable(() -> {
-                        // Do no fetch drafts if the account is not authenticated
-                        if (!isBinary && mBase != null && mAccount.hasAuthenticatedAccessMode()) {
-                            return api.getChangeRevisionDrafts(
-                                    String.valueOf(mChange.legacyChangeId), baseRevision)
-                                    .blockingFirst();
-                        }
-                        return new HashMap<>();
-                    }),
-                    SafeObservable.fromNullCallable(() -> {
-                        // Do no fetch drafts if the account is not authenticated
-                        if (!isBinary && mAccount.hasAuthenticatedAccessMode()) {
-                            return api.getChangeRevisionDrafts(
-                                    String.valueOf(mChange.legacyChangeId), mRevisionId)
-                                    .blockingFirst();
-                        }
-                        return new HashMap<>();
-                    }),
+                    baseDrafts,
+                    revisionDrafts,
                     this::combineDrafts
                 )
                 .subscribeOn(Schedulers.io())
@@ -642,60 +614,20 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
         // Generate ids
         final String baseRevision = mBase == null ? "0" : mBase;
         final Type blameType = new TypeToken<List<BlameInfo>>(){}.getType();
-        final boolean isBinary = !mFile.equals(Constants.COMMIT_MESSAGE)
-                && mChange.revisions.get(mRevisionId).files.get(mFile) != null
-                && mChange.revisions.get(mRevisionId).files.get(mFile).binary;
-        final FileStatus fileStatus;
-        if (!mFile.equals(Constants.COMMIT_MESSAGE)
-                && mChange.revisions.get(mRevisionId).files.get(mFile) != null
-                && mChange.revisions.get(mRevisionId).files.containsKey(mFile)) {
-            fileStatus = mChange.revisions.get(mRevisionId).files.get(mFile).status;
-        } else {
-            fileStatus = null;
-        }
 
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
         return Observable.zip(
                 withCached(
-                        SafeObservable.fromNullCallable(() -> {
-                            if (api.supportsFeature(Features.BLAME)
-                                    && !mFile.equals(Constants.COMMIT_MESSAGE)
-                                    && !isBinary
-                                    && (fileStatus != null && !fileStatus.equals(FileStatus.A))
-                                    && mAccount.hasAuthenticatedAccessMode()) {
-                                BlameBaseType baseType = mBase == null
-                                        ? BlameBaseType.t : BlameBaseType.f;
-                                String rev = mBase == null ? mRevisionId : baseRevision;
-                                return api.getChangeRevisionFileBlames(
-                                            String.valueOf(mChange.legacyChangeId),
-                                            rev,
-                                            mFile,
-                                            baseType)
-                                        .blockingFirst();
-                            }
-                            return new ArrayList<>();
-                        }),
+                        SafeObservable.fromNullCallable(() -> DiffCacheHelper.fetchBlames(
+                                api, mAccount, mChange, mRevisionId, mBase, mFile, true)),
                         blameType,
-                        baseRevision + "_" + CacheHelper.CACHE_BLAME),
+                        DiffCacheHelper.getBlameCacheName(baseRevision, mFileHash)),
                 withCached(
-                        SafeObservable.fromNullCallable(() -> {
-                            if (api.supportsFeature(Features.BLAME)
-                                    && !mFile.equals(Constants.COMMIT_MESSAGE)
-                                    && !isBinary
-                                    && (fileStatus != null && !fileStatus.equals(FileStatus.D))
-                                    && mAccount.hasAuthenticatedAccessMode()) {
-                                return api.getChangeRevisionFileBlames(
-                                            String.valueOf(mChange.legacyChangeId),
-                                            mRevisionId,
-                                            mFile,
-                                            BlameBaseType.f)
-                                        .blockingFirst();
-                            }
-                            return new ArrayList<>();
-                        }),
+                        SafeObservable.fromNullCallable(() -> DiffCacheHelper.fetchBlames(
+                                api, mAccount, mChange, mRevisionId, mBase, mFile, false)),
                         blameType,
-                        mRevision + "_" + CacheHelper.CACHE_BLAME),
+                        DiffCacheHelper.getBlameCacheName(mRevision, mFileHash)),
                 this::combineBlames
                 )
                 .subscribeOn(Schedulers.io())
@@ -707,18 +639,18 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
         return SafeObservable.fromNullCallable(() -> {
-                    api.setChangeRevisionFileAsReviewed(
+                    BlockingCalls.first(api.setChangeRevisionFileAsReviewed(
                                 String.valueOf(mChange.legacyChangeId), mRevisionId, mFile
-                            ).blockingFirst();
+                            ));
                     return true;
                 })
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
     }
 
-    private FileDiffResponse combine(DiffInfo diff, Map<String, List<CommentInfo>> commentsA,
-            Map<String, List<CommentInfo>> commentsB, Map<String, List<CommentInfo>> draftsA,
-            Map<String, List<CommentInfo>> draftsB) {
+    private FileDiffResponse combine(DiffInfo diff, boolean cacheDiff,
+            Map<String, List<CommentInfo>> commentsA, Map<String, List<CommentInfo>> commentsB,
+            Map<String, List<CommentInfo>> draftsA, Map<String, List<CommentInfo>> draftsB) {
         int base = mBase == null ? 0 : Integer.parseInt(mBase);
         int revision = Integer.parseInt(mRevision);
 
@@ -736,9 +668,11 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
             final String baseRevision = mBase == null ? "0" : mBase;
             final String diffCacheId = baseRevision + "_" + mRevision + "_" + mFileHash + "_";
 
-            CacheHelper.writeAccountDiffCacheFile(getContext(),
-                    diffCacheId + CacheHelper.CACHE_DIFF_JSON,
-                    SerializationManager.getInstance().toJson(diff).getBytes());
+            if (cacheDiff) {
+                CacheHelper.writeAccountDiffCacheFile(getContext(),
+                        diffCacheId + CacheHelper.CACHE_DIFF_JSON,
+                        SerializationManager.getInstance().toJson(diff).getBytes());
+            }
             CacheHelper.writeAccountDiffCacheFile(getContext(),
                     baseRevision + "_" + CacheHelper.CACHE_COMMENTS_JSON,
                     SerializationManager.getInstance().toJson(commentsA).getBytes());
@@ -921,8 +855,8 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
         if (api.supportsFeature(Features.UNRESOLVED_COMMENTS)) {
             input.unresolved = TextUtils.isEmpty(input.inReplyTo);
         }
-        CommentInfo comment = api.createChangeRevisionDraft(
-                String.valueOf(mChange.legacyChangeId), rev, input).blockingFirst();
+        CommentInfo comment = BlockingCalls.first(api.createChangeRevisionDraft(
+                String.valueOf(mChange.legacyChangeId), rev, input));
 
         if (getParentFragment() != null && getParentFragment() instanceof OnDiffCompleteListener) {
             ((OnDiffCompleteListener) getParentFragment()).onNewDraftCreated(revision, comment.id);
@@ -949,8 +883,8 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
         if (api.supportsFeature(Features.UNRESOLVED_COMMENTS)) {
             input.unresolved = unresolved;
         }
-        CommentInfo comment = api.updateChangeRevisionDraft(
-                String.valueOf(mChange.legacyChangeId), rev, draftId, input).blockingFirst();
+        CommentInfo comment = BlockingCalls.first(api.updateChangeRevisionDraft(
+                String.valueOf(mChange.legacyChangeId), rev, draftId, input));
 
         if (getParentFragment() != null && getParentFragment() instanceof OnDiffCompleteListener) {
             ((OnDiffCompleteListener) getParentFragment()).onDraftUpdated(revision, draftId);
@@ -963,8 +897,8 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
     private void performDeleteDraft(GerritApi api, String revision, String draftId) {
         int base = Integer.parseInt(revision);
         String rev = base == 0 ? mRevisionId : revision;
-        api.deleteChangeRevisionDraft(String.valueOf(mChange.legacyChangeId), rev, draftId)
-                .blockingFirst();
+        BlockingCalls.first(api.deleteChangeRevisionDraft(
+                String.valueOf(mChange.legacyChangeId), rev, draftId));
 
         if (getParentFragment() != null && getParentFragment() instanceof OnDiffCompleteListener) {
             ((OnDiffCompleteListener) getParentFragment()).onDraftDeleted(revision, draftId);
@@ -1001,11 +935,53 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
         return call;
     }
 
-    private void fetchRevisionsContentIfNeeded(FileDiffResponse response) {
+    // Comments and drafts may change while the offline bundle is kept, so they are only
+    // read from it when there is no connectivity
+    private <T> Observable<T> withCachedComments(Observable<T> call, Type type, String name) {
+        final Context ctx = getContext();
+        final int legacyChangeId = mChange.legacyChangeId;
+        return withCached(call.onErrorResumeNext((Throwable error) -> {
+            if (ctx != null && !ExceptionHelper.hasConnectivity(error)) {
+                T o = DiffCacheHelper.readOfflineBundleEntry(
+                        ctx, mAccount, legacyChangeId, name, type);
+                if (o != null) {
+                    return Observable.just(o);
+                }
+            }
+            return Observable.error(error);
+        }), type, name);
+    }
+
+    private String getDiffModelCacheName() {
+        return DiffCacheHelper.getDiffModelCacheName(getContext(), mBase, mRevision, mFileHash,
+                mMode, mHighlightIntralineDiffs);
+    }
+
+    private boolean hasCachedDiffModel(String name) {
+        if (!CacheHelper.hasAccountDiffCache(getContext(), name)) {
+            return false;
+        }
+
+        // The diff is still needed to rebuild missing file contents
+        FileStatus fileStatus = getFileStatus();
+        return (fileStatus.equals(FileStatus.A) || getCachedContentFile(mBase).exists())
+                && (fileStatus.equals(FileStatus.D) || getCachedContentFile(mRevision).exists());
+    }
+
+    private FileStatus getFileStatus() {
         FileStatus fileStatus = FileStatus.A;
         if (mChange.revisions.get(mRevisionId).files.containsKey(mFile)) {
             fileStatus = mChange.revisions.get(mRevisionId).files.get(mFile).status;
         }
+        return fileStatus;
+    }
+
+    private File getCachedContentFile(String base) {
+        return DiffCacheHelper.getCachedContentFile(getContext(), base, mFileHash);
+    }
+
+    private void fetchRevisionsContentIfNeeded(FileDiffResponse response) {
+        FileStatus fileStatus = getFileStatus();
 
         // If is not a binary file, we can use the diff information to build the file
         // instead of fetch it from the network
@@ -1053,17 +1029,14 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
 
     @SuppressWarnings("ConstantConditions")
     private File fetchCachedContent(String changeId, String revision, String base) {
-        String b = base == null ? "0" : base;
-        String name = b + "_" + mFileHash + "_" + CacheHelper.CACHE_CONTENT;
-        File fetchedFile = new File(CacheHelper.getAccountDiffCacheDir(getContext()), name);
+        File fetchedFile = getCachedContentFile(base);
         if (!fetchedFile.exists()) {
             try {
                 final Context ctx = getActivity();
                 final GerritApi api = ModelHelper.getGerritApi(ctx);
-                ResponseBody content = api.getChangeRevisionFileContent(
-                        changeId, revision, mFile, null).blockingFirst();
-                CacheHelper.writeAccountDiffCacheFile(
-                        ctx, mAccount, name, Base64.decode(content.bytes(), Base64.NO_WRAP));
+                fetchedFile = DiffCacheHelper.downloadFileContent(
+                        CacheHelper.getAccountDiffCache(ctx, mAccount), api,
+                        changeId, revision, mFile, fetchedFile.getName());
             } catch (Exception ex) {
                 Log.e(TAG, "Can't download file content " + mFile + "; Revision: " + revision, ex);
                 fetchedFile = null;
@@ -1072,16 +1045,16 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
         return fetchedFile;
     }
 
-    @SuppressWarnings("ConstantConditions")
     private File writeCachedContent(FileDiffResponse response, String base, boolean isA) {
-        String b = base == null ? "0" : base;
-        String name = b + "_" + mFileHash + "_" + CacheHelper.CACHE_CONTENT;
-        File writtenFile = new File(CacheHelper.getAccountDiffCacheDir(getContext()), name);
+        File writtenFile = getCachedContentFile(base);
         if (!writtenFile.exists()) {
-            if (writeDiffToFile(response, writtenFile, isA)) {
-                return writtenFile;
+            // The diff isn't available if it was loaded from the processed diff cache
+            if (response.diff.content == null) {
+                return null;
             }
-            return null;
+            return DiffCacheHelper.writeDiffToCache(response.diff,
+                    CacheHelper.getAccountDiffCache(getContext(), mAccount),
+                    writtenFile.getName(), isA);
         }
         return writtenFile;
     }
@@ -1096,7 +1069,7 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
                 final Context ctx = getActivity();
                 final GerritApi api = ModelHelper.getGerritApi(ctx);
                 ChangeQuery query = new ChangeQuery().commit(parentRevision);
-                List<ChangeInfo> changes = api.getChanges(query, 1, 0, null).blockingFirst();
+                List<ChangeInfo> changes = BlockingCalls.first(api.getChanges(query, 1, 0, null));
                 ChangeInfo change = changes.size() > 0 ? changes.get(0) : null;
 
                 CacheHelper.writeAccountDiffCacheFile(getContext(),
@@ -1115,55 +1088,6 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
         return null;
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    private boolean writeDiffToFile(FileDiffResponse response, File file, boolean isA) {
-        boolean hasData = false;
-        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
-
-            DiffContentInfo[] content = response.diff.content;
-            for (DiffContentInfo c : content) {
-                // AB
-                if (c.ab != null) {
-                    for (String s : c.ab) {
-                        writer.write(s + "\n");
-                        hasData = true;
-                    }
-                }
-
-                if (isA) {
-                    // A
-                    if (c.a != null) {
-                        for (String s : c.a) {
-                            writer.write(s + "\n");
-                            hasData = true;
-                        }
-                    }
-                } else {
-                    // B
-                    if (c.b != null) {
-                        for (String s : c.b) {
-                            writer.write(s + "\n");
-                            hasData = true;
-                        }
-                    }
-                }
-            }
-
-            return hasData;
-
-        } catch (IOException ex) {
-            Log.e(TAG, "Can't write diffs to file " + file.getAbsolutePath(), ex);
-            hasData = false;
-
-        } finally {
-            if (!hasData) {
-                file.delete();
-            }
-        }
-
-        return false;
-    }
-
     private void applyModeRestrictions(boolean isBinary, boolean hasImagePreview) {
         if (mMode == DiffView.IMAGE_MODE && !hasImagePreview) {
             String mode = Preferences.getAccountDiffMode(getContext(), mAccount);
@@ -1245,18 +1169,7 @@ public class FileDiffViewerFragment extends Fragment implements EditDialogFragme
     @SuppressWarnings("ConstantConditions")
     private Observable<Map<String, List<CommentInfo>>> fetchAndMergeAllChangeRevisionComments(
             GerritApi api, String changeId, String revId) {
-        return SafeObservable.fromNullCallable(() -> {
-            Map<String, List<CommentInfo>> comments =
-                    api.getChangeRevisionComments(changeId, revId).blockingFirst();
-
-            // Fetch robot comments if the Gerrit server supports them (2.14 and up)
-            if (mAccount.mServerVersion.getVersion() >= 2.14d) {
-                Map<String, List<RobotCommentInfo>> robotComments =
-                        api.getChangeRevisionRobotComments(changeId, revId).blockingFirst();
-                ModelHelper.mergeCommentsAndRobotComments(comments, robotComments);
-            }
-
-            return comments;
-        });
+        return SafeObservable.fromNullCallable(() ->
+                DiffCacheHelper.fetchAllRevisionComments(api, mAccount, changeId, revId));
     }
 }
@@ -40,7 +40,6 @@ import me.tatarka.rxloader2.RxLoader;
 import me.tatarka.rxloader2.RxLoaderManager;
 import me.tatarka.rxloader2.RxLoaderManagerCompat;
 import me.tatarka.rxloader2.RxLoaderObserver;
-import me.tatarka.rxloader2.safe.SafeObservable;
 
 public class IncludedInDialogFragment extends RevealDialogFragment {
 
@@ -134,8 +133,7 @@ public class IncludedInDialogFragment extends RevealDialogFragment {
     private Observable<IncludedInInfo> doRequestIncludedIn() {
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
-        return SafeObservable.fromNullCallable(() ->
-                api.getChangeIncludedIn(String.valueOf(mLegacyChangeId)).blockingFirst())
+        return api.getChangeIncludedIn(String.valueOf(mLegacyChangeId))
             .subscribeOn(Schedulers.io())
             .observeOn(AndroidSchedulers.mainThread());
     }
@@ -24,6 +24,7 @@ import android.view.ViewGroup;
 
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.ProjectDetailsViewBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.filter.TimeUnit;
@@ -85,7 +86,7 @@ public class ProjectStatsPageFragment
         final GerritApi api = ModelHelper.getGerritApi(getContext());
         return SafeObservable.fromNullCallable(() -> {
             ProjectStatsInfo stats = new ProjectStatsInfo();
-            stats.mProjectInfo = api.getProject(mProjectName).blockingFirst();
+            stats.mProjectInfo = BlockingCalls.first(api.getProject(mProjectName));
             stats.mDashboards = fetchDashboards(api, stats.mProjectInfo);
             return stats;
         });
@@ -93,11 +94,11 @@ public class ProjectStatsPageFragment
 
     private List<DashboardInfo> fetchDashboards(GerritApi api, ProjectInfo project) {
         List<DashboardInfo> dashboards = new ArrayList<>(
-                api.getProjectDashboards(project.name).blockingFirst());
+                BlockingCalls.first(api.getProjectDashboards(project.name)));
         if (!TextUtils.isEmpty(project.parent)) {
             try {
                 dashboards.addAll(fetchDashboards(
-                        api, api.getProject(project.parent).blockingFirst()));
+                        api, BlockingCalls.first(api.getProject(project.parent))));
             } catch (Exception e) {
                 Log.w(TAG, "Cannot fetch '" + project.parent + "'project dashboards", e);
                 // Stop fetching here
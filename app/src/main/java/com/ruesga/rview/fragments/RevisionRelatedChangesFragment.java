@@ -18,11 +18,12 @@ package com.ruesga.rview.fragments;
 import android.content.Context;
 import android.os.Bundle;
 
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
-import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.model.ChangeInfo;
 import com.ruesga.rview.gerrit.model.ChangeOptions;
 import com.ruesga.rview.gerrit.model.RelatedChangeAndCommitInfo;
+import com.ruesga.rview.misc.BatchChangeResolver;
 import com.ruesga.rview.misc.ModelHelper;
 import com.ruesga.rview.preferences.Constants;
 
@@ -60,8 +61,8 @@ public class RevisionRelatedChangesFragment extends ChangeListFragment {
         return Observable.zip(
                 Observable.just(getCurrentData(start == 0)),
                 SafeObservable.fromNullCallable(() -> fetchChanges(api,
-                        api.getChangeRevisionRelatedChanges(
-                                legacyChangeId, revisionId).blockingFirst().changes)),
+                        BlockingCalls.first(api.getChangeRevisionRelatedChanges(
+                                legacyChangeId, revisionId)).changes)),
                 Observable.just(0),
                 this::combineChanges
             )
@@ -86,19 +87,14 @@ public class RevisionRelatedChangesFragment extends ChangeListFragment {
     }
 
     private List<ChangeInfo> fetchChanges(GerritApi api, List<RelatedChangeAndCommitInfo> related) {
-        List<ChangeInfo> c = new ArrayList<>(related.size());
+        BatchChangeResolver resolver = new BatchChangeResolver();
         for (RelatedChangeAndCommitInfo r : related) {
             if (r.changeNumber != null) {
-                c.add(api.getChange(String.valueOf(r.changeNumber), OPTIONS)
-                        .blockingFirst());
+                resolver.addChange(r.changeNumber);
             } else {
-                ChangeQuery query = new ChangeQuery().commit(r.commit.commit);
-                List<ChangeInfo> changes = api.getChanges(query, 1, 0, OPTIONS).blockingFirst();
-                if (changes != null && !changes.isEmpty()) {
-                    c.add(changes.get(0));
-                }
+                resolver.addCommit(r.commit.commit);
             }
         }
-        return c;
+        return resolver.resolve(api, OPTIONS);
     }
 }
@@ -26,6 +26,7 @@ import com.google.gson.reflect.TypeToken;
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.PluginItemBinding;
 import com.ruesga.rview.databinding.ServerInfoDialogBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.Option;
 import com.ruesga.rview.gerrit.model.PluginInfo;
@@ -239,8 +240,7 @@ public class ServerInfoDialogFragment extends RevealDialogFragment {
     private Observable<ServerVersion> doRequestServerVersion() {
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
-        return SafeObservable.fromNullCallable(
-                        () -> api.getServerVersion().blockingFirst())
+        return api.getServerVersion()
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
     }
@@ -249,8 +249,7 @@ public class ServerInfoDialogFragment extends RevealDialogFragment {
     private Observable<ServerInfo> doRequestServerInfo() {
         final Context ctx = getActivity();
         final GerritApi api = ModelHelper.getGerritApi(ctx);
-        return SafeObservable.fromNullCallable(
-                        () -> api.getServerInfo().blockingFirst())
+        return api.getServerInfo()
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread());
     }
@@ -277,9 +276,8 @@ public class ServerInfoDialogFragment extends RevealDialogFragment {
     }
 
     private Collection<PluginInfo> fetchPlugins(GerritApi api) {
-        return api.getPlugins(
-                Option.INSTANCE, null, null, null, null, null)
-                .blockingFirst().values();
+        return BlockingCalls.first(api.getPlugins(
+                Option.INSTANCE, null, null, null, null, null)).values();
     }
 
     @SuppressWarnings("ConstantConditions")
@@ -302,7 +300,7 @@ public class ServerInfoDialogFragment extends RevealDialogFragment {
             plugins = new ArrayList<>();
             for (String pluginId : wellKnownPluginsIds) {
                 try {
-                    plugins.add(api.getPluginStatus(pluginId).blockingFirst());
+                    plugins.add(BlockingCalls.first(api.getPluginStatus(pluginId)));
                 } catch (Exception ex) {
                     // ignore
                 }
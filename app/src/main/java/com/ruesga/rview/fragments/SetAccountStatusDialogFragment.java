@@ -33,6 +33,7 @@ import android.widget.Button;
 import com.ruesga.rview.BaseActivity;
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.SetAccountStatusDialogBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.model.AccountStatusInput;
 import com.ruesga.rview.misc.EmojiHelper;
@@ -93,6 +94,7 @@ public class SetAccountStatusDialogFragment extends RevealDialogFragment {
     private final RxLoaderObserver<String> mSetAccountStateObserver = new RxLoaderObserver<String>() {
         @Override
         public void onNext(String status) {
+            mAccount = mAccount.copy();
             mAccount.mAccount.status = status;
             Preferences.addOrUpdateAccount(getActivity(), mAccount);
 
@@ -278,7 +280,7 @@ public class SetAccountStatusDialogFragment extends RevealDialogFragment {
                     input.status = EmojiHelper.getSuggestedEmojiFromDescription(
                             getActivity(), status);
                 }
-                api.setAccountStatus(GerritApi.SELF_ACCOUNT, input).blockingFirst();
+                BlockingCalls.first(api.setAccountStatus(GerritApi.SELF_ACCOUNT, input));
                 return input.status;
             })
             .subscribeOn(Schedulers.io())
@@ -22,6 +22,7 @@ import android.view.ViewGroup;
 
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.StartFollowingChooserItemBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.Option;
 import com.ruesga.rview.gerrit.model.AccountInfo;
@@ -153,8 +154,8 @@ public class StartFollowingChooserDialogFragment extends ListDialogFragment<Acco
         if (newFilter.isEmpty()) {
             filtered = new ArrayList<>();
         } else {
-            filtered = api.getAccountsSuggestions(
-                    newFilter, 10, Option.INSTANCE).blockingFirst();
+            filtered = BlockingCalls.first(api.getAccountsSuggestions(
+                    newFilter, 10, Option.INSTANCE));
         }
         return filtered;
     }
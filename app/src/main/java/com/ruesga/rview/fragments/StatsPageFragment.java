@@ -24,6 +24,7 @@ import android.view.ViewGroup;
 import com.ruesga.rview.BaseActivity;
 import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.StatsPageFragmentBinding;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.model.ChangeInfo;
@@ -184,8 +185,7 @@ public abstract class StatsPageFragment<T> extends Fragment implements Selectabl
                 List<ChangeInfo> tmp;
                 int start = 0;
                 do {
-                    tmp = api.getChanges(query, MAX_CHANGES, start, OPTIONS)
-                            .blockingFirst();
+                    tmp = BlockingCalls.first(api.getChanges(query, MAX_CHANGES, start, OPTIONS));
                     changes.addAll(tmp);
                     start += MAX_CHANGES;
                 } while (tmp.size() == MAX_CHANGES);
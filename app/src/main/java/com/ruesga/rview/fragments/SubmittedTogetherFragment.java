@@ -18,10 +18,12 @@ package com.ruesga.rview.fragments;
 import android.content.Context;
 import android.os.Bundle;
 
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.model.ChangeInfo;
 import com.ruesga.rview.gerrit.model.ChangeOptions;
 import com.ruesga.rview.gerrit.model.ServerVersion;
+import com.ruesga.rview.misc.BatchChangeResolver;
 import com.ruesga.rview.misc.ModelHelper;
 import com.ruesga.rview.preferences.Constants;
 
@@ -57,11 +59,11 @@ public class SubmittedTogetherFragment extends ChangeListFragment {
         return Observable.zip(
                 Observable.just(getCurrentData(start == 0)),
                 SafeObservable.fromNullCallable(() -> {
-                    ServerVersion version = api.getServerVersion().blockingFirst();
+                    ServerVersion version = BlockingCalls.first(api.getServerVersion());
                     if (version.getVersion() >= 2.12) {
                         return fetchChanges(api,
-                                api.getChangesSubmittedTogether(
-                                    legacyChangeId, null).blockingFirst());
+                                BlockingCalls.first(api.getChangesSubmittedTogether(
+                                    legacyChangeId, null)));
                     }
                     return new ArrayList<>();
                 }),
@@ -88,13 +90,12 @@ public class SubmittedTogetherFragment extends ChangeListFragment {
         return false;
     }
 
-    @SuppressWarnings("Convert2streamapi")
     private List<ChangeInfo> fetchChanges(GerritApi api, List<ChangeInfo> changes) {
-        List<ChangeInfo> c = new ArrayList<>(changes.size());
+        BatchChangeResolver resolver = new BatchChangeResolver();
         for (ChangeInfo change : changes) {
-            c.add(api.getChange(String.valueOf(change.legacyChangeId), OPTIONS).blockingFirst());
+            resolver.addChange(change.legacyChangeId);
         }
-        return c;
+        return resolver.resolve(api, OPTIONS);
     }
 
 }
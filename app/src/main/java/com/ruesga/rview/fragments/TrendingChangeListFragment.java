@@ -24,6 +24,7 @@ import android.util.Log;
 import com.google.gson.reflect.TypeToken;
 import com.ruesga.rview.BaseActivity;
 import com.ruesga.rview.R;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.model.AccountInfo;
@@ -131,8 +132,8 @@ public class TrendingChangeListFragment extends ChangeListByFilterFragment {
             int c = FETCH_COUNT;
             int s = 0;
             while (true) {
-                List<ChangeInfo> fetched = api.getChanges(
-                        query, c, Math.max(0, s), OPTIONS).blockingFirst();
+                List<ChangeInfo> fetched = BlockingCalls.first(api.getChanges(
+                        query, c, Math.max(0, s), OPTIONS));
                 changes.addAll(fetched);
                 if (fetched.size() < c) {
                     break;
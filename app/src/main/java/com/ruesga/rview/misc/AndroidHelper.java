@@ -198,7 +198,7 @@ public class AndroidHelper {
         if (isApi28OrGreater()) {
             NetworkCapabilities capabilities = cm.getNetworkCapabilities(cm.getActiveNetwork());
             return capabilities != null &&
-                    capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_ROAMING);
+                    !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_ROAMING);
         }
 
         NetworkInfo ni = cm.getActiveNetworkInfo();
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.misc;
+
+import com.ruesga.rview.gerrit.BlockingCalls;
+import com.ruesga.rview.gerrit.GerritApi;
+import com.ruesga.rview.gerrit.filter.ChangeQuery;
+import com.ruesga.rview.gerrit.model.ChangeInfo;
+import com.ruesga.rview.gerrit.model.ChangeOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Resolves a list of changes, referenced by their number or by one of their commits, using
+ * a few chunked requests run in parallel instead of one request per change.
+ */
+public class BatchChangeResolver {
+
+    private static final int MAX_TERMS_PER_REQUEST = 25;
+
+    private final List<Integer> mChangeNumbers = new ArrayList<>();
+    private final List<String> mCommits = new ArrayList<>();
+
+    public BatchChangeResolver addChange(int changeNumber) {
+        mChangeNumbers.add(changeNumber);
+        mCommits.add(null);
+        return this;
+    }
+
+    public BatchChangeResolver addCommit(String commit) {
+        mChangeNumbers.add(null);
+        mCommits.add(commit);
+        return this;
+    }
+
+    /**
+     * Returns the resolved changes in the same order they were added. References that
+     * couldn't be resolved are skipped. Must be called from a background thread.
+     */
+    public List<ChangeInfo> resolve(GerritApi api, List<ChangeOptions> options) {
+        List<Integer> numbers = new ArrayList<>();
+        List<String> commits = new ArrayList<>();
+        int count = mChangeNumbers.size();
+        for (int i = 0; i < count; i++) {
+            if (mChangeNumbers.get(i) != null) {
+                numbers.add(mChangeNumbers.get(i));
+            } else if (mCommits.get(i) != null) {
+                commits.add(mCommits.get(i));
+            }
+        }
+
+        List<Observable<Map<String, ChangeInfo>>> requests = new ArrayList<>();
+        for (int i = 0; i < numbers.size(); i += MAX_TERMS_PER_REQUEST) {
+            List<Integer> chunk = numbers.subList(
+                    i, Math.min(numbers.size(), i + MAX_TERMS_PER_REQUEST));
+            requests.add(Observable.fromCallable(() -> fetchByNumber(api, chunk, options))
+                    .subscribeOn(Schedulers.io()));
+        }
+        for (int i = 0; i < commits.size(); i += MAX_TERMS_PER_REQUEST) {
+            List<String> chunk = commits.subList(
+                    i, Math.min(commits.size(), i + MAX_TERMS_PER_REQUEST));
+            requests.add(Observable.fromCallable(() -> fetchByCommit(api, chunk, options))
+                    .subscribeOn(Schedulers.io()));
+        }
+
+        Map<String, ChangeInfo> resolved = new HashMap<>();
+        for (Map<String, ChangeInfo> changes : Observable.merge(requests).blockingIterable()) {
+            resolved.putAll(changes);
+        }
+
+        List<ChangeInfo> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ChangeInfo change = mChangeNumbers.get(i) != null
+                    ? resolved.get(toNumberKey(mChangeNumbers.get(i)))
+                    : resolved.get(toCommitKey(mCommits.get(i)));
+            if (change != null) {
+                result.add(change);
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, ChangeInfo> fetchByNumber(
+            GerritApi api, List<Integer> numbers, List<ChangeOptions> options) {
+        ChangeQuery query = null;
+        for (Integer number : numbers) {
+            ChangeQuery q = new ChangeQuery().change(String.valueOf(number));
+            query = query == null ? q : query.or(q);
+        }
+
+        Map<String, ChangeInfo> changes = new HashMap<>();
+        //noinspection ConstantConditions
+        for (ChangeInfo change : BlockingCalls.first(api.getChanges(
+                query, numbers.size(), 0, options))) {
+            changes.put(toNumberKey(change.legacyChangeId), change);
+        }
+        return changes;
+    }
+
+    private static Map<String, ChangeInfo> fetchByCommit(
+            GerritApi api, List<String> commits, List<ChangeOptions> options) {
+        // A commit can't be mapped back from the change (it could belong to any
+        // of its revisions), so send a query per commit in the same request
+        List<ChangeQuery> queries = new ArrayList<>(commits.size());
+        for (String commit : commits) {
+            queries.add(new ChangeQuery().commit(commit));
+        }
+
+        Map<String, ChangeInfo> changes = new HashMap<>();
+        List<List<ChangeInfo>> results =
+                BlockingCalls.first(api.getChanges(queries, 1, 0, options));
+        int count = Math.min(commits.size(), results.size());
+        for (int i = 0; i < count; i++) {
+            List<ChangeInfo> result = results.get(i);
+            if (result != null && !result.isEmpty()) {
+                changes.put(toCommitKey(commits.get(i)), result.get(0));
+            }
+        }
+        return changes;
+    }
+
+    private static String toNumberKey(int number) {
+        return "change:" + number;
+    }
+
+    private static String toCommitKey(String commit) {
+        return "commit:" + commit;
+    }
+}
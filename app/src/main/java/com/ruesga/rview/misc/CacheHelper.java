@@ -38,7 +38,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Locale;
+import java.util.Map;
 
 import androidx.core.content.FileProvider;
 import okhttp3.OkHttpClient;
@@ -50,25 +53,34 @@ public class CacheHelper {
 
     public static final long MAX_AGE_CACHE = 60 * 60 * 24 * 5L;
     public static final long MAX_DISK_CACHE = 50 * 1024 * 1024L;
+    public static final long MAX_ACCOUNT_FILE_CACHE = 5 * 1024 * 1024L;
 
     private static final String IMAGES_CACHE_FOLDER = "images";
     private static final String AVATARS_CACHE_FOLDER = "avatars";
     private static final String DIFF_CACHE_FOLDER = "diff";
+    private static final String EDIT_CACHE_FOLDER = "edit";
+    private static final String OFFLINE_CACHE_FOLDER = "offline";
     private static final String ATTACHMENT_CACHE_FOLDER = "attachments";
 
     public static final String CACHE_CHANGE_JSON = "change.json";
     public static final String CACHE_FILES_JSON = "files.json";
     public static final String CACHE_FILES_INFO_JSON = "files_info.json";
     public static final String CACHE_DIFF_JSON = "diff.json";
+    public static final String CACHE_DIFF_MODEL = "diff.model";
     public static final String CACHE_COMMENTS_JSON = "comments.json";
     public static final String CACHE_DRAFT_JSON = "drafts.json";
     public static final String CACHE_CONTENT = "content";
     public static final String CACHE_BLAME = "blame";
     public static final String CACHE_PARENT = "parent";
+    public static final String CACHE_OFFLINE_BUNDLE = "offline.bundle";
 
     public static final String CACHE_TRENDING_JSON = "trending.json";
     public static final String CACHE_PLUGINS_JSON = "plugins.json";
 
+    private static final Map<String, DiskLruFileCache> sAccountCaches = new HashMap<>();
+    private static final Map<String, OfflineBundleStore> sOfflineBundles = new HashMap<>();
+    private static OkHttpClient sAttachmentsClient;
+
     public static Response.Builder addCacheControl(Response.Builder builder) {
         return builder.header("Cache-Control", "max-age=" + MAX_AGE_CACHE);
     }
@@ -135,6 +147,10 @@ public class CacheHelper {
 
     public static void removeAccountCacheDir(Context context, Account account) {
         final File cacheDir = getAccountCacheDir(context, account);
+        closeAccountCaches(cacheDir);
+        synchronized (sOfflineBundles) {
+            sOfflineBundles.remove(account.getAccountHash());
+        }
         if (cacheDir.exists()) {
             try {
                 FileUtils.deleteDirectory(cacheDir);
@@ -164,12 +180,57 @@ public class CacheHelper {
     }
 
     public static void removeAccountDiffCacheDir(Context context, Account account) {
-        final File cacheDir = getAccountDiffCacheDir(context, account);
-        if (cacheDir.exists()) {
-            try {
-                FileUtils.deleteDirectory(cacheDir);
-            } catch (IOException ex) {
-                // Ignore
+        getAccountDiffCache(context, account).clear();
+    }
+
+    public static DiskCacheStats getAccountDiffCacheStats(Context context, Account account) {
+        return getAccountDiffCache(context, account).stats();
+    }
+
+    public static DiskCacheStats getAccountFileCacheStats(Context context, Account account) {
+        return getAccountFileCache(context, account).stats();
+    }
+
+    public static DiskLruFileCache getAccountDiffCache(Context context, Account account) {
+        File cacheDir = getAccountDiffCacheDir(context, account);
+        synchronized (sAccountCaches) {
+            DiskLruFileCache cache = sAccountCaches.get(cacheDir.getAbsolutePath());
+            if (cache == null) {
+                cache = new DiskLruFileCache(
+                        cacheDir, Preferences.getAccountDiskCacheSize(context, account));
+                sAccountCaches.put(cacheDir.getAbsolutePath(), cache);
+            }
+            return cache;
+        }
+    }
+
+    private static DiskLruFileCache getAccountFileCache(Context context, Account account) {
+        createAccountCacheDir(context, account);
+        File cacheDir = getAccountCacheDir(context, account);
+        synchronized (sAccountCaches) {
+            DiskLruFileCache cache = sAccountCaches.get(cacheDir.getAbsolutePath());
+            if (cache == null) {
+                // The diff folder is managed by its own cache, and edits and offline
+                // bundles are never evicted
+                cache = new DiskLruFileCache(cacheDir, MAX_ACCOUNT_FILE_CACHE,
+                        DIFF_CACHE_FOLDER, EDIT_CACHE_FOLDER, OFFLINE_CACHE_FOLDER);
+                sAccountCaches.put(cacheDir.getAbsolutePath(), cache);
+            }
+            return cache;
+        }
+    }
+
+    private static void closeAccountCaches(File accountCacheDir) {
+        String path = accountCacheDir.getAbsolutePath();
+        synchronized (sAccountCaches) {
+            Iterator<Map.Entry<String, DiskLruFileCache>> it =
+                    sAccountCaches.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, DiskLruFileCache> entry = it.next();
+                if (entry.getKey().startsWith(path)) {
+                    entry.getValue().close();
+                    it.remove();
+                }
             }
         }
     }
@@ -179,7 +240,8 @@ public class CacheHelper {
     }
 
     public static boolean hasAccountDiffCache(Context context, Account account, String name) {
-        return new File(getAccountDiffCacheDir(context, account), name).exists();
+        return getAccountDiffCache(context, account).contains(name)
+                || getAccountOfflineBundles(context, account).getActiveFile(name) != null;
     }
 
     public static byte[] readAccountDiffCacheFile(Context context, String name) throws IOException {
@@ -188,8 +250,27 @@ public class CacheHelper {
 
     public static byte[] readAccountDiffCacheFile(Context context, Account account, String name)
             throws IOException {
-        return FileUtils.readFileToByteArray(
-                new File(getAccountDiffCacheDir(context, account), name));
+        return getAccountOfflineBundles(context, account).read(
+                getAccountDiffCache(context, account), name);
+    }
+
+    public static File getAccountDiffCacheFile(Context context, String name) {
+        return getAccountDiffCacheFile(context, Preferences.getAccount(context), name);
+    }
+
+    /**
+     * Returns the file of a diff cache entry. Missing entries resolve to the offline bundle
+     * of the active change when it holds them.
+     */
+    public static File getAccountDiffCacheFile(Context context, Account account, String name) {
+        File file = new File(getAccountDiffCacheDir(context, account), name);
+        if (!file.exists()) {
+            File bundled = getAccountOfflineBundles(context, account).getActiveFile(name);
+            if (bundled != null) {
+                return bundled;
+            }
+        }
+        return file;
     }
 
     public static void writeAccountDiffCacheFile(Context context, String name, byte[] data)
@@ -199,19 +280,94 @@ public class CacheHelper {
 
     public static void writeAccountDiffCacheFile(
             Context context, Account account, String name, byte[] data) throws IOException {
-        FileUtils.writeByteArrayToFile(
-                new File(getAccountDiffCacheDir(context, account), name), data);
+        getAccountDiffCache(context, account).write(name, data);
+    }
+
+    public static File writeAccountDiffCacheFile(
+            Context context, Account account, String name, InputStream in) throws IOException {
+        return getAccountDiffCache(context, account).write(name, in);
     }
 
     public static void removeAccountDiffCacheFile(Context context, String name) {
         removeAccountDiffCacheFile(context, Preferences.getAccount(context), name);
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     public static void removeAccountDiffCacheFile(Context context, Account account, String name) {
-        final File cacheDir = getAccountDiffCacheDir(context, account);
-        if (cacheDir.exists()) {
-            new File(getAccountDiffCacheDir(context, account), name).delete();
+        getAccountDiffCache(context, account).remove(name);
+    }
+
+
+    /**
+     * Unpublished edits of a change. They are not backed by the server, so they live
+     * outside of any size bounded cache and must be removed explicitly.
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public static File getAccountEditCacheDir(
+            Context context, Account account, int legacyChangeId) {
+        createAccountCacheDir(context, account);
+        File cacheDir = new File(new File(getAccountCacheDir(context, account), EDIT_CACHE_FOLDER),
+                String.valueOf(legacyChangeId));
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        return cacheDir;
+    }
+
+    public static void removeAccountEditCacheDir(
+            Context context, Account account, int legacyChangeId) {
+        File cacheDir = getAccountEditCacheDir(context, account, legacyChangeId);
+        try {
+            FileUtils.deleteDirectory(cacheDir);
+        } catch (IOException ex) {
+            // Ignore
+        }
+    }
+
+    public static boolean hasAccountEditCache(
+            Context context, Account account, int legacyChangeId, String name) {
+        return new File(getAccountEditCacheDir(context, account, legacyChangeId), name).exists();
+    }
+
+    public static byte[] readAccountEditCacheFile(
+            Context context, Account account, int legacyChangeId, String name)
+            throws IOException {
+        return FileUtils.readFileToByteArray(
+                new File(getAccountEditCacheDir(context, account, legacyChangeId), name));
+    }
+
+    public static void writeAccountEditCacheFile(Context context, Account account,
+            int legacyChangeId, String name, byte[] data) throws IOException {
+        File cacheDir = getAccountEditCacheDir(context, account, legacyChangeId);
+        File tmp = new File(cacheDir, name + ".tmp");
+        FileUtils.writeByteArrayToFile(tmp, data);
+        File file = new File(cacheDir, name);
+        if (!tmp.renameTo(file)) {
+            FileUtils.deleteQuietly(tmp);
+            throw new IOException("Failed to commit " + file);
+        }
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public static void removeAccountEditCacheFile(
+            Context context, Account account, int legacyChangeId, String name) {
+        new File(getAccountEditCacheDir(context, account, legacyChangeId), name).delete();
+    }
+
+
+    /**
+     * Full copies of a change downloaded for offline review. They live outside of any size
+     * bounded cache, and diff cache entries missing while their change is the active one are
+     * read from them.
+     */
+    public static OfflineBundleStore getAccountOfflineBundles(Context context, Account account) {
+        synchronized (sOfflineBundles) {
+            OfflineBundleStore store = sOfflineBundles.get(account.getAccountHash());
+            if (store == null) {
+                store = new OfflineBundleStore(
+                        new File(getAccountCacheDir(context, account), OFFLINE_CACHE_FOLDER));
+                sOfflineBundles.put(account.getAccountHash(), store);
+            }
+            return store;
         }
     }
 
@@ -226,27 +382,20 @@ public class CacheHelper {
 
     public static byte[] readFileCache(Context context, Account account, String name)
             throws IOException {
-        File file = new File(getAccountCacheDir(context, account), name);
-        if (file.exists()) {
-            return FileUtils.readFileToByteArray(file);
+        DiskLruFileCache cache = getAccountFileCache(context, account);
+        if (cache.contains(name)) {
+            return cache.read(name);
         }
         return null;
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     public static void writeFileCache(Context context, Account account, String name, byte[] data)
             throws IOException {
-        File file = new File(getAccountCacheDir(context, account), name);
-        file.getParentFile().mkdirs();
-        FileUtils.writeByteArrayToFile(file, data);
+        getAccountFileCache(context, account).write(name, data);
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     public static void removeFileCache(Context context, Account account, String name) {
-        File file = new File(getAccountCacheDir(context, account), name);
-        if (file.exists()) {
-            file.delete();
-        }
+        getAccountFileCache(context, account).remove(name);
     }
 
 
@@ -272,30 +421,38 @@ public class CacheHelper {
         return getAttachmentFile(context, attachment).exists();
     }
 
+    private static synchronized OkHttpClient getAttachmentsClient(Context context) {
+        if (sAttachmentsClient == null) {
+            final Context appContext = context.getApplicationContext();
+            sAttachmentsClient = NetworkingHelper.createNetworkClient()
+                    .addNetworkInterceptor(chain -> {
+                        Response originalResponse = chain.proceed(chain.request());
+                        return CacheHelper.addCacheControl(originalResponse.newBuilder()).build();
+                    })
+                    .readTimeout(20000, java.util.concurrent.TimeUnit.MILLISECONDS)
+                    .followRedirects(true)
+                    .followSslRedirects(true)
+                    .addInterceptor(chain -> {
+                        ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(
+                                Context.CONNECTIVITY_SERVICE);
+                        if (cm != null) {
+                            NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+                            if (activeNetwork != null && activeNetwork.isConnectedOrConnecting()) {
+                                return chain.proceed(chain.request());
+                            }
+                        }
+                        throw new NoConnectivityException();
+                    })
+                    .build();
+        }
+        return sAttachmentsClient;
+    }
+
     @SuppressWarnings("deprecation")
     @SuppressLint("Deprecated")
     public static void downloadAttachmentFile(Context context, Attachment attachment)
             throws IOException {
-        OkHttpClient client = NetworkingHelper.createNetworkClient()
-                .addNetworkInterceptor(chain -> {
-                    Response originalResponse = chain.proceed(chain.request());
-                    return CacheHelper.addCacheControl(originalResponse.newBuilder()).build();
-                })
-                .readTimeout(20000, java.util.concurrent.TimeUnit.MILLISECONDS)
-                .followRedirects(true)
-                .followSslRedirects(true)
-                .addInterceptor(chain -> {
-                    ConnectivityManager cm = (ConnectivityManager) context.getSystemService(
-                            Context.CONNECTIVITY_SERVICE);
-                    if (cm != null) {
-                        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-                        if (activeNetwork != null && activeNetwork.isConnectedOrConnecting()) {
-                            return chain.proceed(chain.request());
-                        }
-                    }
-                    throw new NoConnectivityException();
-                })
-                .build();
+        OkHttpClient client = getAttachmentsClient(context);
 
         Request request = new Request.Builder().url(attachment.mUrl).build();
         Response response = client.newCall(request).execute();
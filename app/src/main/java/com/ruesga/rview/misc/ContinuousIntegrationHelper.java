@@ -77,7 +77,7 @@ public class ContinuousIntegrationHelper {
                 .replaceFirst("\\{revision\\}", String.valueOf(revisionNumber));
 
         try {
-            OkHttpClient okhttp = NetworkingHelper.createNetworkClient().build();
+            OkHttpClient okhttp = NetworkingHelper.getNetworkClient();
             Request request = new Request.Builder().url(url).build();
 
             Response response = okhttp.newCall(request).execute();
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.misc;
+
+import android.content.Context;
+import android.util.Base64;
+import android.util.Base64InputStream;
+import android.util.Log;
+
+import com.google.gson.JsonParseException;
+import com.ruesga.rview.BuildConfig;
+import com.ruesga.rview.gerrit.BlockingCalls;
+import com.ruesga.rview.gerrit.GerritApi;
+import com.ruesga.rview.gerrit.filter.Option;
+import com.ruesga.rview.gerrit.model.BlameBaseType;
+import com.ruesga.rview.gerrit.model.BlameInfo;
+import com.ruesga.rview.gerrit.model.ChangeInfo;
+import com.ruesga.rview.gerrit.model.CommentInfo;
+import com.ruesga.rview.gerrit.model.ContextType;
+import com.ruesga.rview.gerrit.model.DiffContentInfo;
+import com.ruesga.rview.gerrit.model.DiffInfo;
+import com.ruesga.rview.gerrit.model.Features;
+import com.ruesga.rview.gerrit.model.FileInfo;
+import com.ruesga.rview.gerrit.model.FileStatus;
+import com.ruesga.rview.gerrit.model.RobotCommentInfo;
+import com.ruesga.rview.gerrit.model.WhitespaceType;
+import com.ruesga.rview.model.Account;
+import com.ruesga.rview.preferences.Constants;
+import com.ruesga.rview.preferences.Preferences;
+import com.ruesga.rview.tasks.AsyncTextDiffProcessor;
+import com.ruesga.rview.widget.DiffView;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Names and fills the per-file entries of the account diff cache, shared by the diff
+ * viewer, the neighbour files prefetcher and the offline bundle download.
+ */
+public class DiffCacheHelper {
+
+    private static final String TAG = "DiffCacheHelper";
+
+    public static String getFileHash(String file) {
+        return FowlerNollVo.fnv1a_64(file.getBytes()).toString();
+    }
+
+    public static String getDiffCacheName(String base, String revision, String fileHash) {
+        final String baseRevision = base == null ? "0" : base;
+        return baseRevision + "_" + revision + "_" + fileHash + "_" + CacheHelper.CACHE_DIFF_JSON;
+    }
+
+    public static String getBlameCacheName(String revision, String fileHash) {
+        return revision + "_" + fileHash + "_" + CacheHelper.CACHE_BLAME;
+    }
+
+    public static String getDiffModelCacheName(Context context, String base, String revision,
+            String fileHash, int mode, boolean highlightIntralineDiffs) {
+        // Tabs and trailing whitespaces are highlighted when the lines are displayed, so
+        // only the intraline highlight is part of the processed lines
+        final String baseRevision = base == null ? "0" : base;
+        return baseRevision + "_" + revision + "_" + fileHash + "_" + mode + "_"
+                + WhitespaceType.IGNORE_NONE.ordinal() + "_" + (highlightIntralineDiffs ? 1 : 0)
+                + "_" + BuildConfig.VERSION_CODE + "_" + AndroidHelper.getCurrentLocale(context)
+                + "_" + CacheHelper.CACHE_DIFF_MODEL;
+    }
+
+    public static String getContentCacheName(String base, String fileHash) {
+        String b = base == null ? "0" : base;
+        return b + "_" + fileHash + "_" + CacheHelper.CACHE_CONTENT;
+    }
+
+    public static File getCachedContentFile(Context context, String base, String fileHash) {
+        return CacheHelper.getAccountDiffCacheFile(context, getContentCacheName(base, fileHash));
+    }
+
+    public static File downloadFileContent(DiskLruFileCache cache, GerritApi api,
+            String changeId, String revisionId, String file, String name) throws IOException {
+        try {
+            // The content is streamed, so it must be copied before the call is released
+            return BlockingCalls.first(
+                    api.getChangeRevisionFileContent(changeId, revisionId, file, null),
+                    content -> writeFileContent(cache, name, content));
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static File writeFileContent(DiskLruFileCache cache, String name,
+            ResponseBody content) throws IOException {
+        // Decode while copying, so the content never needs to fit in memory
+        try (ResponseBody body = content;
+                InputStream is = new Base64InputStream(body.byteStream(), Base64.NO_WRAP)) {
+            return cache.write(name, is);
+        }
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    public static DiffInfo fetchDiff(GerritApi api, ChangeInfo change,
+            String revisionId, String file, Integer base) {
+        final boolean isSameBase =
+                (base != null && base == change.revisions.get(revisionId).number);
+        final boolean rectify = (isSameBase && file.equals(Constants.COMMIT_MESSAGE));
+
+        final Integer b = rectify ? null : base;
+        DiffInfo diff =
+                BlockingCalls.first(api.getChangeRevisionFileDiff(
+                    String.valueOf(change.legacyChangeId),
+                    revisionId,
+                    file,
+                    b,
+                    Option.INSTANCE,
+                    null,
+                    WhitespaceType.IGNORE_NONE,
+                    ContextType.ALL));
+        if (rectify) {
+            // Server doesn't return any content diff, so just ensure
+            // the return structure has the proper data
+            diff.content[0].ab = diff.content[0].b;
+            diff.content[0].b = null;
+        }
+        return diff;
+    }
+
+    public static Map<String, List<CommentInfo>> fetchAllRevisionComments(
+            GerritApi api, Account account, String changeId, String revId) {
+        Map<String, List<CommentInfo>> comments =
+                BlockingCalls.first(api.getChangeRevisionComments(changeId, revId));
+
+        // Fetch robot comments if the Gerrit server supports them (2.14 and up)
+        if (account.mServerVersion.getVersion() >= 2.14d) {
+            Map<String, List<RobotCommentInfo>> robotComments =
+                    BlockingCalls.first(api.getChangeRevisionRobotComments(changeId, revId));
+            comments = ModelHelper.mergeCommentsAndRobotComments(comments, robotComments);
+        }
+
+        return comments;
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    public static List<BlameInfo> fetchBlames(GerritApi api, Account account,
+            ChangeInfo change, String revisionId, String base, String file, boolean isA) {
+        final FileInfo info = change.revisions.get(revisionId).files.get(file);
+        if (!api.supportsFeature(Features.BLAME)
+                || file.equals(Constants.COMMIT_MESSAGE)
+                || info == null
+                || info.binary
+                || info.status == null
+                || info.status.equals(isA ? FileStatus.A : FileStatus.D)
+                || !account.hasAuthenticatedAccessMode()) {
+            return new ArrayList<>();
+        }
+
+        final String changeId = String.valueOf(change.legacyChangeId);
+        if (isA) {
+            BlameBaseType baseType = base == null ? BlameBaseType.t : BlameBaseType.f;
+            String rev = base == null ? revisionId : base;
+            return BlockingCalls.first(
+                    api.getChangeRevisionFileBlames(changeId, rev, file, baseType));
+        }
+        return BlockingCalls.first(api.getChangeRevisionFileBlames(
+                changeId, revisionId, file, BlameBaseType.f));
+    }
+
+    /**
+     * Rebuilds the content of one side of the diff and writes it as an entry of the cache.
+     *
+     * @return the entry file, or null if the diff has no content for that side
+     */
+    public static File writeDiffToCache(DiffInfo diff, DiskLruFileCache cache, String name,
+            boolean isA) {
+        StringBuilder sb = new StringBuilder();
+        for (DiffContentInfo c : diff.content) {
+            appendLines(sb, c.ab);
+            appendLines(sb, isA ? c.a : c.b);
+        }
+        if (sb.length() == 0) {
+            return null;
+        }
+
+        // The cache commits the entry with a rename, so concurrent writers (the viewer and
+        // the background downloads) never expose a partially written content file
+        try {
+            cache.write(name, sb.toString().getBytes());
+            return new File(cache.getDirectory(), name);
+        } catch (IOException ex) {
+            Log.e(TAG, "Can't write diffs to cache entry " + name, ex);
+            return null;
+        }
+    }
+
+    private static void appendLines(StringBuilder sb, String[] lines) {
+        if (lines != null) {
+            for (String s : lines) {
+                sb.append(s).append("\n");
+            }
+        }
+    }
+
+    public static long cacheFileDiff(Context ctx, GerritApi api, ChangeInfo change,
+            String revisionId, String base, String file, int mode,
+            boolean highlightIntralineDiffs) throws IOException {
+        return cacheFileDiff(ctx, CacheHelper.getAccountDiffCache(ctx, Preferences.getAccount(ctx)),
+                api, change, revisionId, base, file, mode, highlightIntralineDiffs);
+    }
+
+    /**
+     * Caches the diff of a text file, its contents and its processed diff model, reusing
+     * whatever is already in the cache. Binary files are skipped. Must be called from a
+     * background thread.
+     *
+     * @return the number of bytes added to the cache
+     */
+    @SuppressWarnings("ConstantConditions")
+    public static long cacheFileDiff(Context ctx, DiskLruFileCache cache, GerritApi api,
+            ChangeInfo change, String revisionId, String base, String file, int mode,
+            boolean highlightIntralineDiffs) throws IOException {
+        final FileInfo info = change.revisions.get(revisionId).files.get(file);
+        if (!file.equals(Constants.COMMIT_MESSAGE) && info != null && info.binary) {
+            return 0;
+        }
+
+        final String revision = String.valueOf(change.revisions.get(revisionId).number);
+        final String fileHash = getFileHash(file);
+        final FileStatus fileStatus = info == null ? FileStatus.A : info.status;
+        final String leftName = getContentCacheName(base, fileHash);
+        final String rightName = getContentCacheName(revision, fileHash);
+
+        // The image mode doesn't use a processed diff
+        final String modelCacheName = getDiffModelCacheName(
+                ctx, base, revision, fileHash, mode, highlightIntralineDiffs);
+        final boolean needsLeft = !fileStatus.equals(FileStatus.A) && !cache.contains(leftName);
+        final boolean needsRight = !fileStatus.equals(FileStatus.D) && !cache.contains(rightName);
+        final boolean needsModel = mode != DiffView.IMAGE_MODE
+                && !cache.contains(modelCacheName);
+        if (!needsLeft && !needsRight && !needsModel) {
+            return 0;
+        }
+
+        // Reuse the diff if it was already fetched
+        long bytes = 0;
+        final String diffName = getDiffCacheName(base, revision, fileHash);
+        DiffInfo diff = null;
+        if (cache.contains(diffName)) {
+            diff = SerializationManager.getInstance().fromJson(
+                    new String(cache.read(diffName)), DiffInfo.class);
+        }
+        if (diff == null) {
+            diff = fetchDiff(api, change, revisionId, file,
+                    base == null ? null : Integer.valueOf(base));
+            byte[] data = SerializationManager.getInstance().toJson(diff).getBytes();
+            cache.write(diffName, data);
+            bytes += data.length;
+        }
+        if (diff.binary || diff.content == null) {
+            return bytes;
+        }
+
+        if (needsLeft) {
+            File left = writeDiffToCache(diff, cache, leftName, true);
+            bytes += left == null ? 0 : left.length();
+        }
+        if (needsRight) {
+            File right = writeDiffToCache(diff, cache, rightName, false);
+            bytes += right == null ? 0 : right.length();
+        }
+        if (needsModel) {
+            bytes += AsyncTextDiffProcessor.precache(
+                    ctx, mode, diff, highlightIntralineDiffs, cache, modelCacheName);
+        }
+        return bytes;
+    }
+
+    /**
+     * Publishes a downloaded bundle of the change. It's used while the change isn't updated.
+     */
+    public static void commitOfflineBundle(Context ctx, Account account,
+            DiskLruFileCache bundle, ChangeInfo change) throws IOException {
+        CacheHelper.getAccountOfflineBundles(ctx, account).commit(
+                change.legacyChangeId, bundle, toOfflineBundleId(change));
+    }
+
+    /**
+     * Makes the change the active one of the diff cache, so its offline bundle serves the
+     * entries missing in the cache. A bundle of an older version of the change is removed.
+     */
+    public static void activateOfflineBundle(Context ctx, ChangeInfo change) {
+        final OfflineBundleStore bundles =
+                CacheHelper.getAccountOfflineBundles(ctx, Preferences.getAccount(ctx));
+        bundles.invalidate(change.legacyChangeId, toOfflineBundleId(change));
+        bundles.setActiveChange(change.legacyChangeId);
+    }
+
+    /**
+     * Reads an entry of the offline bundle of a change, or returns null if it has none.
+     */
+    public static <T> T readOfflineBundleEntry(Context ctx, Account account,
+            int legacyChangeId, String name, Type type) {
+        try {
+            byte[] data = CacheHelper.getAccountOfflineBundles(ctx, account)
+                    .read(legacyChangeId, name);
+            if (data != null) {
+                return SerializationManager.getInstance().fromJson(new String(data), type);
+            }
+        } catch (IOException | JsonParseException ex) {
+            Log.w(TAG, "Failed to read the offline bundle entry " + name, ex);
+        }
+        return null;
+    }
+
+    private static String toOfflineBundleId(ChangeInfo change) {
+        return change.legacyChangeId + "_"
+                + (change.updated == null ? 0 : change.updated.getTime());
+    }
+}
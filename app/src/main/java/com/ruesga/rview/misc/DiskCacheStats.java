@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.misc;
+
+import java.util.Locale;
+
+public class DiskCacheStats {
+    public final long mHits;
+    public final long mMisses;
+    public final long mEvictions;
+    public final long mSize;
+    public final long mMaxSize;
+    public final int mEntries;
+
+    DiskCacheStats(long hits, long misses, long evictions, long size, long maxSize, int entries) {
+        mHits = hits;
+        mMisses = misses;
+        mEvictions = evictions;
+        mSize = size;
+        mMaxSize = maxSize;
+        mEntries = entries;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "DiskCacheStats{hits=%d, misses=%d, evictions=%d, size=%d/%d, entries=%d}",
+                mHits, mMisses, mEvictions, mSize, mMaxSize, mEntries);
+    }
+}
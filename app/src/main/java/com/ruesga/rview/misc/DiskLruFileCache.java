@@ -0,0 +1,492 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.misc;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A size-bounded LRU cache of plain files stored under a directory. Entries keep their
+ * names on disk, so callers may still access them as regular files. Access order and sizes
+ * are recorded in an append-only journal that is replayed when the cache is opened.
+ */
+public class DiskLruFileCache {
+
+    private static final String JOURNAL_FILE = ".journal";
+    private static final String JOURNAL_FILE_TMP = ".journal.tmp";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private static final String OP_UPDATE = "U";
+    private static final String OP_READ = "R";
+    private static final String OP_REMOVE = "D";
+
+    private static final int MIN_JOURNAL_OPS_TO_COMPACT = 2000;
+
+    private final File mDirectory;
+    private final long mMaxSize;
+    private final Set<String> mExcluded;
+
+    // Access ordered: the eldest entry is the least recently used
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(64, 0.75f, true);
+    private long mSize;
+    private int mJournalOps;
+    private Writer mJournal;
+
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+
+    /**
+     * @param excluded names of top level subdirectories that are not owned by this cache.
+     */
+    public DiskLruFileCache(File directory, long maxSize, String... excluded) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+        mExcluded = new HashSet<>(Arrays.asList(excluded));
+    }
+
+    public File getDirectory() {
+        return mDirectory;
+    }
+
+    public synchronized boolean contains(String name) {
+        ensureOpened();
+        if (mEntries.containsKey(name)) {
+            if (getFile(name).exists()) {
+                return true;
+            }
+            removeEntry(name);
+            return false;
+        }
+
+        // Someone could have written the file directly. Adopt it.
+        File file = getFile(name);
+        if (file.isFile()) {
+            putEntry(name, file.length());
+            trimToSize(name);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the whole entry. Only the lookup runs inside the cache lock; entries are replaced
+     * by renames, so the file read outside of it always sees a complete version of the entry.
+     */
+    public byte[] read(String name) throws IOException {
+        File file = getFile(name);
+        synchronized (this) {
+            ensureOpened();
+            if (!file.isFile()) {
+                mMisses++;
+                if (mEntries.containsKey(name)) {
+                    removeEntry(name);
+                }
+                throw new FileNotFoundException(file.getAbsolutePath());
+            }
+            if (mEntries.containsKey(name)) {
+                // Moves the entry to the most recently used position
+                mEntries.get(name);
+                appendJournal(OP_READ, name);
+            }
+        }
+
+        byte[] data;
+        try {
+            data = readFully(file);
+        } catch (FileNotFoundException ex) {
+            // Evicted or removed in the meantime
+            synchronized (this) {
+                mMisses++;
+            }
+            throw ex;
+        }
+
+        synchronized (this) {
+            mHits++;
+            if (!mEntries.containsKey(name) && file.isFile()) {
+                // Someone wrote the file directly. Adopt it.
+                putEntry(name, data.length);
+                trimToSize(name);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Writes the entry to a temporary file and renames it over the old one, so readers never
+     * see a partially written entry.
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public synchronized void write(String name, byte[] data) throws IOException {
+        ensureOpened();
+        File file = getFile(name);
+        File tmp = new File(file.getParentFile(), file.getName() + TMP_SUFFIX);
+        file.getParentFile().mkdirs();
+        OutputStream os = new FileOutputStream(tmp);
+        try {
+            os.write(data);
+        } finally {
+            os.close();
+        }
+        commit(name, tmp, data.length);
+    }
+
+    /**
+     * Streams the entry to a private temporary file and then commits it like
+     * {@link #write(String, byte[])}. The copy runs outside the cache lock, so a slow source
+     * doesn't stall other readers and writers. The stream is not closed.
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public File write(String name, InputStream in) throws IOException {
+        File file;
+        synchronized (this) {
+            ensureOpened();
+            file = getFile(name);
+            file.getParentFile().mkdirs();
+        }
+        File tmp = File.createTempFile(
+                file.getName() + ".tmp.", TMP_SUFFIX, file.getParentFile());
+        long size = 0;
+        try {
+            try (OutputStream os = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    os.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+        } catch (IOException ex) {
+            tmp.delete();
+            throw ex;
+        }
+
+        synchronized (this) {
+            commit(name, tmp, size);
+        }
+        return file;
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public synchronized void remove(String name) {
+        ensureOpened();
+        getFile(name).delete();
+        if (mEntries.containsKey(name)) {
+            removeEntry(name);
+        }
+    }
+
+    /**
+     * Deletes all the cache entries. The cache remains usable.
+     */
+    public synchronized void clear() {
+        closeJournal();
+        deleteContents(mDirectory, true);
+        mEntries.clear();
+        mSize = 0;
+        mJournalOps = 0;
+    }
+
+    public synchronized DiskCacheStats stats() {
+        ensureOpened();
+        return new DiskCacheStats(mHits, mMisses, mEvictions, mSize, mMaxSize, mEntries.size());
+    }
+
+    synchronized void close() {
+        closeJournal();
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private void commit(String name, File tmp, long size) throws IOException {
+        File file = getFile(name);
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Failed to commit cache entry " + name);
+            }
+        }
+
+        putEntry(name, size);
+        trimToSize(name);
+    }
+
+    private File getFile(String name) {
+        return new File(mDirectory, name);
+    }
+
+    private void putEntry(String name, long size) {
+        Long old = mEntries.put(name, size);
+        mSize += size - (old == null ? 0 : old);
+        appendJournal(OP_UPDATE, size + " " + name);
+    }
+
+    private void removeEntry(String name) {
+        Long old = mEntries.remove(name);
+        if (old != null) {
+            mSize -= old;
+        }
+        appendJournal(OP_REMOVE, name);
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private void trimToSize(String keep) {
+        Iterator<Map.Entry<String, Long>> it = mEntries.entrySet().iterator();
+        while (mSize > mMaxSize && it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            String name = entry.getKey();
+            if (name.equals(keep)) {
+                continue;
+            }
+            getFile(name).delete();
+            mSize -= entry.getValue();
+            it.remove();
+            mEvictions++;
+            appendJournal(OP_REMOVE, name);
+        }
+    }
+
+    private void ensureOpened() {
+        if (mJournal != null) {
+            return;
+        }
+
+        mEntries.clear();
+        mSize = 0;
+        File journal = new File(mDirectory, JOURNAL_FILE);
+        if (journal.exists()) {
+            readJournal(journal);
+        }
+
+        // Discard stale entries and adopt the files that aren't in the journal yet (written
+        // directly by other code or by previous versions), eldest first
+        for (Iterator<Map.Entry<String, Long>> it = mEntries.entrySet().iterator();
+                it.hasNext(); ) {
+            Map.Entry<String, Long> entry = it.next();
+            File file = getFile(entry.getKey());
+            if (!file.isFile()) {
+                mSize -= entry.getValue();
+                it.remove();
+            } else if (file.length() != entry.getValue()) {
+                mSize += file.length() - entry.getValue();
+                entry.setValue(file.length());
+            }
+        }
+        List<File> untracked = new ArrayList<>();
+        collectUntrackedFiles(mDirectory, untracked);
+        Collections.sort(untracked, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+        LinkedHashMap<String, Long> tracked = new LinkedHashMap<>(mEntries);
+        mEntries.clear();
+        for (File file : untracked) {
+            mEntries.put(toName(file), file.length());
+            mSize += file.length();
+        }
+        mEntries.putAll(tracked);
+
+        rebuildJournal();
+        trimToSize(null);
+    }
+
+    private void readJournal(File journal) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(journal))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int sep = line.indexOf(' ');
+                if (sep <= 0) {
+                    continue;
+                }
+                String op = line.substring(0, sep);
+                String args = line.substring(sep + 1);
+                if (OP_UPDATE.equals(op)) {
+                    int sep2 = args.indexOf(' ');
+                    if (sep2 <= 0) {
+                        continue;
+                    }
+                    long size;
+                    try {
+                        size = Long.parseLong(args.substring(0, sep2));
+                    } catch (NumberFormatException ex) {
+                        continue;
+                    }
+                    Long old = mEntries.put(args.substring(sep2 + 1), size);
+                    mSize += size - (old == null ? 0 : old);
+                } else if (OP_READ.equals(op)) {
+                    mEntries.get(args);
+                } else if (OP_REMOVE.equals(op)) {
+                    Long old = mEntries.remove(args);
+                    if (old != null) {
+                        mSize -= old;
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            // Truncated or corrupted journal. Keep whatever was read
+        }
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private void collectUntrackedFiles(File dir, List<File> files) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            String name = child.getName();
+            if (child.isDirectory()) {
+                if (!dir.equals(mDirectory) || !mExcluded.contains(name)) {
+                    collectUntrackedFiles(child, files);
+                }
+            } else if (dir.equals(mDirectory)
+                    && (name.equals(JOURNAL_FILE) || name.equals(JOURNAL_FILE_TMP))) {
+                // Our own bookkeeping
+            } else if (name.endsWith(TMP_SUFFIX)) {
+                // An interrupted write
+                child.delete();
+            } else if (!mEntries.containsKey(toName(child))) {
+                files.add(child);
+            }
+        }
+    }
+
+    private String toName(File file) {
+        return file.getAbsolutePath().substring(mDirectory.getAbsolutePath().length() + 1);
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private void rebuildJournal() {
+        closeJournal();
+        mDirectory.mkdirs();
+        File journal = new File(mDirectory, JOURNAL_FILE);
+        File tmp = new File(mDirectory, JOURNAL_FILE_TMP);
+        try {
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"))) {
+                for (Map.Entry<String, Long> entry : mEntries.entrySet()) {
+                    writer.write(OP_UPDATE + " " + entry.getValue() + " " + entry.getKey() + "\n");
+                }
+            }
+            if (!tmp.renameTo(journal)) {
+                journal.delete();
+                tmp.renameTo(journal);
+            }
+            mJournal = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(journal, true), "UTF-8"));
+        } catch (IOException ex) {
+            // The cache keeps working in memory; it will be rebuilt on next open
+            journal.delete();
+            mJournal = new NullWriter();
+        }
+        mJournalOps = 0;
+    }
+
+    private void appendJournal(String op, String args) {
+        try {
+            mJournal.write(op + " " + args + "\n");
+            mJournal.flush();
+        } catch (IOException ex) {
+            // Ignore. The journal is only a hint of the access order
+        }
+
+        mJournalOps++;
+        if (mJournalOps >= MIN_JOURNAL_OPS_TO_COMPACT && mJournalOps >= mEntries.size() * 2) {
+            rebuildJournal();
+        }
+    }
+
+    private void closeJournal() {
+        if (mJournal != null) {
+            try {
+                mJournal.close();
+            } catch (IOException ex) {
+                // Ignore
+            }
+            mJournal = null;
+        }
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private static void deleteContents(File dir, boolean root) {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    deleteContents(child, false);
+                } else {
+                    child.delete();
+                }
+            }
+        }
+        if (!root) {
+            dir.delete();
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        try (FileInputStream is = new FileInputStream(file)) {
+            // The size of the opened file, which may have been replaced meanwhile
+            long length = is.getChannel().size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Cache entry too large: " + file);
+            }
+            byte[] data = new byte[(int) length];
+            int offset = 0;
+            int read;
+            while (offset < data.length
+                    && (read = is.read(data, offset, data.length - offset)) != -1) {
+                offset += read;
+            }
+            if (offset != data.length) {
+                throw new IOException("Unexpected end of cache entry: " + file);
+            }
+            return data;
+        }
+    }
+
+    private static class NullWriter extends Writer {
+        @Override
+        public void write(char[] buf, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -59,16 +59,21 @@ import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.regex.Pattern;
 
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
+import androidx.core.util.Pair;
 
 public class ModelHelper {
 
@@ -110,13 +115,7 @@ public class ModelHelper {
     private static final List<Repository> sPredefinedRepositories = new ArrayList<>();
 
     public static Account getAccountFromHash(Context ctx, String hash) {
-        List<Account> accounts = Preferences.getAccounts(ctx);
-        for (Account account : accounts) {
-            if (account.getAccountHash().equals(hash)) {
-                return account;
-            }
-        }
-        return null;
+        return Preferences.getAccountFromHash(ctx, hash);
     }
 
     public static GerritApi getGerritApi(Context context) {
@@ -624,12 +623,12 @@ public class ModelHelper {
         return account != null && account.name != null && pattern.matcher(account.name).matches();
     }
 
-    public static void updateChangeMessageInfo(
-            Account account, ChangeInfo change, ReviewInput input) {
+    public static ChangeMessageInfo[] updateChangeMessageInfo(
+            Account account, ChangeMessageInfo[] old, ReviewInput input) {
         // Copy the old structure
-        int count = change.messages.length;
+        int count = old.length;
         ChangeMessageInfo[] messages = new ChangeMessageInfo[count + 1];
-        System.arraycopy(change.messages, 0, messages, 0, count);
+        System.arraycopy(old, 0, messages, 0, count);
 
         // Update the message
         ChangeMessageInfo msg = new ChangeMessageInfo();
@@ -640,8 +639,20 @@ public class ModelHelper {
         msg.date = new Date();
         msg.revisionNumber = -1;
         messages[count] = msg;
+        return messages;
+    }
 
-        change.messages = messages;
+    public static ChangeMessageInfo copyChangeMessageInfo(ChangeMessageInfo message) {
+        ChangeMessageInfo copy = new ChangeMessageInfo();
+        copy.id = message.id;
+        copy.author = message.author;
+        copy.realAuthor = message.realAuthor;
+        copy.date = message.date;
+        copy.message = message.message;
+        copy.tag = message.tag;
+        copy.revisionNumber = message.revisionNumber;
+        copy._reviewer_updates = new ArrayList<>(message._reviewer_updates);
+        return copy;
     }
 
     public static boolean isCommitMessage(String name) {
@@ -770,14 +781,141 @@ public class ModelHelper {
         return ru;
     }
 
+    private static final Comparator<CommentInfo> COMMENTS_BY_LINE_COMPARATOR = (c1, c2) -> {
+        if (c1.line == null && c2.line != null) {
+            return -1;
+        }
+        if (c1.line != null && c2.line == null) {
+            return 1;
+        }
+        if (c1.line == null) {
+            return c1.updated.compareTo(c2.updated);
+        }
+        int ret = Integer.compare(c1.line, c2.line);
+        if (ret == 0) {
+            return c1.updated.compareTo(c2.updated);
+        }
+        return ret;
+    };
+
+    /**
+     * Groups the comments (or drafts) by the change message that published them, keyed by
+     * message id and then by file. Comments are matched by author and timestamp, and drafts
+     * by the "draft_&lt;patchset&gt;" pseudo-message.
+     */
+    @SuppressWarnings("ConstantConditions")
+    public static void matchCommentsWithMessages(ChangeMessageInfo[] messages,
+            Map<String, List<CommentInfo>> comments, boolean draft, AccountInfo self,
+            Map<String, LinkedHashMap<String, List<CommentInfo>>> messagesWithComments) {
+        // Index all the comments (sorted only once per file) by the key of the message
+        // that should contain them. Api responses could be shared between concurrent
+        // callers, so the matched comments are copies
+        Map<String, List<Pair<String, CommentInfo>>> index = new HashMap<>();
+        for (Map.Entry<String, List<CommentInfo>> entry : comments.entrySet()) {
+            String file = entry.getKey();
+            if (entry.getValue() == null) {
+                continue;
+            }
+            List<CommentInfo> items = new ArrayList<>(entry.getValue());
+            Collections.sort(items, COMMENTS_BY_LINE_COMPARATOR);
+            for (CommentInfo item : items) {
+                CommentInfo comment = item.copy();
+                comment.draft = draft;
+                comment.path = file;
+                AccountInfo author = comment.author != null ? comment.author : self;
+                String key = draft
+                        ? toDraftMessageId(comment.patchSet)
+                        : toCommentMessageKey(author.accountId, comment.updated);
+                List<Pair<String, CommentInfo>> bucket = index.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<>();
+                    index.put(key, bucket);
+                }
+                bucket.add(new Pair<>(file, comment));
+            }
+        }
+        if (index.isEmpty()) {
+            return;
+        }
+
+        // Now just a lookup per message
+        for (ChangeMessageInfo message : messages) {
+            if (message.message == null) {
+                continue;
+            }
+            String key;
+            if (draft) {
+                key = message.id;
+            } else if (message.author != null && message.date != null) {
+                key = toCommentMessageKey(message.author.accountId, message.date);
+            } else {
+                continue;
+            }
+            List<Pair<String, CommentInfo>> bucket = index.get(key);
+            if (bucket == null) {
+                continue;
+            }
+
+            LinkedHashMap<String, List<CommentInfo>> filesAndComments =
+                    messagesWithComments.get(message.id);
+            if (filesAndComments == null) {
+                filesAndComments = new LinkedHashMap<>();
+                messagesWithComments.put(message.id, filesAndComments);
+            }
+            Map<String, Set<String>> ids = new HashMap<>();
+            for (Pair<String, CommentInfo> p : bucket) {
+                String file = p.first;
+                CommentInfo comment = p.second;
+                List<CommentInfo> list = filesAndComments.get(file);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    filesAndComments.put(file, list);
+                }
+                Set<String> fileIds = ids.get(file);
+                if (fileIds == null) {
+                    fileIds = new HashSet<>();
+                    for (CommentInfo c : list) {
+                        fileIds.add(c.id);
+                    }
+                    ids.put(file, fileIds);
+                }
+                if (fileIds.add(comment.id)) {
+                    comment.messagePatchSet = message.revisionNumber;
+                    if (comment.patchSet == 0) {
+                        comment.patchSet = message.revisionNumber;
+                    }
+                    list.add(comment);
+                }
+            }
+        }
+    }
+
+    public static String toDraftMessageId(int patchSet) {
+        return "draft_" + patchSet;
+    }
+
+    private static String toCommentMessageKey(int accountId, Date date) {
+        return accountId + "@" + date.getTime();
+    }
+
+    // Api responses could be shared between concurrent callers, so never modify the passed
+    // comments; return a new map instead
     @SuppressWarnings("ConstantConditions")
-    public static void mergeCommentsAndRobotComments(
+    public static Map<String, List<CommentInfo>> mergeCommentsAndRobotComments(
             Map<String, List<CommentInfo>> comments,
             Map<String, List<RobotCommentInfo>> robotComments) {
+        Map<String, List<CommentInfo>> merged = new HashMap<>(comments.size());
+        for (Map.Entry<String, List<CommentInfo>> entry : comments.entrySet()) {
+            merged.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        if (robotComments == null) {
+            return merged;
+        }
+
         for (Map.Entry<String, List<RobotCommentInfo>> entry : robotComments.entrySet()) {
             String file = entry.getKey();
-            if (comments.containsKey(file)) {
-                List<CommentInfo> allFileComments = comments.get(file);
+            if (merged.containsKey(file)) {
+                List<CommentInfo> allFileComments = merged.get(file);
                 for (RobotCommentInfo robotComment : entry.getValue()) {
                     boolean added = false;
                     int size = allFileComments.size();
@@ -795,8 +933,9 @@ public class ModelHelper {
                 }
             } else {
                 // This file is new add all the robot comments
-                comments.put(file, new ArrayList<>(entry.getValue()));
+                merged.put(file, new ArrayList<>(entry.getValue()));
             }
         }
+        return merged;
     }
 }
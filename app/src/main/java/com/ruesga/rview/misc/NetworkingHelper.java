@@ -26,12 +26,28 @@ public class NetworkingHelper {
 
     private static final String TAG = "NetworkingHelper";
 
+    private static OkHttpClient sNetworkClient;
+
+    /**
+     * Return the shared client for generic (non gerrit api) network requests.
+     */
+    public static synchronized OkHttpClient getNetworkClient() {
+        if (sNetworkClient == null) {
+            sNetworkClient = OkHttpHelper.getSafeClientBuilder()
+                .readTimeout(20000, java.util.concurrent.TimeUnit.MILLISECONDS)
+                .followRedirects(true)
+                .followSslRedirects(true)
+                .addInterceptor(createLoggingInterceptor())
+                .build();
+        }
+        return sNetworkClient;
+    }
+
+    /**
+     * Return a builder for a client that shares the connections of the network client.
+     */
     public static OkHttpClient.Builder createNetworkClient() {
-        return OkHttpHelper.getSafeClientBuilder()
-            .readTimeout(20000, java.util.concurrent.TimeUnit.MILLISECONDS)
-            .followRedirects(true)
-            .followSslRedirects(true)
-            .addInterceptor(createLoggingInterceptor());
+        return getNetworkClient().newBuilder();
     }
 
     private static HttpLoggingInterceptor createLoggingInterceptor() {
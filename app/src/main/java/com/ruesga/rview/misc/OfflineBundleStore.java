@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.misc;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * The offline bundles of an account: full copies of a change downloaded for offline review,
+ * one folder per change. A bundle is downloaded into a staging folder and only becomes
+ * visible once it's committed with its marker, which records the version of the change.
+ * <p/>
+ * Entries of different changes share names, so only the bundle of the active change serves
+ * the misses of the diff cache. Comments and drafts change while the bundle is kept, so they
+ * are never served that way. Callers read them from the bundle only when they are offline.
+ */
+public class OfflineBundleStore {
+
+    private static final String ACTIVE_CHANGE_FILE = ".active";
+    private static final String STAGING_SUFFIX = ".tmp";
+    private static final String[] MUTABLE_ENTRIES = {
+            CacheHelper.CACHE_COMMENTS_JSON, CacheHelper.CACHE_DRAFT_JSON};
+
+    private static final int UNKNOWN = -2;
+    private static final int NONE = -1;
+
+    private final File mDirectory;
+    private int mActiveChange = UNKNOWN;
+
+    public OfflineBundleStore(File directory) {
+        mDirectory = directory;
+    }
+
+    public File getBundleDir(int legacyChangeId) {
+        return new File(mDirectory, String.valueOf(legacyChangeId));
+    }
+
+    /**
+     * Creates an empty bundle in a staging folder. Readers don't see it until it's committed,
+     * which replaces the previous bundle of the change.
+     */
+    public DiskLruFileCache create(int legacyChangeId) throws IOException {
+        File staging = new File(mDirectory, legacyChangeId + STAGING_SUFFIX);
+        FileUtils.deleteDirectory(staging);
+        if (!staging.mkdirs()) {
+            throw new IOException("Failed to create " + staging);
+        }
+        return new DiskLruFileCache(staging, Long.MAX_VALUE);
+    }
+
+    public void commit(int legacyChangeId, DiskLruFileCache bundle, String bundleId)
+            throws IOException {
+        bundle.write(CacheHelper.CACHE_OFFLINE_BUNDLE, bundleId.getBytes());
+        bundle.close();
+        File dir = getBundleDir(legacyChangeId);
+        FileUtils.deleteDirectory(dir);
+        if (!bundle.getDirectory().renameTo(dir)) {
+            FileUtils.deleteQuietly(bundle.getDirectory());
+            throw new IOException("Failed to commit " + dir);
+        }
+    }
+
+    public static void discard(DiskLruFileCache bundle) {
+        bundle.close();
+        FileUtils.deleteQuietly(bundle.getDirectory());
+    }
+
+    public void remove(int legacyChangeId) {
+        FileUtils.deleteQuietly(getBundleDir(legacyChangeId));
+    }
+
+    /**
+     * Returns the version of the change held by its committed bundle, or null if it has none.
+     */
+    public String getBundleId(int legacyChangeId) {
+        File marker = new File(getBundleDir(legacyChangeId), CacheHelper.CACHE_OFFLINE_BUNDLE);
+        if (!marker.isFile()) {
+            return null;
+        }
+        try {
+            return FileUtils.readFileToString(marker, "UTF-8");
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Removes the bundle of the change if it holds another version of it.
+     */
+    public void invalidate(int legacyChangeId, String bundleId) {
+        File dir = getBundleDir(legacyChangeId);
+        if (dir.exists() && !bundleId.equals(getBundleId(legacyChangeId))) {
+            remove(legacyChangeId);
+        }
+    }
+
+    /**
+     * Reads an entry of the committed bundle of the change, or returns null if it isn't there.
+     */
+    public byte[] read(int legacyChangeId, String name) throws IOException {
+        if (getBundleId(legacyChangeId) == null) {
+            return null;
+        }
+        File file = new File(getBundleDir(legacyChangeId), name);
+        return file.isFile() ? FileUtils.readFileToByteArray(file) : null;
+    }
+
+    /**
+     * Sets the change whose bundle, if any, serves the diff cache misses.
+     */
+    public synchronized void setActiveChange(int legacyChangeId) {
+        if (getActiveChange() == legacyChangeId) {
+            return;
+        }
+        mActiveChange = legacyChangeId;
+
+        // Persist it, so the bundle is still used when the process is recreated
+        try {
+            FileUtils.writeStringToFile(new File(mDirectory, ACTIVE_CHANGE_FILE),
+                    String.valueOf(legacyChangeId), "UTF-8");
+        } catch (IOException ex) {
+            // Ignore
+        }
+    }
+
+    public synchronized int getActiveChange() {
+        if (mActiveChange == UNKNOWN) {
+            mActiveChange = NONE;
+            File file = new File(mDirectory, ACTIVE_CHANGE_FILE);
+            if (file.isFile()) {
+                try {
+                    mActiveChange = Integer.parseInt(
+                            FileUtils.readFileToString(file, "UTF-8").trim());
+                } catch (IOException | NumberFormatException ex) {
+                    // Ignore
+                }
+            }
+        }
+        return mActiveChange;
+    }
+
+    /**
+     * Returns the file of the entry in the bundle of the active change, or null if the entry
+     * can't be served from there.
+     */
+    public File getActiveFile(String name) {
+        int legacyChangeId = getActiveChange();
+        if (legacyChangeId == NONE || isMutableEntry(name)) {
+            return null;
+        }
+
+        // Only complete bundles have a marker
+        File dir = getBundleDir(legacyChangeId);
+        File file = new File(dir, name);
+        if (!new File(dir, CacheHelper.CACHE_OFFLINE_BUNDLE).isFile() || !file.isFile()) {
+            return null;
+        }
+        return file;
+    }
+
+    public boolean hasActiveBundle() {
+        return getActiveFile(CacheHelper.CACHE_OFFLINE_BUNDLE) != null;
+    }
+
+    /**
+     * Reads an entry of the diff cache, falling back to the bundle of the active change.
+     */
+    public byte[] read(DiskLruFileCache cache, String name) throws IOException {
+        try {
+            return cache.read(name);
+        } catch (FileNotFoundException ex) {
+            File file = getActiveFile(name);
+            if (file == null) {
+                throw ex;
+            }
+            return FileUtils.readFileToByteArray(file);
+        }
+    }
+
+    private static boolean isMutableEntry(String name) {
+        for (String suffix : MUTABLE_ENTRIES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -20,6 +20,7 @@ import android.os.Parcelable;
 import android.text.TextUtils;
 import android.util.Base64;
 
+import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
 import com.ruesga.rview.gerrit.model.AccountInfo;
 import com.ruesga.rview.gerrit.model.ServerInfo;
@@ -56,6 +57,15 @@ public class Account implements Parcelable, Comparable<Account> {
         mServerInfo = SerializationManager.getInstance().fromJson(in.readString(), ServerInfo.class);
     }
 
+    /**
+     * Returns a deep copy of this account, to be modified and then saved. Accounts are
+     * stored as json, so the copy goes through the same serialization.
+     */
+    public Account copy() {
+        Gson gson = SerializationManager.getInstance();
+        return gson.fromJson(gson.toJson(this), Account.class);
+    }
+
     public String getAccountDisplayName() {
         return ModelHelper.getAccountDisplayName(mAccount);
     }
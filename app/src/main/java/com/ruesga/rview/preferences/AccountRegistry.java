@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.preferences;
+
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.ruesga.rview.misc.SerializationManager;
+import com.ruesga.rview.model.Account;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT;
+import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNTS;
+
+/**
+ * A process-wide cache of the stored accounts, so lookups don't need to parse the
+ * preferences every time. Every write replaces the whole snapshot, so its accounts are
+ * handed out as they are and must never be modified.
+ */
+final class AccountRegistry {
+
+    static final class Snapshot {
+        final List<Account> mAccounts;
+        final Map<String, Account> mAccountsByHash;
+        final Account mCurrent;
+
+        private Snapshot(List<Account> accounts, Map<String, Account> byHash, Account current) {
+            mAccounts = accounts;
+            mAccountsByHash = byHash;
+            mCurrent = current;
+        }
+    }
+
+    private static volatile Snapshot sSnapshot;
+    private static final AtomicInteger sGeneration = new AtomicInteger();
+
+    private AccountRegistry() {
+    }
+
+    static Snapshot get(SharedPreferences prefs) {
+        Snapshot snapshot = sSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        // Only publish the snapshot if no writes happened while it was being built
+        int generation = sGeneration.get();
+        snapshot = build(prefs);
+        synchronized (AccountRegistry.class) {
+            if (generation == sGeneration.get()) {
+                sSnapshot = snapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    static void invalidate() {
+        synchronized (AccountRegistry.class) {
+            sGeneration.incrementAndGet();
+            sSnapshot = null;
+        }
+    }
+
+    private static Snapshot build(SharedPreferences prefs) {
+        final Gson gson = SerializationManager.getInstance();
+        Set<String> set = prefs.getStringSet(PREF_ACCOUNTS, null);
+        List<Account> accounts = new ArrayList<>();
+        Map<String, Account> byHash = new HashMap<>();
+        if (set != null) {
+            for (String s : set) {
+                Account account = gson.fromJson(s, Account.class);
+                accounts.add(account);
+                byHash.put(account.getAccountHash(), account);
+            }
+            Collections.sort(accounts);
+        }
+
+        // Ensure we obtain the most refreshed data from account
+        Account current = null;
+        String value = prefs.getString(PREF_ACCOUNT, null);
+        if (value != null) {
+            current = gson.fromJson(value, Account.class);
+            Account stored = byHash.get(current.getAccountHash());
+            if (stored != null) {
+                current = stored;
+            }
+        }
+
+        return new Snapshot(Collections.unmodifiableList(accounts),
+                Collections.unmodifiableMap(byHash), current);
+    }
+}
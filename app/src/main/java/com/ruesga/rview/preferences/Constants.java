@@ -63,6 +63,7 @@ public class Constants {
     public static final String DEFAULT_AUTHENTICATED_HOME = "menu_dashboard";
     public static final String DEFAULT_ANONYMOUS_HOME = "menu_open";
     public static final String DEFAULT_FETCHED_ITEMS = "25";
+    public static final String DEFAULT_DISK_CACHE_SIZE = "64";
     public static final String DEFAULT_DISPLAY_FORMAT = "name";
 
     public static final String ACCOUNT_DISPLAY_FORMAT_NAME = "name";
@@ -127,6 +128,7 @@ public class Constants {
     public static final String PREF_ACCOUNT_CI_CATEGORY = "account_ci_category";
     public static final String PREF_ACCOUNT_HOME_PAGE = "account_home_page";
     public static final String PREF_ACCOUNT_FETCHED_ITEMS = "account_fetched_items";
+    public static final String PREF_ACCOUNT_DISK_CACHE_SIZE = "account_disk_cache_size";
     public static final String PREF_ACCOUNT_DISPLAY_FORMAT = "account_display_format";
     public static final String PREF_ACCOUNT_ANIMATED_AVATARS = "account_animated_avatars";
     public static final String PREF_ACCOUNT_DISPLAY_STATUSES = "account_display_statuses";
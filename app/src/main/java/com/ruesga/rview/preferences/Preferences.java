@@ -44,6 +44,7 @@ import androidx.annotation.NonNull;
 import static com.ruesga.rview.preferences.Constants.DEFAULT_ANONYMOUS_HOME;
 import static com.ruesga.rview.preferences.Constants.DEFAULT_AUTHENTICATED_HOME;
 import static com.ruesga.rview.preferences.Constants.DEFAULT_DISPLAY_FORMAT;
+import static com.ruesga.rview.preferences.Constants.DEFAULT_DISK_CACHE_SIZE;
 import static com.ruesga.rview.preferences.Constants.DEFAULT_FETCHED_ITEMS;
 import static com.ruesga.rview.preferences.Constants.HIGHLIGHT_SCORED_MESSAGE_MESSAGE;
 import static com.ruesga.rview.preferences.Constants.MAX_SEARCH_HISTORY;
@@ -59,6 +60,7 @@ import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_CUSTOM_FILTERS
 import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_DASHBOARD;
 import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_DASHBOARD_OUTGOING_SORT;
 import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_DIFF_MODE;
+import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_DISK_CACHE_SIZE;
 import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_DISPLAY_FORMAT;
 import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_DISPLAY_STATUSES;
 import static com.ruesga.rview.preferences.Constants.PREF_ACCOUNT_FETCHED_ITEMS;
@@ -122,22 +124,17 @@ public class Preferences {
         editor.apply();
     }
 
+    /**
+     * Returns the current account. The instance is shared by all callers and must be treated
+     * as read-only: to change it, save a modified {@link Account#copy()} through
+     * {@link #addOrUpdateAccount(Context, Account)}.
+     */
     public static Account getAccount(Context context) {
-        final Gson gson = SerializationManager.getInstance();
-        String value = getPreferences(context).getString(PREF_ACCOUNT, null);
-        if (value == null) {
-            return null;
-        }
+        return AccountRegistry.get(getPreferences(context)).mCurrent;
+    }
 
-        // Ensure we obtain the most refreshed data from account
-        Account account = gson.fromJson(value, Account.class);
-        List<Account> accounts = getAccounts(context);
-        for (Account acct : accounts) {
-            if (acct.getAccountHash().equals(account.getAccountHash())) {
-                return acct;
-            }
-        }
-        return account;
+    public static Account getAccountFromHash(Context context, String hash) {
+        return AccountRegistry.get(getPreferences(context)).mAccountsByHash.get(hash);
     }
 
     public static void setAccount(Context context, Account account) {
@@ -149,28 +146,24 @@ public class Preferences {
             editor.remove(PREF_ACCOUNT);
         }
         editor.apply();
+        AccountRegistry.invalidate();
     }
 
+    /**
+     * Returns an unmodifiable list of the shared, read-only accounts.
+     * @see #getAccount(Context)
+     */
     public static List<Account> getAccounts(Context context) {
-        final Gson gson = SerializationManager.getInstance();
-        Set<String> set = getPreferences(context).getStringSet(PREF_ACCOUNTS, null);
-        List<Account> accounts = new ArrayList<>();
-        if (set != null) {
-            for (String s : set) {
-                accounts.add(gson.fromJson(s, Account.class));
-            }
-            Collections.sort(accounts);
-        }
-        return accounts;
+        return AccountRegistry.get(getPreferences(context)).mAccounts;
     }
 
     public static List<Account> addOrUpdateAccount(Context context, @NonNull Account account) {
         return addOrUpdateAccount(context, account, account);
     }
 
-    public static List<Account> addOrUpdateAccount(Context context,
+    public static synchronized List<Account> addOrUpdateAccount(Context context,
                 @NonNull Account oldAccount, @NonNull Account newAccount) {
-        List<Account> accounts = getAccounts(context);
+        List<Account> accounts = new ArrayList<>(getAccounts(context));
         int count = accounts.size();
         boolean found = false;
         for (int i = 0; i < count; i++) {
@@ -190,8 +183,9 @@ public class Preferences {
         return accounts;
     }
 
-    public static List<Account> removeAccount(Context context, @NonNull Account account) {
-        List<Account> accounts = getAccounts(context);
+    public static synchronized List<Account> removeAccount(
+            Context context, @NonNull Account account) {
+        List<Account> accounts = new ArrayList<>(getAccounts(context));
         Iterator<Account> it = accounts.iterator();
         while(it.hasNext()) {
             Account acct = it.next();
@@ -215,6 +209,7 @@ public class Preferences {
         Editor editor = getPreferences(context).edit();
         editor.putStringSet(PREF_ACCOUNTS, set);
         editor.apply();
+        AccountRegistry.invalidate();
     }
 
     public static void removeAccountPreferences(Context context, Account account) {
@@ -267,6 +262,18 @@ public class Preferences {
                 PREF_ACCOUNT_FETCHED_ITEMS, DEFAULT_FETCHED_ITEMS));
     }
 
+    /**
+     * Returns the maximum size in bytes of the account diff cache.
+     */
+    public static long getAccountDiskCacheSize(Context context, Account account) {
+        String size = DEFAULT_DISK_CACHE_SIZE;
+        if (account != null) {
+            size = getAccountPreferences(context, account).getString(
+                    PREF_ACCOUNT_DISK_CACHE_SIZE, DEFAULT_DISK_CACHE_SIZE);
+        }
+        return Long.valueOf(size) * 1024 * 1024;
+    }
+
     public static String getAccountDisplayFormat(Context context, Account account) {
         if (account == null) {
             return DEFAULT_DISPLAY_FORMAT;
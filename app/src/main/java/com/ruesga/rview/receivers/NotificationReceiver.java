@@ -40,7 +40,6 @@ import io.reactivex.Observer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
-import me.tatarka.rxloader2.safe.SafeObservable;
 
 public class NotificationReceiver extends BroadcastReceiver {
 
@@ -114,9 +113,7 @@ public class NotificationReceiver extends BroadcastReceiver {
         input.notify = NotifyType.ALL;
 
         // Send the comment
-        SafeObservable.fromNullCallable(() ->
-                api.setChangeRevisionReview(String.valueOf(changeId),
-                        GerritApi.CURRENT_REVISION, input).blockingFirst())
+        api.setChangeRevisionReview(String.valueOf(changeId), GerritApi.CURRENT_REVISION, input)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<ReviewInfo>() {
@@ -21,6 +21,7 @@ import android.content.Intent;
 import android.util.Log;
 
 import com.ruesga.rview.BuildConfig;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.model.Features;
 import com.ruesga.rview.misc.ExceptionHelper;
@@ -63,16 +64,18 @@ public class AccountStatusFetcherService extends IntentService {
         }
     }
 
-    private void performFetchAccountStatus(Context ctx, Account account) {
+    private void performFetchAccountStatus(Context ctx, Account registered) {
+        // Registered accounts are read-only
+        final Account account = registered.copy();
         GerritApi api = ModelHelper.getGerritApi(ctx, account);
 
         try {
-            account.mServerVersion = api.getServerVersion().blockingFirst();
+            account.mServerVersion = BlockingCalls.first(api.getServerVersion());
         } catch (Exception ex) {
             Log.e(TAG, "Failed to fetch server version", ex);
         }
         try {
-            account.mServerInfo = api.getServerInfo().blockingFirst();
+            account.mServerInfo = BlockingCalls.first(api.getServerInfo());
         } catch (Exception ex) {
             Log.e(TAG, "Failed to fetch server info", ex);
         }
@@ -80,7 +83,7 @@ public class AccountStatusFetcherService extends IntentService {
         try {
             if (account.hasAuthenticatedAccessMode() && api.supportsFeature(Features.ACCOUNT_STATUS)) {
                 account.mAccount.status =
-                        api.getAccountStatus(GerritApi.SELF_ACCOUNT).blockingFirst();
+                        BlockingCalls.first(api.getAccountStatus(GerritApi.SELF_ACCOUNT));
             } else {
                 account.mAccount.status = null;
             }
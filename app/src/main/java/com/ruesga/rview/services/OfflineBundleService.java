@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.services;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.ruesga.rview.BuildConfig;
+import com.ruesga.rview.gerrit.BlockingCalls;
+import com.ruesga.rview.gerrit.GerritApi;
+import com.ruesga.rview.gerrit.model.ChangeInfo;
+import com.ruesga.rview.gerrit.model.ChangeOptions;
+import com.ruesga.rview.gerrit.model.CommentInfo;
+import com.ruesga.rview.gerrit.model.FileInfo;
+import com.ruesga.rview.gerrit.model.FileStatus;
+import com.ruesga.rview.gerrit.model.RevisionInfo;
+import com.ruesga.rview.misc.CacheHelper;
+import com.ruesga.rview.misc.DiffCacheHelper;
+import com.ruesga.rview.misc.DiskLruFileCache;
+import com.ruesga.rview.misc.ModelHelper;
+import com.ruesga.rview.misc.OfflineBundleStore;
+import com.ruesga.rview.misc.SerializationManager;
+import com.ruesga.rview.model.Account;
+import com.ruesga.rview.preferences.Constants;
+import com.ruesga.rview.preferences.Preferences;
+import com.ruesga.rview.widget.DiffView;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Downloads everything needed to review a change without network (change, files, diffs,
+ * comments, drafts, blames and file contents) into an offline bundle of the change, which
+ * backs the account diff cache while the change is open.
+ */
+public class OfflineBundleService extends IntentService {
+
+    private static final String TAG = "OfflineBundleService";
+
+    public static final String OFFLINE_BUNDLE_ACTION =
+            BuildConfig.APPLICATION_ID + ".actions.OFFLINE_BUNDLE";
+    public static final String EXTRA_ACCOUNT = "account";
+    public static final String EXTRA_LEGACY_CHANGE_ID = "legacy_change_id";
+    public static final String EXTRA_REVISION_ID = "revision_id";
+    public static final String EXTRA_BASE = "base";
+    public static final String EXTRA_STATUS = "status";
+    public static final String EXTRA_PROGRESS = "progress";
+    public static final String EXTRA_TOTAL = "total";
+    public static final String EXTRA_BYTES = "bytes";
+    public static final String EXTRA_FAILED = "failed";
+
+    public static final int STATUS_RUNNING = 0;
+    public static final int STATUS_COMPLETED = 1;
+    public static final int STATUS_FAILED = 2;
+
+    private static final int MAX_CONCURRENT_DOWNLOADS = 4;
+
+    // The change details are served from the bundle too, so use the same options
+    private static final List<ChangeOptions> OPTIONS = new ArrayList<ChangeOptions>() {{
+        add(ChangeOptions.DETAILED_ACCOUNTS);
+        add(ChangeOptions.DETAILED_LABELS);
+        add(ChangeOptions.ALL_REVISIONS);
+        add(ChangeOptions.ALL_FILES);
+        add(ChangeOptions.ALL_COMMITS);
+        add(ChangeOptions.MESSAGES);
+        add(ChangeOptions.REVIEWED);
+        add(ChangeOptions.CHANGE_ACTIONS);
+        add(ChangeOptions.CHECK);
+        add(ChangeOptions.WEB_LINKS);
+        add(ChangeOptions.DOWNLOAD_COMMANDS);
+        add(ChangeOptions.REVIEWER_UPDATES);
+    }};
+
+    public OfflineBundleService() {
+        super(TAG);
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        if (intent == null || !OFFLINE_BUNDLE_ACTION.equals(intent.getAction())) {
+            return;
+        }
+
+        final Context ctx = getApplicationContext();
+        final int legacyChangeId = intent.getIntExtra(EXTRA_LEGACY_CHANGE_ID, -1);
+        final String revisionId = intent.getStringExtra(EXTRA_REVISION_ID);
+        final String base = intent.getStringExtra(EXTRA_BASE);
+
+        // The diff cache belongs to the current account, so don't mix other accounts data
+        Account account = Preferences.getAccount(ctx);
+        if (account == null
+                || !account.getAccountHash().equals(intent.getStringExtra(EXTRA_ACCOUNT))) {
+            Log.w(TAG, "Account changed. Skipping offline bundle of change " + legacyChangeId);
+            notifyStatus(ctx, legacyChangeId, STATUS_FAILED, 0, 0, 0, 0);
+            return;
+        }
+
+        DiskLruFileCache bundle = null;
+        try {
+            bundle = CacheHelper.getAccountOfflineBundles(ctx, account).create(legacyChangeId);
+            performDownload(ctx, account, bundle, legacyChangeId, revisionId, base);
+        } catch (Exception ex) {
+            Log.e(TAG, "Failed to download offline bundle of change " + legacyChangeId, ex);
+            if (bundle != null) {
+                OfflineBundleStore.discard(bundle);
+            }
+            notifyStatus(ctx, legacyChangeId, STATUS_FAILED, 0, 0, 0, 0);
+        }
+    }
+
+    private void performDownload(Context ctx, Account account, DiskLruFileCache bundle,
+            int legacyChangeId, String revisionId, String base) throws IOException {
+        final GerritApi api = ModelHelper.getGerritApi(ctx, account);
+        final String changeId = String.valueOf(legacyChangeId);
+        final boolean isAuthenticated = account.hasAuthenticatedAccessMode();
+
+        final ChangeInfo change = BlockingCalls.first(api.getChange(changeId, OPTIONS));
+        final RevisionInfo revisionInfo = change.revisions.get(revisionId);
+        if (revisionInfo == null) {
+            throw new IllegalArgumentException("Revision " + revisionId + " not found");
+        }
+        final String revision = String.valueOf(revisionInfo.number);
+        final String baseRevision = base == null ? "0" : base;
+        long bytes = writeCacheFile(bundle, CacheHelper.CACHE_CHANGE_JSON, change);
+
+        // Files (the same revision as base has the same files of the revision)
+        final Map<String, FileInfo> filesInfo;
+        if (base != null && Integer.parseInt(base) == revisionInfo.number) {
+            filesInfo = new HashMap<>(revisionInfo.files);
+            filesInfo.put(Constants.COMMIT_MESSAGE, null);
+        } else {
+            filesInfo = BlockingCalls.first(
+                    api.getChangeRevisionFiles(changeId, revisionId, base, null));
+        }
+        final List<String> files = new ArrayList<>(filesInfo.keySet());
+        Collections.sort(files, (o1, o2) -> {
+            if (o1.equals(o2)) {
+                return 0;
+            }
+            if (o1.equals(Constants.COMMIT_MESSAGE)) {
+                return -1;
+            }
+            if (o2.equals(Constants.COMMIT_MESSAGE)) {
+                return 1;
+            }
+            return o1.compareTo(o2);
+        });
+        final String prefix = baseRevision + "_" + revision + "_";
+        bytes += writeCacheFile(bundle, prefix + CacheHelper.CACHE_FILES_JSON, files);
+        bytes += writeCacheFile(bundle, prefix + CacheHelper.CACHE_FILES_INFO_JSON, filesInfo);
+
+        // Comments and drafts of both sides
+        final Map<String, List<CommentInfo>> empty = new HashMap<>();
+        bytes += writeCacheFile(bundle, baseRevision + "_" + CacheHelper.CACHE_COMMENTS_JSON,
+                base != null ? DiffCacheHelper.fetchAllRevisionComments(
+                        api, account, changeId, baseRevision) : empty);
+        bytes += writeCacheFile(bundle, revision + "_" + CacheHelper.CACHE_COMMENTS_JSON,
+                DiffCacheHelper.fetchAllRevisionComments(api, account, changeId, revisionId));
+        bytes += writeCacheFile(bundle, baseRevision + "_" + CacheHelper.CACHE_DRAFT_JSON,
+                base != null && isAuthenticated
+                        ? BlockingCalls.first(api.getChangeRevisionDrafts(changeId, baseRevision))
+                        : empty);
+        bytes += writeCacheFile(bundle, revision + "_" + CacheHelper.CACHE_DRAFT_JSON,
+                isAuthenticated
+                        ? BlockingCalls.first(api.getChangeRevisionDrafts(changeId, revisionId))
+                        : empty);
+
+        // Every file, a few at a time
+        final int mode = Preferences.getAccountDiffMode(ctx, account).equals(
+                Constants.DIFF_MODE_SIDE_BY_SIDE)
+                        ? DiffView.SIDE_BY_SIDE_MODE : DiffView.UNIFIED_MODE;
+        final boolean highlightIntralineDiffs =
+                Preferences.isAccountHighlightIntralineDiffs(ctx, account);
+        final int total = files.size();
+        int progress = 0;
+        int failed = 0;
+        notifyStatus(ctx, legacyChangeId, STATUS_RUNNING, progress, total, bytes, failed);
+        Iterable<Long> downloads = Observable.fromIterable(files)
+                .flatMap(file -> Observable.fromCallable(() -> downloadFile(
+                                ctx, api, account, bundle, change, revisionId, base, file,
+                                mode, highlightIntralineDiffs))
+                        .subscribeOn(Schedulers.io()), MAX_CONCURRENT_DOWNLOADS)
+                .blockingIterable();
+        for (long fileBytes : downloads) {
+            progress++;
+            if (fileBytes < 0) {
+                failed++;
+            } else {
+                bytes += fileBytes;
+            }
+            notifyStatus(ctx, legacyChangeId, STATUS_RUNNING, progress, total, bytes, failed);
+        }
+
+        // The bundle is used while the change isn't updated. Files that failed are fetched
+        // when they are viewed, like with no bundle at all
+        DiffCacheHelper.commitOfflineBundle(ctx, account, bundle, change);
+        notifyStatus(ctx, legacyChangeId, STATUS_COMPLETED, progress, total, bytes, failed);
+    }
+
+    // Returns -1 if the file couldn't be downloaded, so the rest of the bundle is kept
+    private static long downloadFile(Context ctx, GerritApi api, Account account,
+            DiskLruFileCache bundle, ChangeInfo change, String revisionId, String base,
+            String file, int mode, boolean highlightIntralineDiffs) {
+        try {
+            return downloadFileData(ctx, api, account, bundle, change, revisionId, base, file,
+                    mode, highlightIntralineDiffs);
+        } catch (Exception ex) {
+            Log.w(TAG, "Failed to download " + file + " of change " + change.legacyChangeId, ex);
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    private static long downloadFileData(Context ctx, GerritApi api, Account account,
+            DiskLruFileCache bundle, ChangeInfo change, String revisionId, String base,
+            String file, int mode, boolean highlightIntralineDiffs) throws IOException {
+        final String changeId = String.valueOf(change.legacyChangeId);
+        final String baseRevision = base == null ? "0" : base;
+        final String revision = String.valueOf(change.revisions.get(revisionId).number);
+        final String fileHash = DiffCacheHelper.getFileHash(file);
+
+        long bytes = DiffCacheHelper.cacheFileDiff(ctx, bundle, api, change, revisionId, base,
+                file, mode, highlightIntralineDiffs);
+        bytes += writeCacheFile(bundle, DiffCacheHelper.getBlameCacheName(baseRevision, fileHash),
+                DiffCacheHelper.fetchBlames(api, account, change, revisionId, base, file, true));
+        bytes += writeCacheFile(bundle, DiffCacheHelper.getBlameCacheName(revision, fileHash),
+                DiffCacheHelper.fetchBlames(api, account, change, revisionId, base, file, false));
+
+        // Binary contents can't be rebuilt from the diff. The base of the first patchset
+        // lives in the parent change, which is only resolved when the file is viewed
+        final FileInfo info = change.revisions.get(revisionId).files.get(file);
+        if (info != null && info.binary) {
+            if (!FileStatus.D.equals(info.status)) {
+                bytes += downloadContent(bundle, api, changeId, revisionId, file,
+                        DiffCacheHelper.getContentCacheName(revision, fileHash));
+            }
+            if (base != null && !FileStatus.A.equals(info.status)) {
+                bytes += downloadContent(bundle, api, changeId, baseRevision, file,
+                        DiffCacheHelper.getContentCacheName(baseRevision, fileHash));
+            }
+        }
+        return bytes;
+    }
+
+    private static long downloadContent(DiskLruFileCache bundle, GerritApi api,
+            String changeId, String revisionId, String file, String name) throws IOException {
+        if (bundle.contains(name)) {
+            return 0;
+        }
+        File content = DiffCacheHelper.downloadFileContent(
+                bundle, api, changeId, revisionId, file, name);
+        return content.length();
+    }
+
+    private static long writeCacheFile(DiskLruFileCache bundle, String name, Object o)
+            throws IOException {
+        byte[] data = SerializationManager.getInstance().toJson(o).getBytes();
+        bundle.write(name, data);
+        return data.length;
+    }
+
+    private static void notifyStatus(Context ctx, int legacyChangeId,
+            int status, int progress, int total, long bytes, int failed) {
+        Intent i = new Intent(OFFLINE_BUNDLE_ACTION);
+        i.putExtra(EXTRA_LEGACY_CHANGE_ID, legacyChangeId);
+        i.putExtra(EXTRA_STATUS, status);
+        i.putExtra(EXTRA_PROGRESS, progress);
+        i.putExtra(EXTRA_TOTAL, total);
+        i.putExtra(EXTRA_BYTES, bytes);
+        i.putExtra(EXTRA_FAILED, failed);
+        LocalBroadcastManager.getInstance(ctx).sendBroadcast(i);
+    }
+}
@@ -16,14 +16,8 @@
 package com.ruesga.rview.tasks;
 
 import android.content.Context;
-import android.graphics.Typeface;
 import android.os.AsyncTask;
-import android.text.Spannable;
-import android.text.SpannableStringBuilder;
-import android.text.Spanned;
-import android.text.style.BackgroundColorSpan;
-import android.text.style.ForegroundColorSpan;
-import android.text.style.StyleSpan;
+import android.util.Log;
 
 import com.ruesga.rview.R;
 import com.ruesga.rview.gerrit.model.BlameInfo;
@@ -31,20 +25,20 @@ import com.ruesga.rview.gerrit.model.CommentInfo;
 import com.ruesga.rview.gerrit.model.DiffContentInfo;
 import com.ruesga.rview.gerrit.model.DiffInfo;
 import com.ruesga.rview.gerrit.model.RangeInfo;
-import com.ruesga.rview.misc.AndroidHelper;
-import com.ruesga.rview.misc.Formatter;
-import com.ruesga.rview.misc.StringHelper;
+import com.ruesga.rview.misc.CacheHelper;
+import com.ruesga.rview.misc.DiskLruFileCache;
 import com.ruesga.rview.widget.DiffView;
 import com.ruesga.rview.widget.DiffView.DiffInfoModel;
 import com.ruesga.rview.widget.DiffView.SkipLineModel;
 
+import java.io.IOException;
 import java.lang.ref.WeakReference;
-import java.text.DateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import androidx.core.content.ContextCompat;
 import androidx.core.util.Pair;
@@ -57,27 +51,26 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
 
     public static final int SKIPPED_LINES = 10;
 
-    private final Pattern HIGHLIGHT_TRAIL_SPACES_PATTERN
-            = Pattern.compile("( )+$", Pattern.MULTILINE);
+    private static final String TAG = "AsyncTextDiffProcessor";
 
     private final WeakReference<Context> mContext;
     private final int mMode;
     private final boolean mIsBinary;
-    private final DiffContentInfo[] mDiffs;
+    private DiffContentInfo[] mDiffs;
     private final Pair<List<CommentInfo>, List<CommentInfo>> mComments;
     private final Pair<List<CommentInfo>, List<CommentInfo>> mDrafts;
     private final Pair<List<BlameInfo>, List<BlameInfo>> mBlames;
-    private final boolean mHighlightTabs;
-    private final boolean mHighlightTrailingWhitespaces;
     private final boolean mHighlightIntralineDiffs;
+    private final String mModelCacheName;
+    private final Callable<DiffInfo> mDiffLoader;
     private final OnTextDiffProcessEndedListener mCallback;
 
     public AsyncTextDiffProcessor(Context context, int mode, DiffInfo diff,
             Pair<List<CommentInfo>, List<CommentInfo>> comments,
             Pair<List<CommentInfo>, List<CommentInfo>> drafts,
             Pair<List<BlameInfo>, List<BlameInfo>> blames,
-            boolean highlightTabs, boolean highlightTrailingWhitespaces,
-            boolean highlightIntralineDiffs, OnTextDiffProcessEndedListener cb) {
+            boolean highlightIntralineDiffs, String modelCacheName,
+            Callable<DiffInfo> diffLoader, OnTextDiffProcessEndedListener cb) {
         mContext = new WeakReference<>(context.getApplicationContext());
         mMode = mode;
         mIsBinary = diff.binary;
@@ -85,15 +78,34 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
         mComments = comments;
         mDrafts = drafts;
         mBlames = blames;
-        mHighlightTabs = highlightTabs;
-        mHighlightTrailingWhitespaces = highlightTrailingWhitespaces;
         mHighlightIntralineDiffs = highlightIntralineDiffs;
+        mModelCacheName = modelCacheName;
+        mDiffLoader = diffLoader;
         mCallback = cb;
     }
 
     @Override
     protected List<DiffView.AbstractModel> doInBackground(Void... params) {
-        return processDrafts(processComments(processDiffs()));
+        List<DiffView.AbstractModel> model = readCachedModel();
+        if (model == null) {
+            loadDiffIfNeeded();
+            model = processDiffs();
+            writeCachedModel(null, model);
+        }
+        DiffModelIndex index = new DiffModelIndex(mMode, model);
+        if (!model.isEmpty()) {
+            // Process blames
+            processBlames(index);
+
+            // Process hidden lines (show lines with non-visible comments)
+            model = processHiddenLines(model);
+
+            // Add a decorator line
+            model.add(new DiffView.DecoratorModel());
+        }
+        processComments(index);
+        processDrafts(index);
+        return index.merge(model);
     }
 
     @Override
@@ -101,24 +113,83 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
         mCallback.onTextDiffProcessEnded(model);
     }
 
-    private List<DiffView.AbstractModel> processDiffs() {
-        List<DiffView.AbstractModel> model;
-        if (mMode == DiffView.SIDE_BY_SIDE_MODE) {
-            model = processSideBySideDiffs();
-        } else {
-            model = processUnifiedDiffs();
+    /**
+     * Processes the diff lines into the passed cache without building the view model. Must
+     * be called from a background thread.
+     *
+     * @return the number of bytes written to the cache
+     */
+    public static long precache(Context context, int mode, DiffInfo diff,
+            boolean highlightIntralineDiffs, DiskLruFileCache cache, String modelCacheName) {
+        if (diff.binary || cache.contains(modelCacheName)) {
+            return 0;
+        }
+
+        AsyncTextDiffProcessor processor = new AsyncTextDiffProcessor(context, mode, diff,
+                null, null, null, highlightIntralineDiffs, modelCacheName, null, null);
+        return processor.writeCachedModel(cache, processor.processDiffs());
+    }
+
+    private List<DiffView.AbstractModel> readCachedModel() {
+        final Context context = mContext.get();
+        if (context == null || mModelCacheName == null
+                || !CacheHelper.hasAccountDiffCache(context, mModelCacheName)) {
+            return null;
         }
-        if (!model.isEmpty()) {
-            // Process blames
-            processBlames(model);
 
-            // Process hidden lines (show lines with non-visible comments)
-            processHiddenLines(model);
+        try {
+            return DiffModelCodec.decode(
+                    CacheHelper.readAccountDiffCacheFile(context, mModelCacheName));
+        } catch (IOException ex) {
+            Log.w(TAG, "Failed to read cached diff model " + mModelCacheName, ex);
+            CacheHelper.removeAccountDiffCacheFile(context, mModelCacheName);
+        }
+        return null;
+    }
 
-            // Add a decorator line
-            model.add(new DiffView.DecoratorModel());
+    // The diff isn't fetched when its processed lines are cached, so load it if they
+    // couldn't be read back
+    private void loadDiffIfNeeded() {
+        if (mDiffs != null || mIsBinary || mDiffLoader == null) {
+            return;
         }
-        return model;
+
+        try {
+            DiffInfo diff = mDiffLoader.call();
+            if (diff != null) {
+                mDiffs = diff.content;
+            }
+        } catch (Exception ex) {
+            Log.e(TAG, "Failed to load diff " + mModelCacheName, ex);
+        }
+    }
+
+    // A null cache means the diff cache of the current account
+    private long writeCachedModel(DiskLruFileCache cache, List<DiffView.AbstractModel> model) {
+        final Context context = mContext.get();
+        if (context == null || mModelCacheName == null || mDiffs == null || model.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            byte[] data = DiffModelCodec.encode(model);
+            if (cache != null) {
+                cache.write(mModelCacheName, data);
+            } else {
+                CacheHelper.writeAccountDiffCacheFile(context, mModelCacheName, data);
+            }
+            return data.length;
+        } catch (IOException ex) {
+            Log.w(TAG, "Failed to write cached diff model " + mModelCacheName, ex);
+        }
+        return 0;
+    }
+
+    private List<DiffView.AbstractModel> processDiffs() {
+        if (mMode == DiffView.SIDE_BY_SIDE_MODE) {
+            return processSideBySideDiffs();
+        }
+        return processUnifiedDiffs();
     }
 
     private List<DiffView.AbstractModel> processSideBySideDiffs() {
@@ -137,7 +208,6 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
         int lineNumberA = 0;
         int lineNumberB = 0;
 
-        final Spannable.Factory spannableFactory = Spannable.Factory.getInstance();
         final int noColor = ContextCompat.getColor(context, android.R.color.transparent);
         final int addedBgColor = ContextCompat.getColor(
                 context, R.color.diffAddedBackgroundColor);
@@ -168,6 +238,10 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
             } else {
                 int posA = 0;
                 int posB = 0;
+                IntralineEditsCursor editsA = diff.editA != null && mHighlightIntralineDiffs
+                        ? new IntralineEditsCursor(diff.editA) : null;
+                IntralineEditsCursor editsB = diff.editB != null && mHighlightIntralineDiffs
+                        ? new IntralineEditsCursor(diff.editB) : null;
                 int count = Math.max(
                         diff.a == null ? 0 : diff.a.length,
                         diff.b == null ? 0 : diff.b.length);
@@ -183,27 +257,16 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
                         String line = diff.a[i];
                         m.a = ++lineNumberA;
                         m.lineNumberA = String.valueOf(m.a);
+                        m.lineA = line;
                         if (diff.editA != null) {
-                            Spannable span = spannableFactory.newSpannable(prepareTabs(line));
                             if (mHighlightIntralineDiffs) {
-                                int s2 = 0;
-                                for (ArrayList<Integer> intra : diff.editA) {
-                                    int s1 = s2 + intra.get(0);
-                                    s2 = s1 + intra.get(1);
-                                    int l = posA + line.length();
-                                    if ((s1 >= posA && s1 <= l) || (s2 >= posA && s2 <= l)
-                                            || (s1 <= posA && s2 >= l)) {
-                                        span.setSpan(new BackgroundColorSpan(fg),
-                                                Math.max(posA, s1) - posA, Math.min(l, s2) - posA,
-                                                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                                    }
-                                }
+                                m.editsA = editsA.editsInLine(posA, line.length());
                             }
-                            m.lineA = span;
                         } else {
                             // No intraline data, but it still could differ at start or at end
-                            processNoIntralineDataA(diff, m, line, fg);
+                            m.editsA = processNoIntralineData(diff.a, diff.b);
                         }
+                        m.editColorA = fg;
                         m.colorA = bg;
                         posA += line.length() + 1;
                     }
@@ -215,31 +278,19 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
                         String line = diff.b[i];
                         m.b = ++lineNumberB;
                         m.lineNumberB = String.valueOf(m.b);
+                        m.lineB = line;
                         if (diff.editB != null) {
-                            Spannable span = spannableFactory.newSpannable(prepareTabs(line));
                             if (mHighlightIntralineDiffs) {
-                                int s2 = 0;
-                                for (ArrayList<Integer> intra : diff.editB) {
-                                    int s1 = s2 + intra.get(0);
-                                    s2 = s1 + intra.get(1);
-                                    int l = posB + line.length();
-                                    if ((s1 >= posB && s1 <= l) || (s2 >= posB && s2 <= l)
-                                            || (s1 <= posB && s2 >= l)) {
-                                        span.setSpan(new BackgroundColorSpan(fg),
-                                                Math.max(posB, s1) - posB, Math.min(l, s2) - posB,
-                                                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                                    }
-                                }
+                                m.editsB = editsB.editsInLine(posB, line.length());
                             }
-                            m.lineB = span;
                         } else {
                             // No intraline data, but it still could differ at start or at end
-                            processNoIntralineDataB(diff, m, line, fg);
+                            m.editsB = processNoIntralineData(diff.b, diff.a);
                         }
+                        m.editColorB = fg;
                         m.colorB = bg;
                         posB += line.length() + 1;
                     }
-                    processHighlights(m);
                     model.add(m);
                 }
             }
@@ -264,7 +315,6 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
         int lineNumberA = 0;
         int lineNumberB = 0;
 
-        final Spannable.Factory spannableFactory = Spannable.Factory.getInstance();
         final int noColor = ContextCompat.getColor(context, android.R.color.transparent);
         final int addedBgColor = ContextCompat.getColor(
                 context, R.color.diffAddedBackgroundColor);
@@ -298,34 +348,24 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
                     int fg = diff.dueToRebase ? deletedDueRebaseFgColor : deletedFgColor;
 
                     int pos = 0;
+                    IntralineEditsCursor edits = diff.editA != null && mHighlightIntralineDiffs
+                            ? new IntralineEditsCursor(diff.editA) : null;
                     for (String line : diff.a) {
                         DiffInfoModel m = new DiffInfoModel();
                         m.a = ++lineNumberA;
                         m.lineNumberA = String.valueOf(m.a);
+                        m.lineA = line;
                         if (diff.editA != null) {
-                            Spannable span = spannableFactory.newSpannable(prepareTabs(line));
                             if (mHighlightIntralineDiffs) {
-                                int s2 = 0;
-                                for (ArrayList<Integer> intra : diff.editA) {
-                                    int s1 = s2 + intra.get(0);
-                                    s2 = s1 + intra.get(1);
-                                    int l = pos + line.length();
-                                    if ((s1 >= pos && s1 <= l) || (s2 >= pos && s2 <= l)
-                                            || (s1 <= pos && s2 >= l)) {
-                                        span.setSpan(new BackgroundColorSpan(fg),
-                                                Math.max(pos, s1) - pos, Math.min(l, s2) - pos,
-                                                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                                    }
-                                }
+                                m.editsA = edits.editsInLine(pos, line.length());
                             }
-                            m.lineA = span;
                         } else {
                             // No intraline data, but it still could differ at start or at end
-                            processNoIntralineDataA(diff, m, line, fg);
+                            m.editsA = processNoIntralineData(diff.a, diff.b);
                         }
+                        m.editColorA = fg;
                         m.colorA = bg;
                         m.colorB = noColor;
-                        processHighlights(m);
                         model.add(m);
                         pos += line.length() + 1;
                     }
@@ -335,34 +375,24 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
                     int fg = diff.dueToRebase ? addedDueRebaseFgColor : addedFgColor;
 
                     int pos = 0;
+                    IntralineEditsCursor edits = diff.editB != null && mHighlightIntralineDiffs
+                            ? new IntralineEditsCursor(diff.editB) : null;
                     for (String line : diff.b) {
                         DiffInfoModel m = new DiffInfoModel();
                         m.b = ++lineNumberB;
                         m.lineNumberB = String.valueOf(m.b);
+                        m.lineB = line;
                         if (diff.editB != null) {
-                            Spannable span = spannableFactory.newSpannable(prepareTabs(line));
                             if (mHighlightIntralineDiffs) {
-                                int s2 = 0;
-                                for (ArrayList<Integer> intra : diff.editB) {
-                                    int s1 = s2 + intra.get(0);
-                                    s2 = s1 + intra.get(1);
-                                    int l = pos + line.length();
-                                    if ((s1 >= pos && s1 <= l) || (s2 >= pos && s2 <= l)
-                                            || (s1 <= pos && s2 >= l)) {
-                                        span.setSpan(new BackgroundColorSpan(fg),
-                                                Math.max(pos, s1) - pos, Math.min(l, s2) - pos,
-                                                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                                    }
-                                }
+                                m.editsB = edits.editsInLine(pos, line.length());
                             }
-                            m.lineB = span;
                         } else {
                             // No intraline data, but it still could differ at start or at end
-                            processNoIntralineDataB(diff, m, line, fg);
+                            m.editsB = processNoIntralineData(diff.b, diff.a);
                         }
+                        m.editColorB = fg;
                         m.colorA = bg;
                         m.colorB = noColor;
-                        processHighlights(m);
                         model.add(m);
                         pos += line.length() + 1;
                     }
@@ -435,9 +465,9 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
                         m.lineNumberA = String.valueOf(m.a);
                         m.lineNumberB = String.valueOf(m.b);
                         if (mMode == DiffView.SIDE_BY_SIDE_MODE) {
-                            m.lineA = m.lineB = processHighlights(prepareTabs(diff.ab[k]));
+                            m.lineA = m.lineB = diff.ab[k];
                         } else {
-                            m.lineA = processHighlights(prepareTabs(diff.ab[k]));
+                            m.lineA = diff.ab[k];
                         }
                         m.colorA = m.colorB = noColor;
                         skip.skippedLines[l] = m;
@@ -455,436 +485,153 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
             m.b = ++lineNumberB;
             m.lineNumberA = String.valueOf(m.a);
             m.lineNumberB = String.valueOf(m.b);
-            m.lineA = m.lineB = prepareTabs(line);
+            m.lineA = m.lineB = line;
             m.colorA = m.colorB = noColor;
-            processHighlights(m);
             model.add(m);
         }
 
         return new int[]{lineNumberA, lineNumberB};
     }
 
-    private void processNoIntralineDataA(
-            DiffContentInfo diff, DiffInfoModel m, String line, int color) {
-        final Spannable.Factory spannableFactory = Spannable.Factory.getInstance();
-        if (diff.a != null && diff.b != null
-                && diff.a.length == 1 && diff.b.length == 1) {
-            Spannable span = spannableFactory.newSpannable(prepareTabs(line));
-            int z = diff.a[0].indexOf(diff.b[0]);
-            if (z != -1) {
-                if (z > 0) {
-                    span.setSpan(new BackgroundColorSpan(color),
-                            0, z, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
-                if (z + diff.b[0].length() < diff.a[0].length()) {
-                    z = z + diff.b[0].length();
-                    span.setSpan(new BackgroundColorSpan(color),
-                            z, diff.a[0].length(),
-                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
-            }
-            m.lineA = span;
-        } else {
-            m.lineA = prepareTabs(line);
-        }
-    }
-
-    private void processNoIntralineDataB(
-            DiffContentInfo diff, DiffInfoModel m, String line, int color) {
-        final Spannable.Factory spannableFactory = Spannable.Factory.getInstance();
-        if (diff.a != null && diff.b != null
-                && diff.a.length == 1 && diff.b.length == 1) {
-            Spannable span = spannableFactory.newSpannable(prepareTabs(line));
-            int z = diff.b[0].indexOf(diff.a[0]);
-            if (z != -1) {
-                if (z > 0) {
-                    span.setSpan(new BackgroundColorSpan(color),
-                            0, z, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
-                if (z + diff.a[0].length() < diff.b[0].length()) {
-                    z = z + diff.a[0].length();
-                    span.setSpan(new BackgroundColorSpan(color),
-                            z, diff.b[0].length(),
-                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
-            }
-            m.lineB = span;
-        } else {
-            m.lineB = prepareTabs(line);
+    private int[] processNoIntralineData(String[] lines, String[] others) {
+        if (lines == null || others == null || lines.length != 1 || others.length != 1) {
+            return null;
         }
-    }
 
-    private void processHighlights(DiffInfoModel model) {
-        if (model.lineA != null) {
-            model.lineA = processHighlightTrailingSpaces(processHighlightTabs(model.lineA));
+        String line = lines[0];
+        String other = others[0];
+        int z = line.indexOf(other);
+        if (z == -1) {
+            return null;
         }
-        if (model.lineB != null) {
-            model.lineB = processHighlightTrailingSpaces(processHighlightTabs(model.lineB));
+        int[] edits = new int[4];
+        int count = 0;
+        if (z > 0) {
+            edits[count++] = 0;
+            edits[count++] = z;
         }
-    }
-
-    private CharSequence processHighlights(CharSequence line) {
-        return processHighlightTrailingSpaces(processHighlightTabs(line));
-    }
-
-    private CharSequence processHighlightTabs(CharSequence text) {
-        final Context context = mContext.get();
-        if (context == null) {
-            return text;
+        if (z + other.length() < line.length()) {
+            edits[count++] = z + other.length();
+            edits[count++] = line.length();
         }
-
-        if (!mHighlightTabs || !text.toString().contains(StringHelper.NON_PRINTABLE_CHAR)) {
-            return text;
+        if (count == 0) {
+            return null;
         }
-
-        int color = ContextCompat.getColor(context, R.color.diffHighlightColor);
-        SpannableStringBuilder ssb = new SpannableStringBuilder(text);
-        String line = text.toString();
-        int index = line.length();
-        while ((index = line.lastIndexOf(StringHelper.NON_PRINTABLE_CHAR, index)) != -1) {
-            ssb.replace(index, index + 1, "\u00BB    ");
-            ssb.setSpan(new ForegroundColorSpan(color),
-                    index, index + 1, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-            ssb.setSpan(new StyleSpan(Typeface.BOLD),
-                    index, index + 1, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-            index--;
+        if (count < edits.length) {
+            int[] copy = new int[count];
+            System.arraycopy(edits, 0, copy, 0, count);
+            edits = copy;
         }
-        return ssb;
+        return edits;
     }
 
-    private CharSequence processHighlightTrailingSpaces(CharSequence text) {
-        final Context context = mContext.get();
-        if (context == null) {
-            return text;
-        }
-
-        if (!mHighlightTrailingWhitespaces) {
-            return text;
-        }
-
-        int color = ContextCompat.getColor(context, R.color.diffHighlightColor);
-        final Spannable.Factory spannableFactory = Spannable.Factory.getInstance();
-        String line = text.toString();
-        final Matcher matcher = HIGHLIGHT_TRAIL_SPACES_PATTERN.matcher(line);
-        if (matcher.find()) {
-            int start = matcher.start();
-            int end = matcher.end();
-            Spannable span = spannableFactory.newSpannable(text);
-            span.setSpan(new BackgroundColorSpan(color),
-                    start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-            return span;
-        }
-        return text;
-    }
-
-    private String prepareTabs(String line) {
-        return line.replaceAll("\t", StringHelper.NON_PRINTABLE_CHAR);
-    }
-
-    private List<DiffView.AbstractModel> processComments(List<DiffView.AbstractModel> model) {
+    private void processComments(DiffModelIndex index) {
         if (mComments != null) {
             // Comments on A
-            if (mComments.first != null) {
-                addCommentsToModel(model, mComments.first, true, false);
-            }
+            index.addComments(mComments.first, true, false);
 
             // Comments on B
-            if (mComments.second != null) {
-                addCommentsToModel(model, mComments.second, false, false);
-            }
+            index.addComments(mComments.second, false, false);
         }
-        return model;
     }
 
-    private List<DiffView.AbstractModel> processDrafts(List<DiffView.AbstractModel> model) {
+    private void processDrafts(DiffModelIndex index) {
         if (mDrafts != null) {
             // Comments on A
-            if (mDrafts.first != null) {
-                addCommentsToModel(model, mDrafts.first, true, true);
-            }
+            index.addComments(mDrafts.first, true, true);
 
             // Comments on B
-            if (mDrafts.second != null) {
-                addCommentsToModel(model, mDrafts.second, false, true);
-            }
+            index.addComments(mDrafts.second, false, true);
         }
-        return model;
     }
 
-    private void addCommentsToModel(List<DiffView.AbstractModel> model,
-            List<CommentInfo> comments, boolean isA, boolean isDraft) {
-        if (comments == null) {
-            return;
+    private List<DiffView.AbstractModel> processHiddenLines(
+            List<DiffView.AbstractModel> model) {
+        final Context context = mContext.get();
+        if (context == null) {
+            return model;
         }
-        int count = comments.size();
-        for (int i = 0; i < count; i++) {
-            CommentInfo comment = comments.get(i);
-            boolean isLeft = comment.patchSet == 0 || isA;
-
-            if (comment.line == null && comment.range == null) {
-                // File comment
-                if (mMode == DiffView.UNIFIED_MODE) {
-                    DiffView.CommentModel commentModel = new DiffView.CommentModel();
-                    commentModel.diff = null;
-                    commentModel.isDraft = isDraft;
-                    commentModel.commentA = comment;
-                    int pos = findNextPositionWithoutComment(model, -1);
-                    model.add(pos == -1 ? 0 : pos, commentModel);
-                } else {
-                    int reusablePos = findReusableCommentView(model, -1, isLeft);
-                    if (reusablePos != -1) {
-                        DiffView.CommentModel commentModel =
-                                (DiffView.CommentModel) model.get(reusablePos);
-                        commentModel.isDraft = isDraft;
-                        if (isLeft) {
-                            commentModel.commentA = comment;
-                        } else {
-                            commentModel.commentB = comment;
-                        }
-                    } else {
-                        DiffView.CommentModel commentModel = new DiffView.CommentModel();
-                        commentModel.isDraft = isDraft;
-                        if (isLeft) {
-                            commentModel.commentA = comment;
-                        } else {
-                            commentModel.commentB = comment;
-                        }
-                        int pos = findNextPositionWithoutComment(model, -1);
-                        model.add(pos == -1 ? 0 : pos, commentModel);
-                    }
-                }
-                continue;
-            }
 
+        final Set<Integer> commentedA = new HashSet<>();
+        final Set<Integer> commentedB = new HashSet<>();
+        if (mComments != null) {
+            collectCommentedLines(mComments.first, commentedA);
+            collectCommentedLines(mComments.second, commentedB);
+        }
+        if (mDrafts != null) {
+            collectCommentedLines(mDrafts.first, commentedA);
+            collectCommentedLines(mDrafts.second, commentedB);
+        }
+        if (commentedA.isEmpty() && commentedB.isEmpty()) {
+            return model;
+        }
 
-            // We don't support comment range yet, so skip this comment
-            if (comment.line == null) {
+        List<DiffView.AbstractModel> processed = new ArrayList<>(model.size());
+        for (DiffView.AbstractModel line : model) {
+            if (!(line instanceof SkipLineModel)) {
+                processed.add(line);
                 continue;
             }
 
-            int pos = findLineInModel(model, isLeft, comment.line);
-            if (pos != -1) {
-                if (mMode == DiffView.UNIFIED_MODE) {
-                    DiffInfoModel diff = (DiffInfoModel) model.get(findDiffForComment(model, pos));
-                    DiffView.CommentModel commentModel = new DiffView.CommentModel();
-                    commentModel.diff = diff;
-                    commentModel.isDraft = isDraft;
-                    commentModel.commentA = comment;
-                    int nextPos = findNextPositionWithoutComment(model, pos);
-                    if (nextPos != -1) {
-                        model.add(nextPos, commentModel);
-                    } else {
-                        model.add(pos + 1, commentModel);
-                    }
-                } else {
-                    int reusablePos = findReusableCommentView(model, pos, isLeft);
-                    if (reusablePos != -1) {
-                        DiffInfoModel diff = (DiffInfoModel) model.get(
-                                findDiffForComment(model, reusablePos));
-                        DiffView.CommentModel commentModel =
-                                (DiffView.CommentModel) model.get(reusablePos);
-                        commentModel.diff = diff;
-                        commentModel.isDraft = isDraft;
-                        if (isLeft) {
-                            commentModel.commentA = comment;
-                        } else {
-                            commentModel.commentB = comment;
-                        }
-                    } else {
-                        DiffInfoModel diff = (DiffInfoModel) model.get(
-                                findDiffForComment(model, pos));
-                        DiffView.CommentModel commentModel = new DiffView.CommentModel();
-                        commentModel.diff = diff;
-                        commentModel.isDraft = isDraft;
-                        if (isLeft) {
-                            commentModel.commentA = comment;
-                        } else {
-                            commentModel.commentB = comment;
-                        }
-                        int nextPos = findNextPositionWithoutComment(model, pos);
-                        if (nextPos != -1) {
-                            model.add(nextPos, commentModel);
-                        } else {
-                            model.add(pos + 1, commentModel);
-                        }
-                    }
+            // Show the lines around every commented line, and keep the rest skipped
+            DiffInfoModel[] skippedLines = ((SkipLineModel) line).skippedLines;
+            int count = skippedLines.length;
+            int from = 0;
+            for (int j = 0; j < count; j++) {
+                DiffInfoModel diff = skippedLines[j];
+                if (!commentedA.contains(diff.a) && !commentedB.contains(diff.b)) {
+                    continue;
                 }
-            }
-        }
-    }
 
-    private int findLineInModel(List<DiffView.AbstractModel> model, boolean isA, int line) {
-        int count = model.size();
-        for (int i = 0; i < count; i++) {
-            DiffView.AbstractModel m = model.get(i);
-            if (m instanceof DiffInfoModel) {
-                DiffInfoModel diff = (DiffInfoModel) m;
-                if (isA && diff.a == line) {
-                    return i;
-                } else if (!isA && diff.b == line) {
-                    return i;
+                int start = Math.max(from, j - SKIPPED_LINES + 1);
+                int end = Math.min(count - 1, j + SKIPPED_LINES);
+                if (start > from) {
+                    processed.add(newSkipLineModel(context, skippedLines, from, start));
                 }
+                processed.addAll(Arrays.asList(skippedLines).subList(start, end + 1));
+                from = end + 1;
+                j = end;
             }
-        }
-        return -1;
-    }
-
-    private int findDiffForComment(List<DiffView.AbstractModel> model, int pos) {
-        for (int i = pos; i >= 0; i--) {
-            if (model.get(i) instanceof DiffInfoModel) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    private int findReusableCommentView(List<DiffView.AbstractModel> model, int pos, boolean isA) {
-        int count = model.size();
-        for (int i = pos + 1; i < count; i++) {
-            DiffView.AbstractModel m = model.get(i);
-            if (!(m instanceof DiffView.CommentModel)) {
-                break;
-            }
-
-            DiffView.CommentModel comment = (DiffView.CommentModel) m;
-            if ((isA && comment.commentA == null && comment.commentB != null)
-                    || (!isA && comment.commentB == null && comment.commentA != null)) {
-                return i;
+            if (from == 0) {
+                processed.add(line);
+            } else if (from < count) {
+                processed.add(newSkipLineModel(context, skippedLines, from, count));
             }
         }
-        return -1;
+        return processed;
     }
 
-    private int findNextPositionWithoutComment(List<DiffView.AbstractModel> model, int pos) {
-        int count = model.size();
-        for (int i = pos + 1; i < count; i++) {
-            DiffView.AbstractModel m = model.get(i);
-            if (!(m instanceof DiffView.CommentModel)) {
-                return i;
-            }
-        }
-        return -1;
+    private SkipLineModel newSkipLineModel(
+            Context context, DiffInfoModel[] lines, int from, int to) {
+        SkipLineModel skip = new SkipLineModel();
+        skip.skippedLines = new DiffInfoModel[to - from];
+        System.arraycopy(lines, from, skip.skippedLines, 0, skip.skippedLines.length);
+        skip.msg = context.getResources().getQuantityString(
+                R.plurals.skipped_lines, skip.skippedLines.length, skip.skippedLines.length);
+        return skip;
     }
 
-    private void processHiddenLines(List<DiffView.AbstractModel> model) {
-        final Context context = mContext.get();
-        if (context == null) {
-            return;
-        }
-
-        int count = model.size();
-        for (int i = 0; i < count; i++) {
-            DiffView.AbstractModel line = model.get(i);
-            if (line instanceof SkipLineModel) {
-                SkipLineModel skip = (SkipLineModel) line;
-
-                int c = skip.skippedLines.length;
-                for (int j = 0; j < c; j++) {
-                    if (hasCommentOrDraftInSkippedLine(skip.skippedLines[j])) {
-                        // Add the needed skipped lines
-                        int n = 0;
-                        int from = Math.max(0, j - SKIPPED_LINES + 1);
-                        for (int m = from; m <= j; m++, n++) {
-                            model.add(i + n + 1, skip.skippedLines[m]);
-                        }
-                        int to = Math.min(skip.skippedLines.length - 1, j + SKIPPED_LINES);
-                        for (int m = j + 1; m <= to; m++, n++) {
-                            model.add(i + n + 1, skip.skippedLines[m]);
-                        }
-
-                        // Add the new skip marker
-                        int next = to + 1;
-                        if (next < skip.skippedLines.length) {
-                            int length = skip.skippedLines.length - next;
-                            DiffInfoModel[] copy = new DiffInfoModel[length];
-                            SkipLineModel newSkip = new SkipLineModel();
-                            System.arraycopy(skip.skippedLines, next, copy, 0, length);
-                            newSkip.skippedLines = copy;
-                            newSkip.msg = context.getResources().getQuantityString(
-                                    R.plurals.skipped_lines,
-                                    newSkip.skippedLines.length, newSkip.skippedLines.length);
-                            model.add(i + n + 1, newSkip);
-                        }
-
-                        // Remove or update the previous marker
-                        if (from == 0) {
-                            model.remove(i);
-                        } else {
-                            // Update the marker
-                            DiffInfoModel[] copy = new DiffInfoModel[from];
-                            System.arraycopy(skip.skippedLines, 0, copy, 0, from);
-                            skip.skippedLines = copy;
-                            skip.msg = context.getResources().getQuantityString(
-                                    R.plurals.skipped_lines,
-                                        skip.skippedLines.length, skip.skippedLines.length);
-                        }
-
-                        // Recompute model counters
-                        count = model.size();
-                        break;
-                    }
+    private void collectCommentedLines(List<CommentInfo> comments, Set<Integer> lines) {
+        if (comments != null) {
+            for (CommentInfo c : comments) {
+                if (c.line != null) {
+                    lines.add(c.line);
                 }
             }
         }
     }
 
-    @SuppressWarnings("RedundantIfStatement")
-    private boolean hasCommentOrDraftInSkippedLine(DiffInfoModel diff) {
-        if (mComments != null && mComments.first != null
-                && hasComment(diff.a, mComments.first)) {
-            return true;
-        }
-        if (mComments != null && mComments.second != null
-                && hasComment(diff.b, mComments.second)) {
-            return true;
-        }
-        if (mDrafts != null && mDrafts.first != null
-                && hasComment(diff.a, mDrafts.first)) {
-            return true;
-        }
-        if (mDrafts != null && mDrafts.second != null
-                && hasComment(diff.b, mDrafts.second)) {
-            return true;
-        }
-        return false;
-    }
-
-    private boolean hasComment(int diffLine, List<CommentInfo> comments) {
-        for (CommentInfo c : comments) {
-            if (c.line != null && c.line == diffLine) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private void processBlames(List<DiffView.AbstractModel> model) {
-        final Context context = mContext.get();
-        if (context == null) {
-            return;
-        }
-
+    private void processBlames(DiffModelIndex index) {
         if (mBlames == null) {
             return;
         }
 
-        final DateFormat df = DateFormat.getDateInstance(
-                DateFormat.SHORT, AndroidHelper.getCurrentLocale(context));
-
         if (mBlames.first != null) {
             for (BlameInfo blame : mBlames.first) {
-                int start = 0;
                 for (RangeInfo range : blame.ranges) {
-                    Pair<Integer, DiffInfoModel> p =
-                            findDiffModelByLine(model, range.start, start, true);
-                    if (p != null) {
-                        //noinspection ConstantConditions
-                        start = p.first;
-                        String commit = Formatter.toShortenCommit(blame.id);
-                        String date = df.format(new Date(blame.time * 1000L)); //Unix time
-                        //noinspection ConstantConditions
-                        p.second.blameA = context.getString(
-                                R.string.blame_format, commit, date, blame.author);
+                    DiffInfoModel diff = index.findLine(true, range.start);
+                    if (diff != null) {
+                        diff.blameInfoA = blame;
                     }
                 }
             }
@@ -892,44 +639,13 @@ public class AsyncTextDiffProcessor extends AsyncTask<Void, Void, List<DiffView.
 
         if (mBlames.second != null) {
             for (BlameInfo blame : mBlames.second) {
-                int start = 0;
                 for (RangeInfo range : blame.ranges) {
-                    Pair<Integer, DiffInfoModel> p =
-                            findDiffModelByLine(model, range.start, start, false);
-                    if (p != null) {
-                        //noinspection ConstantConditions
-                        start = p.first;
-                        String commit = Formatter.toShortenCommit(blame.id);
-                        String date = df.format(new Date(blame.time * 1000L)); //Unix time
-                        //noinspection ConstantConditions
-                        p.second.blameB = context.getString(
-                                R.string.blame_format, commit, date, blame.author);
+                    DiffInfoModel diff = index.findLine(false, range.start);
+                    if (diff != null) {
+                        diff.blameInfoB = blame;
                     }
                 }
             }
         }
     }
-
-    private Pair<Integer, DiffInfoModel> findDiffModelByLine(
-            List<DiffView.AbstractModel> model, int line, int start, boolean isLeft) {
-        int count = model.size();
-        for (int i = start; i < count; i++) {
-            DiffView.AbstractModel m = model.get(i);
-            if (m instanceof DiffInfoModel) {
-                if ((isLeft && ((DiffInfoModel) m).a == line)
-                        || (!isLeft && ((DiffInfoModel) m).b == line)) {
-                    return new Pair<>(i, (DiffInfoModel) m);
-                }
-            } else if (m instanceof SkipLineModel) {
-                if (((SkipLineModel) m).skippedLines != null) {
-                    for (DiffInfoModel m1 : ((SkipLineModel) m).skippedLines) {
-                        if ((isLeft && m1.a == line) || (!isLeft && m1.b == line)) {
-                            return new Pair<>(i, m1);
-                        }
-                    }
-                }
-            }
-        }
-        return null;
-    }
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.tasks;
+
+import com.ruesga.rview.widget.DiffView;
+import com.ruesga.rview.widget.DiffView.AdviseModel;
+import com.ruesga.rview.widget.DiffView.DiffInfoModel;
+import com.ruesga.rview.widget.DiffView.SkipLineModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary encoding of the processed lines of a text diff, so a diff can be shown
+ * again without parsing and processing it. Only the line model is stored: comments, drafts
+ * and blames change often and are applied on top of it every time.
+ */
+class DiffModelCodec {
+
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_LINE = 0;
+    private static final byte TYPE_SKIP = 1;
+    private static final byte TYPE_ADVISE = 2;
+
+    private static final int FLAG_LINE_A = 1;
+    private static final int FLAG_LINE_B = 1 << 1;
+    private static final int FLAG_SAME_LINES = 1 << 2;
+    private static final int FLAG_EDITS_A = 1 << 3;
+    private static final int FLAG_EDITS_B = 1 << 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private DiffModelCodec() {
+    }
+
+    static byte[] encode(List<DiffView.AbstractModel> model) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(model.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(VERSION);
+            out.writeInt(model.size());
+            for (DiffView.AbstractModel m : model) {
+                if (m instanceof DiffInfoModel) {
+                    out.writeByte(TYPE_LINE);
+                    writeLine(out, (DiffInfoModel) m);
+                } else if (m instanceof SkipLineModel) {
+                    SkipLineModel skip = (SkipLineModel) m;
+                    out.writeByte(TYPE_SKIP);
+                    writeString(out, skip.msg);
+                    out.writeInt(skip.skippedLines.length);
+                    for (DiffInfoModel line : skip.skippedLines) {
+                        writeLine(out, line);
+                    }
+                } else if (m instanceof AdviseModel) {
+                    out.writeByte(TYPE_ADVISE);
+                    writeString(out, ((AdviseModel) m).msg);
+                } else {
+                    throw new IOException("Unsupported model: " + m.getClass().getSimpleName());
+                }
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    static List<DiffView.AbstractModel> decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported diff model version " + version);
+            }
+            int count = readLength(in, 1);
+            List<DiffView.AbstractModel> model = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte type = in.readByte();
+                switch (type) {
+                    case TYPE_LINE:
+                        model.add(readLine(in));
+                        break;
+                    case TYPE_SKIP:
+                        SkipLineModel skip = new SkipLineModel();
+                        skip.msg = readString(in);
+                        skip.skippedLines = new DiffInfoModel[readLength(in, 1)];
+                        for (int j = 0; j < skip.skippedLines.length; j++) {
+                            skip.skippedLines[j] = readLine(in);
+                        }
+                        model.add(skip);
+                        break;
+                    case TYPE_ADVISE:
+                        AdviseModel advise = new AdviseModel();
+                        advise.msg = readString(in);
+                        model.add(advise);
+                        break;
+                    default:
+                        throw new IOException("Unknown diff model type " + type);
+                }
+            }
+            return model;
+        }
+    }
+
+    private static void writeLine(DataOutputStream out, DiffInfoModel line) throws IOException {
+        boolean sameLines = line.lineA != null && line.lineA.equals(line.lineB);
+        int flags = (line.lineA != null ? FLAG_LINE_A : 0)
+                | (line.lineB != null && !sameLines ? FLAG_LINE_B : 0)
+                | (sameLines ? FLAG_SAME_LINES : 0)
+                | (line.editsA != null ? FLAG_EDITS_A : 0)
+                | (line.editsB != null ? FLAG_EDITS_B : 0);
+        out.writeByte(flags);
+        out.writeInt(line.a);
+        out.writeInt(line.b);
+        out.writeInt(line.colorA);
+        out.writeInt(line.colorB);
+        out.writeInt(line.editColorA);
+        out.writeInt(line.editColorB);
+        if ((flags & FLAG_LINE_A) != 0) {
+            writeString(out, line.lineA);
+        }
+        if ((flags & FLAG_LINE_B) != 0) {
+            writeString(out, line.lineB);
+        }
+        if ((flags & FLAG_EDITS_A) != 0) {
+            writeInts(out, line.editsA);
+        }
+        if ((flags & FLAG_EDITS_B) != 0) {
+            writeInts(out, line.editsB);
+        }
+    }
+
+    private static DiffInfoModel readLine(DataInputStream in) throws IOException {
+        int flags = in.readUnsignedByte();
+        DiffInfoModel line = new DiffInfoModel();
+        line.a = in.readInt();
+        line.b = in.readInt();
+        line.lineNumberA = line.a != -1 ? String.valueOf(line.a) : null;
+        line.lineNumberB = line.b != -1 ? String.valueOf(line.b) : null;
+        line.colorA = in.readInt();
+        line.colorB = in.readInt();
+        line.editColorA = in.readInt();
+        line.editColorB = in.readInt();
+        if ((flags & FLAG_LINE_A) != 0) {
+            line.lineA = readString(in);
+        }
+        if ((flags & FLAG_LINE_B) != 0) {
+            line.lineB = readString(in);
+        } else if ((flags & FLAG_SAME_LINES) != 0) {
+            line.lineB = line.lineA;
+        }
+        if ((flags & FLAG_EDITS_A) != 0) {
+            line.editsA = readInts(in);
+        }
+        if ((flags & FLAG_EDITS_B) != 0) {
+            line.editsB = readInts(in);
+        }
+        return line;
+    }
+
+    // Lines can be longer than the 64k limit of writeUTF, so use a length prefixed encoding
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] data = s.getBytes(UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] data = new byte[checkLength(in, length, 1)];
+        in.readFully(data);
+        return new String(data, UTF_8);
+    }
+
+    private static int readLength(DataInputStream in, int elementSize) throws IOException {
+        return checkLength(in, in.readInt(), elementSize);
+    }
+
+    // A corrupted length must not allocate more than the remaining data could ever fill
+    private static int checkLength(DataInputStream in, int length, int elementSize)
+            throws IOException {
+        if (length < 0 || (long) length * elementSize > in.available()) {
+            throw new IOException("Invalid diff model length " + length);
+        }
+        return length;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int v : values) {
+            out.writeInt(v);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] values = new int[readLength(in, 4)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.tasks;
+
+import com.ruesga.rview.gerrit.model.CommentInfo;
+import com.ruesga.rview.widget.DiffView;
+import com.ruesga.rview.widget.DiffView.CommentModel;
+import com.ruesga.rview.widget.DiffView.DiffInfoModel;
+import com.ruesga.rview.widget.DiffView.SkipLineModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the lines of a text diff model by side and line number. Comments are
+ * collected in a block per line and merged into the model in a single pass, so attaching
+ * comments, drafts and blames doesn't need to scan the whole model for each of them.
+ */
+class DiffModelIndex {
+
+    private final int mMode;
+    private final Map<Integer, DiffInfoModel> mLinesA = new HashMap<>();
+    private final Map<Integer, DiffInfoModel> mLinesB = new HashMap<>();
+
+    // The comment rows that follow every line, and the file comments shown on top
+    private final Map<DiffInfoModel, List<CommentModel>> mComments = new IdentityHashMap<>();
+    private final List<CommentModel> mFileComments = new ArrayList<>();
+    private int mCommentsCount;
+
+    DiffModelIndex(int mode, List<DiffView.AbstractModel> model) {
+        mMode = mode;
+        for (DiffView.AbstractModel m : model) {
+            if (m instanceof DiffInfoModel) {
+                index((DiffInfoModel) m);
+            } else if (m instanceof SkipLineModel && ((SkipLineModel) m).skippedLines != null) {
+                for (DiffInfoModel diff : ((SkipLineModel) m).skippedLines) {
+                    index(diff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the line of the passed side, including the lines hidden behind a skip marker.
+     */
+    DiffInfoModel findLine(boolean isA, int line) {
+        return isA ? mLinesA.get(line) : mLinesB.get(line);
+    }
+
+    void addComments(List<CommentInfo> comments, boolean isA, boolean isDraft) {
+        if (comments == null) {
+            return;
+        }
+        for (CommentInfo comment : comments) {
+            boolean isLeft = comment.patchSet == 0 || isA;
+            if (comment.line == null && comment.range == null) {
+                // File comment
+                addComment(mFileComments, null, comment, isLeft, isDraft);
+                continue;
+            }
+
+            // We don't support comment range yet, so skip this comment
+            if (comment.line == null) {
+                continue;
+            }
+
+            DiffInfoModel diff = findLine(isLeft, comment.line);
+            if (diff != null) {
+                List<CommentModel> block = mComments.get(diff);
+                if (block == null) {
+                    block = new ArrayList<>(1);
+                    mComments.put(diff, block);
+                }
+                addComment(block, diff, comment, isLeft, isDraft);
+            }
+        }
+    }
+
+    /**
+     * Returns the model with the comment rows placed after their lines. Comments on lines
+     * that aren't part of the model (hidden behind a skip marker) are dropped.
+     */
+    List<DiffView.AbstractModel> merge(List<DiffView.AbstractModel> model) {
+        if (mCommentsCount == 0) {
+            return model;
+        }
+        List<DiffView.AbstractModel> merged = new ArrayList<>(model.size() + mCommentsCount);
+        merged.addAll(mFileComments);
+        for (DiffView.AbstractModel m : model) {
+            merged.add(m);
+            if (m instanceof DiffInfoModel) {
+                List<CommentModel> block = mComments.get(m);
+                if (block != null) {
+                    merged.addAll(block);
+                }
+            }
+        }
+        return merged;
+    }
+
+    private void index(DiffInfoModel diff) {
+        if (diff.a != -1 && !mLinesA.containsKey(diff.a)) {
+            mLinesA.put(diff.a, diff);
+        }
+        if (diff.b != -1 && !mLinesB.containsKey(diff.b)) {
+            mLinesB.put(diff.b, diff);
+        }
+    }
+
+    private void addComment(List<CommentModel> block, DiffInfoModel diff,
+            CommentInfo comment, boolean isLeft, boolean isDraft) {
+        if (mMode == DiffView.SIDE_BY_SIDE_MODE) {
+            // Fill the other half of a row with a comment on the opposite side
+            for (CommentModel commentModel : block) {
+                if ((isLeft && commentModel.commentA == null && commentModel.commentB != null)
+                        || (!isLeft && commentModel.commentB == null
+                                && commentModel.commentA != null)) {
+                    commentModel.isDraft = isDraft;
+                    if (isLeft) {
+                        commentModel.commentA = comment;
+                    } else {
+                        commentModel.commentB = comment;
+                    }
+                    return;
+                }
+            }
+        }
+
+        CommentModel commentModel = new CommentModel();
+        commentModel.diff = diff;
+        commentModel.isDraft = isDraft;
+        if (isLeft || mMode == DiffView.UNIFIED_MODE) {
+            commentModel.commentA = comment;
+        } else {
+            commentModel.commentB = comment;
+        }
+        block.add(commentModel);
+        mCommentsCount++;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.tasks;
+
+import com.ruesga.rview.gerrit.model.DiffIntralineInfo;
+
+/**
+ * A forward-only cursor over the intraline edits of one side of a diff chunk. Gerrit
+ * encodes the edits as relative [skip, mark] pairs, so they are resolved once into absolute
+ * offsets, and the cursor only moves forward while the lines of the chunk are processed.
+ * Highlighting a whole chunk is then linear in the number of lines plus the number of edits.
+ */
+public class IntralineEditsCursor {
+
+    // Absolute [start, end] offsets of each edit, relative to the start of the chunk
+    private final int[] mOffsets;
+    private final int mCount;
+    private int mIndex;
+    private int mVisited;
+
+    public IntralineEditsCursor(DiffIntralineInfo edits) {
+        mCount = edits.size();
+        mOffsets = new int[mCount * 2];
+        int end = 0;
+        for (int i = 0; i < mCount; i++) {
+            int start = end + edits.skip(i);
+            end = start + edits.mark(i);
+            mOffsets[i * 2] = start;
+            mOffsets[i * 2 + 1] = end;
+        }
+    }
+
+    /**
+     * Returns the edits that touch the line as packed [start, end] pairs relative to the start
+     * of the line, or null if there are none. Lines must be passed in ascending order.
+     */
+    public int[] editsInLine(int lineStart, int lineLength) {
+        final int lineEnd = lineStart + lineLength;
+
+        // Skip all the edits that ended before this line. They can't touch the next lines.
+        while (mIndex < mCount && mOffsets[mIndex * 2 + 1] < lineStart) {
+            mIndex++;
+            mVisited++;
+        }
+
+        // An edit could span multiple lines, so don't move the cursor past it here
+        int last = mIndex;
+        while (last < mCount && mOffsets[last * 2] <= lineEnd) {
+            last++;
+        }
+        if (last == mIndex) {
+            return null;
+        }
+
+        int[] ranges = new int[(last - mIndex) * 2];
+        for (int i = mIndex, j = 0; i < last; i++, j += 2) {
+            mVisited++;
+            ranges[j] = Math.max(lineStart, mOffsets[i * 2]) - lineStart;
+            ranges[j + 1] = Math.min(lineEnd, mOffsets[i * 2 + 1]) - lineStart;
+        }
+        return ranges;
+    }
+
+    /**
+     * Return the number of edit visits performed by this cursor so far.
+     */
+    int visited() {
+        return mVisited;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.widget;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import android.util.LruCache;
+
+import com.ruesga.rview.R;
+import com.ruesga.rview.gerrit.model.BlameInfo;
+import com.ruesga.rview.misc.AndroidHelper;
+import com.ruesga.rview.misc.Formatter;
+import com.ruesga.rview.misc.StringHelper;
+import com.ruesga.rview.widget.DiffView.DiffInfoModel;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Builds the styled text of the diff lines when they are bound, so only the lines that are
+ * actually displayed pay for their spans. Recently built lines are kept in a small LRU.
+ */
+class DiffLineFormatter {
+
+    private static final int MAX_CACHED_LINES = 256;
+
+    private static final String HIGHLIGHTED_TAB = "\u00BB    ";
+
+    private static final Pattern HIGHLIGHT_TRAIL_SPACES_PATTERN
+            = Pattern.compile("( )+$", Pattern.MULTILINE);
+
+    private final Context mContext;
+    private final boolean mHighlightTabs;
+    private final boolean mHighlightTrailingWhitespaces;
+    private final int mHighlightColor;
+    private DateFormat mBlameDateFormat;
+
+    private final LruCache<DiffInfoModel, CharSequence> mLinesA =
+            new LruCache<>(MAX_CACHED_LINES);
+    private final LruCache<DiffInfoModel, CharSequence> mLinesB =
+            new LruCache<>(MAX_CACHED_LINES);
+
+    DiffLineFormatter(Context context, boolean highlightTabs,
+            boolean highlightTrailingWhitespaces) {
+        mContext = context;
+        mHighlightTabs = highlightTabs;
+        mHighlightTrailingWhitespaces = highlightTrailingWhitespaces;
+        mHighlightColor = ContextCompat.getColor(context, R.color.diffHighlightColor);
+    }
+
+    CharSequence formatLineA(DiffInfoModel diff) {
+        if (diff.lineA == null) {
+            return null;
+        }
+        CharSequence line = mLinesA.get(diff);
+        if (line == null) {
+            line = format(diff.lineA, diff.editsA, diff.editColorA);
+            mLinesA.put(diff, line);
+        }
+        return line;
+    }
+
+    CharSequence formatLineB(DiffInfoModel diff) {
+        if (diff.lineB == null) {
+            return null;
+        }
+        CharSequence line = mLinesB.get(diff);
+        if (line == null) {
+            line = format(diff.lineB, diff.editsB, diff.editColorB);
+            mLinesB.put(diff, line);
+        }
+        return line;
+    }
+
+    String formatBlame(BlameInfo blame) {
+        if (mBlameDateFormat == null) {
+            mBlameDateFormat = DateFormat.getDateInstance(
+                    DateFormat.SHORT, AndroidHelper.getCurrentLocale(mContext));
+        }
+        String commit = Formatter.toShortenCommit(blame.id);
+        String date = mBlameDateFormat.format(new Date(blame.time * 1000L)); //Unix time
+        return mContext.getString(R.string.blame_format, commit, date, blame.author);
+    }
+
+    /**
+     * Returns the text of the line as it will be displayed, without any style. Used to
+     * measure the lines without building their spans.
+     */
+    String toDisplayText(String line) {
+        if (line == null || line.indexOf('\t') == -1) {
+            return line;
+        }
+        return line.replace("\t",
+                mHighlightTabs ? HIGHLIGHTED_TAB : StringHelper.NON_PRINTABLE_CHAR);
+    }
+
+    private CharSequence format(String line, int[] edits, int editColor) {
+        CharSequence text = prepareTabs(line);
+        if (edits != null) {
+            Spannable span = Spannable.Factory.getInstance().newSpannable(text);
+            for (int i = 0; i < edits.length; i += 2) {
+                span.setSpan(new BackgroundColorSpan(editColor),
+                        edits[i], edits[i + 1], Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            text = span;
+        }
+        return highlightTrailingSpaces(highlightTabs(text));
+    }
+
+    private CharSequence highlightTabs(CharSequence text) {
+        if (!mHighlightTabs || !text.toString().contains(StringHelper.NON_PRINTABLE_CHAR)) {
+            return text;
+        }
+
+        SpannableStringBuilder ssb = new SpannableStringBuilder(text);
+        String line = text.toString();
+        int index = line.length();
+        while ((index = line.lastIndexOf(StringHelper.NON_PRINTABLE_CHAR, index)) != -1) {
+            ssb.replace(index, index + 1, HIGHLIGHTED_TAB);
+            ssb.setSpan(new ForegroundColorSpan(mHighlightColor),
+                    index, index + 1, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            ssb.setSpan(new StyleSpan(Typeface.BOLD),
+                    index, index + 1, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            index--;
+        }
+        return ssb;
+    }
+
+    private CharSequence highlightTrailingSpaces(CharSequence text) {
+        if (!mHighlightTrailingWhitespaces) {
+            return text;
+        }
+
+        final Matcher matcher = HIGHLIGHT_TRAIL_SPACES_PATTERN.matcher(text);
+        if (matcher.find()) {
+            Spannable span = Spannable.Factory.getInstance().newSpannable(text);
+            span.setSpan(new BackgroundColorSpan(mHighlightColor),
+                    matcher.start(), matcher.end(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            return span;
+        }
+        return text;
+    }
+
+    private static String prepareTabs(String line) {
+        if (line.indexOf('\t') == -1) {
+            return line;
+        }
+        return line.replace("\t", StringHelper.NON_PRINTABLE_CHAR);
+    }
+}
@@ -56,6 +56,7 @@ import java.io.File;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
@@ -258,8 +259,16 @@ public class DiffView extends FrameLayout {
         public String lineNumberB;
         public int colorA;
         public int colorB;
-        public CharSequence lineA;
-        public CharSequence lineB;
+        // Raw text of the lines. Styles are only applied when the line is bound.
+        public String lineA;
+        public String lineB;
+        // Highlighted ranges of the lines, as packed [start, end] pairs
+        public int[] editsA;
+        public int[] editsB;
+        public int editColorA;
+        public int editColorB;
+        public BlameInfo blameInfoA;
+        public BlameInfo blameInfoB;
         public String blameA;
         public String blameB;
     }
@@ -330,6 +339,7 @@ public class DiffView extends FrameLayout {
         private final List<AbstractModel> mModel = new ArrayList<>();
         private final DiffViewMeasurement mDiffViewMeasurement = new DiffViewMeasurement();
         private final int mMode;
+        private DiffLineFormatter mFormatter;
 
         private final List<SkipLinesOpHistory> mSkipLinesOpHistory = new ArrayList<>();
 
@@ -342,6 +352,8 @@ public class DiffView extends FrameLayout {
             mSkipLinesOpHistory.clear();
             mModel.clear();
             mModel.addAll(diffs);
+            mFormatter = new DiffLineFormatter(
+                    getContext(), mHighlightTabs, mHighlightTrailingWhitespaces);
             mDiffViewMeasurement.clear();
             if (skipLinesOpHistory != null) {
                 processSkipLinesOpHistory(skipLinesOpHistory);
@@ -462,11 +474,20 @@ public class DiffView extends FrameLayout {
                 DiffSourceViewHolder holder = ((DiffSourceViewHolder) vh);
                 DiffInfoModel diff = (DiffInfoModel) model;
                 if (mMode == UNIFIED_MODE) {
-                    CharSequence text = diff.lineA != null ? diff.lineA : diff.lineB;
+                    CharSequence text = diff.lineA != null
+                            ? mFormatter.formatLineA(diff) : mFormatter.formatLineB(diff);
                     holder.mBinding.diffA.setText(text, TextView.BufferType.NORMAL);
                 } else {
-                    holder.mBinding.diffA.setText(diff.lineA, TextView.BufferType.NORMAL);
-                    holder.mBinding.diffB.setText(diff.lineB, TextView.BufferType.NORMAL);
+                    holder.mBinding.diffA.setText(
+                            mFormatter.formatLineA(diff), TextView.BufferType.NORMAL);
+                    holder.mBinding.diffB.setText(
+                            mFormatter.formatLineB(diff), TextView.BufferType.NORMAL);
+                }
+                if (mShowBlameA && diff.blameA == null && diff.blameInfoA != null) {
+                    diff.blameA = mFormatter.formatBlame(diff.blameInfoA);
+                }
+                if (mShowBlameB && diff.blameB == null && diff.blameInfoB != null) {
+                    diff.blameB = mFormatter.formatBlame(diff.blameInfoB);
                 }
 
                 holder.mBinding.setWrap(isWrapMode());
@@ -632,20 +653,21 @@ public class DiffView extends FrameLayout {
             } else {
                 if (mMode == UNIFIED_MODE) {
                     // All lines are displayed in A
-                    CharSequence line = diff.lineA != null ? diff.lineA : diff.lineB;
+                    String line = mFormatter.toDisplayText(
+                            diff.lineA != null ? diff.lineA : diff.lineB);
                     mDiffViewMeasurement.lineWidth = Math.max(
                             mDiffViewMeasurement.lineWidth,
                             paint.measureText(String.valueOf(line)) + padding + margin);
                 } else {
                     // Lines are displayed in A and B and both have the same size
                     if (diff.lineA != null) {
-                        String lineA = String.valueOf(diff.lineA);
+                        String lineA = mFormatter.toDisplayText(diff.lineA);
                         mDiffViewMeasurement.lineWidth = Math.max(
                                 mDiffViewMeasurement.lineWidth,
                                 paint.measureText(lineA) + padding + margin);
                     }
                     if (diff.lineB != null) {
-                        String lineB = String.valueOf(diff.lineB);
+                        String lineB = mFormatter.toDisplayText(diff.lineB);
                         mDiffViewMeasurement.lineWidth = Math.max(
                                 mDiffViewMeasurement.lineWidth,
                                 paint.measureText(lineB) + padding + margin);
@@ -724,6 +746,8 @@ public class DiffView extends FrameLayout {
     private int mDiffMode = UNIFIED_MODE;
     private float mTextSizeFactor = Constants.DEFAULT_TEXT_SIZE_NORMAL;
     private DiffInfo mDiffInfo;
+    private String mModelCacheName;
+    private Callable<DiffInfo> mDiffLoader;
     private Pair<List<CommentInfo>, List<CommentInfo>> mComments;
     private Pair<List<CommentInfo>, List<CommentInfo>> mDrafts;
     private Pair<List<BlameInfo>, List<BlameInfo>> mBlames;
@@ -833,6 +857,24 @@ public class DiffView extends FrameLayout {
         return this;
     }
 
+    /**
+     * Name of the diff cache entry that stores the processed lines of this diff. When it
+     * exists, the diff isn't processed again.
+     */
+    public DiffView withModelCache(String name) {
+        mModelCacheName = name;
+        return this;
+    }
+
+    /**
+     * Loads the diff from a background thread when it wasn't provided because its processed
+     * lines were cached, but they couldn't be read.
+     */
+    public DiffView withDiffLoader(Callable<DiffInfo> loader) {
+        mDiffLoader = loader;
+        return this;
+    }
+
     public DiffView withComments(Pair<List<CommentInfo>, List<CommentInfo>> comments) {
         mComments = comments;
         return this;
@@ -945,8 +987,8 @@ public class DiffView extends FrameLayout {
 
         if (mDiffMode != IMAGE_MODE) {
             mTextDiffTask = new AsyncTextDiffProcessor(getContext(), mDiffMode, mDiffInfo, mComments,
-                    mDrafts, mBlames, mHighlightTabs, mHighlightTrailingWhitespaces,
-                    mHighlightIntralineDiffs, mTextProcessorListener);
+                    mDrafts, mBlames, mHighlightIntralineDiffs, mModelCacheName, mDiffLoader,
+                    mTextProcessorListener);
             mTextDiffTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
         } else {
             mImageDiffTask = new AsyncImageDiffProcessor(getContext(),
@@ -35,6 +35,7 @@ import com.ruesga.rview.databinding.WizardAccountPageFragmentBinding;
 import com.ruesga.rview.exceptions.NoActivityAttachedException;
 import com.ruesga.rview.exceptions.UnsupportedServerVersionException;
 import com.ruesga.rview.gerrit.Authorization;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.GerritServiceFactory;
 import com.ruesga.rview.gerrit.NoConnectivityException;
@@ -397,7 +398,7 @@ public class AccountPageFragment extends WizardPageFragment {
         Authorization authorization = new Authorization(
                 username, password, mModel.repoTrustAllCertificates);
         GerritApi client = GerritServiceFactory.getInstance(ctx, mModel.repoUrl, authorization);
-        mModel.accountInfo = client.getAccount(GerritApi.SELF_ACCOUNT).blockingFirst();
+        mModel.accountInfo = BlockingCalls.first(client.getAccount(GerritApi.SELF_ACCOUNT));
         return mModel.accountInfo != null;
     }
 
@@ -409,7 +410,7 @@ public class AccountPageFragment extends WizardPageFragment {
         Authorization authorization = new Authorization(
                 username, password, mModel.repoTrustAllCertificates);
         GerritApi client = GerritServiceFactory.getInstance(ctx, mModel.repoUrl, authorization);
-        ServerVersion version = client.getServerVersion().blockingFirst();
+        ServerVersion version = BlockingCalls.first(client.getServerVersion());
         if (version.getVersion() < Constants.MINIMAL_SUPPORTED_VERSION) {
             throw new UnsupportedServerVersionException();
         }
@@ -426,7 +427,7 @@ public class AccountPageFragment extends WizardPageFragment {
             Authorization authorization = new Authorization(
                     username, password, mModel.repoTrustAllCertificates);
             GerritApi client = GerritServiceFactory.getInstance(ctx, mModel.repoUrl, authorization);
-            ServerInfo serverInfo = client.getServerInfo().blockingFirst();
+            ServerInfo serverInfo = BlockingCalls.first(client.getServerInfo());
             mServerInfo = serverInfo;
             return serverInfo.user.anonymousCowardName;
         } catch (Exception ex) {
@@ -63,6 +63,7 @@ public class AuthorizationAccountSetupActivity extends WizardActivity {
         // Update the authentication account variables
         Account account = Preferences.getAccount(this);
         if (account != null) {
+            account = account.copy();
             Account oldAccount = new Account();
             oldAccount.mAccount = account.mAccount;
             oldAccount.mRepository = account.mRepository;
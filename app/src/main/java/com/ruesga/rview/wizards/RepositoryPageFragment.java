@@ -36,6 +36,7 @@ import com.ruesga.rview.R;
 import com.ruesga.rview.databinding.WizardRepositoryPageFragmentBinding;
 import com.ruesga.rview.exceptions.NoActivityAttachedException;
 import com.ruesga.rview.exceptions.UnsupportedServerVersionException;
+import com.ruesga.rview.gerrit.BlockingCalls;
 import com.ruesga.rview.gerrit.GerritApi;
 import com.ruesga.rview.gerrit.GerritServiceFactory;
 import com.ruesga.rview.gerrit.NoConnectivityException;
@@ -280,14 +281,14 @@ public class RepositoryPageFragment extends WizardPageFragment {
                 Log.i(TAG, "Trying to resolve Gerrit repository: " + endpoint);
                 GerritApi client = GerritServiceFactory.getInstance(
                         ctx, endpoint, mModel.trustAllCertificates);
-                version = client.getServerVersion().blockingFirst();
+                version = BlockingCalls.first(client.getServerVersion());
                 mModel.url = endpoint;
             } catch (Exception ex) {
                 endpoint = "http://" + mModel.url;
                 Log.i(TAG, "Trying to resolve Gerrit repository: " + endpoint);
                 GerritApi client = GerritServiceFactory.getInstance(
                         ctx, endpoint, mModel.trustAllCertificates);
-                version = client.getServerVersion().blockingFirst();
+                version = BlockingCalls.first(client.getServerVersion());
                 mModel.url = endpoint;
             }
         } else {
@@ -296,7 +297,7 @@ public class RepositoryPageFragment extends WizardPageFragment {
             Log.i(TAG, "Trying to resolve Gerrit repository: " + endpoint);
             GerritApi client = GerritServiceFactory.getInstance(
                     ctx, endpoint, mModel.trustAllCertificates);
-            version = client.getServerVersion().blockingFirst();
+            version = BlockingCalls.first(client.getServerVersion());
         }
         Log.i(TAG, "Gerrit repository resolved. Server version " + version);
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.adapters;
+
+import com.ruesga.rview.gerrit.model.AccountInfo;
+import com.ruesga.rview.gerrit.model.ApprovalInfo;
+import com.ruesga.rview.gerrit.model.ChangeInfo;
+import com.ruesga.rview.gerrit.model.LabelInfo;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeInfoDiffCallbackTest {
+
+    private final ChangeInfoDiffCallback mCallback = new ChangeInfoDiffCallback();
+
+    @Test
+    public void testItemsAreMatchedById() {
+        assertTrue(mCallback.areItemsTheSame(createChange("a"), createChange("a")));
+        assertFalse(mCallback.areItemsTheSame(createChange("a"), createChange("b")));
+
+        // The fetching more item doesn't have an id
+        ChangeInfo fetching = new ChangeInfo();
+        assertTrue(mCallback.areItemsTheSame(fetching, new ChangeInfo()));
+        assertFalse(mCallback.areItemsTheSame(fetching, createChange("a")));
+        assertFalse(mCallback.areItemsTheSame(createChange("a"), fetching));
+    }
+
+    @Test
+    public void testUnchangedContents() {
+        ChangeInfo o = createChange("a");
+        ChangeInfo n = createChange("a");
+        assertTrue(mCallback.areContentsTheSame(o, n));
+
+        // Fields that aren't rendered in the list don't matter
+        n.subject = "Other subject";
+        n.labels.get("Code-Review").all[0].date = new Date(1000L);
+        assertTrue(mCallback.areContentsTheSame(o, n));
+    }
+
+    @Test
+    public void testChangedContents() {
+        ChangeInfo o = createChange("a");
+
+        ChangeInfo n = createChange("a");
+        n.updated = new Date(2000L);
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        n = createChange("a");
+        n.reviewed = true;
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        n = createChange("a");
+        n.mergeable = false;
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        n = createChange("a");
+        n.trendingScore = 10;
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        n = createChange("a");
+        n.stars = new String[]{"star"};
+        assertFalse(mCallback.areContentsTheSame(o, n));
+    }
+
+    @Test
+    public void testChangedLabels() {
+        ChangeInfo o = createChange("a");
+
+        ChangeInfo n = createChange("a");
+        n.labels = null;
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        n = createChange("a");
+        n.labels.put("Verified", new LabelInfo());
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        n = createChange("a");
+        n.labels.get("Code-Review").value = 1;
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        n = createChange("a");
+        n.labels.get("Code-Review").approved = createAccount(2);
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        n = createChange("a");
+        n.labels.get("Code-Review").all[0].value = -2;
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        n = createChange("a");
+        n.labels.get("Code-Review").all[0].owner = createAccount(2);
+        assertFalse(mCallback.areContentsTheSame(o, n));
+
+        // Accounts are compared by id
+        n = createChange("a");
+        n.labels.get("Code-Review").approved = createAccount(1);
+        n.labels.get("Code-Review").approved.name = "Other name";
+        assertTrue(mCallback.areContentsTheSame(o, n));
+    }
+
+    private static ChangeInfo createChange(String id) {
+        ApprovalInfo approval = new ApprovalInfo();
+        approval.value = 2;
+        approval.owner = createAccount(1);
+
+        LabelInfo label = new LabelInfo();
+        label.value = 2;
+        label.approved = createAccount(1);
+        label.all = new ApprovalInfo[]{approval};
+
+        ChangeInfo change = new ChangeInfo();
+        change.id = id;
+        change.subject = "Subject";
+        change.updated = new Date(1000L);
+        change.mergeable = true;
+        change.labels = new HashMap<>();
+        change.labels.put("Code-Review", label);
+        return change;
+    }
+
+    private static AccountInfo createAccount(int id) {
+        AccountInfo account = new AccountInfo();
+        account.accountId = id;
+        return account;
+    }
+}
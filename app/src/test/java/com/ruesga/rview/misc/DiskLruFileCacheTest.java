@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.misc;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DiskLruFileCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        File dir = createTempDir();
+        DiskLruFileCache cache = new DiskLruFileCache(dir, 30);
+        cache.write("a", new byte[10]);
+        cache.write("b", new byte[10]);
+        cache.write("c", new byte[10]);
+        cache.read("a");
+        cache.write("d", new byte[10]);
+
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertFalse(new File(dir, "b").exists());
+        assertTrue(cache.contains("c"));
+        assertTrue(cache.contains("d"));
+
+        DiskCacheStats stats = cache.stats();
+        assertEquals(1, stats.mHits);
+        assertEquals(1, stats.mEvictions);
+        assertEquals(30, stats.mSize);
+    }
+
+    @Test
+    public void testJournalIsReplayed() throws IOException {
+        File dir = createTempDir();
+        DiskLruFileCache cache = new DiskLruFileCache(dir, 30);
+        cache.write("a", "data-a".getBytes());
+        cache.write("sub/b", new byte[10]);
+        cache.write("c", new byte[10]);
+        cache.read("a");
+        cache.close();
+
+        // Reopen and push the cache over its budget. "sub/b" is the eldest entry.
+        cache = new DiskLruFileCache(dir, 30);
+        assertEquals(26, cache.stats().mSize);
+        cache.write("d", new byte[10]);
+        assertFalse(cache.contains("sub/b"));
+        assertArrayEquals("data-a".getBytes(), cache.read("a"));
+    }
+
+    @Test
+    public void testAdoptsUntrackedFiles() throws IOException {
+        File dir = createTempDir();
+        File excluded = new File(dir, "diff");
+        assertTrue(excluded.mkdirs());
+        DiskLruFileCache cache = new DiskLruFileCache(dir, 100, "diff");
+        cache.write("a", new byte[10]);
+        writeDirectly(new File(dir, "b"), 20);
+        writeDirectly(new File(excluded, "c"), 50);
+        writeDirectly(new File(dir, "d.tmp"), 50);
+        cache.close();
+
+        cache = new DiskLruFileCache(dir, 100, "diff");
+        assertEquals(30, cache.stats().mSize);
+        assertTrue(cache.contains("b"));
+        assertFalse(new File(dir, "d.tmp").exists());
+    }
+
+    @Test
+    public void testMissAndClear() throws IOException {
+        File dir = createTempDir();
+        DiskLruFileCache cache = new DiskLruFileCache(dir, 100);
+        try {
+            cache.read("missing");
+            throw new AssertionError("expected FileNotFoundException");
+        } catch (FileNotFoundException ex) {
+            // Expected
+        }
+        assertEquals(1, cache.stats().mMisses);
+
+        cache.write("a", new byte[10]);
+        cache.clear();
+        assertFalse(cache.contains("a"));
+        assertEquals(0, cache.stats().mSize);
+        cache.write("a", new byte[10]);
+        assertTrue(cache.contains("a"));
+    }
+
+    @Test
+    public void testStreamedWrite() throws IOException {
+        File dir = createTempDir();
+        DiskLruFileCache cache = new DiskLruFileCache(dir, 30);
+        cache.write("a", new byte[20]);
+        byte[] data = new byte[20000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        File file = cache.write("sub/b", new ByteArrayInputStream(data));
+
+        assertEquals(new File(dir, "sub/b"), file);
+        assertArrayEquals(data, cache.read("sub/b"));
+        assertFalse(cache.contains("a"));
+        assertEquals(1, new File(dir, "sub").list().length);
+    }
+
+    @Test
+    public void testReadsWhileRewriting() throws Exception {
+        File dir = createTempDir();
+        final DiskLruFileCache cache = new DiskLruFileCache(dir, 1000000);
+        cache.write("a", createData(1, 1000));
+
+        // Every read must see one whole version of the entry
+        final IOException[] failure = new IOException[1];
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 500; i++) {
+                    cache.write("a", createData(i % 2 + 1, 1000 + (i % 2) * 50000));
+                }
+            } catch (IOException ex) {
+                failure[0] = ex;
+            }
+        });
+        writer.start();
+        int reads = 0;
+        while (writer.isAlive() || reads == 0) {
+            byte[] data = cache.read("a");
+            assertEquals(data[0] == 1 ? 1000 : 51000, data.length);
+            for (byte b : data) {
+                assertEquals(data[0], b);
+            }
+            reads++;
+        }
+        writer.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        assertEquals(reads, cache.stats().mHits);
+    }
+
+    private static byte[] createData(int value, int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) value;
+        }
+        return data;
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("cache", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdirs());
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static void writeDirectly(File file, int size) throws IOException {
+        try (FileOutputStream os = new FileOutputStream(file)) {
+            os.write(new byte[size]);
+        }
+    }
+}
@@ -19,6 +19,9 @@ import android.content.Context;
 import android.content.res.Resources;
 
 import com.ruesga.rview.TestUtils;
+import com.ruesga.rview.gerrit.model.AccountInfo;
+import com.ruesga.rview.gerrit.model.ChangeMessageInfo;
+import com.ruesga.rview.gerrit.model.CommentInfo;
 import com.ruesga.rview.model.Repository;
 
 import org.junit.Test;
@@ -33,14 +36,22 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RawRes;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -103,4 +114,87 @@ public class ModelHelperTest {
         }
     }
 
+    @Test
+    public void testMatchCommentsWithMessages() {
+        final int messagesCount = 150;
+        final int commentsCount = 1000;
+        final Random random = new Random(messagesCount);
+
+        AccountInfo[] accounts = new AccountInfo[5];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new AccountInfo();
+            accounts[i].accountId = 1000 + i;
+        }
+
+        ChangeMessageInfo[] messages = new ChangeMessageInfo[messagesCount];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < messagesCount; i++) {
+            messages[i] = new ChangeMessageInfo();
+            messages[i].id = "message" + i;
+            messages[i].author = accounts[i % accounts.length];
+            messages[i].date = new Date(now + i * 60000L);
+            messages[i].message = "Patch Set " + (i / 10 + 1) + ":\n\n(1 comment)";
+            messages[i].revisionNumber = i / 10 + 1;
+        }
+
+        Map<String, List<CommentInfo>> comments = new HashMap<>();
+        int[] expected = new int[messagesCount];
+        for (int i = 0; i < commentsCount; i++) {
+            int m = random.nextInt(messagesCount);
+            CommentInfo comment = new CommentInfo();
+            comment.id = "comment" + i;
+            comment.line = random.nextInt(10) == 0 ? null : random.nextInt(500);
+            comment.author = messages[m].author;
+            comment.updated = messages[m].date;
+            String file = "file" + random.nextInt(50);
+            if (!comments.containsKey(file)) {
+                comments.put(file, new ArrayList<>());
+            }
+            comments.get(file).add(comment);
+            expected[m]++;
+        }
+
+        // A comment from other author at the same time shouldn't match
+        CommentInfo other = new CommentInfo();
+        other.id = "other";
+        other.author = accounts[1];
+        other.updated = messages[0].date;
+        comments.get("file0").add(other);
+
+        Map<String, LinkedHashMap<String, List<CommentInfo>>> mwc = new HashMap<>();
+        ModelHelper.matchCommentsWithMessages(messages, comments, false, accounts[0], mwc);
+        // Matching the same comments again must not duplicate them
+        ModelHelper.matchCommentsWithMessages(messages, comments, false, accounts[0], mwc);
+
+        // The passed comments could be shared, so they must be left untouched
+        for (List<CommentInfo> items : comments.values()) {
+            for (CommentInfo comment : items) {
+                assertNull(comment.path);
+                assertEquals(0, comment.patchSet);
+                assertEquals(0, comment.messagePatchSet);
+            }
+        }
+
+        for (int i = 0; i < messagesCount; i++) {
+            int count = 0;
+            LinkedHashMap<String, List<CommentInfo>> files = mwc.get(messages[i].id);
+            if (files != null) {
+                for (Map.Entry<String, List<CommentInfo>> entry : files.entrySet()) {
+                    Integer last = null;
+                    for (CommentInfo comment : entry.getValue()) {
+                        assertEquals(entry.getKey(), comment.path);
+                        assertEquals(messages[i].date, comment.updated);
+                        assertEquals(messages[i].revisionNumber, comment.messagePatchSet);
+                        if (last != null) {
+                            assertNotNull(comment.line);
+                            assertTrue(last <= comment.line);
+                        }
+                        last = comment.line;
+                        count++;
+                    }
+                }
+            }
+            assertEquals("message " + i, expected[i], count);
+        }
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.misc;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OfflineBundleStoreTest {
+
+    private static final String COMMENTS = "2_" + CacheHelper.CACHE_COMMENTS_JSON;
+    private static final String DRAFTS = "2_" + CacheHelper.CACHE_DRAFT_JSON;
+
+    @Test
+    public void testStagedBundleIsOnlyVisibleOnceCommitted() throws IOException {
+        File dir = createTempDir();
+        OfflineBundleStore store = new OfflineBundleStore(dir);
+        store.setActiveChange(1);
+
+        DiskLruFileCache bundle = store.create(1);
+        bundle.write("a", "bundle-a".getBytes());
+        assertFalse(store.getBundleDir(1).exists());
+        assertNull(store.getActiveFile("a"));
+        assertNull(store.read(1, "a"));
+
+        store.commit(1, bundle, "1_100");
+        assertFalse(bundle.getDirectory().exists());
+        assertEquals("1_100", store.getBundleId(1));
+        assertTrue(store.hasActiveBundle());
+        assertArrayEquals("bundle-a".getBytes(), store.read(1, "a"));
+
+        // A new download replaces the whole bundle
+        bundle = store.create(1);
+        bundle.write("b", "bundle-b".getBytes());
+        store.commit(1, bundle, "1_200");
+        assertEquals("1_200", store.getBundleId(1));
+        assertNull(store.read(1, "a"));
+        assertArrayEquals("bundle-b".getBytes(), store.read(1, "b"));
+    }
+
+    @Test
+    public void testDiscardedBundleIsRemoved() throws IOException {
+        File dir = createTempDir();
+        OfflineBundleStore store = new OfflineBundleStore(dir);
+        DiskLruFileCache bundle = store.create(1);
+        bundle.write("a", new byte[10]);
+        OfflineBundleStore.discard(bundle);
+
+        assertFalse(bundle.getDirectory().exists());
+        assertNull(store.getBundleId(1));
+    }
+
+    @Test
+    public void testStaleBundleIsInvalidated() throws IOException {
+        File dir = createTempDir();
+        OfflineBundleStore store = new OfflineBundleStore(dir);
+        commitBundle(store, 1, "1_100", "a");
+        commitBundle(store, 2, "2_100", "a");
+
+        store.invalidate(1, "1_100");
+        assertEquals("1_100", store.getBundleId(1));
+
+        // The change was updated after the download
+        store.invalidate(1, "1_200");
+        assertNull(store.getBundleId(1));
+        assertFalse(store.getBundleDir(1).exists());
+        assertEquals("2_100", store.getBundleId(2));
+    }
+
+    @Test
+    public void testFallbackOrder() throws IOException {
+        File dir = createTempDir();
+        OfflineBundleStore store = new OfflineBundleStore(new File(dir, "offline"));
+        DiskLruFileCache cache = new DiskLruFileCache(new File(dir, "diff"), 1000);
+        commitBundle(store, 1, "1_100", "a", "b", COMMENTS, DRAFTS);
+        commitBundle(store, 2, "2_100", "c");
+        cache.write("a", "cache-a".getBytes());
+
+        // Bundles only serve the misses of the active change
+        store.setActiveChange(1);
+        assertArrayEquals("cache-a".getBytes(), store.read(cache, "a"));
+        assertArrayEquals("1-b".getBytes(), store.read(cache, "b"));
+        assertMissing(store, cache, "c");
+
+        // Comments and drafts are never served from the bundle of the active change
+        assertMissing(store, cache, COMMENTS);
+        assertMissing(store, cache, DRAFTS);
+        assertArrayEquals(("1-" + DRAFTS).getBytes(), store.read(1, DRAFTS));
+
+        store.setActiveChange(2);
+        assertMissing(store, cache, "b");
+        assertArrayEquals("2-c".getBytes(), store.read(cache, "c"));
+    }
+
+    @Test
+    public void testActiveChangeIsPersisted() throws IOException {
+        File dir = createTempDir();
+        OfflineBundleStore store = new OfflineBundleStore(dir);
+        commitBundle(store, 1, "1_100", "a");
+        assertEquals(-1, store.getActiveChange());
+        store.setActiveChange(1);
+
+        store = new OfflineBundleStore(dir);
+        assertEquals(1, store.getActiveChange());
+        assertArrayEquals("1-a".getBytes(),
+                store.read(new DiskLruFileCache(createTempDir(), 1000), "a"));
+    }
+
+    private static void commitBundle(OfflineBundleStore store, int legacyChangeId,
+            String bundleId, String... names) throws IOException {
+        DiskLruFileCache bundle = store.create(legacyChangeId);
+        for (String name : names) {
+            bundle.write(name, (legacyChangeId + "-" + name).getBytes());
+        }
+        store.commit(legacyChangeId, bundle, bundleId);
+    }
+
+    private static void assertMissing(OfflineBundleStore store, DiskLruFileCache cache,
+            String name) throws IOException {
+        assertNull(store.getActiveFile(name));
+        try {
+            store.read(cache, name);
+            fail(name + " should be missing");
+        } catch (FileNotFoundException ex) {
+            // Expected
+        }
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("offline", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdirs());
+        dir.deleteOnExit();
+        return dir;
+    }
+}
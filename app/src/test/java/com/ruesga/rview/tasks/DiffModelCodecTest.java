@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.tasks;
+
+import com.ruesga.rview.widget.DiffView;
+import com.ruesga.rview.widget.DiffView.AdviseModel;
+import com.ruesga.rview.widget.DiffView.DiffInfoModel;
+import com.ruesga.rview.widget.DiffView.SkipLineModel;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DiffModelCodecTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            longLine.append((char) ('a' + i % 26));
+        }
+
+        List<DiffView.AbstractModel> model = new ArrayList<>();
+        AdviseModel advise = new AdviseModel();
+        advise.msg = "No differences";
+        model.add(advise);
+        SkipLineModel skip = new SkipLineModel();
+        skip.msg = "2 skipped lines";
+        skip.skippedLines = new DiffInfoModel[]{
+                createLine(1, 1, "\tint a;", "\tint a;", null, null),
+                createLine(2, 2, "", "", null, null)};
+        model.add(skip);
+        model.add(createLine(3, -1, "caf\u00e9", null, new int[]{0, 4}, null));
+        model.add(createLine(-1, 3, null, longLine.toString(), null, new int[]{1, 2, 5, 9}));
+
+        List<DiffView.AbstractModel> decoded =
+                DiffModelCodec.decode(DiffModelCodec.encode(model));
+        assertEquals(model.size(), decoded.size());
+        assertEquals(advise.msg, ((AdviseModel) decoded.get(0)).msg);
+        SkipLineModel decodedSkip = (SkipLineModel) decoded.get(1);
+        assertEquals(skip.msg, decodedSkip.msg);
+        assertEquals(2, decodedSkip.skippedLines.length);
+        assertSameLine(skip.skippedLines[0], decodedSkip.skippedLines[0]);
+        assertSameLine(skip.skippedLines[1], decodedSkip.skippedLines[1]);
+        assertSame(decodedSkip.skippedLines[0].lineA, decodedSkip.skippedLines[0].lineB);
+        assertSameLine((DiffInfoModel) model.get(2), (DiffInfoModel) decoded.get(2));
+        assertSameLine((DiffInfoModel) model.get(3), (DiffInfoModel) decoded.get(3));
+        assertNull(((DiffInfoModel) decoded.get(3)).lineNumberA);
+    }
+
+    @Test
+    public void testRejectsUnknownVersion() throws IOException {
+        byte[] data = DiffModelCodec.encode(new ArrayList<>());
+        data[3] = 0x7f;
+        try {
+            DiffModelCodec.decode(data);
+            throw new AssertionError("expected IOException");
+        } catch (IOException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testRejectsCorruptedLength() throws IOException {
+        List<DiffView.AbstractModel> model = new ArrayList<>();
+        AdviseModel advise = new AdviseModel();
+        advise.msg = "advise";
+        model.add(advise);
+        byte[] data = DiffModelCodec.encode(model);
+
+        // version, count and type precede the length of the message
+        data[9] = 0x7f;
+        try {
+            DiffModelCodec.decode(data);
+            throw new AssertionError("expected IOException");
+        } catch (IOException ex) {
+            // Expected
+        }
+    }
+
+    private static DiffInfoModel createLine(
+            int a, int b, String lineA, String lineB, int[] editsA, int[] editsB) {
+        DiffInfoModel line = new DiffInfoModel();
+        line.a = a;
+        line.b = b;
+        line.lineNumberA = a != -1 ? String.valueOf(a) : null;
+        line.lineNumberB = b != -1 ? String.valueOf(b) : null;
+        line.lineA = lineA;
+        line.lineB = lineB;
+        line.editsA = editsA;
+        line.editsB = editsB;
+        line.colorA = a * 31;
+        line.colorB = b * 17;
+        line.editColorA = 0xff00ff00;
+        line.editColorB = 0xffff0000;
+        return line;
+    }
+
+    private static void assertSameLine(DiffInfoModel expected, DiffInfoModel actual) {
+        assertEquals(expected.a, actual.a);
+        assertEquals(expected.b, actual.b);
+        assertEquals(String.valueOf(expected.lineNumberA), String.valueOf(actual.lineNumberA));
+        assertEquals(String.valueOf(expected.lineNumberB), String.valueOf(actual.lineNumberB));
+        assertEquals(String.valueOf(expected.lineA), String.valueOf(actual.lineA));
+        assertEquals(String.valueOf(expected.lineB), String.valueOf(actual.lineB));
+        assertArrayEquals(expected.editsA, actual.editsA);
+        assertArrayEquals(expected.editsB, actual.editsB);
+        assertEquals(expected.colorA, actual.colorA);
+        assertEquals(expected.colorB, actual.colorB);
+        assertEquals(expected.editColorA, actual.editColorA);
+        assertEquals(expected.editColorB, actual.editColorB);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.tasks;
+
+import com.ruesga.rview.gerrit.model.CommentInfo;
+import com.ruesga.rview.widget.DiffView;
+import com.ruesga.rview.widget.DiffView.CommentModel;
+import com.ruesga.rview.widget.DiffView.DiffInfoModel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DiffModelIndexTest {
+
+    private static final int LINES = 10000;
+    private static final int COMMENTS = 500;
+
+    @Test
+    public void testCommentsShareSideBySideRows() {
+        List<DiffView.AbstractModel> model = createModel(3);
+        DiffModelIndex index = new DiffModelIndex(DiffView.SIDE_BY_SIDE_MODE, model);
+        List<CommentInfo> commentsA = new ArrayList<>();
+        commentsA.add(createComment(2, 1));
+        commentsA.add(createComment(null, 1));
+        List<CommentInfo> commentsB = new ArrayList<>();
+        commentsB.add(createComment(2, 1));
+        commentsB.add(createComment(2, 1));
+        index.addComments(commentsA, true, false);
+        index.addComments(commentsB, false, false);
+
+        List<DiffView.AbstractModel> merged = index.merge(model);
+        assertEquals(7, merged.size());
+        CommentModel file = (CommentModel) merged.get(0);
+        assertNull(file.diff);
+        assertSame(commentsA.get(1), file.commentA);
+        assertSame(model.get(1), merged.get(2));
+        CommentModel row = (CommentModel) merged.get(3);
+        assertSame(commentsA.get(0), row.commentA);
+        assertSame(commentsB.get(0), row.commentB);
+        row = (CommentModel) merged.get(4);
+        assertNull(row.commentA);
+        assertSame(commentsB.get(1), row.commentB);
+        assertSame(model.get(1), row.diff);
+    }
+
+    @Test
+    public void testBenchmarkCommentsOnLargeFile() {
+        for (int mode : new int[]{DiffView.SIDE_BY_SIDE_MODE, DiffView.UNIFIED_MODE}) {
+            Random random = new Random(mode);
+            List<CommentInfo> comments = createComments(random);
+            List<CommentInfo> drafts = createComments(random);
+
+            List<DiffView.AbstractModel> expected = createModel(LINES);
+            long start = System.nanoTime();
+            addCommentsByScanning(expected, comments, mode, true, false);
+            addCommentsByScanning(expected, drafts, mode, false, true);
+            long scan = System.nanoTime() - start;
+
+            List<DiffView.AbstractModel> model = createModel(LINES);
+            start = System.nanoTime();
+            DiffModelIndex index = new DiffModelIndex(mode, model);
+            index.addComments(comments, true, false);
+            index.addComments(drafts, false, true);
+            List<DiffView.AbstractModel> merged = index.merge(model);
+            long indexed = System.nanoTime() - start;
+
+            assertSameModel(expected, merged);
+            System.out.println("mode " + mode + ": " + (2 * COMMENTS) + " comments on "
+                    + LINES + " lines; scan " + (scan / 1000000) + "ms, index "
+                    + (indexed / 1000000) + "ms");
+        }
+    }
+
+    private static void assertSameModel(
+            List<DiffView.AbstractModel> expected, List<DiffView.AbstractModel> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            DiffView.AbstractModel e = expected.get(i);
+            DiffView.AbstractModel a = actual.get(i);
+            assertSame(e.getClass(), a.getClass());
+            if (e instanceof DiffInfoModel) {
+                assertEquals(((DiffInfoModel) e).a, ((DiffInfoModel) a).a);
+            } else if (e instanceof CommentModel) {
+                CommentModel ec = (CommentModel) e;
+                CommentModel ac = (CommentModel) a;
+                assertSame(ec.commentA, ac.commentA);
+                assertSame(ec.commentB, ac.commentB);
+                assertTrue("row " + i, ec.isDraft == ac.isDraft);
+                assertTrue("row " + i, (ec.diff == null) == (ac.diff == null));
+                if (ec.diff != null) {
+                    assertEquals(ec.diff.a, ac.diff.a);
+                }
+            }
+        }
+    }
+
+    private static List<DiffView.AbstractModel> createModel(int lines) {
+        List<DiffView.AbstractModel> model = new ArrayList<>(lines + 1);
+        for (int i = 1; i <= lines; i++) {
+            DiffInfoModel diff = new DiffInfoModel();
+            diff.a = diff.b = i;
+            model.add(diff);
+        }
+        model.add(new DiffView.DecoratorModel());
+        return model;
+    }
+
+    private static List<CommentInfo> createComments(Random random) {
+        List<CommentInfo> comments = new ArrayList<>(COMMENTS);
+        for (int i = 0; i < COMMENTS; i++) {
+            Integer line = random.nextInt(50) == 0 ? null : 1 + random.nextInt(LINES);
+            comments.add(createComment(line, random.nextInt(10) == 0 ? 0 : 1));
+        }
+        return comments;
+    }
+
+    private static CommentInfo createComment(Integer line, int patchSet) {
+        CommentInfo comment = new CommentInfo();
+        comment.line = line;
+        comment.patchSet = patchSet;
+        return comment;
+    }
+
+    // The previous implementation: a scan of the model for every comment
+    private static void addCommentsByScanning(List<DiffView.AbstractModel> model,
+            List<CommentInfo> comments, int mode, boolean isA, boolean isDraft) {
+        for (CommentInfo comment : comments) {
+            boolean isLeft = comment.patchSet == 0 || isA;
+            int pos = -1;
+            if (comment.line != null) {
+                pos = findLineInModel(model, isLeft, comment.line);
+                if (pos == -1) {
+                    continue;
+                }
+            }
+
+            int reusablePos = mode == DiffView.SIDE_BY_SIDE_MODE
+                    ? findReusableCommentView(model, pos, isLeft) : -1;
+            if (reusablePos != -1) {
+                CommentModel commentModel = (CommentModel) model.get(reusablePos);
+                commentModel.isDraft = isDraft;
+                if (isLeft) {
+                    commentModel.commentA = comment;
+                } else {
+                    commentModel.commentB = comment;
+                }
+            } else {
+                CommentModel commentModel = new CommentModel();
+                commentModel.diff = pos == -1 ? null : (DiffInfoModel) model.get(pos);
+                commentModel.isDraft = isDraft;
+                if (isLeft || mode == DiffView.UNIFIED_MODE) {
+                    commentModel.commentA = comment;
+                } else {
+                    commentModel.commentB = comment;
+                }
+                int nextPos = findNextPositionWithoutComment(model, pos);
+                model.add(nextPos == -1 ? pos + 1 : nextPos, commentModel);
+            }
+        }
+    }
+
+    private static int findLineInModel(List<DiffView.AbstractModel> model, boolean isA, int line) {
+        for (int i = 0; i < model.size(); i++) {
+            DiffView.AbstractModel m = model.get(i);
+            if (m instanceof DiffInfoModel) {
+                DiffInfoModel diff = (DiffInfoModel) m;
+                if ((isA && diff.a == line) || (!isA && diff.b == line)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int findReusableCommentView(
+            List<DiffView.AbstractModel> model, int pos, boolean isA) {
+        for (int i = pos + 1; i < model.size(); i++) {
+            DiffView.AbstractModel m = model.get(i);
+            if (!(m instanceof CommentModel)) {
+                break;
+            }
+            CommentModel comment = (CommentModel) m;
+            if ((isA && comment.commentA == null && comment.commentB != null)
+                    || (!isA && comment.commentB == null && comment.commentA != null)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int findNextPositionWithoutComment(List<DiffView.AbstractModel> model, int pos) {
+        for (int i = pos + 1; i < model.size(); i++) {
+            if (!(model.get(i) instanceof CommentModel)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
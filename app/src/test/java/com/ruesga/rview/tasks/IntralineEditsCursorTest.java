@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.tasks;
+
+import com.ruesga.rview.gerrit.model.DiffIntralineInfo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IntralineEditsCursorTest {
+
+    private static final int LINES = 20000;
+
+    @Test
+    public void testMultilineEdits() {
+        // "abc\ndef\nghi" with an edit from "c" to "e" and other one at "i"
+        List<List<Integer>> edits = Arrays.asList(
+                Arrays.asList(2, 4), Arrays.asList(4, 1));
+        IntralineEditsCursor cursor = new IntralineEditsCursor(toIntralineInfo(edits));
+        assertEquals("[2,3]", collect(cursor, 0, 3));
+        assertEquals("[0,2]", collect(cursor, 4, 3));
+        assertEquals("[2,3]", collect(cursor, 8, 3));
+    }
+
+    @Test
+    public void testSyntheticDiffMatchesFullScan() {
+        Random random = new Random(LINES);
+        int[] lengths = new int[LINES];
+        int total = 0;
+        for (int i = 0; i < LINES; i++) {
+            lengths[i] = random.nextInt(120);
+            total += lengths[i] + 1;
+        }
+
+        List<List<Integer>> edits = new ArrayList<>();
+        int offset = 0;
+        while (true) {
+            int skip = random.nextInt(40);
+            int mark = random.nextInt(random.nextInt(10) == 0 ? 400 : 8);
+            if (offset + skip + mark >= total) {
+                break;
+            }
+            edits.add(Arrays.asList(skip, mark));
+            offset += skip + mark;
+        }
+
+        IntralineEditsCursor cursor = new IntralineEditsCursor(toIntralineInfo(edits));
+        int pos = 0;
+        for (int i = 0; i < LINES; i++) {
+            assertEquals("line " + i, fullScan(edits, pos, lengths[i]),
+                    collect(cursor, pos, lengths[i]));
+            pos += lengths[i] + 1;
+        }
+
+        // Every edit is visited once per line that it touches, plus once when skipped
+        assertTrue("visited " + cursor.visited(), cursor.visited() <= 2 * (LINES + edits.size()));
+    }
+
+    @Test
+    public void testEditsInLine() {
+        List<List<Integer>> edits = Arrays.asList(
+                Arrays.asList(2, 4), Arrays.asList(4, 1));
+        IntralineEditsCursor cursor = new IntralineEditsCursor(toIntralineInfo(edits));
+        assertArrayEquals(new int[]{2, 3}, cursor.editsInLine(0, 3));
+        assertArrayEquals(new int[]{0, 2}, cursor.editsInLine(4, 3));
+        assertArrayEquals(new int[]{2, 3}, cursor.editsInLine(8, 3));
+        assertNull(cursor.editsInLine(12, 3));
+    }
+
+    private static DiffIntralineInfo toIntralineInfo(List<List<Integer>> edits) {
+        int[] packed = new int[edits.size() * 2];
+        for (int i = 0; i < edits.size(); i++) {
+            packed[i * 2] = edits.get(i).get(0);
+            packed[i * 2 + 1] = edits.get(i).get(1);
+        }
+        return new DiffIntralineInfo(packed, edits.size());
+    }
+
+    private static String collect(IntralineEditsCursor cursor, int pos, int length) {
+        int[] ranges = cursor.editsInLine(pos, length);
+        if (ranges == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ranges.length; i += 2) {
+            sb.append("[").append(ranges[i]).append(",").append(ranges[i + 1]).append("]");
+        }
+        return sb.toString();
+    }
+
+    // The previous implementation: a full scan of the edits for every line
+    private static String fullScan(List<List<Integer>> edits, int pos, int length) {
+        StringBuilder sb = new StringBuilder();
+        int s2 = 0;
+        for (List<Integer> intra : edits) {
+            int s1 = s2 + intra.get(0);
+            s2 = s1 + intra.get(1);
+            int l = pos + length;
+            if ((s1 >= pos && s1 <= l) || (s2 >= pos && s2 <= l) || (s1 <= pos && s2 >= l)) {
+                sb.append("[").append(Math.max(pos, s1) - pos).append(",")
+                        .append(Math.min(l, s2) - pos).append("]");
+            }
+        }
+        return sb.toString();
+    }
+}
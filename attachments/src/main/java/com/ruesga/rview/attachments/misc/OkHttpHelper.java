@@ -79,8 +79,22 @@ public class OkHttpHelper {
     }
 
     private static DelegatingSocketFactory sDelegatingSocketFactory;
+    private static OkHttpClient sRootClient;
+
+    /**
+     * Set the client from which the attachments clients are derived, so they share its
+     * connection pool, dispatcher and TLS session cache.
+     */
+    public static synchronized void setRootClient(OkHttpClient client) {
+        sRootClient = client;
+    }
 
-    public static OkHttpClient.Builder getSafeClientBuilder() {
+    public static synchronized OkHttpClient.Builder getSafeClientBuilder() {
+        if (sRootClient != null) {
+            // The root client already tags its sockets
+            return sRootClient.newBuilder()
+                    .connectionSpecs(createConnectionSpecs());
+        }
         if (sDelegatingSocketFactory == null) {
             sDelegatingSocketFactory = new DelegatingSocketFactory(SocketFactory.getDefault());
         }
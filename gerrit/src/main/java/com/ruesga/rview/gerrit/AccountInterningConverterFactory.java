@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import com.ruesga.rview.gerrit.adapters.AccountInfoInterner;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Wraps a converter factory so every response is deserialized with its own accounts
+ * interner active. Accounts are never shared between responses.
+ */
+class AccountInterningConverterFactory extends Converter.Factory {
+
+    private final Converter.Factory mDelegate;
+
+    AccountInterningConverterFactory(Converter.Factory delegate) {
+        mDelegate = delegate;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(
+            Type type, Annotation[] annotations, Retrofit retrofit) {
+        final Converter<ResponseBody, ?> converter =
+                mDelegate.responseBodyConverter(type, annotations, retrofit);
+        if (converter == null) {
+            return null;
+        }
+        return (Converter<ResponseBody, Object>) value -> {
+            AccountInfoInterner previous = new AccountInfoInterner().enter();
+            try {
+                return converter.convert(value);
+            } finally {
+                AccountInfoInterner.exit(previous);
+            }
+        };
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type,
+            Annotation[] parameterAnnotations, Annotation[] methodAnnotations, Retrofit retrofit) {
+        return mDelegate.requestBodyConverter(
+                type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+
+    @Override
+    public Converter<?, String> stringConverter(
+            Type type, Annotation[] annotations, Retrofit retrofit) {
+        return mDelegate.stringConverter(type, annotations, retrofit);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * The observable returned by the api calls. It subscribes to the underlying (Retrofit)
+ * observable without blocking, so disposing the subscription cancels the http call. Empty
+ * responses are completed without emitting items.
+ */
+final class ApiCallObservable<T> extends Observable<T> {
+
+    private final ObservableSource<T> mSource;
+
+    ApiCallObservable(ObservableSource<T> source) {
+        mSource = source;
+    }
+
+    @Override
+    protected void subscribeActual(Observer<? super T> observer) {
+        mSource.subscribe(new ApiCallObserver<>(observer));
+    }
+
+    private static final class ApiCallObserver<T> implements Observer<T>, Disposable {
+        private final Observer<? super T> mDownstream;
+        private Disposable mUpstream;
+
+        ApiCallObserver(Observer<? super T> downstream) {
+            mDownstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            mUpstream = d;
+            mDownstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T t) {
+            // Retrofit emits null for empty bodies
+            if (t != null) {
+                mDownstream.onNext(t);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            mDownstream.onError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            mDownstream.onComplete();
+        }
+
+        @Override
+        public void dispose() {
+            mUpstream.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return mUpstream.isDisposed();
+        }
+    }
+}
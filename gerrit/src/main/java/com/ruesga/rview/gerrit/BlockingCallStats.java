@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A snapshot of the threads that were kept blocked (in {@code blockingFirst} and similar)
+ * waiting for the response of a {@link GerritApi} call.
+ */
+public class BlockingCallStats {
+    public final long mBlockingCalls;
+    public final long mBlocked;
+    public final long mPeakBlocked;
+    public final long mBlockedTime;
+
+    BlockingCallStats(long blockingCalls, long blocked, long peakBlocked, long blockedTime) {
+        mBlockingCalls = blockingCalls;
+        mBlocked = blocked;
+        mPeakBlocked = peakBlocked;
+        mBlockedTime = blockedTime;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "BlockingCallStats{blockingCalls=" + mBlockingCalls + ", blocked=" + mBlocked
+                + ", peakBlocked=" + mPeakBlocked + ", blockedTime=" + mBlockedTime + "ms}";
+    }
+}
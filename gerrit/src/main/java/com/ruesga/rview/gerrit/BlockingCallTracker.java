@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts the threads blocked waiting for an api call.
+ */
+class BlockingCallTracker {
+
+    private final AtomicLong mBlockingCalls = new AtomicLong();
+    private final AtomicLong mBlocked = new AtomicLong();
+    private final AtomicLong mPeakBlocked = new AtomicLong();
+    private final AtomicLong mBlockedTime = new AtomicLong();
+
+    long begin() {
+        mBlockingCalls.incrementAndGet();
+        long blocked = mBlocked.incrementAndGet();
+        long peak;
+        do {
+            peak = mPeakBlocked.get();
+        } while (blocked > peak && !mPeakBlocked.compareAndSet(peak, blocked));
+        return System.nanoTime();
+    }
+
+    void end(long start) {
+        mBlocked.decrementAndGet();
+        mBlockedTime.addAndGet((System.nanoTime() - start) / 1000000L);
+    }
+
+    BlockingCallStats stats() {
+        return new BlockingCallStats(mBlockingCalls.get(), mBlocked.get(),
+                mPeakBlocked.get(), mBlockedTime.get());
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
+
+/**
+ * Waits on the calling thread for the response of an api call. Calls should be composed
+ * without blocking, but when a thread must wait use this instead of the observable blocking
+ * operators, so the blocked threads are accounted in {@link GerritApi#getBlockingCallStats()}.
+ */
+public final class BlockingCalls {
+
+    private static final BlockingCallTracker sTracker = new BlockingCallTracker();
+
+    private BlockingCalls() {
+    }
+
+    public static <T> T first(Observable<T> call) {
+        final long start = sTracker.begin();
+        try {
+            return call.blockingFirst();
+        } finally {
+            sTracker.end(start);
+        }
+    }
+
+    /**
+     * Waits for the response of an api call and consumes it before the call is released. Use
+     * it for streamed responses, whose body can't be read once the call was disposed.
+     */
+    public static <T, R> R first(Observable<T> call, Function<? super T, ? extends R> consumer) {
+        return first(call.map(consumer));
+    }
+
+    static BlockingCallStats stats() {
+        return sTracker.stats();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A snapshot of how the connections of the shared http connection pool were reused.
+ */
+public class ConnectionPoolStats {
+    public final long mCalls;
+    public final long mConnectionsAcquired;
+    public final long mConnectionsCreated;
+    public final long mTlsHandshakes;
+    public final long mConnections;
+    public final long mIdleConnections;
+
+    ConnectionPoolStats(long calls, long connectionsAcquired, long connectionsCreated,
+            long tlsHandshakes, long connections, long idleConnections) {
+        mCalls = calls;
+        mConnectionsAcquired = connectionsAcquired;
+        mConnectionsCreated = connectionsCreated;
+        mTlsHandshakes = tlsHandshakes;
+        mConnections = connections;
+        mIdleConnections = idleConnections;
+    }
+
+    /**
+     * Return the number of times an already opened connection was reused.
+     */
+    public long reused() {
+        return Math.max(0, mConnectionsAcquired - mConnectionsCreated);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats{calls=" + mCalls + ", acquired=" + mConnectionsAcquired
+                + ", created=" + mConnectionsCreated + ", reused=" + reused()
+                + ", tlsHandshakes=" + mTlsHandshakes + ", connections=" + mConnections
+                + ", idle=" + mIdleConnections + "}";
+    }
+}
@@ -100,6 +100,21 @@ public interface GerritApi {
             @NonNull String revisionId,
             @NonNull PatchFileFormat format);
 
+    /**
+     * Return the usage statistics of the http response cache
+     */
+    HttpCacheStats getHttpCacheStats();
+
+    /**
+     * Return how many concurrent identical requests were collapsed into a single one
+     */
+    RequestCoalescingStats getRequestCoalescingStats();
+
+    /**
+     * Return how many threads were blocked in {@link BlockingCalls} waiting for an api call
+     */
+    BlockingCallStats getBlockingCallStats();
+
     /**
      * Return an implementation of ApiVersionMediator
      */
@@ -541,6 +556,18 @@ public interface GerritApi {
             @Nullable Integer start,
             @Nullable List<ChangeOptions> options);
 
+    /**
+     * Fetches several queries in a single request. The results are returned in the same
+     * order as the queries, and count and start apply to every query.
+     *
+     * @link "https://gerrit-review.googlesource.com/Documentation/rest-api-changes.html#list-changes"
+     */
+    Observable<List<List<ChangeInfo>>> getChanges(
+            @NonNull List<ChangeQuery> queries,
+            @Nullable Integer count,
+            @Nullable Integer start,
+            @Nullable List<ChangeOptions> options);
+
     /**
      * @link "https://gerrit-review.googlesource.com/Documentation/rest-api-changes.html#get-change"
      */
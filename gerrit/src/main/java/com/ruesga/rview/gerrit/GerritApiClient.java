@@ -25,8 +25,6 @@ import com.burgstaller.okhttp.basic.BasicAuthenticator;
 import com.burgstaller.okhttp.digest.CachingAuthenticator;
 import com.burgstaller.okhttp.digest.Credentials;
 import com.burgstaller.okhttp.digest.DigestAuthenticator;
-import com.google.gson.annotations.Since;
-import com.ruesga.rview.gerrit.annotations.Until;
 import com.ruesga.rview.gerrit.filter.AccountQuery;
 import com.ruesga.rview.gerrit.filter.ChangeQuery;
 import com.ruesga.rview.gerrit.filter.GroupQuery;
@@ -34,6 +32,7 @@ import com.ruesga.rview.gerrit.filter.Option;
 import com.ruesga.rview.gerrit.filter.ProjectQuery;
 import com.ruesga.rview.gerrit.model.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,6 +40,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -48,7 +48,9 @@ import java.util.regex.Pattern;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import io.reactivex.Observable;
-import me.tatarka.rxloader2.safe.SafeObservable;
+import io.reactivex.ObservableSource;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Cache;
 import okhttp3.Cookie;
 import okhttp3.CookieJar;
 import okhttp3.FormBody;
@@ -60,6 +62,7 @@ import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 import okhttp3.logging.HttpLoggingInterceptor;
+import retrofit2.Converter;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -69,16 +72,27 @@ class GerritApiClient implements GerritApi {
     private final String mEndPoint;
     private final GerritRestApi mService;
     private final CookieManager mCookieManager;
-    private boolean mWasAuthorizedPreviously = false;
+    private volatile boolean mWasAuthorizedPreviously = false;
+    private final Object mLoginLock = new Object();
+    private volatile int mLoginGeneration = 0;
+    private boolean mLastLoginSucceeded = false;
     private final PlatformAbstractionLayer mAbstractionLayer;
-    private long mLastServerVersionCheck = 0;
-    ServerVersion mServerVersion;
-    private List<Features> mSupportedFeatures = new ArrayList<>();
+    private volatile long mLastServerVersionCheck = 0;
+    volatile ServerVersion mServerVersion;
+    private volatile VersionCapabilities mCapabilities;
+    private volatile boolean mServerVersionConfirmed = false;
+    private final ServerVersionStore mServerVersionStore;
+    private final Cache mHttpCache;
+    private final HttpCacheRevalidationInterceptor mHttpCacheRevalidationInterceptor;
+    private final RequestCoalescer mRequestCoalescer = new RequestCoalescer();
 
     private static final String AUTHENTICATED_PATH = "/a/";
     private static final String LOGIN_PATH = "login/";
     private static final Pattern xAUTH_PATTERN = Pattern.compile(".*?xGerritAuth=\"(.+?)\"");
 
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+
+    // Thread-safe: shared by all the concurrent requests of the client
     private static class CookieManager implements CookieJar {
         private static final String GERRIT_ACCOUNT_COOKIE = "GerritAccount";
         private static final String XSRF_TOKEN_COOKIE = "XSRF_TOKEN";
@@ -93,7 +107,7 @@ class GerritApiClient implements GerritApi {
         }
 
         @Override
-        public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+        public synchronized void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
             if (isGerritEntryPointUrl(url)) {
                 for (Cookie cookie : cookies) {
                     if (ACCEPTED_COOKIES.contains(cookie.name())){
@@ -104,7 +118,7 @@ class GerritApiClient implements GerritApi {
         }
 
         @Override
-        public List<Cookie> loadForRequest(HttpUrl url) {
+        public synchronized List<Cookie> loadForRequest(HttpUrl url) {
             List<Cookie> cookies = new ArrayList<>();
             if (isGerritEntryPointUrl(url)) {
                 cookies.addAll(mCookieStore.values());
@@ -112,22 +126,21 @@ class GerritApiClient implements GerritApi {
             return cookies;
         }
 
-        private String value(String name) {
-            if (mCookieStore.containsKey(name)) {
-                return mCookieStore.get(name).value();
-            }
-            return null;
+        private synchronized String value(String name) {
+            Cookie cookie = mCookieStore.get(name);
+            return cookie != null ? cookie.value() : null;
         }
 
-        private boolean expired(String name) {
-            if (mCookieStore.containsKey(name)) {
-                long expiresAt = mCookieStore.get(name).expiresAt();
+        private synchronized boolean expired(String name) {
+            Cookie cookie = mCookieStore.get(name);
+            if (cookie != null) {
+                long expiresAt = cookie.expiresAt();
                 return expiresAt > 0 && expiresAt < System.currentTimeMillis();
             }
             return false;
         }
 
-        private void add(String name, String value) {
+        private synchronized void add(String name, String value) {
             Cookie cookie = new Cookie.Builder()
                     .name(name)
                     .value(value)
@@ -137,7 +150,7 @@ class GerritApiClient implements GerritApi {
             mCookieStore.put(name, cookie);
         }
 
-        private void clear() {
+        private synchronized void clear() {
             mCookieStore.clear();
         }
 
@@ -149,10 +162,30 @@ class GerritApiClient implements GerritApi {
 
     GerritApiClient(String endpoint, Authorization authorization,
             PlatformAbstractionLayer abstractionLayer) {
+        this(endpoint, authorization, abstractionLayer, null);
+    }
+
+    GerritApiClient(String endpoint, Authorization authorization,
+            PlatformAbstractionLayer abstractionLayer, File cacheDir) {
+        this(endpoint, authorization, abstractionLayer, cacheDir, null);
+    }
+
+    GerritApiClient(String endpoint, Authorization authorization,
+            PlatformAbstractionLayer abstractionLayer, File cacheDir, File serverVersionFile) {
         mAbstractionLayer = abstractionLayer;
         mEndPoint = endpoint;
         mCookieManager = new CookieManager(toUnauthenticatedEndpoint(mEndPoint));
 
+        // Start with the last known version of the server. It will be revalidated in
+        // background by the first api call
+        mServerVersionStore = new ServerVersionStore(serverVersionFile);
+        ServerVersionStore.Entry entry = mServerVersionStore.load();
+        if (entry != null) {
+            mCapabilities = VersionCapabilities.forVersion(entry.mServerVersion);
+            mServerVersion = entry.mServerVersion;
+            mLastServerVersionCheck = entry.mCheckedAt;
+        }
+
         Authorization auth = authorization;
         if (auth == null) {
             auth = new Authorization();
@@ -181,6 +214,15 @@ class GerritApiClient implements GerritApi {
                 .addInterceptor(createConnectivityCheckInterceptor())
                 .addInterceptor(createLoggingInterceptor())
                 .addInterceptor(createHeadersInterceptor(auth));
+        mHttpCacheRevalidationInterceptor = new HttpCacheRevalidationInterceptor();
+        if (cacheDir != null) {
+            mHttpCache = new Cache(cacheDir, HTTP_CACHE_SIZE);
+            clientBuilder
+                    .cache(mHttpCache)
+                    .addNetworkInterceptor(mHttpCacheRevalidationInterceptor);
+        } else {
+            mHttpCache = null;
+        }
         if (!auth.isAnonymousUser()) {
             final Map<String, CachingAuthenticator> authCache = new ConcurrentHashMap<>();
             clientBuilder
@@ -189,9 +231,10 @@ class GerritApiClient implements GerritApi {
         }
         OkHttpClient client = clientBuilder.build();
 
-        // Gson adapter
-        GsonConverterFactory gsonFactory = GsonConverterFactory.create(
-                GsonHelper.createGerritGsonBuilder(true, mAbstractionLayer).create());
+        // Gson adapter. Accounts are shared within each response
+        Converter.Factory gsonFactory = new AccountInterningConverterFactory(
+                GsonConverterFactory.create(
+                        GsonHelper.createGerritGsonBuilder(true, mAbstractionLayer).create()));
 
         // RxJava adapter
         RxJava2CallAdapterFactory rxAdapter = RxJava2CallAdapterFactory.create();
@@ -242,12 +285,14 @@ class GerritApiClient implements GerritApi {
             }
 
             // Sent cookie authorization?
+            int loginGeneration = mLoginGeneration;
             String token = mCookieManager.value(CookieManager.XSRF_TOKEN_COOKIE);
             if (token != null && mCookieManager.expired(CookieManager.GERRIT_ACCOUNT_COOKIE)) {
                 // Expired? Login again
-                if (login(chain, auth)) {
+                if (login(chain, auth, loginGeneration)) {
                     token = mCookieManager.value(CookieManager.XSRF_TOKEN_COOKIE);
                 }
+                loginGeneration = mLoginGeneration;
             }
             if (token != null) {
                 requestBuilder.header("X-Gerrit-Auth", token);
@@ -260,8 +305,13 @@ class GerritApiClient implements GerritApi {
             if (response.code() == 401 || (response.code() == 403 && !mWasAuthorizedPreviously)) {
                 // Unauthorized or Forbidden without previous being authorized.
                 // Try to login in order to obtain a XSRF token
-                if (login(chain, auth)) {
-                    // Make request again, now with all the necessary tokens
+                if (login(chain, auth, loginGeneration)) {
+                    // Make request again (only once), now with all the necessary tokens
+                    response.close();
+                    token = mCookieManager.value(CookieManager.XSRF_TOKEN_COOKIE);
+                    if (token != null) {
+                        requestBuilder.header("X-Gerrit-Auth", token);
+                    }
                     changeToUnauthenticatedEntryPoint(original, requestBuilder);
                     request = requestBuilder.build();
                     response = markAsAuthorized(chain.proceed(request));
@@ -278,10 +328,21 @@ class GerritApiClient implements GerritApi {
         return response;
     }
 
-    private boolean login(Interceptor.Chain chain, Authorization auth) {
-        // Clear all cookies before try to login
-        mCookieManager.clear();
-        return basicAuthLogin(chain) || formAuthLogin(chain, auth);
+    // Only one login runs at a time. Requests that failed with the credentials of a login
+    // which was already replaced (generation) just wait for it and reuse its result, instead
+    // of wiping the new cookies with another login
+    private boolean login(Interceptor.Chain chain, Authorization auth, int generation) {
+        synchronized (mLoginLock) {
+            if (generation != mLoginGeneration) {
+                return mLastLoginSucceeded;
+            }
+
+            // Clear all cookies before try to login
+            mCookieManager.clear();
+            mLastLoginSucceeded = basicAuthLogin(chain) || formAuthLogin(chain, auth);
+            mLoginGeneration++;
+            return mLastLoginSucceeded;
+        }
     }
 
     private boolean basicAuthLogin(Interceptor.Chain chain) {
@@ -377,66 +438,78 @@ class GerritApiClient implements GerritApi {
     }
 
     private <T> Observable<T> withVersionRequestCheck(final Observable<T> observable) {
-        return SafeObservable.fromNullCallable(() -> {
+        return withVersionRequestCheck(() -> observable);
+    }
+
+    // The call is only created once the version of the server is known, so its arguments
+    // can be resolved based on it
+    private <T> Observable<T> withVersionRequestCheck(
+            final Callable<? extends ObservableSource<T>> call) {
+        return asApiCall(Observable.defer(() -> {
+            if (mCapabilities == null) {
+                return fetchServerVersion().ignoreElements().andThen(Observable.defer(call));
+            }
             long now = System.currentTimeMillis();
-            if (mServerVersion == null ||
-                    (now - mLastServerVersionCheck > DateUtils.DAY_IN_MILLIS)) {
-                mServerVersion = getServerVersion().blockingFirst();
-                mSupportedFeatures = filterByVersion(Arrays.asList(Features.values()));
+            if (now - mLastServerVersionCheck > DateUtils.DAY_IN_MILLIS) {
+                // Keep using the known version while it is revalidated
                 mLastServerVersionCheck = now;
+                fetchServerVersion()
+                        .subscribeOn(Schedulers.io())
+                        .subscribe(version -> {}, throwable ->
+                                mAbstractionLayer.log("Can't revalidate the server version: "
+                                        + throwable.getMessage()));
             }
-            return observable.blockingFirst();
+            return call.call();
+        }));
+    }
+
+    // For the calls whose encoding depends on the exact version, the persisted one
+    // isn't enough: wait until the server confirms it in this session
+    private <T> Observable<T> withFreshVersionRequestCheck(
+            final Callable<? extends ObservableSource<T>> call) {
+        return withVersionRequestCheck(() -> {
+            if (mServerVersionConfirmed) {
+                return call.call();
+            }
+            return fetchServerVersion().ignoreElements().andThen(Observable.defer(call));
         });
     }
 
-    private <T> Observable<T> withEmptyObservable(final Observable<T> observable) {
-        return SafeObservable.fromNullCallable(observable::blockingFirst);
+    private Observable<ServerVersion> fetchServerVersion() {
+        return withCoalescing(RequestCoalescer.key("getServerVersion"), getServerVersion());
     }
 
-    private Observable<ServerVersion> andCacheVersion(final Observable<ServerVersion> observable) {
-        return SafeObservable.fromNullCallable(() -> {
-            mServerVersion = observable.blockingFirst();
-            return mServerVersion;
-        });
+    private <T> Observable<T> withCoalescing(String key, final Observable<T> observable) {
+        return asApiCall(mRequestCoalescer.coalesce(key, observable));
     }
 
-    private <T> List<T> filterByVersion(List<T> o) {
-        if (mServerVersion == null) {
-            mServerVersion = getServerVersion().blockingFirst();
-        }
-        return filterByVersion(o, mServerVersion);
+    // Calls are subscribed without blocking, so disposing them cancels the http request
+    private <T> Observable<T> asApiCall(final ObservableSource<T> observable) {
+        return new ApiCallObservable<>(observable);
     }
 
-    private <T> List<T> filterByVersion(List<T> o, ServerVersion serverVersion) {
-        if (o == null) {
-            return null;
+    private void cacheVersion(ServerVersion version) {
+        if (version != null) {
+            long now = System.currentTimeMillis();
+            mCapabilities = VersionCapabilities.forVersion(version);
+            mServerVersionConfirmed = true;
+            mLastServerVersionCheck = now;
+            mServerVersionStore.save(version, now);
         }
+        mServerVersion = version;
+    }
 
-        ArrayList<T> filter = new ArrayList<>(o.size());
-        for (T t : o) {
-            boolean isSupported = true;
-            try {
-                Since a = t.getClass().getDeclaredField(t.toString()).getAnnotation(Since.class);
-                if (a != null && a.value() > serverVersion.getVersion()) {
-                    isSupported = false;
-                }
-            } catch (Exception e) {
-                // Ignore
-            }
-            try {
-                Until a = t.getClass().getDeclaredField(t.toString()).getAnnotation(Until.class);
-                if (a != null && a.value() <= serverVersion.getVersion()) {
-                    isSupported = false;
-                }
-            } catch (Exception e) {
-                // Ignore
-            }
-
-            if (isSupported) {
-                filter.add(t);
-            }
+    private VersionCapabilities capabilities() {
+        VersionCapabilities capabilities = mCapabilities;
+        if (capabilities == null) {
+            BlockingCalls.first(fetchServerVersion());
+            capabilities = mCapabilities;
         }
-        return filter;
+        return capabilities;
+    }
+
+    private <T> List<T> filterByVersion(List<T> o) {
+        return capabilities().filter(o);
     }
 
     // ===============================
@@ -447,7 +520,7 @@ class GerritApiClient implements GerritApi {
         if (type == null) {
             return null;
         }
-        if (mServerVersion.getVersion() >= 2.13) {
+        if (capabilities().version() >= 2.13) {
             return null;
         }
         return IgnoreWhitespaceType.values()[type.ordinal()];
@@ -457,7 +530,7 @@ class GerritApiClient implements GerritApi {
         if (type == null) {
             return null;
         }
-        if (mServerVersion.getVersion() <= 2.11
+        if (capabilities().version() <= 2.11
                 && type.equals(DraftActionType.PUBLISH_ALL_REVISIONS)) {
             return DraftActionType.PUBLISH;
         }
@@ -470,28 +543,17 @@ class GerritApiClient implements GerritApi {
         Integer s1 = null;
         Integer s2 = null;
         if (start != null) {
-            if (mServerVersion.getVersion() < 2.14d) {
+            if (capabilities().usesLegacyStartParameter()) {
                 s2 = start;
-            } else if (mServerVersion.getVersion() > 2.14d) {
-                s1 = start;
             } else {
-                // 2.14: Decided based on build (only 2.14, 2.14-rc*,, 2.14.1, 2.14.2). All other
-                // combinations are 2.14.3+
-                if (mServerVersion.build != null && (mServerVersion.build.isEmpty() ||
-                        mServerVersion.build.equals("-rc") ||
-                        mServerVersion.build.equals("1") ||
-                        mServerVersion.build.equals("2"))) {
-                    s2 = start;
-                } else {
-                    s1 = start;
-                }
+                s1 = start;
             }
         }
         return new Integer[]{s1, s2};
     }
 
     private <T> T resolve(T o, double version) {
-        if (mServerVersion.getVersion() < version) {
+        if (capabilities().version() < version) {
             return null;
         }
         return o;
@@ -548,9 +610,41 @@ class GerritApiClient implements GerritApi {
                 toUnauthenticatedEndpoint(mEndPoint), docPath));
     }
 
+    @Override
+    public HttpCacheStats getHttpCacheStats() {
+        if (mHttpCache == null) {
+            return new HttpCacheStats(0, 0, 0, 0, 0);
+        }
+
+        long size;
+        try {
+            size = mHttpCache.size();
+        } catch (IOException ex) {
+            size = 0;
+        }
+        long revalidated = mHttpCacheRevalidationInterceptor.revalidatedCount();
+        return new HttpCacheStats(
+                mHttpCache.requestCount(),
+                mHttpCache.hitCount(),
+                Math.max(0, mHttpCache.networkCount() - revalidated),
+                revalidated,
+                size);
+    }
+
+    @Override
+    public RequestCoalescingStats getRequestCoalescingStats() {
+        return mRequestCoalescer.stats();
+    }
+
+    @Override
+    public BlockingCallStats getBlockingCallStats() {
+        return BlockingCalls.stats();
+    }
+
     @Override
     public boolean supportsFeature(Features feature) {
-        return mSupportedFeatures.contains(feature);
+        VersionCapabilities capabilities = mCapabilities;
+        return capabilities != null && capabilities.isSupported(feature);
     }
 
     @Override
@@ -558,8 +652,7 @@ class GerritApiClient implements GerritApi {
         if (version == null) {
             return false;
         }
-        List<Features> features = filterByVersion(Arrays.asList(Features.values()), version);
-        return features.contains(feature);
+        return VersionCapabilities.forVersion(version).isSupported(feature);
     }
 
 
@@ -589,9 +682,8 @@ class GerritApiClient implements GerritApi {
     public Observable<List<AccountInfo>> getAccounts(
             @NonNull AccountQuery query, @Nullable Integer count,
             @Nullable Integer start, @Nullable List<AccountOptions> options) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(
-                () -> mService.getAccounts(query, count, start, filterByVersion(options))
-                        .blockingFirst()));
+        return withVersionRequestCheck(
+                () -> mService.getAccounts(query, count, start, filterByVersion(options)));
     }
 
     @Override
@@ -624,7 +716,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteAccountName(@NonNull String accountId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteAccountName(accountId)));
     }
 
@@ -659,21 +751,21 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<String> isAccountActive(@NonNull String accountId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.isAccountActive(accountId)));
     }
 
     @Override
     public Observable<Void> setAccountAsActive(@NonNull String accountId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.setAccountAsActive(accountId)));
     }
 
     @Override
     public Observable<Void> setAccountAsInactive(@NonNull String accountId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.setAccountAsInactive(accountId)));
     }
 
@@ -691,7 +783,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteHttpPassword(@NonNull String accountId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteHttpPassword(accountId)));
     }
 
@@ -720,7 +812,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteAccountEmail(@NonNull String accountId, @NonNull String emailId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteAccountEmail(accountId, emailId)));
     }
 
@@ -728,7 +820,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> setAccountPreferredEmail(
             @NonNull String accountId, @NonNull String emailId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.setAccountPreferredEmail(accountId, emailId)));
     }
 
@@ -751,7 +843,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteAccountSshKey(@NonNull String accountId, int sshKeyId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteAccountSshKey(accountId, sshKeyId)));
     }
 
@@ -781,9 +873,8 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<AccountCapabilityInfo> getAccountCapabilities(
             @NonNull String accountId, @Nullable List<Capability> filter) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(
-                () -> mService.getAccountCapabilities(accountId, filterByVersion(filter))
-                        .blockingFirst()));
+        return withVersionRequestCheck(
+                () -> mService.getAccountCapabilities(accountId, filterByVersion(filter)));
     }
 
     @Override
@@ -859,7 +950,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteAccountWatchedProjects(
             @NonNull String accountId, @NonNull List<DeleteProjectWatchInput> input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteAccountWatchedProjects(accountId, input)));
     }
 
@@ -872,7 +963,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteAccountExternalIds(
             @NonNull String accountId, @NonNull List<String> externalIds) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteAccountExternalIds(accountId, externalIds)));
     }
 
@@ -890,7 +981,7 @@ class GerritApiClient implements GerritApi {
 
     @Override
     public Observable<Void> indexAccount(@NonNull String accountId) {
-        return withVersionRequestCheck(withEmptyObservable(mService.indexAccount(accountId)));
+        return withVersionRequestCheck(asApiCall(mService.indexAccount(accountId)));
     }
 
     @Override
@@ -908,7 +999,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> putDefaultStarOnChange(
             @NonNull String accountId, @NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.putDefaultStarOnChange(accountId, changeId)));
     }
 
@@ -916,7 +1007,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteDefaultStarFromChange(
             @NonNull String accountId, @NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteDefaultStarFromChange(accountId, changeId)));
     }
 
@@ -953,17 +1044,36 @@ class GerritApiClient implements GerritApi {
     public Observable<List<ChangeInfo>> getChanges(
             @NonNull ChangeQuery query, @Nullable Integer count,
             @Nullable Integer start, @Nullable List<ChangeOptions> options) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(
-                () -> mService.getChanges(query, count, start, filterByVersion(options))
-                        .blockingFirst()));
+        return withVersionRequestCheck(
+                () -> mService.getChanges(query, count, start, filterByVersion(options)));
+    }
+
+    @Override
+    public Observable<List<List<ChangeInfo>>> getChanges(
+            @NonNull List<ChangeQuery> queries, @Nullable Integer count,
+            @Nullable Integer start, @Nullable List<ChangeOptions> options) {
+        if (queries.isEmpty()) {
+            return Observable.just(new ArrayList<>());
+        }
+        if (queries.size() == 1) {
+            // Gerrit returns a plain list when there is only one query
+            return asApiCall(getChanges(queries.get(0), count, start, options)
+                    .map(changes -> {
+                        List<List<ChangeInfo>> result = new ArrayList<>();
+                        result.add(changes);
+                        return result;
+                    }));
+        }
+        return withVersionRequestCheck(
+                () -> mService.getChanges(queries, count, start, filterByVersion(options)));
     }
 
     @Override
     public Observable<ChangeInfo> getChange(
             @NonNull String changeId, @Nullable List<ChangeOptions> options) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(
-                () -> mService.getChange(changeId, filterByVersion(options))
-                        .blockingFirst()));
+        return withCoalescing(RequestCoalescer.key("getChange", changeId, options),
+                withVersionRequestCheck(
+                    () -> mService.getChange(changeId, filterByVersion(options))));
     }
 
     @Override
@@ -981,9 +1091,8 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<ChangeInfo> getChangeDetail(
             @NonNull String changeId, @Nullable List<ChangeOptions> options) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(
-                () -> mService.getChangeDetail(changeId, filterByVersion(options))
-                        .blockingFirst()));
+        return withVersionRequestCheck(
+                () -> mService.getChangeDetail(changeId, filterByVersion(options)));
     }
 
     @Override
@@ -999,7 +1108,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteChangeTopic(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteChangeTopic(changeId)));
     }
 
@@ -1077,14 +1186,14 @@ class GerritApiClient implements GerritApi {
     @SuppressWarnings("deprecation")
     public Observable<Void> publishDraftChange(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.publishDraftChange(changeId)));
     }
 
     @Override
     public Observable<Void> deleteChange(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteChange(changeId)));
     }
 
@@ -1096,7 +1205,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> indexChange(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.indexChange(changeId)));
     }
 
@@ -1131,7 +1240,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> setChangeWorkInProgress(
             @NonNull String changeId, @NonNull WorkInProgressInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.setChangeWorkInProgress(changeId, input)));
     }
 
@@ -1139,7 +1248,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> setChangeReadyForReview(
             @NonNull String changeId, @NonNull WorkInProgressInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.setChangeReadyForReview(changeId, input)));
     }
 
@@ -1147,7 +1256,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> markChangeAsPrivate(
             @NonNull String changeId, @NonNull PrivateInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.markChangeAsPrivate(changeId, input)));
     }
 
@@ -1155,35 +1264,35 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> unmarkChangeAsPrivate(
             @NonNull String changeId, @NonNull PrivateInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.unmarkChangeAsPrivate(changeId, input)));
     }
 
     @Override
     public Observable<Void> ignoreChange(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.ignoreChange(changeId)));
     }
 
     @Override
     public Observable<Void> unignoreChange(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.unignoreChange(changeId)));
     }
 
     @Override
     public Observable<Void> markChangeAsReviewed(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.markChangeAsReviewed(changeId)));
     }
 
     @Override
     public Observable<Void> markChangeAsUnreviewed(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.markChangeAsUnreviewed(changeId)));
     }
 
@@ -1227,7 +1336,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> setChangeEditFile(
             @NonNull String changeId, @NonNull String fileId, @NonNull RequestBody data) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.setChangeEditFile(changeId, fileId, data)));
     }
 
@@ -1235,7 +1344,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> restoreChangeEditFile(
             @NonNull String changeId, @NonNull RestoreChangeEditInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.restoreChangeEditFile(changeId, input)));
     }
 
@@ -1243,7 +1352,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> renameChangeEditFile(
             @NonNull String changeId, @NonNull RenameChangeEditInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.renameChangeEditFile(changeId, input)));
     }
 
@@ -1251,14 +1360,14 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> newChangeEditFile(
             @NonNull String changeId, @NonNull NewChangeEditInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.newChangeEditFile(changeId, input)));
     }
 
     @Override
     public Observable<Void> deleteChangeEditFile(@NonNull String changeId, @NonNull String fileId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteChangeEditFile(changeId, fileId)));
     }
 
@@ -1283,28 +1392,28 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> setChangeEditMessage(
             @NonNull String changeId, @NonNull ChangeEditMessageInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.setChangeEditMessage(changeId, input)));
     }
 
     @Override
     public Observable<Void> publishChangeEdit(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.publishChangeEdit(changeId)));
     }
 
     @Override
     public Observable<Void> rebaseChangeEdit(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.rebaseChangeEdit(changeId)));
     }
 
     @Override
     public Observable<Void> deleteChangeEdit(@NonNull String changeId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteChangeEdit(changeId)));
     }
 
@@ -1318,8 +1427,8 @@ class GerritApiClient implements GerritApi {
     public Observable<List<SuggestedReviewerInfo>> getChangeSuggestedReviewers(
             @NonNull String changeId, @NonNull String query, @Nullable Integer count,
             @Nullable Option excludeGroups, @Nullable SuggestedReviewersState reviewersState) {
-        return withVersionRequestCheck(
-            mServerVersion.getVersion() >= 3.1d
+        return withFreshVersionRequestCheck(() ->
+            capabilities().version() >= 3.1d
                     ? mService.getChangeSuggestedReviewers(
                             changeId, query, count, excludeGroups, reviewersState)
                     : mService.getChangeSuggestedReviewers(
@@ -1345,7 +1454,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteChangeReviewer(
             @NonNull String changeId, @NonNull String accountId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteChangeReviewer(changeId, accountId)));
     }
 
@@ -1359,7 +1468,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteChangeReviewerVote(@NonNull String changeId,
             @NonNull String accountId, @NonNull String labelId, @NonNull DeleteVoteInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                     mService.deleteChangeReviewerVote(changeId, accountId, labelId, input)));
     }
 
@@ -1392,7 +1501,9 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Map<String, ActionInfo>> getChangeRevisionActions(
             @NonNull String changeId, @NonNull String revisionId) {
-        return withVersionRequestCheck(mService.getChangeRevisionActions(changeId, revisionId));
+        return withCoalescing(
+                RequestCoalescer.key("getChangeRevisionActions", changeId, revisionId),
+                withVersionRequestCheck(mService.getChangeRevisionActions(changeId, revisionId)));
     }
 
     @Override
@@ -1404,15 +1515,14 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<ReviewResultInfo> setChangeRevisionReview(@NonNull String changeId,
             @NonNull String revisionId, @NonNull ReviewInput input) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(() -> {
-            if (mServerVersion.getVersion() >= 2.15) {
+        return withVersionRequestCheck(() -> {
+            if (capabilities().version() >= 2.15) {
                 // Since 2.15, strictLabels was remove from ReviewInput
                 input.strictLabels = null;
             }
             input.drafts = resolveDraftActionType(input.drafts);
-            return mService.setChangeRevisionReview(
-                    changeId, revisionId, input).blockingFirst();
-        }));
+            return mService.setChangeRevisionReview(changeId, revisionId, input);
+        });
     }
 
     @Override
@@ -1440,7 +1550,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> publishChangeDraftRevision(
             @NonNull String changeId, @NonNull String revisionId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.publishChangeDraftRevision(changeId, revisionId)));
     }
 
@@ -1467,8 +1577,10 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<MergeableInfo> getChangeRevisionMergeableStatus(@NonNull String changeId,
             @NonNull String revisionId, @Nullable Option otherBranches) {
-        return withVersionRequestCheck(
-                mService.getChangeRevisionMergeableStatus(changeId, revisionId, otherBranches));
+        return withCoalescing(RequestCoalescer.key(
+                        "getChangeRevisionMergeableStatus", changeId, revisionId, otherBranches),
+                withVersionRequestCheck(mService.getChangeRevisionMergeableStatus(
+                        changeId, revisionId, otherBranches)));
     }
 
     @Override
@@ -1494,8 +1606,9 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Map<String, List<CommentInfo>>> getChangeRevisionDrafts(
             @NonNull String changeId, @NonNull String revisionId) {
-        return withVersionRequestCheck(
-                mService.getChangeRevisionDrafts(changeId, revisionId));
+        return withCoalescing(
+                RequestCoalescer.key("getChangeRevisionDrafts", changeId, revisionId),
+                withVersionRequestCheck(mService.getChangeRevisionDrafts(changeId, revisionId)));
     }
 
     @Override
@@ -1523,14 +1636,17 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteChangeRevisionDraft(
             @NonNull String changeId, @NonNull String revisionId, @NonNull String draftId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                     mService.deleteChangeRevisionDraft(changeId, revisionId, draftId)));
     }
 
     @Override
     public Observable<Map<String, List<CommentInfo>>> getChangeRevisionComments(
             @NonNull String changeId, @NonNull String revisionId) {
-        return withVersionRequestCheck(mService.getChangeRevisionComments(changeId, revisionId));
+        return withCoalescing(
+                RequestCoalescer.key("getChangeRevisionComments", changeId, revisionId),
+                withVersionRequestCheck(
+                        mService.getChangeRevisionComments(changeId, revisionId)));
     }
 
     @Override
@@ -1573,8 +1689,10 @@ class GerritApiClient implements GerritApi {
     public Observable<Map<String, FileInfo>> getChangeRevisionFiles(
             @NonNull String changeId, @NonNull String revisionId, @Nullable String base,
             @Nullable Option reviewed) {
-        return withVersionRequestCheck(mService.getChangeRevisionFiles(
-                changeId, revisionId, base, reviewed));
+        return withCoalescing(RequestCoalescer.key(
+                        "getChangeRevisionFiles", changeId, revisionId, base, reviewed),
+                withVersionRequestCheck(mService.getChangeRevisionFiles(
+                        changeId, revisionId, base, reviewed)));
     }
 
     @Override
@@ -1588,11 +1706,10 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<ResponseBody> getChangeRevisionFileContent(@NonNull String changeId,
             @NonNull String revisionId, @NonNull String fileId, Integer parent) {
-        return withVersionRequestCheck(SafeObservable.fromCallable(() -> {
+        return withVersionRequestCheck(() -> {
             Integer p = resolve(parent, 2.15d);
-            return mService.getChangeRevisionFileContent(
-                    changeId, revisionId, fileId, p).blockingFirst();
-        }));
+            return mService.getChangeRevisionFileContent(changeId, revisionId, fileId, p);
+        });
     }
 
     @Override
@@ -1608,25 +1725,29 @@ class GerritApiClient implements GerritApi {
             @NonNull String revisionId, @NonNull String fileId, @Nullable Integer base,
             @Nullable Option intraline, @Nullable Option weblinksOnly,
             @Nullable WhitespaceType whitespace, @Nullable ContextType context) {
-        return withVersionRequestCheck(mService.getChangeRevisionFileDiff(changeId, revisionId,
-                        fileId, base, intraline, weblinksOnly,
+        return withCoalescing(RequestCoalescer.key("getChangeRevisionFileDiff", changeId,
+                        revisionId, fileId, base, intraline, weblinksOnly, whitespace, context),
+                withVersionRequestCheck(() -> mService.getChangeRevisionFileDiff(changeId,
+                        revisionId, fileId, base, intraline, weblinksOnly,
                         resolve(whitespace, 2.13d),
                         resolveIgnoreWhiteSpaceType(whitespace),
-                        context));
+                        context)));
     }
 
     @Override
     public Observable<List<BlameInfo>> getChangeRevisionFileBlames(@NonNull String changeId,
             @NonNull String revisionId, @NonNull String fileId, @Nullable BlameBaseType base) {
-        return withVersionRequestCheck(
-                mService.getChangeRevisionFileBlames(changeId, revisionId, fileId, base));
+        return withCoalescing(RequestCoalescer.key(
+                        "getChangeRevisionFileBlames", changeId, revisionId, fileId, base),
+                withVersionRequestCheck(mService.getChangeRevisionFileBlames(
+                        changeId, revisionId, fileId, base)));
     }
 
     @Override
     public Observable<Void> setChangeRevisionFileAsReviewed(
             @NonNull String changeId, @NonNull String revisionId, @NonNull String fileId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                     mService.setChangeRevisionFileAsReviewed(changeId, revisionId, fileId)));
     }
 
@@ -1634,7 +1755,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> setChangeRevisionFileAsNotReviewed(
             @NonNull String changeId, @NonNull String revisionId, @NonNull String fileId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                     mService.setChangeRevisionFileAsNotReviewed(changeId, revisionId, fileId)));
     }
 
@@ -1663,7 +1784,7 @@ class GerritApiClient implements GerritApi {
             @NonNull String changeId, @NonNull String revisionId, @NonNull String accountId,
             @NonNull String labelId, @NonNull DeleteVoteInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteChangeRevisionReviewerVote(
                                 changeId, revisionId, accountId, labelId, input)));
     }
@@ -1677,12 +1798,13 @@ class GerritApiClient implements GerritApi {
 
     @Override
     public Observable<ServerVersion> getServerVersion() {
-        return andCacheVersion(SafeObservable.fromNullCallable(() -> {
-            ServerVersion version = mService.getServerVersion().blockingFirst();
+        return asApiCall(mService.getServerVersion().flatMap(v -> {
+            ServerVersion version = v;
             if (version != null && version.isDevelopmentVersion()) {
-                return version.createDevelopmentVersion();
+                version = version.createDevelopmentVersion();
             }
-            return version;
+            cacheVersion(version);
+            return version != null ? Observable.just(version) : Observable.empty();
         }));
     }
 
@@ -1704,7 +1826,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> confirmEmail(@NonNull EmailConfirmationInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.confirmEmail(input)));
     }
 
@@ -1716,7 +1838,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> executeServerCachesOperations(CacheOperationInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.executeServerCachesOperations(input)));
     }
 
@@ -1728,7 +1850,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> flushServerCache(@NonNull String cacheId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.flushServerCache(cacheId)));
     }
 
@@ -1755,7 +1877,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteServerTask(@NonNull String taskId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteServerTask(taskId)));
     }
 
@@ -1823,21 +1945,19 @@ class GerritApiClient implements GerritApi {
             @Nullable Option visibleToAll, @Nullable Option verbose,
             @Nullable List<GroupOptions> options, @Nullable String suggest,
             @Nullable String regexp, @Nullable String match) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(
+        return withVersionRequestCheck(
                 () -> mService.getGroups(count, start, project, user, owned,
                         visibleToAll, verbose, filterByVersion(options),suggest,
-                        resolve(regexp, 2.15d), resolve(match, 2.15d))
-                        .blockingFirst()));
+                        resolve(regexp, 2.15d), resolve(match, 2.15d)));
     }
 
     @Override
     public Observable<List<GroupInfo>> getGroups(
             @NonNull GroupQuery query, @Nullable Integer count, @Nullable Integer start,
             @Nullable String ownedBy, @Nullable List<GroupOptions> options) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(
-                () -> mService.getGroups(
-                            query, count, start, resolve(ownedBy, 2.16d), filterByVersion(options))
-                        .blockingFirst()));
+        return withVersionRequestCheck(
+                () -> mService.getGroups(query, count, start,
+                        resolve(ownedBy, 2.16d), filterByVersion(options)));
     }
 
     @Override
@@ -1879,7 +1999,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteGroupDescription(@NonNull String groupId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteGroupDescription(groupId)));
     }
 
@@ -1912,7 +2032,7 @@ class GerritApiClient implements GerritApi {
 
     @Override
     public Observable<Void> indexGroup(@NonNull String groupId) {
-        return withVersionRequestCheck(withEmptyObservable(mService.indexGroup(groupId)));
+        return withVersionRequestCheck(asApiCall(mService.indexGroup(groupId)));
     }
 
     @Override
@@ -1942,7 +2062,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteGroupMember(@NonNull String groupId, @NonNull String accountId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteGroupMember(groupId, accountId)));
     }
 
@@ -1950,7 +2070,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteGroupMembers(
             @NonNull String groupId, @NonNull MemberInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteGroupMembers(groupId, input)));
     }
 
@@ -1981,7 +2101,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteGroupSubgroup(
             @NonNull String groupId, @NonNull String subgroupId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteGroupSubgroup(groupId, subgroupId)));
     }
 
@@ -1989,7 +2109,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteGroupSubgroups(
             @NonNull String groupId, @NonNull SubgroupInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteGroupSubgroups(groupId, input)));
     }
 
@@ -2004,7 +2124,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Map<String, PluginInfo>> getPlugins(
             @Nullable Option all, @Nullable Integer count, @Nullable Integer skip,
             @Nullable String prefix, @Nullable String regexp, @Nullable String match) {
-        return withVersionRequestCheck(mService.getPlugins(
+        return withVersionRequestCheck(() -> mService.getPlugins(
                 all,
                 resolve(count, 2.15d),
                 resolve(skip, 2.15d),
@@ -2094,7 +2214,7 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteProjectDescription(@NonNull String projectName) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteProjectDescription(projectName)));
     }
 
@@ -2127,7 +2247,8 @@ class GerritApiClient implements GerritApi {
 
     @Override
     public Observable<ConfigInfo> getProjectConfig(@NonNull String projectName) {
-        return withVersionRequestCheck(mService.getProjectConfig(projectName));
+        return withCoalescing(RequestCoalescer.key("getProjectConfig", projectName),
+                withVersionRequestCheck(mService.getProjectConfig(projectName)));
     }
 
     @Override
@@ -2168,8 +2289,8 @@ class GerritApiClient implements GerritApi {
     @SuppressWarnings("deprecation")
     public Observable<AccessCheckInfo> checkProjectAccessRights(
             @NonNull String projectName, @NonNull AccessCheckInput input) {
-        return withVersionRequestCheck(
-                mServerVersion.getVersion() >= 3.0d
+        return withFreshVersionRequestCheck(() ->
+                capabilities().version() >= 3.0d
                     ? mService.getCheckProjectAccessRights(projectName, input.account, input.ref)
                     : mService.postCheckProjectAccessRights(projectName, input));
     }
@@ -2178,13 +2299,13 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> indexProject(
             @NonNull String projectName, @NonNull IndexProjectInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(mService.indexProject(projectName, input)));
+                asApiCall(mService.indexProject(projectName, input)));
     }
 
     @Override
     public Observable<Void> indexProjectChanges(@NonNull String projectName) {
         return withVersionRequestCheck(
-                withEmptyObservable(mService.indexProjectChanges(projectName)));
+                asApiCall(mService.indexProjectChanges(projectName)));
     }
 
     @Override
@@ -2197,11 +2318,10 @@ class GerritApiClient implements GerritApi {
     public Observable<List<BranchInfo>> getProjectBranches(@NonNull String projectName,
             @Nullable Integer count, @Nullable Integer start, @Nullable String match,
             @Nullable String regexp) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(() -> {
+        return withFreshVersionRequestCheck(() -> {
             Integer[] s = resolveStartFor21413(start);
-            return mService.getProjectBranches(
-                    projectName, count, s[0], s[1], match, regexp).blockingFirst();
-        }));
+            return mService.getProjectBranches(projectName, count, s[0], s[1], match, regexp);
+        });
     }
 
     @Override
@@ -2220,7 +2340,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteProjectBranch(
             @NonNull String projectName, @NonNull String branchId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteProjectBranch(projectName, branchId)));
     }
 
@@ -2228,7 +2348,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteProjectBranches(
             @NonNull String projectName, @NonNull DeleteBranchesInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteProjectBranches(projectName, input)));
     }
 
@@ -2269,11 +2389,10 @@ class GerritApiClient implements GerritApi {
     public Observable<List<TagInfo>> getProjectTags(@NonNull String projectName,
             @Nullable Integer count, @Nullable Integer start, @Nullable String match,
             @Nullable String regexp) {
-        return withVersionRequestCheck(SafeObservable.fromNullCallable(() -> {
+        return withFreshVersionRequestCheck(() -> {
             Integer[] s = resolveStartFor21413(start);
-            return mService.getProjectTags(
-                    projectName, count, s[0], s[1], match, regexp).blockingFirst();
-        }));
+            return mService.getProjectTags(projectName, count, s[0], s[1], match, regexp);
+        });
     }
 
     @Override
@@ -2290,14 +2409,14 @@ class GerritApiClient implements GerritApi {
     @Override
     public Observable<Void> deleteProjectTag(@NonNull String projectName, @NonNull String tagId) {
         return withVersionRequestCheck(
-                withEmptyObservable(mService.deleteProjectTag(projectName, tagId)));
+                asApiCall(mService.deleteProjectTag(projectName, tagId)));
     }
 
     @Override
     public Observable<Void> deleteProjectTags(
             @NonNull String projectName, @NonNull DeleteTagsInput input) {
         return withVersionRequestCheck(
-                withEmptyObservable(mService.deleteProjectTags(projectName, input)));
+                asApiCall(mService.deleteProjectTags(projectName, input)));
     }
 
     @Override
@@ -2349,7 +2468,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> deleteProjectDashboard(
             @NonNull String projectName, @NonNull String dashboardId) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                         mService.deleteProjectDashboard(projectName, dashboardId)));
     }
 
@@ -2401,7 +2520,7 @@ class GerritApiClient implements GerritApi {
     public Observable<Void> unregisterCloudNotification(
             @NonNull String accountId, @NonNull String deviceId, @NonNull String token) {
         return withVersionRequestCheck(
-                withEmptyObservable(
+                asApiCall(
                     mService.unregisterCloudNotification(accountId, deviceId, token)));
     }
 }
@@ -39,6 +39,7 @@ import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 /**
  * Gerrit REST api
@@ -541,6 +542,16 @@ interface GerritRestApi {
             @Nullable @Query("S") Integer start,
             @Nullable @Query("o") List<ChangeOptions> options);
 
+    /**
+     * @link "https://gerrit-review.googlesource.com/Documentation/rest-api-changes.html#list-changes"
+     */
+    @GET("changes/")
+    Observable<List<List<ChangeInfo>>> getChanges(
+            @NonNull @Query("q") List<ChangeQuery> queries,
+            @Nullable @Query("n") Integer count,
+            @Nullable @Query("S") Integer start,
+            @Nullable @Query("o") List<ChangeOptions> options);
+
     /**
      * @link "https://gerrit-review.googlesource.com/Documentation/rest-api-changes.html#get-change"
      */
@@ -1322,6 +1333,7 @@ interface GerritRestApi {
      * @link "https://gerrit-review.googlesource.com/Documentation/rest-api-changes.html#get-content"
      */
     @GET("changes/{change-id}/revisions/{revision-id}/files/{file-id}/content")
+    @Streaming
     Observable<ResponseBody> getChangeRevisionFileContent(
             @NonNull @Path("change-id") String changeId,
             @NonNull @Path("revision-id") String revisionId,
@@ -29,6 +29,9 @@ import android.util.Base64;
 import android.util.Log;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.HashMap;
@@ -127,6 +130,9 @@ public class GerritServiceFactory {
         }
     }
 
+    private static final String HTTP_CACHE_DIR = "http";
+    private static final String SERVER_VERSIONS_DIR = "versions";
+
     private final static Map<String, GerritApiClient> sInstances = new HashMap<>();
 
     public static GerritApiClient getInstance(@NonNull Context applicationContext,
@@ -140,6 +146,7 @@ public class GerritServiceFactory {
 
         // Ensure we have a correct endpoint to invoke gerrit
         endpoint = sanitizeEndpoint(endpoint);
+        final String serverEndpoint = endpoint;
 
         // Change to authentication endpoint if needed
         if (!authorization.isAnonymousUser()) {
@@ -160,11 +167,50 @@ public class GerritServiceFactory {
         if (!sInstances.containsKey(endpointHash)) {
             sInstances.put(endpointHash,
                     new GerritApiClient(endpoint, authorization,
-                            new AndroidPlatformAbstractionLayer(applicationContext)));
+                            new AndroidPlatformAbstractionLayer(applicationContext),
+                            getHttpCacheDir(applicationContext, endpoint, authorization),
+                            getServerVersionFile(applicationContext, serverEndpoint)));
         }
         return sInstances.get(endpointHash);
     }
 
+    private static File getHttpCacheDir(
+            Context applicationContext, String endpoint, Authorization authorization) {
+        // One cache per account. Don't use the password to build the name, so it never
+        // leaks to the filesystem.
+        String key = endpoint + ":" + (authorization.isAnonymousUser()
+                ? "" : authorization.mUsername);
+        String hash = sha1(key);
+        if (hash == null) {
+            // Disable the cache
+            return null;
+        }
+        return new File(new File(applicationContext.getCacheDir(), HTTP_CACHE_DIR), hash);
+    }
+
+    private static File getServerVersionFile(Context applicationContext, String endpoint) {
+        // The version is a property of the server, so it's shared by all its accounts
+        String hash = sha1(endpoint);
+        if (hash == null) {
+            return null;
+        }
+        return new File(new File(applicationContext.getCacheDir(), SERVER_VERSIONS_DIR), hash);
+    }
+
+    private static String sha1(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes());
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(String.format(Locale.US, "%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            return null;
+        }
+    }
+
     private static String sanitizeEndpoint(String endpoint) {
         // Sanitize endpoint
         String endpointLower = endpoint.toLowerCase(Locale.US);
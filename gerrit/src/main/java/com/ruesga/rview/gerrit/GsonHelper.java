@@ -16,12 +16,16 @@
 package com.ruesga.rview.gerrit;
 
 import com.google.gson.GsonBuilder;
+import com.ruesga.rview.gerrit.adapters.GerritAccountInfoAdapter;
 import com.ruesga.rview.gerrit.adapters.GerritApprovalInfoAdapter;
 import com.ruesga.rview.gerrit.adapters.GerritBas64Adapter;
+import com.ruesga.rview.gerrit.adapters.GerritDiffIntralineInfoAdapter;
 import com.ruesga.rview.gerrit.adapters.GerritServerVersionAdapter;
 import com.ruesga.rview.gerrit.adapters.GerritUtcDateAdapter;
+import com.ruesga.rview.gerrit.model.AccountInfo;
 import com.ruesga.rview.gerrit.model.ApprovalInfo;
 import com.ruesga.rview.gerrit.model.Base64Data;
+import com.ruesga.rview.gerrit.model.DiffIntralineInfo;
 import com.ruesga.rview.gerrit.model.ServerVersion;
 
 import java.util.Date;
@@ -30,12 +34,18 @@ public class GsonHelper {
 
     public static GsonBuilder createGerritGsonBuilder(
             boolean nonExecutable, PlatformAbstractionLayer abstractionLayer) {
+        // Streaming adapters, so values are read without building an intermediate json tree
+        final GerritUtcDateAdapter dateAdapter = new GerritUtcDateAdapter();
+        final GerritAccountInfoAdapter accountAdapter = new GerritAccountInfoAdapter();
         GsonBuilder builder = new GsonBuilder()
                 .setVersion(GerritApi.API_VERSION)
-                .registerTypeAdapter(Date.class, new GerritUtcDateAdapter())
+                .registerTypeAdapter(Date.class, dateAdapter)
                 .registerTypeAdapter(ServerVersion.class, new GerritServerVersionAdapter())
-                .registerTypeAdapter(ApprovalInfo.class, new GerritApprovalInfoAdapter())
+                .registerTypeAdapter(AccountInfo.class, accountAdapter)
+                .registerTypeAdapter(ApprovalInfo.class,
+                        new GerritApprovalInfoAdapter(dateAdapter, accountAdapter))
                 .registerTypeAdapter(Base64Data.class, new GerritBas64Adapter(abstractionLayer))
+                .registerTypeAdapter(DiffIntralineInfo.class, new GerritDiffIntralineInfoAdapter())
                 .setLenient();
         if (nonExecutable) {
             builder.generateNonExecutableJson();
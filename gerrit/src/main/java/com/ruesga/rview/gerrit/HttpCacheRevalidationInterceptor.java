@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * A network interceptor that makes Gerrit responses that carry a validator (ETag or
+ * Last-Modified) storable by the http cache, but always revalidated against the server.
+ * Gerrit marks most of its responses as not cacheable, so without this the cache never
+ * gets a chance to send If-None-Match/If-Modified-Since requests and reuse a 304 answer.
+ */
+class HttpCacheRevalidationInterceptor implements Interceptor {
+
+    private static final String CACHE_CONTROL_REVALIDATE = "private, no-cache";
+
+    private final AtomicLong mRevalidated = new AtomicLong();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        if (!"GET".equals(request.method())) {
+            return response;
+        }
+
+        // A not modified response is merged with the cached one by the cache interceptor
+        if (response.code() == 304) {
+            mRevalidated.incrementAndGet();
+            return response;
+        }
+
+        if (response.isSuccessful() && hasValidator(response)) {
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .removeHeader("Expires")
+                    .header("Cache-Control", CACHE_CONTROL_REVALIDATE)
+                    .build();
+        }
+        return response;
+    }
+
+    long revalidatedCount() {
+        return mRevalidated.get();
+    }
+
+    private static boolean hasValidator(Response response) {
+        return response.header("ETag") != null || response.header("Last-Modified") != null;
+    }
+}
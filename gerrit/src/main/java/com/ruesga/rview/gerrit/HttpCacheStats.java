@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A snapshot of the http response cache usage of a {@link GerritApi} client.
+ */
+public class HttpCacheStats {
+    public final long mRequests;
+    public final long mHits;
+    public final long mMisses;
+    public final long mRevalidated;
+    public final long mSize;
+
+    HttpCacheStats(long requests, long hits, long misses, long revalidated, long size) {
+        mRequests = requests;
+        mHits = hits;
+        mMisses = misses;
+        mRevalidated = revalidated;
+        mSize = size;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "HttpCacheStats{requests=" + mRequests + ", hits=" + mHits
+                + ", misses=" + mMisses + ", revalidated=" + mRevalidated
+                + ", size=" + mSize + "}";
+    }
+}
@@ -21,6 +21,8 @@ import android.os.Build;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
 import java.net.Socket;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
@@ -28,13 +30,18 @@ import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.X509TrustManager;
 
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
 import okhttp3.ConnectionSpec;
+import okhttp3.EventListener;
 import okhttp3.OkHttpClient;
 
 public class OkHttpHelper {
@@ -104,26 +111,80 @@ public class OkHttpHelper {
         }
     };
 
+    // Counts how the connections of the shared pool are reused
+    private static class ConnectionStatsEventListener extends EventListener {
+        private final AtomicLong mCalls = new AtomicLong();
+        private final AtomicLong mConnectionsAcquired = new AtomicLong();
+        private final AtomicLong mConnectionsCreated = new AtomicLong();
+        private final AtomicLong mTlsHandshakes = new AtomicLong();
+
+        @Override
+        public void callStart(Call call) {
+            mCalls.incrementAndGet();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            mConnectionsCreated.incrementAndGet();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            mTlsHandshakes.incrementAndGet();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            mConnectionsAcquired.incrementAndGet();
+        }
+    }
+
     private static SSLSocketFactory sSSLSocketFactory;
-    private static DelegatingSocketFactory sDelegatingSocketFactory;
+    private static OkHttpClient sRootClient;
+    private static final ConnectionStatsEventListener sConnectionStats =
+            new ConnectionStatsEventListener();
+
+    /**
+     * Return the client from which all the http clients of the app are derived (using
+     * {@link OkHttpClient#newBuilder()}), so all of them share the same connection pool,
+     * dispatcher and TLS session cache.
+     */
+    public static synchronized OkHttpClient getRootClient() {
+        if (sRootClient == null) {
+            sRootClient = new OkHttpClient.Builder()
+                    .connectionSpecs(createConnectionSpecs(ConnectionSpec.RESTRICTED_TLS, false))
+                    .socketFactory(new DelegatingSocketFactory(SocketFactory.getDefault()))
+                    .eventListener(sConnectionStats)
+                    .build();
+        }
+        return sRootClient;
+    }
+
+    public static ConnectionPoolStats getConnectionPoolStats() {
+        ConnectionPool pool = getRootClient().connectionPool();
+        return new ConnectionPoolStats(
+                sConnectionStats.mCalls.get(),
+                sConnectionStats.mConnectionsAcquired.get(),
+                sConnectionStats.mConnectionsCreated.get(),
+                sConnectionStats.mTlsHandshakes.get(),
+                pool.connectionCount(),
+                pool.idleConnectionCount());
+    }
 
     public static OkHttpClient.Builder getSafeClientBuilder() {
-        if (sDelegatingSocketFactory == null) {
-            sDelegatingSocketFactory = new DelegatingSocketFactory(SocketFactory.getDefault());
-        }
-        return new OkHttpClient.Builder()
-                .connectionSpecs(createConnectionSpecs(ConnectionSpec.RESTRICTED_TLS, false))
-                .socketFactory(sDelegatingSocketFactory);
+        return getRootClient().newBuilder();
     }
 
     @SuppressLint("BadHostnameVerifier")
     static OkHttpClient.Builder getUnsafeClientBuilder() {
         OkHttpClient.Builder builder = getSafeClientBuilder();
         try {
-            if (sSSLSocketFactory == null) {
-                final SSLContext sslContext = SSLContext.getInstance("SSL");
-                sslContext.init(null, new X509TrustManager[]{TRUST_ALL_CERTS}, null);
-                sSSLSocketFactory = sslContext.getSocketFactory();
+            synchronized (OkHttpHelper.class) {
+                if (sSSLSocketFactory == null) {
+                    final SSLContext sslContext = SSLContext.getInstance("SSL");
+                    sslContext.init(null, new X509TrustManager[]{TRUST_ALL_CERTS}, null);
+                    sSSLSocketFactory = sslContext.getSocketFactory();
+                }
             }
 
             builder.connectionSpecs(createConnectionSpecs(ConnectionSpec.MODERN_TLS, true));
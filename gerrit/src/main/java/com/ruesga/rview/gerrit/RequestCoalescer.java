@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Observable;
+
+/**
+ * Collapses concurrent identical idempotent requests into a single network exchange. All
+ * the subscribers of an in-flight request share the same deserialized result, so callers
+ * must treat the emitted objects as read-only.
+ */
+class RequestCoalescer {
+
+    private final Map<String, Observable<?>> mInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong mRequests = new AtomicLong();
+    private final AtomicLong mCollapsed = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    <T> Observable<T> coalesce(final String key, final Observable<T> source) {
+        return Observable.defer(() -> {
+            mRequests.incrementAndGet();
+            Observable<T> inFlight = (Observable<T>) mInFlight.get(key);
+            if (inFlight != null) {
+                mCollapsed.incrementAndGet();
+                return inFlight;
+            }
+
+            final AtomicReference<Observable<T>> ref = new AtomicReference<>();
+            Observable<T> shared = source
+                    .doFinally(() -> mInFlight.remove(key, ref.get()))
+                    .replay(1)
+                    .refCount();
+            ref.set(shared);
+            inFlight = (Observable<T>) mInFlight.putIfAbsent(key, shared);
+            if (inFlight != null) {
+                mCollapsed.incrementAndGet();
+                return inFlight;
+            }
+            return shared;
+        });
+    }
+
+    RequestCoalescingStats stats() {
+        return new RequestCoalescingStats(mRequests.get(), mCollapsed.get(), mInFlight.size());
+    }
+
+    static String key(String method, Object... args) {
+        StringBuilder sb = new StringBuilder(method);
+        for (Object arg : args) {
+            sb.append('|').append(arg);
+        }
+        return sb.toString();
+    }
+}
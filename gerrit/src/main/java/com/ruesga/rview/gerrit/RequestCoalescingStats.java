@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A snapshot of how many identical in-flight requests were collapsed by a {@link GerritApi}
+ * client.
+ */
+public class RequestCoalescingStats {
+    public final long mRequests;
+    public final long mCollapsed;
+    public final long mInFlight;
+
+    RequestCoalescingStats(long requests, long collapsed, long inFlight) {
+        mRequests = requests;
+        mCollapsed = collapsed;
+        mInFlight = inFlight;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "RequestCoalescingStats{requests=" + mRequests + ", collapsed=" + mCollapsed
+                + ", inFlight=" + mInFlight + "}";
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import com.ruesga.rview.gerrit.model.ServerVersion;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Persists the last negotiated server version of an endpoint, so the capabilities of the
+ * server are known right away in the next session.
+ */
+class ServerVersionStore {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static class Entry {
+        final ServerVersion mServerVersion;
+        final long mCheckedAt;
+
+        Entry(ServerVersion serverVersion, long checkedAt) {
+            mServerVersion = serverVersion;
+            mCheckedAt = checkedAt;
+        }
+    }
+
+    private final File mFile;
+
+    ServerVersionStore(File file) {
+        mFile = file;
+    }
+
+    Entry load() {
+        if (mFile == null || !mFile.exists()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(mFile), UTF8))) {
+            String version = reader.readLine();
+            String build = reader.readLine();
+            String checkedAt = reader.readLine();
+            if (version == null || build == null || checkedAt == null) {
+                return null;
+            }
+
+            // Restore the build as is, it doesn't survive a toString round trip
+            ServerVersion serverVersion = new ServerVersion(version);
+            serverVersion.build = build;
+            return new Entry(serverVersion, Long.parseLong(checkedAt));
+        } catch (IOException | NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    void save(ServerVersion serverVersion, long checkedAt) {
+        if (mFile == null) {
+            return;
+        }
+        File parent = mFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            return;
+        }
+
+        File tmp;
+        try {
+            tmp = File.createTempFile(mFile.getName(), ".tmp", parent);
+        } catch (IOException ex) {
+            return;
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), UTF8)) {
+            writer.write(serverVersion.major + "." + serverVersion.minor + "\n");
+            writer.write((serverVersion.build == null ? "" : serverVersion.build) + "\n");
+            writer.write(checkedAt + "\n");
+        } catch (IOException ex) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(mFile)) {
+            tmp.delete();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import com.google.gson.annotations.Since;
+import com.ruesga.rview.gerrit.annotations.Until;
+import com.ruesga.rview.gerrit.filter.HasType;
+import com.ruesga.rview.gerrit.filter.IsType;
+import com.ruesga.rview.gerrit.filter.StatusType;
+import com.ruesga.rview.gerrit.model.ChangeOptions;
+import com.ruesga.rview.gerrit.model.Features;
+import com.ruesga.rview.gerrit.model.ServerVersion;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The enum constants (and api quirks) supported by a server version, computed once from
+ * the {@link Since} and {@link Until} annotations so that the api calls only need to do
+ * table lookups.
+ */
+final class VersionCapabilities {
+
+    @SuppressWarnings("unchecked")
+    private static final Class<? extends Enum<?>>[] VERSIONED_ENUMS = new Class[]{
+            Features.class, ChangeOptions.class, HasType.class, IsType.class, StatusType.class};
+
+    private static final Map<Class<?>, double[][]> sBounds = new ConcurrentHashMap<>();
+    private static final Map<String, VersionCapabilities> sCapabilities =
+            new ConcurrentHashMap<>();
+
+    private final ServerVersion mServerVersion;
+    private final double mVersion;
+    private final boolean mUsesLegacyStartParameter;
+    private final Map<Class<?>, Set<?>> mSupported = new ConcurrentHashMap<>();
+
+    private VersionCapabilities(ServerVersion serverVersion) {
+        mServerVersion = serverVersion;
+        mVersion = serverVersion.getVersion();
+
+        // From 2.14.3+ api changed the start parameter from s to S to mimic the rest of
+        // the api methods. 2.14 is decided based on build (only 2.14, 2.14-rc*, 2.14.1
+        // and 2.14.2 use the old one)
+        final String build = serverVersion.build;
+        mUsesLegacyStartParameter = mVersion < 2.14d || (mVersion == 2.14d && build != null
+                && (build.isEmpty() || build.equals("-rc")
+                        || build.equals("1") || build.equals("2")));
+
+        for (Class<? extends Enum<?>> type : VERSIONED_ENUMS) {
+            supported(type);
+        }
+    }
+
+    static VersionCapabilities forVersion(ServerVersion serverVersion) {
+        final String key = serverVersion.toString();
+        VersionCapabilities capabilities = sCapabilities.get(key);
+        if (capabilities == null) {
+            capabilities = new VersionCapabilities(serverVersion);
+            sCapabilities.put(key, capabilities);
+        }
+        return capabilities;
+    }
+
+    ServerVersion serverVersion() {
+        return mServerVersion;
+    }
+
+    double version() {
+        return mVersion;
+    }
+
+    boolean usesLegacyStartParameter() {
+        return mUsesLegacyStartParameter;
+    }
+
+    boolean isSupported(Enum<?> value) {
+        return supported(value.getDeclaringClass()).contains(value);
+    }
+
+    /**
+     * Returns a copy of the list without the values not supported by this version. Values
+     * which aren't enum constants are always kept.
+     */
+    <T> List<T> filter(List<T> o) {
+        if (o == null) {
+            return null;
+        }
+
+        ArrayList<T> filter = new ArrayList<>(o.size());
+        for (T t : o) {
+            if (!(t instanceof Enum) || isSupported((Enum<?>) t)) {
+                filter.add(t);
+            }
+        }
+        return filter;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Set<?> supported(Class<?> type) {
+        Set<?> supported = mSupported.get(type);
+        if (supported == null) {
+            double[][] bounds = bounds(type);
+            EnumSet set = EnumSet.noneOf((Class<Enum>) type);
+            Enum[] constants = (Enum[]) type.getEnumConstants();
+            for (int i = 0; i < constants.length; i++) {
+                if (bounds[0][i] <= mVersion && mVersion < bounds[1][i]) {
+                    set.add(constants[i]);
+                }
+            }
+            supported = Collections.unmodifiableSet(set);
+            mSupported.put(type, supported);
+        }
+        return supported;
+    }
+
+    // Returns the [since, until) versions of every constant, indexed by ordinal
+    private static double[][] bounds(Class<?> type) {
+        double[][] bounds = sBounds.get(type);
+        if (bounds == null) {
+            Enum<?>[] constants = (Enum<?>[]) type.getEnumConstants();
+            bounds = new double[2][constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                bounds[0][i] = Double.NEGATIVE_INFINITY;
+                bounds[1][i] = Double.POSITIVE_INFINITY;
+                try {
+                    Field field = type.getField(constants[i].name());
+                    Since since = field.getAnnotation(Since.class);
+                    if (since != null) {
+                        bounds[0][i] = since.value();
+                    }
+                    Until until = field.getAnnotation(Until.class);
+                    if (until != null) {
+                        bounds[1][i] = until.value();
+                    }
+                } catch (NoSuchFieldException ex) {
+                    // Ignore
+                }
+            }
+            sBounds.put(type, bounds);
+        }
+        return bounds;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit.adapters;
+
+import com.ruesga.rview.gerrit.model.AccountInfo;
+import com.ruesga.rview.gerrit.model.AvatarInfo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Canonicalizes the {@link AccountInfo} instances read by {@link GerritAccountInfoAdapter},
+ * so the same account repeated across owners, reviewers, approvals and messages of a
+ * response is only retained once. Accounts are only shared when all their fields are equal.
+ * <p/>
+ * The interner is only used while it's active in the deserializing thread
+ * (see {@link #enter()}), and it's meant to be used for a single response: it isn't
+ * thread-safe, and accounts of unrelated responses are never shared. Interned accounts
+ * are shared by the whole response, so they must be treated as read-only.
+ */
+public class AccountInfoInterner {
+
+    private static final ThreadLocal<AccountInfoInterner> sCurrent = new ThreadLocal<>();
+
+    private final Map<Integer, AccountInfo> mAccounts = new HashMap<>();
+
+    static AccountInfoInterner current() {
+        return sCurrent.get();
+    }
+
+    /**
+     * Makes this interner the active one for the current thread.
+     *
+     * @return the previous active interner, that must be restored with {@link #exit}.
+     */
+    public AccountInfoInterner enter() {
+        AccountInfoInterner previous = sCurrent.get();
+        sCurrent.set(this);
+        return previous;
+    }
+
+    public static void exit(AccountInfoInterner previous) {
+        if (previous == null) {
+            sCurrent.remove();
+        } else {
+            sCurrent.set(previous);
+        }
+    }
+
+    public AccountInfo intern(AccountInfo account) {
+        AccountInfo canonical = mAccounts.get(account.accountId);
+        if (canonical != null && isSameAccount(canonical, account)) {
+            return canonical;
+        }
+
+        // The account differs from the one seen before. Keep the newest one
+        mAccounts.put(account.accountId, account);
+        return account;
+    }
+
+    private static boolean isSameAccount(AccountInfo a1, AccountInfo a2) {
+        return a1.accountId == a2.accountId
+                && a1.inactive == a2.inactive
+                && equals(a1.name, a2.name)
+                && equals(a1.username, a2.username)
+                && equals(a1.displayName, a2.displayName)
+                && equals(a1.email, a2.email)
+                && equals(a1.status, a2.status)
+                && Arrays.equals(a1.secondaryEmails, a2.secondaryEmails)
+                && isSameAvatars(a1.avatars, a2.avatars);
+    }
+
+    private static boolean isSameAvatars(AvatarInfo[] a1, AvatarInfo[] a2) {
+        if (a1 == null || a2 == null) {
+            return a1 == a2;
+        }
+        if (a1.length != a2.length) {
+            return false;
+        }
+        for (int i = 0; i < a1.length; i++) {
+            if (a1[i] == null || a2[i] == null) {
+                if (a1[i] != a2[i]) {
+                    return false;
+                }
+                continue;
+            }
+            if (a1[i].width != a2[i].width || a1[i].height != a2[i].height
+                    || !equals(a1[i].url, a2[i].url)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit.adapters;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.ruesga.rview.gerrit.model.AccountInfo;
+import com.ruesga.rview.gerrit.model.AvatarInfo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A streaming adapter for {@link AccountInfo}, one of the most repeated objects in
+ * the Gerrit responses.
+ */
+public class GerritAccountInfoAdapter extends TypeAdapter<AccountInfo> {
+
+    @Override
+    public AccountInfo read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        AccountInfo account = new AccountInfo();
+        in.beginObject();
+        while (in.hasNext()) {
+            if (!readField(in, in.nextName(), account)) {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return intern(account);
+    }
+
+    static AccountInfo intern(AccountInfo account) {
+        AccountInfoInterner interner = AccountInfoInterner.current();
+        return interner == null ? account : interner.intern(account);
+    }
+
+    @Override
+    public void write(JsonWriter out, AccountInfo account) throws IOException {
+        if (account == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        writeFields(out, account);
+        out.endObject();
+    }
+
+    /**
+     * Reads the value of the field into the account. Returns false if the field isn't
+     * an account field, leaving the value unconsumed.
+     */
+    boolean readField(JsonReader in, String name, AccountInfo account) throws IOException {
+        switch (name) {
+            case "_account_id":
+                account.accountId = nextInt(in, account.accountId);
+                return true;
+            case "name":
+                account.name = nextString(in);
+                return true;
+            case "username":
+                account.username = nextString(in);
+                return true;
+            case "display_name":
+                account.displayName = nextString(in);
+                return true;
+            case "email":
+                account.email = nextString(in);
+                return true;
+            case "secondary_emails":
+                account.secondaryEmails = nextStringArray(in);
+                return true;
+            case "avatars":
+                account.avatars = nextAvatars(in);
+                return true;
+            case "status":
+                account.status = nextString(in);
+                return true;
+            case "inactive":
+                account.inactive = nextBoolean(in, account.inactive);
+                return true;
+        }
+        return false;
+    }
+
+    void writeFields(JsonWriter out, AccountInfo account) throws IOException {
+        out.name("_account_id").value(account.accountId);
+        out.name("name").value(account.name);
+        out.name("username").value(account.username);
+        out.name("display_name").value(account.displayName);
+        out.name("email").value(account.email);
+        if (account.secondaryEmails != null) {
+            out.name("secondary_emails").beginArray();
+            for (String email : account.secondaryEmails) {
+                out.value(email);
+            }
+            out.endArray();
+        }
+        if (account.avatars != null) {
+            out.name("avatars").beginArray();
+            for (AvatarInfo avatar : account.avatars) {
+                if (avatar == null) {
+                    out.nullValue();
+                    continue;
+                }
+                out.beginObject();
+                out.name("url").value(avatar.url);
+                out.name("width").value(avatar.width);
+                out.name("height").value(avatar.height);
+                out.endObject();
+            }
+            out.endArray();
+        }
+        out.name("status").value(account.status);
+        out.name("inactive").value(account.inactive);
+    }
+
+    private static AvatarInfo[] nextAvatars(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        List<AvatarInfo> avatars = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                avatars.add(null);
+                continue;
+            }
+            AvatarInfo avatar = new AvatarInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "url":
+                        avatar.url = nextString(in);
+                        break;
+                    case "width":
+                        avatar.width = nextInt(in, avatar.width);
+                        break;
+                    case "height":
+                        avatar.height = nextInt(in, avatar.height);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            avatars.add(avatar);
+        }
+        in.endArray();
+        return avatars.toArray(new AvatarInfo[0]);
+    }
+
+    static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    static String[] nextStringArray(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(nextString(in));
+        }
+        in.endArray();
+        return values.toArray(new String[0]);
+    }
+
+    static Integer nextInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    private static int nextInt(JsonReader in, int defValue) throws IOException {
+        Integer value = nextInteger(in);
+        return value == null ? defValue : value;
+    }
+
+    private static boolean nextBoolean(JsonReader in, boolean defValue) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return defValue;
+        }
+        return in.nextBoolean();
+    }
+}
@@ -15,29 +15,88 @@
  */
 package com.ruesga.rview.gerrit.adapters;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.ruesga.rview.gerrit.model.AccountInfo;
 import com.ruesga.rview.gerrit.model.ApprovalInfo;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.Date;
 
-public class GerritApprovalInfoAdapter implements JsonDeserializer<ApprovalInfo> {
+/**
+ * Gerrit inlines the account fields of the approval owner in the approval object. This
+ * adapter reads both in a single pass.
+ */
+public class GerritApprovalInfoAdapter extends TypeAdapter<ApprovalInfo> {
+
+    private final TypeAdapter<Date> mDateAdapter;
+    private final GerritAccountInfoAdapter mAccountAdapter;
+
+    public GerritApprovalInfoAdapter(
+            TypeAdapter<Date> dateAdapter, GerritAccountInfoAdapter accountAdapter) {
+        mDateAdapter = dateAdapter;
+        mAccountAdapter = accountAdapter;
+    }
 
-    private static final Gson GSON = new GsonBuilder()
-            .registerTypeAdapter(Date.class, new GerritUtcDateAdapter())
-            .create();
+    @Override
+    public ApprovalInfo read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        ApprovalInfo approval = new ApprovalInfo();
+        AccountInfo owner = new AccountInfo();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "value":
+                    approval.value = GerritAccountInfoAdapter.nextInteger(in);
+                    break;
+                case "date":
+                    approval.date = mDateAdapter.read(in);
+                    break;
+                case "tag":
+                    approval.tag = GerritAccountInfoAdapter.nextString(in);
+                    break;
+                case "owner":
+                    // Older cached data, serialized with the owner as a nested object
+                    AccountInfo nested = mAccountAdapter.read(in);
+                    if (nested != null) {
+                        owner = nested;
+                    }
+                    break;
+                default:
+                    if (!mAccountAdapter.readField(in, name, owner)) {
+                        in.skipValue();
+                    }
+                    break;
+            }
+        }
+        in.endObject();
+        approval.owner = GerritAccountInfoAdapter.intern(owner);
+        return approval;
+    }
 
     @Override
-    public ApprovalInfo deserialize(JsonElement json, Type typeof, JsonDeserializationContext ctx)
-            throws JsonParseException {
-        ApprovalInfo approvalInfo = GSON.fromJson(json, ApprovalInfo.class);
-        approvalInfo.owner = GSON.fromJson(json, AccountInfo.class);
-        return approvalInfo;
+    public void write(JsonWriter out, ApprovalInfo approval) throws IOException {
+        if (approval == null) {
+            out.nullValue();
+            return;
+        }
+
+        // Write it back in the Gerrit format, so it can be read again by this adapter
+        out.beginObject();
+        out.name("value").value(approval.value);
+        out.name("date");
+        mDateAdapter.write(out, approval.date);
+        out.name("tag").value(approval.tag);
+        if (approval.owner != null) {
+            mAccountAdapter.writeFields(out, approval.owner);
+        }
+        out.endObject();
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit.adapters;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.ruesga.rview.gerrit.model.DiffIntralineInfo;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decodes the intraline edits ({@code [[skip, mark], ...]}) straight into a packed int
+ * array, without boxing every value.
+ */
+public class GerritDiffIntralineInfoAdapter extends TypeAdapter<DiffIntralineInfo> {
+
+    @Override
+    public DiffIntralineInfo read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        int[] edits = new int[16];
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            in.beginArray();
+            if (count * 2 == edits.length) {
+                edits = Arrays.copyOf(edits, edits.length * 2);
+            }
+            edits[count * 2] = nextInt(in);
+            edits[count * 2 + 1] = nextInt(in);
+            while (in.hasNext()) {
+                in.skipValue();
+            }
+            in.endArray();
+            count++;
+        }
+        in.endArray();
+        return new DiffIntralineInfo(edits, count);
+    }
+
+    @Override
+    public void write(JsonWriter out, DiffIntralineInfo edits) throws IOException {
+        if (edits == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginArray();
+        int count = edits.size();
+        for (int i = 0; i < count; i++) {
+            out.beginArray();
+            out.value(edits.skip(i));
+            out.value(edits.mark(i));
+            out.endArray();
+        }
+        out.endArray();
+    }
+
+    private static int nextInt(JsonReader in) throws IOException {
+        if (!in.hasNext()) {
+            throw new JsonParseException("Invalid intraline edit at " + in.getPath());
+        }
+        return in.nextInt();
+    }
+}
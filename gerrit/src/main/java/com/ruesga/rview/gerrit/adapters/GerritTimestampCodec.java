@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit.adapters;
+
+import java.util.Date;
+
+/**
+ * A thread-safe codec for the Gerrit timestamps ({@code yyyy-MM-dd HH:mm:ss.SSSSSSSSS}, always
+ * in UTC). Dates are returned as plain {@link Date}, so the sub-millisecond part of the
+ * fraction is deliberately truncated: the model only holds dates, and a Date subclass
+ * keeping the nanoseconds doesn't compare or hash like the other dates.
+ * <p>
+ * Note that the previous {@code SimpleDateFormat} parser read the whole fraction as a number
+ * of milliseconds, so {@code 09:08:07.123000000} was parsed as {@code 09:08:07} plus 123000000
+ * milliseconds. This codec parses it as {@code 09:08:07.123}.
+ */
+public final class GerritTimestampCodec {
+
+    private static final int MIN_LENGTH = 19;
+    private static final int MAX_LENGTH = 29;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final int NANOS_PER_MILLI = 1000000;
+
+    private GerritTimestampCodec() {
+    }
+
+    public static Date parse(String value) {
+        final int length = value.length();
+        if (length < MIN_LENGTH || length > MAX_LENGTH
+                || value.charAt(4) != '-' || value.charAt(7) != '-'
+                || (value.charAt(10) != ' ' && value.charAt(10) != 'T')
+                || value.charAt(13) != ':' || value.charAt(16) != ':') {
+            throw new IllegalArgumentException("Invalid timestamp: " + value);
+        }
+
+        int year = parseDigits(value, 0, 4);
+        int month = parseDigits(value, 5, 7);
+        int day = parseDigits(value, 8, 10);
+        int hour = parseDigits(value, 11, 13);
+        int minute = parseDigits(value, 14, 16);
+        int second = parseDigits(value, 17, 19);
+        if (month < 1 || month > 12 || day < 1 || day > 31
+                || hour > 23 || minute > 59 || second > 59) {
+            throw new IllegalArgumentException("Invalid timestamp: " + value);
+        }
+
+        // Fraction of second, right padded up to nanoseconds
+        int nanos = 0;
+        if (length > MIN_LENGTH) {
+            if (value.charAt(MIN_LENGTH) != '.' || length == MIN_LENGTH + 1) {
+                throw new IllegalArgumentException("Invalid timestamp: " + value);
+            }
+            nanos = parseDigits(value, MIN_LENGTH + 1, length);
+            for (int i = length; i < MAX_LENGTH; i++) {
+                nanos *= 10;
+            }
+        }
+
+        long seconds = daysFromCivil(year, month, day) * 86400L
+                + hour * 3600L + minute * 60L + second;
+        return new Date(seconds * 1000L + nanos / NANOS_PER_MILLI);
+    }
+
+    public static String format(Date date) {
+        long millis = date.getTime();
+        int nanos = (int) (millis - floorDiv(millis, 1000L) * 1000L) * NANOS_PER_MILLI;
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int secondOfDay = (int) ((millis - days * MILLIS_PER_DAY) / 1000L);
+
+        // Civil date from days since epoch
+        long z = days + 719468;
+        long era = floorDiv(z, 146097);
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] out = new char[MAX_LENGTH];
+        writeDigits(out, 0, 4, (int) year);
+        out[4] = '-';
+        writeDigits(out, 5, 7, month);
+        out[7] = '-';
+        writeDigits(out, 8, 10, day);
+        out[10] = ' ';
+        writeDigits(out, 11, 13, secondOfDay / 3600);
+        out[13] = ':';
+        writeDigits(out, 14, 16, (secondOfDay / 60) % 60);
+        out[16] = ':';
+        writeDigits(out, 17, 19, secondOfDay % 60);
+        out[19] = '.';
+        writeDigits(out, 20, 29, nanos);
+        return new String(out);
+    }
+
+    private static int parseDigits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid timestamp: " + value);
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static void writeDigits(char[] out, int start, int end, int value) {
+        for (int i = end - 1; i >= start; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // Math.floorDiv isn't available in all the supported platforms
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && ((x ^ y) < 0)) ? q - 1 : q;
+    }
+
+    // http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        int era = (year >= 0 ? year : year - 399) / 400;
+        int yoe = year - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+}
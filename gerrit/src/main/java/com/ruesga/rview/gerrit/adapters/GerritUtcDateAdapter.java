@@ -15,47 +15,36 @@
  */
 package com.ruesga.rview.gerrit.adapters;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
 import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 
-public class GerritUtcDateAdapter implements JsonDeserializer<Date>, JsonSerializer<Date> {
-
-    private final DateFormat mDateFormat;
-
-    public GerritUtcDateAdapter() {
-        mDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
-        mDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-    }
+public class GerritUtcDateAdapter extends TypeAdapter<Date> {
 
     @Override
-    public Date deserialize(JsonElement json, Type typeof, JsonDeserializationContext ctx)
-            throws JsonParseException {
+    public Date read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
         try {
-            synchronized (mDateFormat) {
-                return mDateFormat.parse(json.getAsString());
-            }
-        } catch (ParseException e) {
+            return GerritTimestampCodec.parse(in.nextString());
+        } catch (IllegalArgumentException e) {
             throw new JsonParseException(e);
         }
     }
 
     @Override
-    public JsonElement serialize(Date src, Type typeof, JsonSerializationContext ctx) {
-        synchronized (mDateFormat) {
-            return new JsonPrimitive(mDateFormat.format(src));
+    public void write(JsonWriter out, Date src) throws IOException {
+        if (src == null) {
+            out.nullValue();
+            return;
         }
+        out.value(GerritTimestampCodec.format(src));
     }
 }
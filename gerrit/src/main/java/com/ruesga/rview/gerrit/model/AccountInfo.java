@@ -19,6 +19,9 @@ import com.google.gson.annotations.SerializedName;
 
 /**
  * @link "https://gerrit-review.googlesource.com/Documentation/rest-api-accounts.html#account-info"
+ * <p/>
+ * Accounts read from an api response are shared by all the places of that response where
+ * they appear, so they must never be modified.
  */
 public class AccountInfo {
     @SerializedName("_account_id") public int accountId;
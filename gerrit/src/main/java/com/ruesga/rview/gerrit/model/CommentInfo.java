@@ -22,7 +22,7 @@ import java.util.Date;
 /**
  * @link "https://gerrit-review.googlesource.com/Documentation/rest-api-changes.html#comment-info"
  */
-public class CommentInfo {
+public class CommentInfo implements Cloneable {
     @SerializedName("patch_set") public int patchSet;
     @SerializedName("id") public String id;
     @SerializedName("path") public String path;
@@ -40,4 +40,15 @@ public class CommentInfo {
     // For internal use only
     @SerializedName("draft") public boolean draft;
     @SerializedName("message_patch_set") public int messagePatchSet;
+
+    /**
+     * Returns a shallow copy of this comment, of the same type (robot comments included).
+     */
+    public CommentInfo copy() {
+        try {
+            return (CommentInfo) super.clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new AssertionError(ex);
+        }
+    }
 }
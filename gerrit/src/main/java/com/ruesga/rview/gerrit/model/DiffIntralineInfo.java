@@ -15,11 +15,49 @@
  */
 package com.ruesga.rview.gerrit.model;
 
-import java.util.ArrayList;
-
 /**
+ * The intraline edits are stored as packed [skip, mark] pairs.
+ *
  * @link "https://gerrit-review.googlesource.com/Documentation/rest-api-changes.html#diff-intraline-info"
  */
-public class DiffIntralineInfo extends ArrayList<ArrayList<Integer>> {
-}
+public class DiffIntralineInfo {
+    private final int[] mEdits;
+    private final int mCount;
+
+    /**
+     * @param edits the [skip, mark] pairs, one after the other.
+     * @param count the number of pairs in the array.
+     */
+    public DiffIntralineInfo(int[] edits, int count) {
+        if (count < 0 || count * 2 > edits.length) {
+            throw new IllegalArgumentException("Invalid number of edits: " + count);
+        }
+        mEdits = edits;
+        mCount = count;
+    }
 
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Returns the number of characters to skip before the edit.
+     */
+    public int skip(int index) {
+        return mEdits[checkIndex(index) * 2];
+    }
+
+    /**
+     * Returns the number of characters that were edited.
+     */
+    public int mark(int index) {
+        return mEdits[checkIndex(index) * 2 + 1];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mCount);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import io.reactivex.Observable;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BlockingCallsTest {
+
+    private static final String CONTENT = "streamed content";
+
+    @Test
+    public void testStreamedBodyIsReadBeforeTheCallIsReleased() {
+        long calls = BlockingCalls.stats().mBlockingCalls;
+        assertEquals(CONTENT, BlockingCalls.first(streamedCall(), ResponseBody::string));
+        assertEquals(calls + 1, BlockingCalls.stats().mBlockingCalls);
+        assertEquals(0, BlockingCalls.stats().mBlocked);
+    }
+
+    @Test
+    public void testStreamedBodyCantBeReadAfterBlocking() {
+        ResponseBody body = BlockingCalls.first(streamedCall());
+        try {
+            body.string();
+            fail("Streamed body was read after the call was released");
+        } catch (IOException ex) {
+            // Expected
+        }
+    }
+
+    // Like the streamed Retrofit calls, releasing the call closes the unbuffered body
+    private static Observable<ResponseBody> streamedCall() {
+        return new ApiCallObservable<>(Observable.create(emitter -> {
+            StreamedSource source = new StreamedSource(new Buffer().writeUtf8(CONTENT));
+            emitter.setCancellable(source::close);
+            emitter.onNext(ResponseBody.create(
+                    MediaType.parse("text/plain"), CONTENT.length(), Okio.buffer(source)));
+            emitter.onComplete();
+        }));
+    }
+
+    private static class StreamedSource extends ForwardingSource {
+        private volatile boolean mClosed;
+
+        StreamedSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (mClosed) {
+                throw new IOException("closed");
+            }
+            return super.read(sink, byteCount);
+        }
+
+        @Override
+        public void close() throws IOException {
+            mClosed = true;
+            super.close();
+        }
+    }
+}
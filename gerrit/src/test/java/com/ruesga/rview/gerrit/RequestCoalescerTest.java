@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequestCoalescerTest {
+
+    @Test
+    public void testCoalesceInFlightRequests() {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final AtomicInteger executions = new AtomicInteger();
+        final PublishSubject<String> response = PublishSubject.create();
+        Observable<String> source = response.doOnSubscribe(d -> executions.incrementAndGet());
+
+        String key = RequestCoalescer.key("getChange", "1", null);
+        TestObserver<String> o1 = coalescer.coalesce(key, source).test();
+        TestObserver<String> o2 = coalescer.coalesce(key, source).test();
+        TestObserver<String> o3 = coalescer.coalesce(
+                RequestCoalescer.key("getChange", "2", null), source).test();
+        response.onNext("change");
+        response.onComplete();
+
+        o1.assertValue("change");
+        o2.assertValue("change");
+        o3.assertValue("change");
+        assertEquals(2, executions.get());
+        assertEquals(3, coalescer.stats().mRequests);
+        assertEquals(1, coalescer.stats().mCollapsed);
+        assertEquals(0, coalescer.stats().mInFlight);
+    }
+
+    @Test
+    public void testCompletedRequestsAreNotReused() {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final AtomicInteger executions = new AtomicInteger();
+        Observable<Integer> source = Observable.fromCallable(executions::incrementAndGet)
+                .subscribeOn(Schedulers.io());
+
+        String key = RequestCoalescer.key("getChange", "1");
+        assertEquals(1, coalescer.coalesce(key, source)
+                .timeout(5, TimeUnit.SECONDS).blockingFirst().intValue());
+        assertEquals(2, coalescer.coalesce(key, source)
+                .timeout(5, TimeUnit.SECONDS).blockingFirst().intValue());
+        assertEquals(0, coalescer.stats().mCollapsed);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import com.ruesga.rview.gerrit.model.ServerVersion;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ServerVersionStoreTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File dir = File.createTempFile("versions", "");
+        assertTrue(dir.delete());
+        File file = new File(dir, "server");
+        try {
+            ServerVersionStore store = new ServerVersionStore(file);
+            assertNull(store.load());
+
+            // A version without build keeps the raw version as build
+            ServerVersion version = new ServerVersion("2.14");
+            store.save(version, 1234L);
+
+            ServerVersionStore.Entry entry = new ServerVersionStore(file).load();
+            assertEquals(2, entry.mServerVersion.major);
+            assertEquals(14, entry.mServerVersion.minor);
+            assertEquals("2.14", entry.mServerVersion.build);
+            assertEquals(1234L, entry.mCheckedAt);
+            assertEquals(1, dir.listFiles().length);
+        } finally {
+            file.delete();
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit;
+
+import com.ruesga.rview.gerrit.filter.IsType;
+import com.ruesga.rview.gerrit.model.ChangeOptions;
+import com.ruesga.rview.gerrit.model.Features;
+import com.ruesga.rview.gerrit.model.ServerVersion;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class VersionCapabilitiesTest {
+
+    @Test
+    public void testSinceAndUntil() {
+        VersionCapabilities v213 = VersionCapabilities.forVersion(new ServerVersion("2.13.5"));
+        assertTrue(v213.isSupported(Features.BLAME));
+        assertFalse(v213.isSupported(Features.ASSIGNEE));
+        assertTrue(v213.isSupported(IsType.DRAFT));
+
+        VersionCapabilities v215 = VersionCapabilities.forVersion(new ServerVersion("2.15"));
+        assertTrue(v215.isSupported(Features.ASSIGNEE));
+        assertFalse(v215.isSupported(IsType.DRAFT));
+        assertSame(v215, VersionCapabilities.forVersion(new ServerVersion("2.15")));
+    }
+
+    @Test
+    public void testFilter() {
+        VersionCapabilities capabilities =
+                VersionCapabilities.forVersion(new ServerVersion("2.16.3"));
+        List<ChangeOptions> options = Arrays.asList(ChangeOptions.LABELS,
+                ChangeOptions.SKIP_MERGEABLE, ChangeOptions.SKIP_DIFFSTAT, ChangeOptions.NO_LIMIT);
+        assertEquals(Arrays.asList(ChangeOptions.LABELS, ChangeOptions.SKIP_MERGEABLE),
+                capabilities.filter(options));
+        assertNull(capabilities.filter(null));
+    }
+
+    @Test
+    public void testLegacyStartParameter() {
+        assertTrue(VersionCapabilities.forVersion(
+                new ServerVersion("2.13.9")).usesLegacyStartParameter());
+        assertTrue(VersionCapabilities.forVersion(
+                new ServerVersion("2.14.2")).usesLegacyStartParameter());
+        assertFalse(VersionCapabilities.forVersion(
+                new ServerVersion("2.14.3")).usesLegacyStartParameter());
+        assertFalse(VersionCapabilities.forVersion(
+                new ServerVersion("3.0.1")).usesLegacyStartParameter());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.ruesga.rview.gerrit.model.AccountInfo;
+import com.ruesga.rview.gerrit.model.ApprovalInfo;
+import com.ruesga.rview.gerrit.model.AvatarInfo;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class GerritApprovalInfoAdapterTest {
+
+    private static final String APPROVAL = "{\"value\":2,\"date\":\"2019-05-10 09:08:07.123000000\","
+            + "\"_account_id\":1000,\"name\":\"John Doe\",\"email\":\"john@example.com\","
+            + "\"avatars\":[{\"url\":\"https://example.com/a.png\",\"height\":32}],"
+            + "\"unknown\":{\"a\":[1,2]},\"inactive\":true}";
+
+    private static Gson createGson() {
+        GerritUtcDateAdapter dateAdapter = new GerritUtcDateAdapter();
+        GerritAccountInfoAdapter accountAdapter = new GerritAccountInfoAdapter();
+        return new GsonBuilder()
+                .registerTypeAdapter(Date.class, dateAdapter)
+                .registerTypeAdapter(AccountInfo.class, accountAdapter)
+                .registerTypeAdapter(ApprovalInfo.class,
+                        new GerritApprovalInfoAdapter(dateAdapter, accountAdapter))
+                .create();
+    }
+
+    @Test
+    public void testReadInlinedOwner() {
+        ApprovalInfo approval = createGson().fromJson(APPROVAL, ApprovalInfo.class);
+        assertEquals(2, approval.value.intValue());
+        assertEquals(1557479287123L, approval.date.getTime());
+        assertNull(approval.tag);
+        assertNotNull(approval.owner);
+        assertEquals(1000, approval.owner.accountId);
+        assertEquals("John Doe", approval.owner.name);
+        assertEquals("john@example.com", approval.owner.email);
+        assertEquals(1, approval.owner.avatars.length);
+        assertEquals("https://example.com/a.png", approval.owner.avatars[0].url);
+        assertEquals(32, approval.owner.avatars[0].height);
+        assertEquals(true, approval.owner.inactive);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Gson gson = createGson();
+        ApprovalInfo approval = gson.fromJson(APPROVAL, ApprovalInfo.class);
+        ApprovalInfo copy = gson.fromJson(gson.toJson(approval), ApprovalInfo.class);
+        assertEquals(approval.value, copy.value);
+        assertEquals(approval.date, copy.date);
+        assertEquals(approval.owner.accountId, copy.owner.accountId);
+        assertEquals(approval.owner.name, copy.owner.name);
+        assertEquals(approval.owner.avatars[0].url, copy.owner.avatars[0].url);
+
+        // Previously cached data had the owner nested
+        ApprovalInfo legacy = gson.fromJson(
+                "{\"value\":-1,\"owner\":{\"_account_id\":5,\"name\":\"Jane\"}}",
+                ApprovalInfo.class);
+        assertEquals(-1, legacy.value.intValue());
+        assertEquals(5, legacy.owner.accountId);
+        assertEquals("Jane", legacy.owner.name);
+    }
+
+    @Test
+    public void testAccountAdapterHandlesAllFields() {
+        AccountInfo account = new AccountInfo();
+        account.accountId = 7;
+        account.name = "name";
+        account.username = "username";
+        account.displayName = "display";
+        account.email = "email";
+        account.secondaryEmails = new String[]{"a", "b"};
+        account.avatars = new AvatarInfo[]{new AvatarInfo()};
+        account.avatars[0].url = "url";
+        account.avatars[0].width = 16;
+        account.status = "status";
+        account.inactive = true;
+
+        // Both paths must agree with the reflection based serialization
+        Gson reflective = new Gson();
+        Gson streaming = createGson();
+        assertAccountEquals(account, streaming.fromJson(
+                reflective.toJson(account), AccountInfo.class));
+        assertAccountEquals(account, reflective.fromJson(
+                streaming.toJson(account), AccountInfo.class));
+    }
+
+    @Test
+    public void testInternAccounts() {
+        Gson gson = createGson();
+        String json = "[" + APPROVAL + "," + APPROVAL + ","
+                + APPROVAL.replace("John Doe", "John") + "]";
+
+        ApprovalInfo[] approvals = gson.fromJson(json, ApprovalInfo[].class);
+        assertNotSame(approvals[0].owner, approvals[1].owner);
+
+        AccountInfoInterner previous = new AccountInfoInterner().enter();
+        try {
+            approvals = gson.fromJson(json, ApprovalInfo[].class);
+        } finally {
+            AccountInfoInterner.exit(previous);
+        }
+        assertSame(approvals[0].owner, approvals[1].owner);
+        assertNotSame(approvals[0].owner, approvals[2].owner);
+        assertEquals("John", approvals[2].owner.name);
+
+        // Every response has its own interner, so accounts are never shared between them
+        ApprovalInfo[] other;
+        previous = new AccountInfoInterner().enter();
+        try {
+            other = gson.fromJson(json, ApprovalInfo[].class);
+        } finally {
+            AccountInfoInterner.exit(previous);
+        }
+        assertNotSame(approvals[0].owner, other[0].owner);
+    }
+
+    private static void assertAccountEquals(AccountInfo expected, AccountInfo actual) {
+        Gson reflective = new Gson();
+        assertEquals(reflective.toJson(expected), reflective.toJson(actual));
+    }
+}
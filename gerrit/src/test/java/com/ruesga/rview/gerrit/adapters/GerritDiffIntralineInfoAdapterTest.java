@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit.adapters;
+
+import com.ruesga.rview.gerrit.model.DiffIntralineInfo;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GerritDiffIntralineInfoAdapterTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            sb.append(i == 0 ? "" : ",").append('[').append(i).append(',').append(i * 3).append(']');
+        }
+        final String json = sb.append(']').toString();
+
+        GerritDiffIntralineInfoAdapter adapter = new GerritDiffIntralineInfoAdapter();
+        DiffIntralineInfo edits = adapter.fromJson(json);
+        assertEquals(100, edits.size());
+        assertEquals(42, edits.skip(42));
+        assertEquals(126, edits.mark(42));
+        assertEquals(json, adapter.toJson(edits));
+    }
+
+    @Test
+    public void testEmptyAndNull() throws IOException {
+        GerritDiffIntralineInfoAdapter adapter = new GerritDiffIntralineInfoAdapter();
+        assertEquals(0, adapter.fromJson("[]").size());
+        assertNull(adapter.fromJson("null"));
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.ruesga.rview.gerrit.model.AccountInfo;
+import com.ruesga.rview.gerrit.model.ApprovalInfo;
+import com.ruesga.rview.gerrit.model.ChangeInfo;
+import com.ruesga.rview.gerrit.model.LabelInfo;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Type;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses a large change list payload with the old tree based deserializers and with the
+ * streaming type adapters, and reports the time and the memory allocated per parse of both.
+ */
+public class GerritModelParsingBenchmarkTest {
+
+    private static final int CHANGES = 100;
+    private static final String[] LABELS = {"Code-Review", "Verified", "Commit-Queue"};
+    private static final int APPROVALS = 30;
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+
+    // The deserializers registered before the streaming adapters. The server version and
+    // base64 ones are left out, since change lists don't contain those types.
+    private static class LegacyUtcDateAdapter implements JsonDeserializer<Date> {
+        private final DateFormat mDateFormat;
+
+        LegacyUtcDateAdapter() {
+            mDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+            mDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+
+        @Override
+        public Date deserialize(JsonElement json, Type typeof, JsonDeserializationContext ctx)
+                throws JsonParseException {
+            try {
+                synchronized (mDateFormat) {
+                    return mDateFormat.parse(json.getAsString());
+                }
+            } catch (ParseException e) {
+                throw new JsonParseException(e);
+            }
+        }
+    }
+
+    private static class LegacyApprovalInfoAdapter implements JsonDeserializer<ApprovalInfo> {
+        private static final Gson GSON = new GsonBuilder()
+                .registerTypeAdapter(Date.class, new LegacyUtcDateAdapter())
+                .create();
+
+        @Override
+        public ApprovalInfo deserialize(JsonElement json, Type typeof,
+                JsonDeserializationContext ctx) throws JsonParseException {
+            ApprovalInfo approvalInfo = GSON.fromJson(json, ApprovalInfo.class);
+            approvalInfo.owner = GSON.fromJson(json, AccountInfo.class);
+            return approvalInfo;
+        }
+    }
+
+    private static class Result {
+        ChangeInfo[] mChanges;
+        long mTime;
+        long mAllocated;
+    }
+
+    // The same adapters that GsonHelper registers for the types of a change list
+    private static Gson createStreamingGson() {
+        GerritUtcDateAdapter dateAdapter = new GerritUtcDateAdapter();
+        GerritAccountInfoAdapter accountAdapter = new GerritAccountInfoAdapter();
+        return new GsonBuilder()
+                .registerTypeAdapter(Date.class, dateAdapter)
+                .registerTypeAdapter(AccountInfo.class, accountAdapter)
+                .registerTypeAdapter(ApprovalInfo.class,
+                        new GerritApprovalInfoAdapter(dateAdapter, accountAdapter))
+                .setLenient()
+                .create();
+    }
+
+    private static Gson createLegacyGson() {
+        return new GsonBuilder()
+                .registerTypeAdapter(Date.class, new LegacyUtcDateAdapter())
+                .registerTypeAdapter(ApprovalInfo.class, new LegacyApprovalInfoAdapter())
+                .setLenient()
+                .create();
+    }
+
+    private static String createPayload() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < CHANGES; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("{\"id\":\"project~master~I").append(i).append("\",")
+                    .append("\"_number\":").append(i + 1).append(",")
+                    .append("\"subject\":\"Change ").append(i).append("\",")
+                    .append("\"updated\":\"2019-05-10 09:08:07.123000000\",")
+                    .append("\"owner\":{\"_account_id\":1000,\"name\":\"John Doe\"},")
+                    .append("\"labels\":{");
+            for (int l = 0; l < LABELS.length; l++) {
+                if (l > 0) {
+                    sb.append(",");
+                }
+                sb.append("\"").append(LABELS[l]).append("\":{\"all\":[");
+                for (int a = 0; a < APPROVALS; a++) {
+                    if (a > 0) {
+                        sb.append(",");
+                    }
+                    sb.append("{\"value\":").append(a % 5 - 2)
+                            .append(",\"date\":\"2019-05-10 09:08:07.123000000\"")
+                            .append(",\"_account_id\":").append(2000 + a)
+                            .append(",\"name\":\"Reviewer ").append(a).append("\"")
+                            .append(",\"email\":\"reviewer").append(a).append("@example.com\"")
+                            .append(",\"avatars\":[{\"url\":\"https://example.com/")
+                            .append(a).append(".png\",\"height\":32}]}");
+                }
+                sb.append("]}");
+            }
+            sb.append("}}");
+        }
+        return sb.append("]").toString();
+    }
+
+    @Test
+    public void testParseChangeList() {
+        final Gson legacy = createLegacyGson();
+        final Gson streaming = createStreamingGson();
+        final String json = createPayload();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            legacy.fromJson(json, ChangeInfo[].class);
+            streaming.fromJson(json, ChangeInfo[].class);
+        }
+        Result before = parse(legacy, json);
+        Result after = parse(streaming, json);
+
+        System.out.println(String.format(Locale.US, "Parsed %d bytes per round:%n"
+                        + "  deserializers: %.2fms, %.2fMB allocated%n"
+                        + "  type adapters: %.2fms, %.2fMB allocated",
+                json.length(),
+                before.mTime / 1000000d, before.mAllocated / 1048576d,
+                after.mTime / 1000000d, after.mAllocated / 1048576d));
+        if (before.mAllocated >= 0 && after.mAllocated >= 0) {
+            assertTrue("type adapters allocate more than deserializers",
+                    after.mAllocated < before.mAllocated);
+        }
+
+        // Both must produce the same model. Dates aren't compared: the old parser read the
+        // nanoseconds fraction as milliseconds (see GerritTimestampCodecTest)
+        ChangeInfo[] expected = before.mChanges;
+        ChangeInfo[] actual = after.mChanges;
+        assertEquals(CHANGES, expected.length);
+        assertEquals(CHANGES, actual.length);
+        for (int i = 0; i < CHANGES; i++) {
+            assertEquals(i + 1, actual[i].legacyChangeId);
+            assertEquals(expected[i].subject, actual[i].subject);
+            assertEquals(expected[i].owner.name, actual[i].owner.name);
+            assertEquals(LABELS.length, actual[i].labels.size());
+            for (String label : LABELS) {
+                LabelInfo info = actual[i].labels.get(label);
+                assertEquals(APPROVALS, info.all.length);
+                for (int a = 0; a < APPROVALS; a++) {
+                    ApprovalInfo approval = info.all[a];
+                    ApprovalInfo old = expected[i].labels.get(label).all[a];
+                    assertEquals(old.value, approval.value);
+                    assertEquals(2000 + a, approval.owner.accountId);
+                    assertEquals(old.owner.accountId, approval.owner.accountId);
+                    assertEquals(old.owner.name, approval.owner.name);
+                    assertEquals(old.owner.email, approval.owner.email);
+                    assertEquals(old.owner.avatars[0].url, approval.owner.avatars[0].url);
+                }
+            }
+        }
+    }
+
+    private static Result parse(Gson gson, String json) {
+        Result result = new Result();
+        long allocated = getAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            result.mChanges = gson.fromJson(json, ChangeInfo[].class);
+        }
+        result.mTime = (System.nanoTime() - start) / ROUNDS;
+        result.mAllocated = allocated < 0 ? -1 : (getAllocatedBytes() - allocated) / ROUNDS;
+        return result;
+    }
+
+    // Bytes allocated by the current thread, or -1 if the vm can't tell
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()
+                    && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
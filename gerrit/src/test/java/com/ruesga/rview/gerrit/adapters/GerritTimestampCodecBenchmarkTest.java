@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit.adapters;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the codec with the shared and synchronized SimpleDateFormat it replaced, parsing
+ * the amount of dates found in a large change list payload from one and several threads.
+ */
+public class GerritTimestampCodecBenchmarkTest {
+
+    private static final int TIMESTAMPS = 30000;
+    private static final int ROUNDS = 5;
+    private static final int THREADS = 4;
+
+    private static final SimpleDateFormat FORMATTER;
+    static {
+        FORMATTER = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        FORMATTER.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    private interface Parser {
+        Date parse(String value) throws ParseException;
+    }
+
+    private static final Parser CODEC = GerritTimestampCodec::parse;
+
+    private static final Parser SIMPLE_DATE_FORMAT = value -> {
+        synchronized (FORMATTER) {
+            // Gerrit sends nanoseconds, but the format only understands milliseconds
+            return FORMATTER.parse(value.substring(0, 23));
+        }
+    };
+
+    private static String[] createTimestamps() {
+        Random random = new Random(42);
+        String[] timestamps = new String[TIMESTAMPS];
+        for (int i = 0; i < TIMESTAMPS; i++) {
+            // Between 1970 and 2100
+            long millis = (long) (random.nextDouble() * 4102444800000L);
+            timestamps[i] = GerritTimestampCodec.format(new Date(millis));
+        }
+        return timestamps;
+    }
+
+    private static long run(Parser parser, String[] timestamps, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    long checksum = 0;
+                    for (int r = 0; r < ROUNDS; r++) {
+                        for (String timestamp : timestamps) {
+                            checksum += parser.parse(timestamp).getTime();
+                        }
+                    }
+                    return checksum;
+                });
+            }
+
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (Future<Long> future : executor.invokeAll(tasks)) {
+                checksum += future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            // Keep the results alive and make sure every thread parsed the same thing
+            assertEquals(0, checksum % threads);
+            return elapsed;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        String[] timestamps = createTimestamps();
+        for (String timestamp : timestamps) {
+            assertEquals(SIMPLE_DATE_FORMAT.parse(timestamp), CODEC.parse(timestamp));
+        }
+
+        // Warm up both paths
+        run(SIMPLE_DATE_FORMAT, timestamps, 1);
+        run(CODEC, timestamps, 1);
+
+        for (int threads : new int[]{1, THREADS}) {
+            long sdf = run(SIMPLE_DATE_FORMAT, timestamps, threads);
+            long codec = run(CODEC, timestamps, threads);
+            System.out.println(String.format(Locale.US,
+                    "%d timestamps x %d, %d thread(s): SimpleDateFormat %.2fms, codec %.2fms",
+                    TIMESTAMPS, ROUNDS, threads, sdf / 1000000d, codec / 1000000d));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Jorge Ruesga
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ruesga.rview.gerrit.adapters;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class GerritTimestampCodecTest {
+
+    @Test
+    public void testMatchesSimpleDateFormat() throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            // Between 1970 and 2100
+            long millis = (long) (random.nextDouble() * 4102444800000L);
+            Date date = new Date(millis);
+            String expected = sdf.format(date) + "000000";
+            assertEquals(expected, GerritTimestampCodec.format(date));
+
+            Date parsed = GerritTimestampCodec.parse(expected);
+            assertEquals(Date.class, parsed.getClass());
+            assertEquals(millis, parsed.getTime());
+        }
+    }
+
+    @Test
+    public void testFractions() {
+        assertEquals(1557479287000L,
+                GerritTimestampCodec.parse("2019-05-10 09:08:07").getTime());
+        assertEquals(1557479287500L,
+                GerritTimestampCodec.parse("2019-05-10 09:08:07.5").getTime());
+        assertEquals(1557479287123L,
+                GerritTimestampCodec.parse("2019-05-10 09:08:07.123").getTime());
+        assertEquals(1557479287123L,
+                GerritTimestampCodec.parse("2019-05-10 09:08:07.123000000").getTime());
+        assertEquals(951782400000L,
+                GerritTimestampCodec.parse("2000-02-29 00:00:00.000000000").getTime());
+    }
+
+    @Test
+    public void testTruncatesToMilliseconds() {
+        Date date = GerritTimestampCodec.parse("2019-05-10 09:08:07.123456789");
+        assertEquals(Date.class, date.getClass());
+        assertEquals(1557479287123L, date.getTime());
+        assertEquals("2019-05-10 09:08:07.123000000", GerritTimestampCodec.format(date));
+    }
+
+    @Test
+    public void testDiffersFromSimpleDateFormat() throws Exception {
+        // The old parser read the nanoseconds fraction as milliseconds. The codec reads it
+        // as a fraction of second, and only differs for fractions longer than 3 digits
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        String value = "2019-05-10 09:08:07.123000000";
+        assertEquals(1557602287000L, sdf.parse(value).getTime());
+        assertEquals(1557479287123L, GerritTimestampCodec.parse(value).getTime());
+
+        value = "2019-05-10 09:08:07.123456789";
+        assertEquals(1557479287000L + 123456789L, sdf.parse(value).getTime());
+        assertEquals(1557479287123L, GerritTimestampCodec.parse(value).getTime());
+
+        value = "2019-05-10 09:08:07.123";
+        assertEquals(sdf.parse(value).getTime(), GerritTimestampCodec.parse(value).getTime());
+    }
+
+    @Test
+    public void testInvalidTimestamps() {
+        String[] invalid = {"", "2019-05-10", "2019-05-10 09:08:07.", "2019/05/10 09:08:07",
+                "2019-13-10 09:08:07", "2019-05-10 24:08:07", "2019-05-10 09:08:07.1234567890",
+                "2019-05-10 09:08:0x"};
+        for (String value : invalid) {
+            try {
+                GerritTimestampCodec.parse(value);
+                throw new AssertionError("Expected failure for " + value);
+            } catch (IllegalArgumentException ex) {
+                // Expected
+            }
+        }
+    }
+}